@@ -49,12 +49,13 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
@@ -88,8 +89,9 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                              final CacheControllerDispatcher cacheControllerDispatcher,
                              final InternalCallContextFactory internalCallContextFactory,
                              final NonEntityDao nonEntityDao,
-                             final AuditDao auditDao) {
-        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), AccountSqlDao.class);
+                             final AuditDao auditDao,
+                             final DaoConfig daoConfig) {
+        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, daoConfig), AccountSqlDao.class);
         this.accountImmutableCacheController = cacheControllerDispatcher.getCacheController(CacheType.ACCOUNT_IMMUTABLE);
         this.eventBus = eventBus;
         this.internalCallContextFactory = internalCallContextFactory;
@@ -170,7 +172,7 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
         // Otherwise, we pretty much need to do a full table scan (leading % in the like clause).
         // Note: forcing MySQL to search indexes (like luckySearch above) doesn't always seem to help on large tables, especially with large offsets
         return paginationHelper.getPagination(AccountSqlDao.class,
-                                              new PaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<AccountModelDao, Account, AccountSqlDao>() {
                                                   @Override
                                                   public Long getCount(final AccountSqlDao accountSqlDao, final InternalTenantContext context) {
                                                       return accountSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -180,6 +182,11 @@ public class DefaultAccountDao extends EntityDaoBase<AccountModelDao, Account, A
                                                   public Iterator<AccountModelDao> build(final AccountSqlDao accountSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return accountSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<AccountModelDao> buildAfterRecordId(final AccountSqlDao accountSqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return accountSqlDao.searchBetweenRecordIds(searchKey, String.format("%%%s%%", searchKey), getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -0,0 +1 @@
+alter table accounts add column events_version bigint NOT NULL DEFAULT 0 after migrated;
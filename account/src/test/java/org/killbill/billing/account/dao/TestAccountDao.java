@@ -43,14 +43,19 @@ import org.killbill.billing.util.audit.AuditLog;
 import org.killbill.billing.util.audit.AuditLogWithHistory;
 import org.killbill.billing.util.audit.ChangeType;
 import org.killbill.billing.util.audit.DefaultAccountAuditLogs;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
+import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagModelDao;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -139,6 +144,55 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
         Assert.assertEquals(auditLogsForAccount1ViaAccountRecordId2.getAuditLogsForAccount().get(1).getChangeType(), ChangeType.UPDATE);
     }
 
+    @Test(groups = "slow", description = "Test Account DAO: history and audit rows deferred to the end of the transaction")
+    public void testDeferredHistoryAndAudits() throws Exception {
+        final DaoConfig daoConfig = Mockito.mock(DaoConfig.class);
+        Mockito.when(daoConfig.isDeferHistoryAndAudits()).thenReturn(true);
+        final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao = new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, controllerDispatcher, nonEntityDao, internalCallContextFactory, daoConfig);
+
+        final AccountModelDao account = createTestAccount();
+        final AccountModelDao createdAccount = transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<AccountModelDao>() {
+            @Override
+            public AccountModelDao inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                final AccountModelDao createdAccount = (AccountModelDao) entitySqlDaoWrapperFactory.become(AccountSqlDao.class).create(account, internalCallContext);
+                // Not inserted yet
+                Assert.assertEquals(countHistoryRows(entitySqlDaoWrapperFactory, createdAccount.getRecordId()), 0L);
+                return createdAccount;
+            }
+        });
+        // The inserted model is returned, with its generated record id (it isn't read back from the database)
+        Assert.assertSame(createdAccount, account);
+        Assert.assertNotNull(createdAccount.getRecordId());
+        checkAccountsEqual(createdAccount, account);
+        refreshCallContext(account.getId());
+
+        transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
+            @Override
+            public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.become(AccountSqlDao.class).updatePaymentMethod(account.getId().toString(), UUID.randomUUID().toString(), internalCallContext);
+                Assert.assertEquals(countHistoryRows(entitySqlDaoWrapperFactory, createdAccount.getRecordId()), 1L);
+                return null;
+            }
+        });
+
+        final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.ACCOUNT, account.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs.size(), 2);
+        Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        Assert.assertEquals(auditLogs.get(1).getChangeType(), ChangeType.UPDATE);
+
+        // The account record id of the audit rows is the one of the account
+        final DefaultAccountAuditLogs accountAuditLogs = auditDao.getAuditLogsForAccountRecordId(AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(accountAuditLogs.getAuditLogsForAccount().size(), 2);
+    }
+
+    private static long countHistoryRows(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final Long targetRecordId) {
+        return entitySqlDaoWrapperFactory.getHandle()
+                                         .createQuery("select count(*) count from account_history where target_record_id = :targetRecordId")
+                                         .bind("targetRecordId", targetRecordId)
+                                         .map((index, r, ctx) -> r.getLong("count"))
+                                         .first();
+    }
+
     // Simple test to ensure long phone numbers can be stored
     @Test(groups = "slow", description = "Test Account DAO: long numbers")
     public void testLongPhoneNumber() throws AccountApiException {
@@ -234,7 +288,10 @@ public class TestAccountDao extends AccountTestSuiteWithEmbeddedDB {
                                                                                            .locale("FR-CA")
                                                                                            .build();
         final AccountModelDao updatedAccount = new AccountModelDao(account.getId(), accountData);
+        final Long eventsVersion = nonEntityDao.retrieveAccountEventsVersion(internalCallContext);
         accountDao.update(updatedAccount, true, internalCallContext);
+        // Account updates invalidate the entitlement snapshots of the account
+        Assert.assertEquals(nonEntityDao.retrieveAccountEventsVersion(internalCallContext), (Long) (eventsVersion + 1));
 
         final AccountModelDao retrievedAccount = accountDao.getAccountByKey(account.getExternalKey(), internalCallContext);
         checkAccountsEqual(retrievedAccount, updatedAccount);
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.audit;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.audit.AuditLog;
+
+public interface AuditInternalApi {
+
+    /**
+     * Retrieve the audit logs for a set of objects of an account, without loading the audit logs of the rest of the account
+     *
+     * @param accountId              the account id
+     * @param objectIdsPerObjectType the object ids, per object type
+     * @param auditLevel             audit level (verbosity)
+     * @param context                the tenant context
+     * @return the audit logs for these objects only
+     */
+    public AccountAuditLogs getAuditLogsForObjects(UUID accountId, Map<ObjectType, ? extends Collection<UUID>> objectIdsPerObjectType, AuditLevel auditLevel, InternalTenantContext context);
+
+    /**
+     * Stream the audit logs for a set of objects (e.g. for exports), grouped by object type.
+     * The results need to be consumed entirely to release the underlying connection.
+     *
+     * @param objectIdsPerObjectType the object ids, per object type
+     * @param auditLevel             audit level (verbosity)
+     * @param context                the tenant context
+     * @return the audit logs for these objects
+     */
+    public Iterator<AuditLog> streamAuditLogsForObjects(Map<ObjectType, ? extends Collection<UUID>> objectIdsPerObjectType, AuditLevel auditLevel, InternalTenantContext context);
+}
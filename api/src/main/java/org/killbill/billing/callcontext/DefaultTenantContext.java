@@ -26,10 +26,17 @@ public class DefaultTenantContext implements TenantContext {
 
     private final UUID accountId;
     private final UUID tenantId;
+    // Cursor handed out with the previous page of a listing, if any (see PaginationCursor)
+    private final String paginationCursor;
 
     public DefaultTenantContext(@Nullable final UUID accountId, @Nullable final UUID tenantId) {
+        this(accountId, tenantId, null);
+    }
+
+    public DefaultTenantContext(@Nullable final UUID accountId, @Nullable final UUID tenantId, @Nullable final String paginationCursor) {
         this.accountId = accountId;
         this.tenantId = tenantId;
+        this.paginationCursor = paginationCursor;
     }
 
     @Override
@@ -42,12 +49,18 @@ public class DefaultTenantContext implements TenantContext {
         return tenantId;
     }
 
+    @Nullable
+    public String getPaginationCursor() {
+        return paginationCursor;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append("DefaultTenantContext");
         sb.append("{accountId=").append(accountId);
         sb.append("{tenantId=").append(tenantId);
+        sb.append("{paginationCursor=").append(paginationCursor);
         sb.append('}');
         return sb.toString();
     }
@@ -69,6 +82,9 @@ public class DefaultTenantContext implements TenantContext {
         if (tenantId != null ? !tenantId.equals(that.tenantId) : that.tenantId != null) {
             return false;
         }
+        if (paginationCursor != null ? !paginationCursor.equals(that.paginationCursor) : that.paginationCursor != null) {
+            return false;
+        }
 
         return true;
     }
@@ -77,6 +93,7 @@ public class DefaultTenantContext implements TenantContext {
     public int hashCode() {
         int result = accountId != null ? accountId.hashCode() : 0;
         result = 31 * result + (tenantId != null ? tenantId.hashCode() : 0);
+        result = 31 * result + (paginationCursor != null ? paginationCursor.hashCode() : 0);
         return result;
     }
 }
@@ -33,15 +33,27 @@ public class InternalTenantContext extends TimeAwareContext {
 
     protected final Long tenantRecordId;
     protected final Long accountRecordId;
+    // Cursor passed in by the client to fetch the next page of a listing, if any (see PaginationCursor)
+    protected final String paginationCursor;
 
     public InternalTenantContext(final Long tenantRecordId,
                                  @Nullable final Long accountRecordId,
                                  @Nullable final DateTimeZone accountTimeZone,
                                  @Nullable final DateTimeZone fixedOffsetTimeZone,
                                  @Nullable final DateTime referenceDateTime) {
+        this(tenantRecordId, accountRecordId, accountTimeZone, fixedOffsetTimeZone, referenceDateTime, null);
+    }
+
+    public InternalTenantContext(final Long tenantRecordId,
+                                 @Nullable final Long accountRecordId,
+                                 @Nullable final DateTimeZone accountTimeZone,
+                                 @Nullable final DateTimeZone fixedOffsetTimeZone,
+                                 @Nullable final DateTime referenceDateTime,
+                                 @Nullable final String paginationCursor) {
         super(accountTimeZone, fixedOffsetTimeZone, referenceDateTime);
         this.tenantRecordId = tenantRecordId;
         this.accountRecordId = accountRecordId;
+        this.paginationCursor = paginationCursor;
     }
 
     public InternalTenantContext(final Long defaultTenantRecordId) {
@@ -60,6 +72,11 @@ public class InternalTenantContext extends TimeAwareContext {
         return tenantRecordId;
     }
 
+    @Nullable
+    public String getPaginationCursor() {
+        return paginationCursor;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
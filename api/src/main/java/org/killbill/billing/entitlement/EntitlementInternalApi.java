@@ -19,7 +19,9 @@
 
 package org.killbill.billing.entitlement;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -29,15 +31,23 @@ import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
 
 public interface EntitlementInternalApi {
 
     AccountEntitlements getAllEntitlementsForAccount(InternalTenantContext context) throws EntitlementApiException;
 
+    AccountEntitlements getAllEntitlementsForBundles(Collection<SubscriptionBaseBundle> bundles, InternalTenantContext context) throws EntitlementApiException;
+
     List<Entitlement> getAllEntitlementsForBundle(UUID bundleId, InternalTenantContext context) throws EntitlementApiException;
 
     Entitlement getEntitlementForId(final UUID uuid, final boolean includeDeletedEvents, final InternalTenantContext tenantContext) throws EntitlementApiException;
 
+    /**
+     * Bulk version of getEntitlementForId (excluding deleted events): unknown ids are left out of the returned map.
+     */
+    Map<UUID, Entitlement> getEntitlementsForIds(Collection<UUID> entitlementIds, InternalTenantContext tenantContext) throws EntitlementApiException;
+
     void pause(UUID bundleId, LocalDate effectiveDate, Iterable<PluginProperty> properties, InternalCallContext context) throws EntitlementApiException;
 
     void resume(UUID bundleId, LocalDate localEffectiveDate, Iterable<PluginProperty> properties, InternalCallContext context) throws EntitlementApiException;
@@ -35,4 +35,12 @@ public interface BillingInternalApi {
      * @return an ordered list of billing event for the given accounts
      */
     public BillingEventSet getBillingEventsForAccountAndUpdateAccountBCD(UUID accountId, DryRunArguments dryRunArguments, LocalDate cutoffDt, InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException;
+
+    /**
+     * Read-only version of getBillingEventsForAccountAndUpdateAccountBCD, which doesn't require the lock
+     *
+     * @return an ordered list of billing event for the given accounts, or null if the account BCD hasn't been set yet
+     * (getBillingEventsForAccountAndUpdateAccountBCD needs to be called instead)
+     */
+    public BillingEventSet getBillingEventsForAccountIfBCDSet(UUID accountId, LocalDate cutoffDt, InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException;
 }
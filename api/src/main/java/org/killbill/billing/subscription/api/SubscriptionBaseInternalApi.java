@@ -18,6 +18,7 @@
 
 package org.killbill.billing.subscription.api;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -75,8 +76,13 @@ public interface SubscriptionBaseInternalApi {
     public List<SubscriptionBase> getSubscriptionsForBundle(UUID bundleId, DryRunArguments dryRunArguments, InternalTenantContext context)
             throws SubscriptionBaseApiException;
 
+    public Map<UUID, List<SubscriptionBase>> getSubscriptionsForBundles(Collection<UUID> bundleIds, InternalTenantContext context) throws SubscriptionBaseApiException;
+
     public Map<UUID, List<SubscriptionBase>> getSubscriptionsForAccount(VersionedCatalog catalog, final LocalDate cutoffDt,  InternalTenantContext context) throws SubscriptionBaseApiException;
 
+    // Copies which can be modified (e.g. their transitions rebuilt) independently of the specified subscriptions
+    public List<SubscriptionBase> copySubscriptions(Collection<SubscriptionBase> subscriptions);
+
     public SubscriptionBase getBaseSubscription(UUID bundleId, InternalTenantContext context) throws SubscriptionBaseApiException;
 
     public SubscriptionBase getSubscriptionFromId(UUID id, boolean includeDeletedEvents, InternalTenantContext context) throws SubscriptionBaseApiException;
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.tenant.api;
+
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+
+/**
+ * Per tenant keys owned by Kill Bill itself (in addition to the {@link TenantKey}), which cannot be modified through the user key/value APIs.
+ * <p>
+ * Unlike the {@link TenantKey}, modifying them doesn't trigger any cache invalidation on the other nodes.
+ */
+public enum ReservedTenantKey {
+
+    /* Binary snapshot of the tenant catalog (see VersionedCatalogSnapshot) */
+    SNAPSHOT_CATALOG,
+    /* Binary snapshot of the tenant catalog, with template filtering */
+    SNAPSHOT_CATALOG_FILTERED;
+
+    public static boolean isReserved(final String key) {
+        for (final ReservedTenantKey reservedTenantKey : values()) {
+            if (reservedTenantKey.toString().equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -20,6 +20,7 @@ package org.killbill.billing.tenant.api;
 import java.util.List;
 import java.util.Locale;
 
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 
@@ -57,5 +58,7 @@ public interface TenantInternalApi {
 
     public List<String> getTenantValuesForKey(final String key, final InternalTenantContext tenantContext);
 
+    public void updateTenantValueForKey(final String key, final String value, final InternalCallContext context);
+
     public Tenant getTenantByApiKey(final String key) throws TenantApiException;
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import org.killbill.billing.usage.api.RawUsageRecord;
+
+/**
+ * Aggregate of all the raw usage points reported for a subscription, unit type and record date.
+ * <p>
+ * {@link #getAmount()} is the sum of the amounts (consumable usage), {@link #getTrackingId()} is one of the {@link #getTrackingIds()}.
+ */
+public interface DailyRawUsageRecord extends RawUsageRecord {
+
+    // Max of the amounts (capacity usage)
+    BigDecimal getMaxAmount();
+
+    // All the tracking ids of the aggregated usage points
+    Set<String> getTrackingIds();
+}
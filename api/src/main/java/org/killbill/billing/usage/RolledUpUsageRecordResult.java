@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.usage.api.UsageApiException;
+
+// Outcome of recording a single SubscriptionUsageRecord as part of a bulk ingestion
+public class RolledUpUsageRecordResult {
+
+    private final UUID subscriptionId;
+    private final String trackingId;
+    private final UsageApiException error;
+
+    public RolledUpUsageRecordResult(final UUID subscriptionId, @Nullable final String trackingId, @Nullable final UsageApiException error) {
+        this.subscriptionId = subscriptionId;
+        this.trackingId = trackingId;
+        this.error = error;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    // Generated tracking id if none was specified
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public UsageApiException getError() {
+        return error;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api;
+
+import java.util.List;
+
+import org.killbill.billing.usage.RolledUpUsageRecordResult;
+import org.killbill.billing.util.callcontext.CallContext;
+
+// UsageUserApi with bulk recording (UsageUserApi itself is part of killbill-api)
+public interface BulkUsageUserApi extends UsageUserApi {
+
+    /**
+     * Bulk version of {@link UsageUserApi#recordRolledUpUsage(SubscriptionUsageRecord, CallContext)}: records can span multiple subscriptions (and accounts) of the tenant.
+     * Invalid records (unknown subscription, duplicate tracking id) are rejected individually, the other ones are recorded.
+     *
+     * @param records     the usage records
+     * @param callContext the call context (tenant level)
+     * @return one result per input record, in the same order
+     */
+    List<RolledUpUsageRecordResult> recordRolledUpUsage(List<SubscriptionUsageRecord> records, CallContext callContext);
+}
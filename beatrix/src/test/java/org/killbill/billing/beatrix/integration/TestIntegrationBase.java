@@ -21,6 +21,7 @@ package org.killbill.billing.beatrix.integration;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -1103,6 +1104,12 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             public Void withHandle(final Handle handle) throws Exception {
                 handle.execute("delete from rolled_up_usage where subscription_id = ? and unit_type = ? and record_date = ?",
                                subscriptionId, unitType, recordedDate);
+                // All the usage points for that day are gone, so is their aggregate (keyed on the start of the account day)
+                final Date dayStart = internalCallContext.toUTCDateTime(recordedDate).toDate();
+                handle.execute("delete from rolled_up_usage_daily where subscription_id = ? and unit_type = ? and record_date = ?",
+                               subscriptionId, unitType, dayStart);
+                handle.execute("delete from rolled_up_usage_daily_tracking_ids where subscription_id = ? and unit_type = ? and record_date = ?",
+                               subscriptionId, unitType, dayStart);
                 return null;
             }
         });
@@ -1365,6 +1372,21 @@ public class TestIntegrationBase extends BeatrixTestSuiteWithEmbeddedDB implemen
             return defaultInvoiceConfig.getMaxGlobalLockRetries();
         }
 
+        @Override
+        public int getBatchInvoicingPrefetchDepth() {
+            return defaultInvoiceConfig.getBatchInvoicingPrefetchDepth();
+        }
+
+        @Override
+        public int getGeneratorParallelism() {
+            return defaultInvoiceConfig.getGeneratorParallelism();
+        }
+
+        @Override
+        public int getGeneratorParallelismMinSubscriptions() {
+            return defaultInvoiceConfig.getGeneratorParallelismMinSubscriptions();
+        }
+
         @Override
         public List<String> getInvoicePluginNames() {
             return defaultInvoiceConfig.getInvoicePluginNames();
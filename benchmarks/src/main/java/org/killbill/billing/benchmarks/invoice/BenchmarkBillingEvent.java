@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.BillingAlignment;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+
+// Plain value object: unlike Mockito mocks, it doesn't skew the allocation profile of the code under test
+public class BenchmarkBillingEvent implements BillingEvent {
+
+    private final UUID subscriptionId;
+    private final UUID bundleId;
+    private final int billCycleDayLocal;
+    private final DateTime effectiveDate;
+    private final Plan plan;
+    private final PlanPhase planPhase;
+    private final BillingPeriod billingPeriod;
+    private final BigDecimal fixedPrice;
+    private final BigDecimal recurringPrice;
+    private final Currency currency;
+    private final SubscriptionBaseTransitionType transitionType;
+    private final Long totalOrdering;
+    private final List<Usage> usages;
+    private final DateTime catalogEffectiveDate;
+
+    public BenchmarkBillingEvent(final UUID subscriptionId,
+                                 final UUID bundleId,
+                                 final int billCycleDayLocal,
+                                 final DateTime effectiveDate,
+                                 final Plan plan,
+                                 final PlanPhase planPhase,
+                                 final BillingPeriod billingPeriod,
+                                 final BigDecimal fixedPrice,
+                                 final BigDecimal recurringPrice,
+                                 final Currency currency,
+                                 final SubscriptionBaseTransitionType transitionType,
+                                 final long totalOrdering,
+                                 final List<Usage> usages,
+                                 final DateTime catalogEffectiveDate) {
+        this.subscriptionId = subscriptionId;
+        this.bundleId = bundleId;
+        this.billCycleDayLocal = billCycleDayLocal;
+        this.effectiveDate = effectiveDate;
+        this.plan = plan;
+        this.planPhase = planPhase;
+        this.billingPeriod = billingPeriod;
+        this.fixedPrice = fixedPrice;
+        this.recurringPrice = recurringPrice;
+        this.currency = currency;
+        this.transitionType = transitionType;
+        this.totalOrdering = totalOrdering;
+        this.usages = usages;
+        this.catalogEffectiveDate = catalogEffectiveDate;
+    }
+
+    @Override
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    @Override
+    public UUID getBundleId() {
+        return bundleId;
+    }
+
+    @Override
+    public int getBillCycleDayLocal() {
+        return billCycleDayLocal;
+    }
+
+    @Override
+    public int getQuantity() {
+        return 1;
+    }
+
+    @Override
+    public BillingAlignment getBillingAlignment() {
+        return BillingAlignment.ACCOUNT;
+    }
+
+    @Override
+    public DateTime getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    @Override
+    public PlanPhase getPlanPhase() {
+        return planPhase;
+    }
+
+    @Override
+    public Plan getPlan() {
+        return plan;
+    }
+
+    @Override
+    public BillingPeriod getBillingPeriod() {
+        return billingPeriod;
+    }
+
+    @Override
+    public String getDescription() {
+        return transitionType.toString();
+    }
+
+    @Override
+    public BigDecimal getFixedPrice() {
+        return fixedPrice;
+    }
+
+    @Override
+    public BigDecimal getRecurringPrice() {
+        return recurringPrice;
+    }
+
+    @Override
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    @Override
+    public SubscriptionBaseTransitionType getTransitionType() {
+        return transitionType;
+    }
+
+    @Override
+    public Long getTotalOrdering() {
+        return totalOrdering;
+    }
+
+    @Override
+    public List<Usage> getUsages() {
+        return usages;
+    }
+
+    @Override
+    public DateTime getCatalogEffectiveDate() {
+        return catalogEffectiveDate;
+    }
+
+    @Override
+    public int compareTo(final BillingEvent e1) {
+        if (!getSubscriptionId().equals(e1.getSubscriptionId())) {
+            return getSubscriptionId().compareTo(e1.getSubscriptionId());
+        } else if (!getEffectiveDate().equals(e1.getEffectiveDate())) {
+            return getEffectiveDate().compareTo(e1.getEffectiveDate());
+        } else {
+            return getTotalOrdering().compareTo(e1.getTotalOrdering());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.DefaultUsage;
+import org.killbill.billing.catalog.api.CatalogApiException;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.usage.ContiguousIntervalConsumableUsageInArrear;
+import org.killbill.billing.invoice.usage.ContiguousIntervalUsageInArrear;
+import org.killbill.billing.invoice.usage.ContiguousIntervalUsageInArrear.UsageInArrearItemsAndNextNotificationDate;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.usage.api.RawUsageRecord;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.config.definition.InvoiceConfig.UsageDetailMode;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ContiguousIntervalUsageInArrear} build and item computation for a consumable IN_ARREAR usage section,
+ * over {@code nbYears} of monthly periods with {@code nbUsagePointsPerDay} raw usage records per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ContiguousIntervalUsageInArrearBenchmark {
+
+    @Param({"1", "3"})
+    public int nbYears;
+
+    @Param({"1", "24", "288"})
+    public int nbUsagePointsPerDay;
+
+    @Param({"AGGREGATE", "DETAIL"})
+    public UsageDetailMode usageDetailMode;
+
+    private InvoiceConfig invoiceConfig;
+    private InternalCallContext context;
+    private DefaultUsage usage;
+    private BillingEvent billingEvent;
+    private List<RawUsageRecord> rawUsageRecords;
+    private UUID accountId;
+    private UUID invoiceId;
+    private LocalDate targetDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Clock clock = new DefaultClock();
+        invoiceConfig = InvoiceBenchmarkFixtures.createInvoiceConfig();
+        context = InvoiceBenchmarkFixtures.createInternalCallContext(clock);
+
+        final UUID subscriptionId = UUID.randomUUID();
+        targetDate = clock.getUTCToday().withDayOfMonth(1);
+        final LocalDate startDate = targetDate.minusYears(nbYears);
+
+        usage = InvoiceBenchmarkFixtures.createConsumableInArrearUsage("benchmark-usage");
+        billingEvent = InvoiceBenchmarkFixtures.createUsageBillingEvent(subscriptionId, 1, startDate, usage);
+        rawUsageRecords = InvoiceBenchmarkFixtures.createRawUsageRecords(subscriptionId, nbUsagePointsPerDay, startDate, targetDate);
+        accountId = UUID.randomUUID();
+        invoiceId = UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UsageInArrearItemsAndNextNotificationDate computeMissingItems() throws CatalogApiException, InvoiceApiException {
+        final ContiguousIntervalUsageInArrear interval = new ContiguousIntervalConsumableUsageInArrear(usage,
+                                                                                                      accountId,
+                                                                                                      invoiceId,
+                                                                                                      rawUsageRecords,
+                                                                                                      Collections.emptySet(),
+                                                                                                      targetDate,
+                                                                                                      billingEvent.getEffectiveDate(),
+                                                                                                      usageDetailMode,
+                                                                                                      invoiceConfig,
+                                                                                                      false,
+                                                                                                      context);
+        interval.addBillingEvent(billingEvent);
+        interval.addAllSeenUnitTypesForBillingEvent(billingEvent, interval.getUnitTypes());
+        interval.build(false);
+        return interval.computeMissingItemsAndNextNotificationDate(Collections.emptyList());
+    }
+}
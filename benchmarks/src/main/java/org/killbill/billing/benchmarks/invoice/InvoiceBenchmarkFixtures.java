@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.DefaultInternationalPrice;
+import org.killbill.billing.catalog.DefaultPrice;
+import org.killbill.billing.catalog.DefaultTier;
+import org.killbill.billing.catalog.DefaultTieredBlock;
+import org.killbill.billing.catalog.DefaultUnit;
+import org.killbill.billing.catalog.DefaultUsage;
+import org.killbill.billing.catalog.MockInternationalPrice;
+import org.killbill.billing.catalog.MockPlanPhase;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.catalog.api.TierBlockPolicy;
+import org.killbill.billing.catalog.api.Usage;
+import org.killbill.billing.catalog.api.UsageType;
+import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
+import org.killbill.billing.invoice.generator.SubscriptionPartitionExecutor;
+import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
+import org.killbill.billing.invoice.optimizer.InvoiceOptimizerBase.AccountInvoices;
+import org.killbill.billing.invoice.usage.RawUsageOptimizer;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.mock.MockAccountBuilder;
+import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.usage.api.RawUsageRecord;
+import org.killbill.billing.usage.api.svcs.DefaultRawUsage;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.skife.config.ConfigurationObjectFactory;
+
+/**
+ * Synthetic, in-memory inputs for the invoice benchmarks: no database, no Guice, no mocks on the hot path.
+ */
+public final class InvoiceBenchmarkFixtures {
+
+    public static final Currency CURRENCY = Currency.USD;
+    public static final String USAGE_UNIT = "api-calls";
+
+    private static final BigDecimal INITIAL_RECURRING_PRICE = new BigDecimal("29.95");
+    private static final BigDecimal PRICE_CHANGE_INCREMENT = new BigDecimal("5.00");
+
+    private InvoiceBenchmarkFixtures() {}
+
+    public static InvoiceConfig createInvoiceConfig() {
+        // Defaults, overridable with -Dorg.killbill.invoice.xxx=... on the JMH command line
+        return new ConfigurationObjectFactory(System.getProperties()).build(InvoiceConfig.class);
+    }
+
+    public static InternalCallContext createInternalCallContext(final Clock clock) {
+        final DateTime now = clock.getUTCNow();
+        return new InternalCallContext(InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID,
+                                       1L,
+                                       DateTimeZone.UTC,
+                                       DateTimeZone.UTC,
+                                       now,
+                                       UUID.randomUUID(),
+                                       "benchmark",
+                                       CallOrigin.INTERNAL,
+                                       UserType.SYSTEM,
+                                       null,
+                                       null,
+                                       now,
+                                       now);
+    }
+
+    public static ImmutableAccountData createAccount() {
+        return new MockAccountBuilder().currency(CURRENCY)
+                                       .timeZone(DateTimeZone.UTC)
+                                       .billingCycleDayLocal(1)
+                                       .build();
+    }
+
+    public static DefaultInvoiceGenerator createInvoiceGenerator(final InvoiceConfig invoiceConfig, final Clock clock) {
+        // Honors -Dorg.killbill.invoice.generator.parallelism
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(invoiceConfig);
+        final FixedAndRecurringInvoiceItemGenerator recurringInvoiceItemGenerator = new FixedAndRecurringInvoiceItemGenerator(invoiceConfig, clock, partitionExecutor);
+        // The raw usage optimizer is only consulted when some billing events carry IN_ARREAR usage sections
+        final RawUsageOptimizer rawUsageOptimizer = new RawUsageOptimizer(invoiceConfig, null, null, clock);
+        final UsageInvoiceItemGenerator usageInvoiceItemGenerator = new UsageInvoiceItemGenerator(rawUsageOptimizer, invoiceConfig, partitionExecutor);
+        return new DefaultInvoiceGenerator(clock, invoiceConfig, recurringInvoiceItemGenerator, usageInvoiceItemGenerator);
+    }
+
+    /**
+     * Monthly IN_ADVANCE subscriptions starting on {@code startDate} (spread over all BCDs), each with
+     * {@code nbPriceChanges} mid-period price changes evenly spread until {@code endDate}: once invoiced, each change yields a repair.
+     */
+    public static List<BillingEvent> createRecurringBillingEvents(final int nbSubscriptions,
+                                                                  final int nbPriceChanges,
+                                                                  final LocalDate startDate,
+                                                                  final LocalDate endDate) {
+        final int nbMonths = Math.max(1, (endDate.getYear() - startDate.getYear()) * 12 + endDate.getMonthOfYear() - startDate.getMonthOfYear());
+        final DateTime catalogEffectiveDate = startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+
+        final List<BillingEvent> events = new ArrayList<>(nbSubscriptions * (nbPriceChanges + 1));
+        long totalOrdering = 0;
+        for (int i = 0; i < nbSubscriptions; i++) {
+            final UUID subscriptionId = UUID.randomUUID();
+            final UUID bundleId = UUID.randomUUID();
+            final int bcd = 1 + (i % 28);
+
+            BigDecimal recurringPrice = INITIAL_RECURRING_PRICE;
+            events.add(createRecurringBillingEvent(subscriptionId, bundleId, bcd, startDate, recurringPrice, SubscriptionBaseTransitionType.CREATE, totalOrdering++, catalogEffectiveDate));
+            for (int j = 1; j <= nbPriceChanges; j++) {
+                final LocalDate changeDate = startDate.plusMonths(j * nbMonths / (nbPriceChanges + 1)).withDayOfMonth(16);
+                recurringPrice = recurringPrice.add(PRICE_CHANGE_INCREMENT);
+                events.add(createRecurringBillingEvent(subscriptionId, bundleId, bcd, changeDate, recurringPrice, SubscriptionBaseTransitionType.CHANGE, totalOrdering++, catalogEffectiveDate));
+            }
+        }
+        return events;
+    }
+
+    public static MockBillingEventSet createBillingEventSet(final Iterable<BillingEvent> events, final LocalDate upToDate) {
+        final MockBillingEventSet eventSet = new MockBillingEventSet();
+        for (final BillingEvent event : events) {
+            if (!event.getEffectiveDate().toLocalDate().isAfter(upToDate)) {
+                eventSet.add(event);
+            }
+        }
+        return eventSet;
+    }
+
+    /**
+     * Replay the invoicing history from {@code startDate} to {@code endDate}, as the invoice notifications would have,
+     * with each run only seeing the billing events known at the time (so that price changes are repaired rather than prorated).
+     */
+    public static List<Invoice> createInvoiceHistory(final DefaultInvoiceGenerator generator,
+                                                     final ImmutableAccountData account,
+                                                     final List<BillingEvent> events,
+                                                     final LocalDate startDate,
+                                                     final LocalDate endDate,
+                                                     final InternalCallContext context) throws InvoiceApiException {
+        final List<Invoice> invoices = new ArrayList<>();
+        LocalDate targetDate = startDate;
+        while (!targetDate.isAfter(endDate)) {
+            final MockBillingEventSet eventSet = createBillingEventSet(events, targetDate);
+            final InvoiceWithMetadata invoiceWithMetadata = generator.generateInvoice(account,
+                                                                                      eventSet,
+                                                                                      new AccountInvoices(null, null, invoices),
+                                                                                      null,
+                                                                                      targetDate,
+                                                                                      CURRENCY,
+                                                                                      null,
+                                                                                      Collections.emptyList(),
+                                                                                      context);
+            if (invoiceWithMetadata.getInvoice() != null) {
+                invoices.add(invoiceWithMetadata.getInvoice());
+            }
+            // Twice a month: on the 1st and on the 16th (day of the price changes)
+            targetDate = targetDate.getDayOfMonth() < 16 ? targetDate.withDayOfMonth(16) : targetDate.plusMonths(1).withDayOfMonth(1);
+        }
+        return invoices;
+    }
+
+    public static DefaultUsage createConsumableInArrearUsage(final String usageName) {
+        final DefaultTieredBlock block = new DefaultTieredBlock();
+        block.setUnit(new DefaultUnit().setName(USAGE_UNIT));
+        block.setSize(BigDecimal.valueOf(100));
+        block.setMax(BigDecimal.valueOf(-1));
+        block.setPrice(new DefaultInternationalPrice().setPrices(new DefaultPrice[]{new DefaultPrice().setCurrency(CURRENCY).setValue(new BigDecimal("0.10"))}));
+
+        final DefaultTier tier = new DefaultTier();
+        tier.setBlocks(new DefaultTieredBlock[]{block});
+
+        final DefaultUsage usage = new DefaultUsage();
+        usage.setName(usageName);
+        usage.setBillingMode(BillingMode.IN_ARREAR);
+        usage.setUsageType(UsageType.CONSUMABLE);
+        usage.setTierBlockPolicy(TierBlockPolicy.ALL_TIERS);
+        usage.setBillingPeriod(BillingPeriod.MONTHLY);
+        usage.setTiers(new DefaultTier[]{tier});
+        return usage;
+    }
+
+    public static BillingEvent createUsageBillingEvent(final UUID subscriptionId, final int bcd, final LocalDate startDate, final Usage usage) {
+        final MockPlanPhase planPhase = new MockPlanPhase(null, null, BillingPeriod.MONTHLY);
+        final DateTime effectiveDate = startDate.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+        return new BenchmarkBillingEvent(subscriptionId,
+                                         UUID.randomUUID(),
+                                         bcd,
+                                         effectiveDate,
+                                         planPhase.getPlan(),
+                                         planPhase,
+                                         BillingPeriod.MONTHLY,
+                                         null,
+                                         null,
+                                         CURRENCY,
+                                         SubscriptionBaseTransitionType.CREATE,
+                                         0L,
+                                         List.of(usage),
+                                         effectiveDate);
+    }
+
+    /**
+     * {@code nbPointsPerDay} usage records per day, from {@code startDate} (inclusive) to {@code endDate} (exclusive).
+     */
+    public static List<RawUsageRecord> createRawUsageRecords(final UUID subscriptionId,
+                                                             final int nbPointsPerDay,
+                                                             final LocalDate startDate,
+                                                             final LocalDate endDate) {
+        final List<RawUsageRecord> records = new ArrayList<>();
+        LocalDate day = startDate;
+        while (day.isBefore(endDate)) {
+            final DateTime dayStart = day.toDateTimeAtStartOfDay(DateTimeZone.UTC);
+            final String trackingId = day.toString();
+            for (int i = 0; i < nbPointsPerDay; i++) {
+                records.add(new DefaultRawUsage(subscriptionId, dayStart.plusMinutes(i), USAGE_UNIT, BigDecimal.valueOf(1 + (i % 50)), trackingId));
+            }
+            day = day.plusDays(1);
+        }
+        return records;
+    }
+
+    private static BillingEvent createRecurringBillingEvent(final UUID subscriptionId,
+                                                            final UUID bundleId,
+                                                            final int bcd,
+                                                            final LocalDate effectiveDate,
+                                                            final BigDecimal recurringPrice,
+                                                            final SubscriptionBaseTransitionType transitionType,
+                                                            final long totalOrdering,
+                                                            final DateTime catalogEffectiveDate) {
+        final MockPlanPhase planPhase = new MockPlanPhase(new MockInternationalPrice(new DefaultPrice(recurringPrice, CURRENCY)), null, BillingPeriod.MONTHLY);
+        return new BenchmarkBillingEvent(subscriptionId,
+                                         bundleId,
+                                         bcd,
+                                         effectiveDate.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                                         planPhase.getPlan(),
+                                         planPhase,
+                                         BillingPeriod.MONTHLY,
+                                         null,
+                                         recurringPrice,
+                                         CURRENCY,
+                                         transitionType,
+                                         totalOrdering,
+                                         Collections.emptyList(),
+                                         catalogEffectiveDate);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.MockBillingEventSet;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.generator.InvoiceWithMetadata;
+import org.killbill.billing.invoice.optimizer.InvoiceOptimizerBase.AccountInvoices;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.killbill.billing.benchmarks.invoice.InvoiceBenchmarkFixtures.CURRENCY;
+
+/**
+ * Full {@link DefaultInvoiceGenerator#generateInvoice} run for the next billing period of an account with
+ * {@code nbYears} of invoicing history (including the repairs triggered by {@code nbPriceChanges} price changes per subscription).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class InvoiceGeneratorBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int nbSubscriptions;
+
+    @Param({"1", "5"})
+    public int nbYears;
+
+    @Param({"0", "4"})
+    public int nbPriceChanges;
+
+    private DefaultInvoiceGenerator generator;
+    private ImmutableAccountData account;
+    private InternalCallContext context;
+    private MockBillingEventSet eventSet;
+    private List<Invoice> existingInvoices;
+    private LocalDate targetDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InvoiceApiException {
+        final Clock clock = new DefaultClock();
+        final InvoiceConfig invoiceConfig = InvoiceBenchmarkFixtures.createInvoiceConfig();
+
+        generator = InvoiceBenchmarkFixtures.createInvoiceGenerator(invoiceConfig, clock);
+        account = InvoiceBenchmarkFixtures.createAccount();
+        context = InvoiceBenchmarkFixtures.createInternalCallContext(clock);
+
+        final LocalDate endDate = clock.getUTCToday().withDayOfMonth(1);
+        final LocalDate startDate = endDate.minusYears(nbYears);
+        final List<BillingEvent> events = InvoiceBenchmarkFixtures.createRecurringBillingEvents(nbSubscriptions, nbPriceChanges, startDate, endDate);
+
+        existingInvoices = InvoiceBenchmarkFixtures.createInvoiceHistory(generator, account, events, startDate, endDate, context);
+        eventSet = InvoiceBenchmarkFixtures.createBillingEventSet(events, endDate);
+        targetDate = endDate.plusMonths(1);
+    }
+
+    @Benchmark
+    public InvoiceWithMetadata generateInvoice() throws InvoiceApiException {
+        return generator.generateInvoice(account,
+                                         eventSet,
+                                         new AccountInvoices(null, null, existingInvoices),
+                                         null,
+                                         targetDate,
+                                         CURRENCY,
+                                         null,
+                                         Collections.emptyList(),
+                                         context);
+    }
+}
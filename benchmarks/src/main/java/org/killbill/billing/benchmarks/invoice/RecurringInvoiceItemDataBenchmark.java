@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.catalog.api.BillingMode;
+import org.killbill.billing.catalog.api.BillingPeriod;
+import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
+import org.killbill.billing.invoice.model.InvalidDateSequenceException;
+import org.killbill.billing.invoice.model.RecurringInvoiceItemDataWithNextBillingCycleDate;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Period computation of {@link FixedAndRecurringInvoiceItemGenerator#generateInvoiceItemData} for a subscription
+ * started {@code nbYears} ago with a BCD different from its start date (leading pro-ration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RecurringInvoiceItemDataBenchmark {
+
+    private static final int BCD = 15;
+
+    @Param({"1", "5", "20"})
+    public int nbYears;
+
+    @Param({"MONTHLY", "WEEKLY"})
+    public BillingPeriod billingPeriod;
+
+    @Param({"IN_ADVANCE", "IN_ARREAR"})
+    public BillingMode billingMode;
+
+    private FixedAndRecurringInvoiceItemGenerator recurringInvoiceItemGenerator;
+    private InternalCallContext context;
+    private LocalDate startDate;
+    private LocalDate targetDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Clock clock = new DefaultClock();
+
+        recurringInvoiceItemGenerator = new FixedAndRecurringInvoiceItemGenerator(InvoiceBenchmarkFixtures.createInvoiceConfig(), clock);
+        context = InvoiceBenchmarkFixtures.createInternalCallContext(clock);
+
+        targetDate = clock.getUTCToday();
+        startDate = targetDate.minusYears(nbYears).withDayOfMonth(1);
+    }
+
+    @Benchmark
+    public RecurringInvoiceItemDataWithNextBillingCycleDate generateInvoiceItemData() throws InvalidDateSequenceException {
+        return recurringInvoiceItemGenerator.generateInvoiceItemData(startDate, null, targetDate, BCD, billingPeriod, billingMode, context);
+    }
+}
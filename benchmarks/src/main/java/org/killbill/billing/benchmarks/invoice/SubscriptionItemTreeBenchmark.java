@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.benchmarks.invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceItem;
+import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
+import org.killbill.billing.invoice.tree.SubscriptionItemTree;
+import org.killbill.billing.junction.BillingEvent;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.clock.Clock;
+import org.killbill.clock.DefaultClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SubscriptionItemTree} (and underlying {@code ItemsNodeInterval}) operations for a single subscription:
+ * building the tree from the existing items on disk, and merging the proposed items back into it, as done by the
+ * {@code AccountItemTree} on each invoice run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SubscriptionItemTreeBenchmark {
+
+    @Param({"1", "5", "10"})
+    public int nbYears;
+
+    @Param({"0", "4", "12"})
+    public int nbPriceChanges;
+
+    private UUID subscriptionId;
+    private UUID targetInvoiceId;
+    private int prorationFixedDays;
+    private List<InvoiceItem> existingItems;
+    private List<InvoiceItem> proposedItems;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InvoiceApiException {
+        final Clock clock = new DefaultClock();
+        final InvoiceConfig invoiceConfig = InvoiceBenchmarkFixtures.createInvoiceConfig();
+        final DefaultInvoiceGenerator generator = InvoiceBenchmarkFixtures.createInvoiceGenerator(invoiceConfig, clock);
+        final ImmutableAccountData account = InvoiceBenchmarkFixtures.createAccount();
+        final InternalCallContext context = InvoiceBenchmarkFixtures.createInternalCallContext(clock);
+
+        final LocalDate endDate = clock.getUTCToday().withDayOfMonth(1);
+        final LocalDate startDate = endDate.minusYears(nbYears);
+        final List<BillingEvent> events = InvoiceBenchmarkFixtures.createRecurringBillingEvents(1, nbPriceChanges, startDate, endDate);
+        final List<Invoice> invoices = InvoiceBenchmarkFixtures.createInvoiceHistory(generator, account, events, startDate, endDate, context);
+
+        subscriptionId = events.get(0).getSubscriptionId();
+        targetInvoiceId = UUID.randomUUID();
+        prorationFixedDays = invoiceConfig.getProrationFixedDays();
+
+        existingItems = new ArrayList<>();
+        for (final Invoice invoice : invoices) {
+            existingItems.addAll(invoice.getInvoiceItems());
+        }
+
+        // What is currently billed, i.e. what the generator would propose again if nothing changed
+        proposedItems = buildExistingTree().getView();
+    }
+
+    @Benchmark
+    public SubscriptionItemTree buildExistingTree() {
+        final SubscriptionItemTree tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays);
+        for (final InvoiceItem existingItem : existingItems) {
+            tree.addItem(existingItem);
+        }
+        tree.build();
+        return tree;
+    }
+
+    @Benchmark
+    public List<InvoiceItem> mergeProposedItems() {
+        final SubscriptionItemTree tree = buildExistingTree();
+        tree.flatten(true);
+        for (final InvoiceItem proposedItem : proposedItems) {
+            tree.mergeProposedItem(proposedItem);
+        }
+        tree.buildForMerge();
+        return tree.getView();
+    }
+}
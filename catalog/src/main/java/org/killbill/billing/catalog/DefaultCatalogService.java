@@ -87,6 +87,7 @@ public class DefaultCatalogService implements KillbillService, CatalogService {
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
     public void stop() {
         versionedCatalogLoader.close();
+        catalogCache.close();
     }
 
     @Override
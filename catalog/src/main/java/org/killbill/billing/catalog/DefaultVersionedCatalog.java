@@ -41,15 +41,16 @@ import org.joda.time.DateTime;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PlanPhase;
 import org.killbill.billing.catalog.api.StaticCatalog;
-import org.killbill.billing.catalog.api.VersionedCatalog;
 import org.killbill.billing.util.catalog.CatalogDateHelper;
+import org.killbill.billing.util.catalog.CatalogVersionIndex;
+import org.killbill.billing.util.catalog.IndexedVersionedCatalog;
 import org.killbill.xmlloader.ValidatingConfig;
 import org.killbill.xmlloader.ValidationError;
 import org.killbill.xmlloader.ValidationErrors;
 
 @XmlRootElement(name = "catalogs")
 @XmlAccessorType(XmlAccessType.NONE)
-public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCatalog> implements VersionedCatalog, Externalizable {
+public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCatalog> implements IndexedVersionedCatalog, Externalizable {
 
     private static final long serialVersionUID = 3181874902672322725L;
     @XmlElementWrapper(name = "versions", required = true)
@@ -58,6 +59,9 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     @XmlElement(required = true)
     private String catalogName;
 
+    // Built on first use (versions are immutable once the catalog has been loaded and cached)
+    private transient volatile CatalogVersionIndex versionIndex;
+
     // Required for JAXB deserialization
     public DefaultVersionedCatalog() {
         this.versions = new ArrayList<StaticCatalog>();
@@ -85,25 +89,21 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     }
 
     private StaticCatalog versionForDate(final DateTime date) {
-        return versions.get(indexOfVersionForDate(date.toDate()));
-    }
-
-    private int indexOfVersionForDate(final Date date) {
-
-        for (int i = versions.size() - 1; i >= 0; i--) {
-            final StaticCatalog c = versions.get(i);
-            if (c.getEffectiveDate().getTime() <= date.getTime()) {
-                return i;
-            }
-        }
         // If the only version we have are after the input date, we return the first version
         // This is not strictly correct from an api point of view, but there is no real good use case
         // where the system would ask for the catalog for a date prior any catalog was uploaded and
         // yet time manipulation could end of inn that state -- see https://github.com/killbill/killbill/issues/760
-        if (!versions.isEmpty()) {
-            return 0;
+        return getVersionIndex().versionForDate(date.toDate());
+    }
+
+    @Override
+    public CatalogVersionIndex getVersionIndex() {
+        CatalogVersionIndex result = versionIndex;
+        if (result == null) {
+            result = new CatalogVersionIndex(versions);
+            versionIndex = result;
         }
-        throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", date));
+        return result;
     }
 
     public void add(final StandaloneCatalog e) {
@@ -117,6 +117,7 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
                 return c1.getEffectiveDate().compareTo(c2.getEffectiveDate());
             }
         });
+        versionIndex = null;
     }
 
     @Override
@@ -196,6 +197,7 @@ public class DefaultVersionedCatalog extends ValidatingConfig<DefaultVersionedCa
     public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
         this.catalogName = in.readBoolean() ? in.readUTF() : null;
         this.versions.addAll((Collection<? extends StandaloneCatalog>) in.readObject());
+        this.versionIndex = null;
     }
 
     @Override
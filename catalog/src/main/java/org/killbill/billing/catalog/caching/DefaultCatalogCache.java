@@ -17,15 +17,19 @@
 
 package org.killbill.billing.catalog.caching;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.inject.Inject;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.DefaultVersionedCatalog;
 import org.killbill.billing.catalog.StandaloneCatalog;
@@ -34,11 +38,13 @@ import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.api.VersionedCatalog;
 import org.killbill.billing.catalog.io.VersionedCatalogLoader;
+import org.killbill.billing.catalog.io.VersionedCatalogSnapshot;
 import org.killbill.billing.catalog.override.PriceOverride;
 import org.killbill.billing.catalog.plugin.VersionedCatalogMapper;
 import org.killbill.billing.catalog.plugin.api.CatalogPluginApi;
 import org.killbill.billing.catalog.plugin.api.VersionedPluginCatalog;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.billing.util.cache.Cachable.CacheType;
@@ -46,8 +52,12 @@ import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.cache.CacheLoaderArgument;
 import org.killbill.billing.util.cache.TenantCatalogCacheLoader.LoaderCallback;
+import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.CatalogConfig;
+import org.killbill.commons.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +73,9 @@ public class DefaultCatalogCache implements CatalogCache {
     private final VersionedCatalogMapper versionedCatalogMapper;
     private final PriceOverride priceOverride;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final TenantInternalApi tenantInternalApi;
+    private final CatalogConfig catalogConfig;
+    private final ExecutorService snapshotExecutor;
     private VersionedCatalog defaultCatalog;
 
     @Inject
@@ -71,13 +84,21 @@ public class DefaultCatalogCache implements CatalogCache {
                                final CacheControllerDispatcher cacheControllerDispatcher,
                                final VersionedCatalogLoader loader,
                                final PriceOverride priceOverride,
-                               final InternalCallContextFactory internalCallContextFactory) {
+                               final InternalCallContextFactory internalCallContextFactory,
+                               final TenantInternalApi tenantInternalApi,
+                               final CatalogConfig catalogConfig) {
         this.pluginRegistry = pluginRegistry;
         this.versionedCatalogMapper = versionedCatalogMapper;
         this.cacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_CATALOG);
         this.loader = loader;
         this.priceOverride = priceOverride;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.tenantInternalApi = tenantInternalApi;
+        this.catalogConfig = catalogConfig;
+        this.snapshotExecutor = Executors.newFixedThreadPool(1, "catalog-snapshot");
+        if (catalogConfig.isCatalogSnapshotEnabled() && catalogConfig.getCatalogSnapshotSecret() == null) {
+            logger.warn("Catalog snapshots are disabled: org.killbill.catalog.cache.snapshot.secret isn't set");
+        }
         this.cacheLoaderArgumentWithTemplateFiltering = initializeCacheLoaderArgument(true);
         this.cacheLoaderArgument = initializeCacheLoaderArgument(false);
         setDefaultCatalog();
@@ -208,7 +229,15 @@ public class DefaultCatalogCache implements CatalogCache {
         final LoaderCallback loaderCallback = new LoaderCallback() {
             @Override
             public VersionedCatalog loadCatalog(final List<String> catalogXMLs, final Long tenantRecordId) throws CatalogApiException {
-                final VersionedCatalog versionedCatalog = loader.load(catalogXMLs, filterTemplateCatalog, tenantRecordId);
+                final String checksum = isCatalogSnapshotEnabled() ? VersionedCatalogSnapshot.checksum(catalogXMLs, filterTemplateCatalog) : null;
+                VersionedCatalog versionedCatalog = checksum != null ? loadCatalogFromSnapshot(checksum, filterTemplateCatalog, tenantRecordId) : null;
+                if (versionedCatalog == null) {
+                    versionedCatalog = loader.load(catalogXMLs, filterTemplateCatalog, tenantRecordId);
+                    if (checksum != null && versionedCatalog instanceof DefaultVersionedCatalog) {
+                        // Missing or stale snapshot (catalog update, Kill Bill upgrade, ...): rebuild it from the catalog we just parsed
+                        storeCatalogSnapshot((DefaultVersionedCatalog) versionedCatalog, checksum, filterTemplateCatalog, tenantRecordId);
+                    }
+                }
                 if (versionedCatalog != null) {
                     initializeCatalog(versionedCatalog);
                 }
@@ -222,6 +251,64 @@ public class DefaultCatalogCache implements CatalogCache {
         return new CacheLoaderArgument(irrelevant, args, notUsed);
     }
 
+    @Override
+    public void close() {
+        snapshotExecutor.shutdown();
+    }
+
+    // Best effort: cache misses will parse the XMLs until the snapshot is stored
+    private void storeCatalogSnapshot(final DefaultVersionedCatalog versionedCatalog, final String checksum, final boolean filterTemplateCatalog, final Long tenantRecordId) {
+        final String snapshot;
+        try {
+            // Encoded right away, as the catalog gets initialized once returned
+            snapshot = VersionedCatalogSnapshot.encode(versionedCatalog, checksum, catalogConfig.getCatalogSnapshotSecret());
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Failed to build catalog snapshot for tenantRecordId='{}'", tenantRecordId, e);
+            return;
+        }
+        if (snapshot == null) {
+            logger.info("Catalog for tenantRecordId='{}' is too large to be snapshotted", tenantRecordId);
+            return;
+        }
+
+        // The write itself is done in the background, off the read path
+        try {
+            snapshotExecutor.execute(() -> {
+                try {
+                    final InternalCallContext callContext = internalCallContextFactory.createInternalCallContext(tenantRecordId, null, "CatalogSnapshot", CallOrigin.INTERNAL, UserType.SYSTEM, null);
+                    tenantInternalApi.updateTenantValueForKey(VersionedCatalogSnapshot.getSnapshotKey(filterTemplateCatalog), snapshot, callContext);
+                } catch (final RuntimeException e) {
+                    logger.warn("Failed to store catalog snapshot for tenantRecordId='{}'", tenantRecordId, e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            logger.debug("Catalog snapshot for tenantRecordId='{}' not stored, shutting down", tenantRecordId);
+        }
+    }
+
+    private boolean isCatalogSnapshotEnabled() {
+        return catalogConfig.isCatalogSnapshotEnabled() && catalogConfig.getCatalogSnapshotSecret() != null;
+    }
+
+    private VersionedCatalog loadCatalogFromSnapshot(final String checksum, final boolean filterTemplateCatalog, final Long tenantRecordId) {
+        final InternalTenantContext tenantContext = new InternalTenantContext(tenantRecordId);
+        final List<String> snapshots = tenantInternalApi.getTenantValuesForKey(VersionedCatalogSnapshot.getSnapshotKey(filterTemplateCatalog), tenantContext);
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+
+        try {
+            final DefaultVersionedCatalog snapshotCatalog = VersionedCatalogSnapshot.decode(snapshots.get(snapshots.size() - 1), checksum, catalogConfig.getCatalogSnapshotSecret());
+            if (snapshotCatalog == null) {
+                logger.info("Ignoring stale catalog snapshot for tenantRecordId='{}'", tenantRecordId);
+            }
+            return snapshotCatalog;
+        } catch (final IOException | RuntimeException e) {
+            logger.warn("Ignoring invalid catalog snapshot for tenantRecordId='{}'", tenantRecordId, e);
+            return null;
+        }
+    }
+
     @VisibleForTesting
     void setDefaultCatalog() {
         try {
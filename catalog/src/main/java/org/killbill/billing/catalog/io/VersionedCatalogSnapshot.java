@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.killbill.billing.catalog.DefaultVersionedCatalog;
+import org.killbill.billing.tenant.api.ReservedTenantKey;
+
+/**
+ * Binary snapshot of a validated {@link DefaultVersionedCatalog}, stored in the tenant KV store next to the catalog XMLs.
+ * <p>
+ * The snapshot is the (gzipped, base64 encoded) {@link java.io.Externalizable} form of the catalog, preceded by a header
+ * containing a checksum of the XMLs it was built from: a snapshot is only used if that checksum matches the current XMLs,
+ * otherwise the XMLs are parsed again and the snapshot rebuilt.
+ * <p>
+ * The {@link java.io.Externalizable} format isn't versioned, so the Kill Bill version is part of the checksum as well: an upgrade
+ * invalidates all existing snapshots, each of them being rebuilt (in the background) on the first cache miss for that tenant.
+ * <p>
+ * Snapshots are signed with a server side secret (HMAC-SHA256), which is verified before anything gets deserialized.
+ */
+public final class VersionedCatalogSnapshot {
+
+    // Bump when the layout below changes
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x4B42_4353; // KBCS
+
+    // tenant_kvs.tenant_value is a MEDIUMTEXT
+    private static final int MAX_ENCODED_LENGTH = 16 * 1024 * 1024 - 1;
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final char SIGNATURE_SEPARATOR = '.';
+
+    // Defense in depth (the signature is verified first): only allow the catalog classes and the JDK types they rely on
+    private static final ObjectInputFilter CATALOG_CLASSES_FILTER = ObjectInputFilter.Config.createFilter("maxdepth=64;org.killbill.billing.catalog.**;java.base/*;!*");
+
+    private static final String BUILD_VERSION = Objects.requireNonNullElse(DefaultVersionedCatalog.class.getPackage().getImplementationVersion(), "dev");
+
+    private VersionedCatalogSnapshot() {}
+
+    public static String getSnapshotKey(final boolean filterTemplateCatalog) {
+        return (filterTemplateCatalog ? ReservedTenantKey.SNAPSHOT_CATALOG_FILTERED : ReservedTenantKey.SNAPSHOT_CATALOG).toString();
+    }
+
+    public static String checksum(final Collection<String> catalogXMLs, final boolean filterTemplateCatalog) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(String.format("%d:%s:%s:%d", FORMAT_VERSION, BUILD_VERSION, filterTemplateCatalog, catalogXMLs.size()).getBytes(StandardCharsets.UTF_8));
+        for (final String catalogXML : catalogXMLs) {
+            final byte[] bytes = catalogXML.getBytes(StandardCharsets.UTF_8);
+            // Length prefix, so that moving bytes from one version to the next changes the checksum
+            digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+            digest.update(bytes);
+        }
+
+        final StringBuilder result = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the encoded snapshot, or null if it would be too large to be stored
+     */
+    @Nullable
+    public static String encode(final DefaultVersionedCatalog catalog, final String checksum, final String secret) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(checksum);
+            out.writeObject(catalog);
+        }
+
+        final byte[] payload = bytes.toByteArray();
+        final String encoded = Base64.getEncoder().encodeToString(payload) + SIGNATURE_SEPARATOR + Base64.getEncoder().encodeToString(sign(payload, secret));
+        return encoded.length() <= MAX_ENCODED_LENGTH ? encoded : null;
+    }
+
+    /**
+     * @return the catalog (not initialized), or null if the snapshot doesn't match the expected checksum
+     * @throws IOException if the snapshot is corrupted or wasn't signed with this secret
+     */
+    @Nullable
+    public static DefaultVersionedCatalog decode(final String snapshot, final String expectedChecksum, final String secret) throws IOException {
+        final int separatorIndex = snapshot.lastIndexOf(SIGNATURE_SEPARATOR);
+        if (separatorIndex < 0) {
+            throw new IOException("Unsigned catalog snapshot");
+        }
+
+        final byte[] bytes;
+        final byte[] signature;
+        try {
+            bytes = Base64.getDecoder().decode(snapshot.substring(0, separatorIndex));
+            signature = Base64.getDecoder().decode(snapshot.substring(separatorIndex + 1));
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Invalid catalog snapshot encoding", e);
+        }
+        if (!MessageDigest.isEqual(sign(bytes, secret), signature)) {
+            throw new IOException("Invalid catalog snapshot signature");
+        }
+
+        try (final ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            in.setObjectInputFilter(CATALOG_CLASSES_FILTER);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Invalid catalog snapshot header");
+            }
+            if (in.readInt() != FORMAT_VERSION || !expectedChecksum.equals(in.readUTF())) {
+                return null;
+            }
+
+            final Object catalog = in.readObject();
+            if (!(catalog instanceof DefaultVersionedCatalog)) {
+                throw new IOException("Invalid catalog snapshot content");
+            }
+            return (DefaultVersionedCatalog) catalog;
+        } catch (final ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Invalid catalog snapshot content", e);
+        }
+    }
+
+    private static byte[] sign(final byte[] payload, final String secret) {
+        try {
+            final Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM));
+            return mac.doFinal(payload);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
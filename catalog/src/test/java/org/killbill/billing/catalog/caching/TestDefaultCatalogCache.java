@@ -28,6 +28,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.inject.Inject;
+
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
@@ -37,9 +39,15 @@ import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.Product;
 import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.catalog.io.VersionedCatalogSnapshot;
+import org.killbill.billing.catalog.plugin.VersionedCatalogMapper;
+import org.killbill.billing.catalog.plugin.api.CatalogPluginApi;
+import org.killbill.billing.osgi.api.OSGIServiceRegistration;
+import org.killbill.billing.util.config.definition.CatalogConfig;
 import org.killbill.commons.utils.io.Resources;
 import org.killbill.commons.utils.io.CharStreams;
 import org.killbill.xmlloader.UriAccessor;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -47,6 +55,12 @@ import org.testng.annotations.Test;
 
 public class TestDefaultCatalogCache extends CatalogTestSuiteNoDB {
 
+    @Inject
+    protected OSGIServiceRegistration<CatalogPluginApi> pluginRegistry;
+
+    @Inject
+    protected VersionedCatalogMapper versionedCatalogMapper;
+
     private InternalTenantContext multiTenantContext;
     private InternalTenantContext otherMultiTenantContext;
 
@@ -183,4 +197,37 @@ public class TestDefaultCatalogCache extends CatalogTestSuiteNoDB {
         // Verify the lookup with the other tenant
         Assert.assertEquals(catalogCache.getCatalog(true, true, false, otherMultiTenantContext), otherResult);
     }
+
+    @Test(groups = "fast")
+    public void testCatalogSnapshotRebuiltOnCacheMiss() throws Exception {
+        final CatalogConfig snapshotCatalogConfig = Mockito.mock(CatalogConfig.class);
+        Mockito.when(snapshotCatalogConfig.isCatalogSnapshotEnabled()).thenReturn(true);
+        Mockito.when(snapshotCatalogConfig.getCatalogSnapshotSecret()).thenReturn("test-secret");
+        final DefaultCatalogCache snapshotCatalogCache = new DefaultCatalogCache(pluginRegistry, versionedCatalogMapper, cacheControllerDispatcher, loader, priceOverride, internalCallContextFactory, tenantInternalApi, snapshotCatalogConfig);
+        try {
+            final String snapshotKey = VersionedCatalogSnapshot.getSnapshotKey(true);
+            final InputStream tenantInputCatalog = UriAccessor.accessUri(new URI(Resources.getResource("org/killbill/billing/catalog/SpyCarAdvanced.xml").toExternalForm()));
+            final String tenantCatalogXML = CharStreams.toString(new InputStreamReader(tenantInputCatalog, StandardCharsets.UTF_8));
+            Mockito.clearInvocations(tenantInternalApi);
+            Mockito.when(tenantInternalApi.getTenantCatalogs(Mockito.any(InternalTenantContext.class))).thenReturn(List.of(tenantCatalogXML));
+            Mockito.when(tenantInternalApi.getTenantValuesForKey(Mockito.eq(snapshotKey), Mockito.any(InternalTenantContext.class))).thenReturn(Collections.emptyList());
+
+            // No snapshot yet: the XMLs are parsed, and the snapshot is stored in the background
+            final VersionedCatalog parsedCatalog = snapshotCatalogCache.getCatalog(false, true, false, multiTenantContext);
+            final ArgumentCaptor<String> snapshot = ArgumentCaptor.forClass(String.class);
+            Mockito.verify(tenantInternalApi, Mockito.timeout(5000)).updateTenantValueForKey(Mockito.eq(snapshotKey), snapshot.capture(), Mockito.any(InternalCallContext.class));
+
+            // Next cache miss: the catalog is loaded from the snapshot, which isn't stored again
+            cacheControllerDispatcher.clearAll();
+            Mockito.when(tenantInternalApi.getTenantValuesForKey(Mockito.eq(snapshotKey), Mockito.any(InternalTenantContext.class))).thenReturn(List.of(snapshot.getValue()));
+            final VersionedCatalog snapshotCatalog = snapshotCatalogCache.getCatalog(false, true, false, multiTenantContext);
+            Assert.assertEquals(snapshotCatalog.getCatalogName(), parsedCatalog.getCatalogName());
+            Assert.assertEquals(snapshotCatalog.getVersions().size(), parsedCatalog.getVersions().size());
+            Assert.assertEquals(snapshotCatalog.getCurrentVersion().getProducts().size(), parsedCatalog.getCurrentVersion().getProducts().size());
+            Mockito.verify(tenantInternalApi, Mockito.after(500).times(1)).updateTenantValueForKey(Mockito.eq(snapshotKey), Mockito.anyString(), Mockito.any(InternalCallContext.class));
+        } finally {
+            snapshotCatalogCache.close();
+            cacheControllerDispatcher.clearAll();
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.catalog.io;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.killbill.billing.catalog.CatalogTestSuiteNoDB;
+import org.killbill.billing.catalog.DefaultVersionedCatalog;
+import org.killbill.billing.catalog.StandaloneCatalogWithPriceOverride;
+import org.killbill.billing.catalog.api.StaticCatalog;
+import org.killbill.commons.utils.io.CharStreams;
+import org.killbill.commons.utils.io.Resources;
+import org.killbill.xmlloader.UriAccessor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestVersionedCatalogSnapshot extends CatalogTestSuiteNoDB {
+
+    private static final String SECRET = "s3cr3t";
+
+    @Test(groups = "fast")
+    public void testRoundTrip() throws Exception {
+        final List<String> catalogXMLs = List.of(getCatalogXML("SpyCarAdvanced.xml"));
+        final DefaultVersionedCatalog catalog = (DefaultVersionedCatalog) loader.load(catalogXMLs, false, 99L);
+        final String checksum = VersionedCatalogSnapshot.checksum(catalogXMLs, false);
+
+        final String snapshot = VersionedCatalogSnapshot.encode(catalog, checksum, SECRET);
+        Assert.assertNotNull(snapshot);
+
+        final DefaultVersionedCatalog fromSnapshot = VersionedCatalogSnapshot.decode(snapshot, checksum, SECRET);
+        Assert.assertNotNull(fromSnapshot);
+        Assert.assertEquals(fromSnapshot.getCatalogName(), catalog.getCatalogName());
+        Assert.assertEquals(fromSnapshot.getVersions().size(), catalog.getVersions().size());
+        for (int i = 0; i < catalog.getVersions().size(); i++) {
+            final StaticCatalog expected = catalog.getVersions().get(i);
+            final StaticCatalog actual = fromSnapshot.getVersions().get(i);
+            Assert.assertEquals(actual.getEffectiveDate(), expected.getEffectiveDate());
+            Assert.assertEquals(actual.getPlans().size(), expected.getPlans().size());
+            Assert.assertEquals(actual.getProducts().size(), expected.getProducts().size());
+            Assert.assertEquals(((StandaloneCatalogWithPriceOverride) actual).getTenantRecordId(), (Long) 99L);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testStaleSnapshot() throws Exception {
+        final List<String> catalogXMLs = List.of(getCatalogXML("SpyCarBasic.xml"));
+        final DefaultVersionedCatalog catalog = (DefaultVersionedCatalog) loader.load(catalogXMLs, false, 99L);
+        final String snapshot = VersionedCatalogSnapshot.encode(catalog, VersionedCatalogSnapshot.checksum(catalogXMLs, false), SECRET);
+
+        // New version uploaded
+        final List<String> newCatalogXMLs = List.of(catalogXMLs.get(0), getCatalogXML("SpyCarAdvanced.xml"));
+        Assert.assertNull(VersionedCatalogSnapshot.decode(snapshot, VersionedCatalogSnapshot.checksum(newCatalogXMLs, false), SECRET));
+        // Same XMLs, but the snapshot was built without template filtering
+        Assert.assertNull(VersionedCatalogSnapshot.decode(snapshot, VersionedCatalogSnapshot.checksum(catalogXMLs, true), SECRET));
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidSnapshot() {
+        try {
+            VersionedCatalogSnapshot.decode("not a snapshot!", VersionedCatalogSnapshot.checksum(List.of(), false), SECRET);
+            Assert.fail("Snapshot should be rejected");
+        } catch (final IOException expected) {
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testForgedSnapshot() throws Exception {
+        final List<String> catalogXMLs = List.of(getCatalogXML("SpyCarBasic.xml"));
+        final DefaultVersionedCatalog catalog = (DefaultVersionedCatalog) loader.load(catalogXMLs, false, 99L);
+        final String checksum = VersionedCatalogSnapshot.checksum(catalogXMLs, false);
+
+        // Signed with another secret
+        final String snapshot = VersionedCatalogSnapshot.encode(catalog, checksum, "not" + SECRET);
+        try {
+            VersionedCatalogSnapshot.decode(snapshot, checksum, SECRET);
+            Assert.fail("Snapshot should be rejected");
+        } catch (final IOException expected) {
+        }
+
+        // Not signed
+        try {
+            VersionedCatalogSnapshot.decode(snapshot.substring(0, snapshot.lastIndexOf('.')), checksum, SECRET);
+            Assert.fail("Snapshot should be rejected");
+        } catch (final IOException expected) {
+        }
+    }
+
+    private String getCatalogXML(final String name) throws Exception {
+        return CharStreams.toString(new InputStreamReader(UriAccessor.accessUri(new URI(Resources.getResource("org/killbill/billing/catalog/" + name).toExternalForm())), StandardCharsets.UTF_8));
+    }
+}
@@ -22,7 +22,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
@@ -33,6 +32,7 @@ import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.catalog.api.BillingPeriod;
 import org.killbill.billing.catalog.api.Plan;
@@ -79,55 +79,138 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
 
         final SupportForOlderVersionThan_0_17_X backwardCompatibleContext = new SupportForOlderVersionThan_0_17_X(inputAndOutputResult, blockingStates);
 
+        final EventStreamSweep sweep = new EventStreamSweep(allEntitlementUUIDs, inputAndOutputResult, backwardCompatibleContext, internalTenantContext);
         // Trust the incoming ordering here: blocking states were sorted using ProxyBlockingStateDao#sortedCopy
         for (final BlockingState currentBlockingState : blockingStates) {
-            final List<SubscriptionEvent> outputNewEvents = new ArrayList<SubscriptionEvent>();
-            final int index = insertFromBlockingEvent(allEntitlementUUIDs, currentBlockingState, inputAndOutputResult, backwardCompatibleContext, internalTenantContext, outputNewEvents);
-            insertAfterIndex(inputAndOutputResult, outputNewEvents, index);
+            sweep.insertFromBlockingEvent(currentBlockingState);
         }
+        inputAndOutputResult.clear();
+        sweep.copyEventsTo(inputAndOutputResult);
+
         backwardCompatibleContext.addMissing_START_ENTITLEMENT(inputAndOutputResult, internalTenantContext);
     }
 
-    // Returns the index and the newEvents generated from the incoming blocking state event. Those new events will all be created for the same effectiveDate and should be ordered.
-    private int insertFromBlockingEvent(final Collection<UUID> allEntitlementUUIDs, final BlockingState currentBlockingState, final List<SubscriptionEvent> inputExistingEvents, final SupportForOlderVersionThan_0_17_X backwardCompatibleContext, final InternalTenantContext internalTenantContext, final Collection<SubscriptionEvent> outputNewEvents) {
-        // Keep the current state per entitlement
-        final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
-        for (final UUID cur : allEntitlementUUIDs) {
-            targetStates.put(cur, new TargetState());
+    //
+    // Sweep over the event stream (sorted by effective date), inserting the blocking events as we go. The stream is kept as a linked list of nodes, also
+    // chained per entitlement, and the state of each entitlement is folded incrementally as the cursor moves forward in time: only the events on the
+    // same effective date as the blocking state need to be looked at to find the insertion point.
+    //
+    private final class EventStreamSweep {
+
+        private final List<UUID> allEntitlementUUIDs;
+        private final SupportForOlderVersionThan_0_17_X backwardCompatibleContext;
+        private final InternalTenantContext internalTenantContext;
+
+        // First node of the stream for each entitlement
+        private final Map<UUID, EventNode> firstNodes = new HashMap<UUID, EventNode>();
+        // State and last node for each entitlement, computed over all nodes before the cursor
+        private final Map<UUID, TargetState> cursorTargetStates = new HashMap<UUID, TargetState>();
+        private final Map<UUID, EventNode> cursorLastNodes = new HashMap<UUID, EventNode>();
+
+        private EventNode head;
+        private EventNode tail;
+        // First node not yet folded into the cursor state (null when the whole stream has been folded)
+        private EventNode cursor;
+        // Effective date of the last blocking state processed: all nodes before the cursor are strictly before that date
+        private DateTime cursorDate;
+
+        private EventStreamSweep(final List<UUID> allEntitlementUUIDs,
+                                 final Iterable<SubscriptionEvent> inputEvents,
+                                 final SupportForOlderVersionThan_0_17_X backwardCompatibleContext,
+                                 final InternalTenantContext internalTenantContext) {
+            this.allEntitlementUUIDs = allEntitlementUUIDs;
+            this.backwardCompatibleContext = backwardCompatibleContext;
+            this.internalTenantContext = internalTenantContext;
+
+            final Map<UUID, EventNode> lastNodes = new HashMap<UUID, EventNode>();
+            for (final SubscriptionEvent event : inputEvents) {
+                final EventNode node = new EventNode(event);
+                linkAfter(tail, node);
+                linkSameEntitlement(node, lastNodes.get(node.entitlementId));
+                lastNodes.put(node.entitlementId, node);
+            }
+            resetCursor();
         }
 
-        //
-        // Find out where to insert next event, and calculate current state for each entitlement at the position where we stop.
-        //
-        int index = -1;
-        final Iterator<SubscriptionEvent> it = inputExistingEvents.iterator();
-        // Where we need to insert in that stream
-        DefaultSubscriptionEvent curInsertion = null;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent cur = (DefaultSubscriptionEvent) it.next();
-            final int compEffectiveDate = currentBlockingState.getEffectiveDate().compareTo(cur.getEffectiveDateTime());
-
-            final boolean shouldContinue;
-            switch (compEffectiveDate) {
-                case -1:
-                    shouldContinue = false;
-                    break;
-                case 0:
-                    shouldContinue = compareBlockingStateWithNextSubscriptionEvent(currentBlockingState, cur) > 0;
-                    break;
-                case 1:
-                    shouldContinue = true;
-                    break;
-                default:
-                    // Make compiler happy
-                    throw new IllegalStateException("Cannot reach statement");
+        private void insertFromBlockingEvent(final BlockingState currentBlockingState) {
+            final DateTime effectiveDate = currentBlockingState.getEffectiveDate();
+
+            // Blocking states are only sorted per blocked entity: start over from the beginning of the stream if we need to go back in time
+            if (cursorDate != null && effectiveDate.compareTo(cursorDate) < 0) {
+                resetCursor();
+            }
+            while (cursor != null && effectiveDate.compareTo(cursor.effectiveDate) > 0) {
+                addEventToTargetState(cursorTargetStates.get(cursor.entitlementId), cursor.event);
+                cursorLastNodes.put(cursor.entitlementId, cursor);
+                cursor = cursor.next;
+            }
+            cursorDate = effectiveDate;
+
+            //
+            // Find out where to insert next event among the events on the same date, and calculate current state for each entitlement at the position where we stop.
+            // States are copied on write, so the cursor state is left untouched.
+            //
+            final Map<UUID, TargetState> targetStates = new HashMap<UUID, TargetState>();
+            final Map<UUID, EventNode> lastNodes = new HashMap<UUID, EventNode>();
+            // Where we need to insert in that stream (null to insert at the beginning)
+            EventNode curInsertion = cursor != null ? cursor.prev : tail;
+            boolean insertAtCursor = true;
+            EventNode cur = cursor;
+            while (cur != null &&
+                   effectiveDate.compareTo(cur.effectiveDate) == 0 &&
+                   compareBlockingStateWithNextSubscriptionEvent(currentBlockingState, cur.event) > 0) {
+                addEventToTargetState(getTargetState(targetStates, cur.entitlementId), cur.event);
+                lastNodes.put(cur.entitlementId, cur);
+                curInsertion = cur;
+                insertAtCursor = false;
+                cur = cur.next;
+            }
+
+            // Extract the list of targets based on the type of blocking state
+            final List<UUID> targetEntitlementIds = currentBlockingState.getType() == BlockingStateType.SUBSCRIPTION ?
+                                                    List.of(currentBlockingState.getBlockedId()) :
+                                                    allEntitlementUUIDs;
+
+            // For each target compute the new events that should be inserted in the stream
+            final Set<EventNode> nodesAfterFirstOccurrence = findNodesAfterFirstOccurrence(curInsertion);
+            final List<EventNode> newNodes = new ArrayList<EventNode>();
+            for (final UUID targetEntitlementId : targetEntitlementIds) {
+                final SubscriptionEvent[] prevNext = findPrevNext(targetEntitlementId, curInsertion, nodesAfterFirstOccurrence, lastNodes);
+                final TargetState curTargetState = getTargetState(targetStates, targetEntitlementId);
+
+                final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(currentBlockingState);
+                for (final SubscriptionEventType t : eventTypes) {
+                    newNodes.add(new EventNode(toSubscriptionEvent(prevNext[0], prevNext[1], targetEntitlementId, currentBlockingState, t, internalTenantContext)));
+                }
+            }
+            if (newNodes.isEmpty()) {
+                return;
+            }
+
+            insertAfter(curInsertion, newNodes, lastNodes);
+            if (insertAtCursor) {
+                // New nodes are on the cursor date, so they haven't been folded yet
+                cursor = curInsertion != null ? curInsertion.next : head;
             }
-            if (!shouldContinue) {
-                break;
+        }
+
+        private void copyEventsTo(final Collection<SubscriptionEvent> result) {
+            for (EventNode cur = head; cur != null; cur = cur.next) {
+                result.add(cur.event);
             }
-            index++;
+        }
 
-            final TargetState curTargetState = targetStates.get(cur.getEntitlementId());
+        private void resetCursor() {
+            cursor = head;
+            cursorDate = null;
+            cursorLastNodes.clear();
+            cursorTargetStates.clear();
+            for (final UUID cur : allEntitlementUUIDs) {
+                cursorTargetStates.put(cur, new TargetState());
+            }
+        }
+
+        private void addEventToTargetState(final TargetState curTargetState, final SubscriptionEvent cur) {
             switch (cur.getSubscriptionEventType()) {
                 case START_ENTITLEMENT:
                     curTargetState.setEntitlementStarted();
@@ -155,26 +238,139 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                 default:
                     break;
             }
-            curInsertion = cur;
         }
 
-        // Extract the list of targets based on the type of blocking state
-        final List<UUID> targetEntitlementIds = currentBlockingState.getType() == BlockingStateType.SUBSCRIPTION ?
-                                                List.of(currentBlockingState.getBlockedId()) :
-                                                List.copyOf(allEntitlementUUIDs);
+        private TargetState getTargetState(final Map<UUID, TargetState> targetStates, final UUID entitlementId) {
+            TargetState targetState = targetStates.get(entitlementId);
+            if (targetState == null) {
+                targetState = new TargetState(cursorTargetStates.get(entitlementId));
+                targetStates.put(entitlementId, targetState);
+            }
+            return targetState;
+        }
 
-        // For each target compute the new events that should be inserted in the stream
-        for (final UUID targetEntitlementId : targetEntitlementIds) {
-            final SubscriptionEvent[] prevNext = findPrevNext(inputExistingEvents, targetEntitlementId, curInsertion);
-            final TargetState curTargetState = targetStates.get(targetEntitlementId);
+        // Last node for that entitlement up to (and including) the insertion point
+        private EventNode getLastNode(final Map<UUID, EventNode> lastNodes, final UUID entitlementId) {
+            final EventNode lastNode = lastNodes.get(entitlementId);
+            return lastNode != null ? lastNode : cursorLastNodes.get(entitlementId);
+        }
 
-            final List<SubscriptionEventType> eventTypes = curTargetState.addStateAndReturnEventTypes(currentBlockingState);
-            for (final SubscriptionEventType t : eventTypes) {
-                outputNewEvents.add(toSubscriptionEvent(prevNext[0], prevNext[1], targetEntitlementId, currentBlockingState, t, internalTenantContext));
+        // Because of multiplexing, the same (id, type) can be shared by several nodes (which all have the same effective date): the first one is
+        // the reference to look for the prev and next events. Returns the nodes between that first occurrence (excluded) and the insertion node (included).
+        private Set<EventNode> findNodesAfterFirstOccurrence(@Nullable final EventNode insertionNode) {
+            if (insertionNode == null) {
+                return Collections.emptySet();
             }
+
+            final List<EventNode> visited = new ArrayList<EventNode>();
+            int firstOccurrenceIndex = 0;
+            for (EventNode cur = insertionNode; cur != null && cur.effectiveDate.compareTo(insertionNode.effectiveDate) == 0; cur = cur.prev) {
+                // Check both the id and the event type because of multiplexing
+                if (cur.event.getId().equals(insertionNode.event.getId()) &&
+                    cur.event.getSubscriptionEventType().equals(insertionNode.event.getSubscriptionEventType())) {
+                    firstOccurrenceIndex = visited.size();
+                }
+                visited.add(cur);
+            }
+            return new HashSet<EventNode>(visited.subList(0, firstOccurrenceIndex));
+        }
+
+        // Extract prev and next events in the stream events for that particular target subscription from the insertion node
+        private SubscriptionEvent[] findPrevNext(final UUID targetEntitlementId, @Nullable final EventNode insertionNode, final Set<EventNode> nodesAfterFirstOccurrence, final Map<UUID, EventNode> lastNodes) {
+            final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
+            if (insertionNode == null) {
+                result[0] = null;
+                result[1] = head != null ? head.event : null;
+                return result;
+            }
+
+            EventNode prev = getLastNode(lastNodes, targetEntitlementId);
+            while (prev != null && nodesAfterFirstOccurrence.contains(prev)) {
+                prev = prev.prevSame;
+            }
+            final EventNode next = prev != null ? prev.nextSame : firstNodes.get(targetEntitlementId);
+            result[0] = prev != null ? prev.event : null;
+            result[1] = next != null ? next.event : null;
+            return result;
         }
 
-        return index;
+        private void insertAfter(@Nullable final EventNode insertionNode, final List<EventNode> newNodes, final Map<UUID, EventNode> lastNodes) {
+            if (insertionNode != null || head == null) {
+                EventNode prev = insertionNode != null ? insertionNode : tail;
+                for (final EventNode newNode : newNodes) {
+                    linkAfter(prev, newNode);
+                    prev = newNode;
+                }
+            } else {
+                // Keep the historical behavior: inserting at the beginning of the stream reverses the new events
+                for (final EventNode newNode : newNodes) {
+                    linkAfter(null, newNode);
+                }
+            }
+
+            // Chain the new nodes with the existing ones from the same entitlement
+            final EventNode firstNewNode = insertionNode != null ? insertionNode.next : head;
+            final Map<UUID, EventNode> prevNodes = new HashMap<UUID, EventNode>();
+            EventNode cur = firstNewNode;
+            for (int i = 0; i < newNodes.size(); i++) {
+                final EventNode prevSame = prevNodes.containsKey(cur.entitlementId) ? prevNodes.get(cur.entitlementId) : (insertionNode != null ? getLastNode(lastNodes, cur.entitlementId) : null);
+                linkSameEntitlement(cur, prevSame);
+                prevNodes.put(cur.entitlementId, cur);
+                cur = cur.next;
+            }
+        }
+
+        // Insert the node in the stream after prev (at the beginning if prev is null)
+        private void linkAfter(@Nullable final EventNode prev, final EventNode node) {
+            final EventNode next = prev != null ? prev.next : head;
+            node.prev = prev;
+            node.next = next;
+            if (prev != null) {
+                prev.next = node;
+            } else {
+                head = node;
+            }
+            if (next != null) {
+                next.prev = node;
+            } else {
+                tail = node;
+            }
+        }
+
+        // Insert the node in the chain of its entitlement after prevSame (at the beginning if prevSame is null)
+        private void linkSameEntitlement(final EventNode node, @Nullable final EventNode prevSame) {
+            final EventNode nextSame = prevSame != null ? prevSame.nextSame : firstNodes.get(node.entitlementId);
+            node.prevSame = prevSame;
+            node.nextSame = nextSame;
+            if (prevSame != null) {
+                prevSame.nextSame = node;
+            } else {
+                firstNodes.put(node.entitlementId, node);
+            }
+            if (nextSame != null) {
+                nextSame.prevSame = node;
+            }
+        }
+    }
+
+    private static final class EventNode {
+
+        private final SubscriptionEvent event;
+        private final UUID entitlementId;
+        private final DateTime effectiveDate;
+
+        // Stream
+        private EventNode prev;
+        private EventNode next;
+        // Events for the same entitlement
+        private EventNode prevSame;
+        private EventNode nextSame;
+
+        private EventNode(final SubscriptionEvent event) {
+            this.event = event;
+            this.entitlementId = event.getEntitlementId();
+            this.effectiveDate = ((DefaultSubscriptionEvent) event).getEffectiveDateTime();
+        }
     }
 
     private int compareBlockingStateWithNextSubscriptionEvent(final BlockingState blockingState, final SubscriptionEvent next) {
@@ -242,41 +438,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
         }
     }
 
-    // Extract prev and next events in the stream events for that particular target subscription from the insertionEvent
-    private SubscriptionEvent[] findPrevNext(final List<SubscriptionEvent> events, final UUID targetEntitlementId, final SubscriptionEvent insertionEvent) {
-        // Find prev/next event for the same entitlement
-        final SubscriptionEvent[] result = new DefaultSubscriptionEvent[2];
-        if (insertionEvent == null) {
-            result[0] = null;
-            result[1] = !events.isEmpty() ? events.get(0) : null;
-            return result;
-        }
-
-        final Iterator<SubscriptionEvent> it = events.iterator();
-        DefaultSubscriptionEvent prev = null;
-        DefaultSubscriptionEvent next = null;
-        boolean foundCur = false;
-        while (it.hasNext()) {
-            final DefaultSubscriptionEvent tmp = (DefaultSubscriptionEvent) it.next();
-            if (tmp.getEntitlementId().equals(targetEntitlementId)) {
-                if (!foundCur) {
-                    prev = tmp;
-                } else {
-                    next = tmp;
-                    break;
-                }
-            }
-            // Check both the id and the event type because of multiplexing
-            if (tmp.getId().equals(insertionEvent.getId()) &&
-                tmp.getSubscriptionEventType().equals(insertionEvent.getSubscriptionEventType())) {
-                foundCur = true;
-            }
-        }
-        result[0] = prev;
-        result[1] = next;
-        return result;
-    }
-
     private SubscriptionEvent toSubscriptionEvent(@Nullable final SubscriptionEvent prev, @Nullable final SubscriptionEvent next,
                                                   final UUID entitlementId, final BlockingState in, final SubscriptionEventType eventType,
                                                   final InternalTenantContext internalTenantContext) {
@@ -372,22 +533,6 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
                                             internalTenantContext);
     }
 
-    private void insertAfterIndex(final LinkedList<SubscriptionEvent> original, final Collection<SubscriptionEvent> newEvents, final int index) {
-        final boolean firstPosition = (index == -1);
-        final boolean lastPosition = (index == original.size() - 1);
-        if (lastPosition || firstPosition) {
-            for (final SubscriptionEvent cur : newEvents) {
-                if (lastPosition) {
-                    original.addLast(cur);
-                } else {
-                    original.addFirst(cur);
-                }
-            }
-        } else {
-            original.addAll(index + 1, newEvents);
-        }
-    }
-
     //
     // Internal class to keep the state associated with each subscription
     //
@@ -408,6 +553,14 @@ public class BlockingStateOrdering extends EntitlementOrderingBase {
             this.perServiceBlockingState = new HashMap<String, BlockingState>();
         }
 
+        public TargetState(final TargetState targetState) {
+            this.isEntitlementStarted = targetState.isEntitlementStarted;
+            this.isEntitlementStopped = targetState.isEntitlementStopped;
+            this.isBillingStarted = targetState.isBillingStarted;
+            this.isBillingStopped = targetState.isBillingStopped;
+            this.perServiceBlockingState = new HashMap<String, BlockingState>(targetState.perServiceBlockingState);
+        }
+
         public void setEntitlementStarted() {
             isEntitlementStarted = true;
         }
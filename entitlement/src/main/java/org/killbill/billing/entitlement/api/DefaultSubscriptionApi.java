@@ -73,12 +73,15 @@ import org.slf4j.LoggerFactory;
 
 import static org.killbill.billing.entitlement.logging.EntitlementLoggingHelper.logAddBlockingState;
 import static org.killbill.billing.entitlement.logging.EntitlementLoggingHelper.logUpdateExternalKey;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationInBatches;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationNoException;
 
 public class DefaultSubscriptionApi implements SubscriptionApi {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultSubscriptionApi.class);
 
+    private static final int BULK_LOAD_BATCH_SIZE = 100;
+
     private static final Comparator<SubscriptionBundle> SUBSCRIPTION_BUNDLE_COMPARATOR = (o1, o2) -> {
         final int compared = o1.getOriginalCreatedDate().compareTo(o2.getOriginalCreatedDate());
         if (compared != 0) {
@@ -243,22 +246,49 @@ public class DefaultSubscriptionApi implements SubscriptionApi {
     @Override
     public Pagination<SubscriptionBundle> getSubscriptionBundlesForAccountId(final UUID accountId, final Long offset, final Long limit, final TenantContext context) throws SubscriptionApiException {
         final InternalTenantContext internalContext = internalCallContextFactory.createInternalTenantContext(accountId, context);
-        return getEntityPaginationNoException(limit,
-                                              new SourcePaginationBuilder<SubscriptionBaseBundle, SubscriptionApiException>() {
-                                                  @Override
-                                                  public Pagination<SubscriptionBaseBundle> build() {
-                                                      return subscriptionBaseInternalApi.getBundlesForAccount(offset, limit, internalContext);
-                                                  }
-                                              },
-                                              subscriptionBaseBundle -> {
-                                                  try {
-                                                      return getSubscriptionBundle(subscriptionBaseBundle.getId(), context);
-                                                  } catch (final SubscriptionApiException e) {
-                                                      log.warn("Error retrieving bundleId='{}'", subscriptionBaseBundle.getId(), e);
-                                                      return null;
-                                                  }
+        return getEntityPaginationInBatches(limit,
+                                            getBulkLoadBatchSize(limit),
+                                            new SourcePaginationBuilder<SubscriptionBaseBundle, SubscriptionApiException>() {
+                                                @Override
+                                                public Pagination<SubscriptionBaseBundle> build() {
+                                                    return subscriptionBaseInternalApi.getBundlesForAccount(offset, limit, internalContext);
+                                                }
+                                            },
+                                            subscriptionBaseBundles -> getSubscriptionBundles(accountId, subscriptionBaseBundles, context, internalContext)
+                                           );
+    }
+
+    // Build the subscription bundles of a page at once (single events stream build, scoped to these bundles), in the page order
+    private List<SubscriptionBundle> getSubscriptionBundles(final UUID accountId,
+                                                            final List<SubscriptionBaseBundle> subscriptionBaseBundles,
+                                                            final TenantContext context,
+                                                            final InternalTenantContext internalContext) {
+        final Map<UUID, SubscriptionBundle> subscriptionBundlesPerId;
+        try {
+            final AccountEntitlements accountEntitlements = entitlementInternalApi.getAllEntitlementsForBundles(subscriptionBaseBundles, internalContext);
+            subscriptionBundlesPerId = buildSubscriptionBundles(accountId, accountEntitlements, internalContext);
+        } catch (final EntitlementApiException e) {
+            log.warn("Error retrieving bundles for accountId='{}', retrieving them one by one", accountId, e);
+            return subscriptionBaseBundles.stream()
+                                          .map(subscriptionBaseBundle -> {
+                                              try {
+                                                  return getSubscriptionBundle(subscriptionBaseBundle.getId(), context);
+                                              } catch (final SubscriptionApiException e2) {
+                                                  log.warn("Error retrieving bundleId='{}'", subscriptionBaseBundle.getId(), e2);
+                                                  return null;
                                               }
-                                             );
+                                          })
+                                          .collect(Collectors.toList());
+        }
+
+        // Bundles without any subscription are skipped (null entries are filtered out by the pagination iterator)
+        return subscriptionBaseBundles.stream()
+                                      .map(subscriptionBaseBundle -> subscriptionBundlesPerId.get(subscriptionBaseBundle.getId()))
+                                      .collect(Collectors.toList());
+    }
+
+    private int getBulkLoadBatchSize(final Long limit) {
+        return (int) Math.max(1L, Math.min(limit, BULK_LOAD_BATCH_SIZE));
     }
 
     @Override
@@ -527,11 +557,18 @@ public class DefaultSubscriptionApi implements SubscriptionApi {
             throw new SubscriptionApiException(e);
         }
 
+        final Map<UUID, SubscriptionBundle> bundles = buildSubscriptionBundles(accountId, accountEntitlements, internalTenantContextWithValidAccountRecordId);
+
+        // Sort the results for predictability
+        return bundles.values().stream().sorted(SUBSCRIPTION_BUNDLE_COMPARATOR).collect(Collectors.toUnmodifiableList());
+    }
+
+    private Map<UUID, SubscriptionBundle> buildSubscriptionBundles(final UUID accountId, final AccountEntitlements accountEntitlements, final InternalTenantContext internalTenantContextWithValidAccountRecordId) {
         // Build subscriptions
         final Map<UUID, List<Subscription>> subscriptionsPerBundle = buildSubscriptionsFromEntitlements(accountEntitlements);
 
         // Build subscription bundles
-        final List<SubscriptionBundle> bundles = new LinkedList<>();
+        final Map<UUID, SubscriptionBundle> bundles = new HashMap<>();
         for (final Entry<UUID, List<Subscription>> entry : subscriptionsPerBundle.entrySet()) {
             final List<Subscription> subscriptionsForBundle = entry.getValue();
             final String bundleExternalKey = subscriptionsForBundle.get(0).getBundleExternalKey();
@@ -551,11 +588,9 @@ public class DefaultSubscriptionApi implements SubscriptionApi {
                                                                                         baseBundle.getOriginalCreatedDate(),
                                                                                         baseBundle.getCreatedDate(),
                                                                                         baseBundle.getUpdatedDate());
-            bundles.add(subscriptionBundle);
+            bundles.put(entry.getKey(), subscriptionBundle);
         }
-
-        // Sort the results for predictability
-        return bundles.stream().sorted(SUBSCRIPTION_BUNDLE_COMPARATOR).collect(Collectors.toUnmodifiableList());
+        return bundles;
     }
 
     private Map<UUID, List<Subscription>> buildSubscriptionsFromEntitlements(final AccountEntitlements accountEntitlements) {
@@ -22,6 +22,7 @@ package org.killbill.billing.entitlement.api.svcs;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +64,7 @@ import org.killbill.billing.security.api.SecurityApi;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.clock.Clock;
@@ -115,7 +117,15 @@ public class DefaultEntitlementApiBase {
 
     public AccountEntitlements getAllEntitlementsForAccount(final InternalTenantContext tenantContext) throws EntitlementApiException {
         final AccountEventsStreams accountEventsStreams = eventsStreamBuilder.buildForAccount(tenantContext);
+        return toAccountEntitlements(accountEventsStreams, tenantContext);
+    }
+
+    public AccountEntitlements getAllEntitlementsForBundles(final Collection<SubscriptionBaseBundle> bundles, final InternalTenantContext tenantContext) throws EntitlementApiException {
+        final AccountEventsStreams accountEventsStreams = eventsStreamBuilder.buildForBundles(bundles, tenantContext);
+        return toAccountEntitlements(accountEventsStreams, tenantContext);
+    }
 
+    private AccountEntitlements toAccountEntitlements(final AccountEventsStreams accountEventsStreams, final InternalTenantContext tenantContext) {
         final Map<UUID, Collection<Entitlement>> entitlementsPerBundle = new HashMap<UUID, Collection<Entitlement>>();
         for (final UUID bundleId : accountEventsStreams.getEventsStreams().keySet()) {
             if (entitlementsPerBundle.get(bundleId) == null) {
@@ -158,6 +168,35 @@ public class DefaultEntitlementApiBase {
         return entitlements;
     }
 
+    public Map<UUID, Entitlement> getEntitlementsForIds(final Collection<UUID> entitlementIds, final InternalTenantContext tenantContext) throws EntitlementApiException {
+        // Group the entitlements per account, to build the events streams once per account instead of once per entitlement
+        final Map<UUID, Collection<UUID>> entitlementIdsPerAccount = new HashMap<UUID, Collection<UUID>>();
+        for (final UUID entitlementId : entitlementIds) {
+            final UUID accountId;
+            try {
+                accountId = subscriptionInternalApi.getAccountIdFromSubscriptionId(entitlementId, tenantContext);
+            } catch (final SubscriptionBaseApiException e) {
+                // Unknown entitlement, left out of the result
+                continue;
+            }
+            entitlementIdsPerAccount.computeIfAbsent(accountId, k -> new HashSet<UUID>()).add(entitlementId);
+        }
+
+        final Map<UUID, Entitlement> entitlements = new HashMap<UUID, Entitlement>();
+        for (final Map.Entry<UUID, Collection<UUID>> entry : entitlementIdsPerAccount.entrySet()) {
+            final InternalTenantContext accountTenantContext = internalCallContextFactory.createInternalTenantContext(entry.getKey(), tenantContext);
+            final AccountEntitlements accountEntitlements = getAllEntitlementsForAccount(accountTenantContext);
+            for (final Collection<Entitlement> bundleEntitlements : accountEntitlements.getEntitlements().values()) {
+                for (final Entitlement entitlement : bundleEntitlements) {
+                    if (entry.getValue().contains(entitlement.getId())) {
+                        entitlements.put(entitlement.getId(), entitlement);
+                    }
+                }
+            }
+        }
+        return entitlements;
+    }
+
     public Entitlement getEntitlementForId(final UUID entitlementId, final boolean includeDeletedEvents, final InternalTenantContext tenantContext) throws EntitlementApiException {
         final EventsStream eventsStream = eventsStreamBuilder.buildForEntitlement(entitlementId, includeDeletedEvents, tenantContext);
         return new DefaultEntitlement(eventsStream, eventsStreamBuilder, entitlementApi, pluginExecution,
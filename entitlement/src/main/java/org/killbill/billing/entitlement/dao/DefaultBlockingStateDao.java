@@ -206,6 +206,7 @@ public class DefaultBlockingStateDao extends EntityDaoBase<BlockingStateModelDao
         final boolean groupBusEvents = eventBus.shouldAggregateSubscriptionEvents(context);
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final BlockingStateSqlDao sqlDao = entitySqlDaoWrapperFactory.become(BlockingStateSqlDao.class);
 
             int seqId = 0;
@@ -398,6 +399,7 @@ public class DefaultBlockingStateDao extends EntityDaoBase<BlockingStateModelDao
         transactionalSqlDao.execute(false, new EntitySqlDaoTransactionWrapper<Void>() {
             @Override
             public Void inTransaction(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory) throws Exception {
+                entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
                 final BlockingStateSqlDao sqlDao = entitySqlDaoWrapperFactory.become(BlockingStateSqlDao.class);
                 sqlDao.unactiveEvent(id.toString(), context);
                 return null;
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.engine.core;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.StaticCatalog;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.AccountEventsStreams;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.entitlement.api.EntitlementApiException;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.clock.Clock;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+
+/**
+ * Per-account snapshots of the data {@link AccountEventsStreams} are built from (see {@link AccountEventsStreamsData}).
+ * <p>
+ * A snapshot is only re-used if, since it was built:
+ * <ul>
+ * <li>the account hasn't changed: we compare accounts.events_version, which is incremented in the transaction of any change
+ * to the account, its bundles, subscriptions, subscription events or blocking states (this works across nodes)</li>
+ * <li>the tenant catalog hasn't been reloaded</li>
+ * <li>no subscription event, blocking state or catalog version has become effective</li>
+ * </ul>
+ * Snapshots are shared by concurrent readers, which must copy the SubscriptionBase objects before using them.
+ */
+@Singleton
+public class AccountEventsStreamsCache {
+
+    private final NonEntityDao nonEntityDao;
+    private final Clock clock;
+    private final int maxSize;
+    private final Map<Long, Snapshot> snapshots;
+
+    @Inject
+    public AccountEventsStreamsCache(final NonEntityDao nonEntityDao, final Clock clock, final EntitlementConfig entitlementConfig) {
+        this.nonEntityDao = nonEntityDao;
+        this.clock = clock;
+        this.maxSize = entitlementConfig.getAccountEventsStreamsCacheMaxSize();
+        this.snapshots = new LinkedHashMap<Long, Snapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, Snapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public AccountEventsStreamsData getAccountEventsStreamsData(final VersionedCatalog catalog,
+                                                               final InternalTenantContext internalTenantContext,
+                                                               final AccountEventsStreamsDataLoader loader) throws EntitlementApiException {
+        if (maxSize <= 0) {
+            return loader.load();
+        }
+
+        // Retrieve the version first: if the account is modified while we load it, the snapshot will be tagged with the previous version
+        final Long version = nonEntityDao.retrieveAccountEventsVersion(internalTenantContext);
+        if (version == null) {
+            return loader.load();
+        }
+
+        final Long accountRecordId = internalTenantContext.getAccountRecordId();
+        final DateTime startTime = clock.getUTCNow();
+        final Snapshot snapshot = get(accountRecordId);
+        if (snapshot != null && snapshot.isValid(version, catalog, startTime)) {
+            return snapshot.getAccountEventsStreamsData();
+        }
+
+        final AccountEventsStreamsData accountEventsStreamsData = loader.load();
+
+        // The SubscriptionBase objects have been built with a time between startTime and now: only cache the snapshot
+        // if nothing became effective in between
+        final DateTime validUntil = computeValidUntil(accountEventsStreamsData, catalog, startTime);
+        if (validUntil == null || validUntil.isAfter(clock.getUTCNow())) {
+            put(accountRecordId, new Snapshot(version, catalog, startTime, validUntil, accountEventsStreamsData));
+        }
+
+        return accountEventsStreamsData;
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return snapshots.size();
+    }
+
+    private synchronized Snapshot get(final Long accountRecordId) {
+        return snapshots.get(accountRecordId);
+    }
+
+    private synchronized void put(final Long accountRecordId, final Snapshot snapshot) {
+        snapshots.put(accountRecordId, snapshot);
+    }
+
+    // Earliest date (at or after startTime) at which a subscription event, a blocking state or a catalog version becomes effective
+    @Nullable
+    private static DateTime computeValidUntil(final AccountEventsStreamsData accountEventsStreamsData, final VersionedCatalog catalog, final DateTime startTime) {
+        DateTime validUntil = null;
+        for (final Collection<SubscriptionBase> subscriptions : accountEventsStreamsData.getSubscriptions().values()) {
+            for (final SubscriptionBase subscription : subscriptions) {
+                for (final SubscriptionBaseTransition transition : subscription.getAllTransitions(false)) {
+                    validUntil = earliestFutureDate(validUntil, transition.getEffectiveTransitionTime(), startTime);
+                }
+            }
+        }
+        for (final BlockingState blockingState : accountEventsStreamsData.getBlockingStates()) {
+            validUntil = earliestFutureDate(validUntil, blockingState.getEffectiveDate(), startTime);
+        }
+        for (final StaticCatalog version : catalog.getVersions()) {
+            if (version.getEffectiveDate() != null) {
+                validUntil = earliestFutureDate(validUntil, new DateTime(version.getEffectiveDate()), startTime);
+            }
+        }
+        return validUntil;
+    }
+
+    private static DateTime earliestFutureDate(@Nullable final DateTime currentEarliestDate, @Nullable final DateTime date, final DateTime startTime) {
+        if (date == null || date.isBefore(startTime)) {
+            return currentEarliestDate;
+        }
+        return currentEarliestDate == null || date.isBefore(currentEarliestDate) ? date : currentEarliestDate;
+    }
+
+    public interface AccountEventsStreamsDataLoader {
+
+        AccountEventsStreamsData load() throws EntitlementApiException;
+    }
+
+    private static final class Snapshot {
+
+        private final Long version;
+        private final VersionedCatalog catalog;
+        private final DateTime builtTime;
+        private final DateTime validUntil;
+        private final AccountEventsStreamsData accountEventsStreamsData;
+
+        private Snapshot(final Long version,
+                         final VersionedCatalog catalog,
+                         final DateTime builtTime,
+                         @Nullable final DateTime validUntil,
+                         final AccountEventsStreamsData accountEventsStreamsData) {
+            this.version = version;
+            this.catalog = catalog;
+            this.builtTime = builtTime;
+            this.validUntil = validUntil;
+            this.accountEventsStreamsData = accountEventsStreamsData;
+        }
+
+        private boolean isValid(final Long currentVersion, final VersionedCatalog currentCatalog, final DateTime now) {
+            return version.equals(currentVersion) &&
+                   catalog == currentCatalog &&
+                   !now.isBefore(builtTime) &&
+                   (validUntil == null || now.isBefore(validUntil));
+        }
+
+        private AccountEventsStreamsData getAccountEventsStreamsData() {
+            return accountEventsStreamsData;
+        }
+    }
+}
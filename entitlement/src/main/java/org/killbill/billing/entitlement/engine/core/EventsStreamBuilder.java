@@ -22,6 +22,8 @@ package org.killbill.billing.entitlement.engine.core;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -90,6 +92,7 @@ public class EventsStreamBuilder {
     private final DefaultBlockingStateDao defaultBlockingStateDao;
     private final Clock clock;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final AccountEventsStreamsCache accountEventsStreamsCache;
 
     @Inject
     public EventsStreamBuilder(final AccountInternalApi accountInternalApi,
@@ -104,13 +107,15 @@ public class EventsStreamBuilder {
                                final CacheControllerDispatcher cacheControllerDispatcher,
                                final NonEntityDao nonEntityDao,
                                final AuditDao auditDao,
-                               final InternalCallContextFactory internalCallContextFactory) {
+                               final InternalCallContextFactory internalCallContextFactory,
+                               final AccountEventsStreamsCache accountEventsStreamsCache) {
         this.accountInternalApi = accountInternalApi;
         this.subscriptionInternalApi = subscriptionInternalApi;
         this.catalogInternalApi = catalogInternalApi;
         this.checker = checker;
         this.clock = clock;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.accountEventsStreamsCache = accountEventsStreamsCache;
         this.defaultBlockingStateDao = new DefaultBlockingStateDao(dbi, roDbi, clock, notificationQueueService, eventBus, cacheControllerDispatcher, nonEntityDao, auditDao, internalCallContextFactory);
         this.blockingStateDao = new OptimizedProxyBlockingStateDao(this, subscriptionInternalApi, dbi, roDbi, clock, notificationQueueService, eventBus, cacheControllerDispatcher, nonEntityDao, auditDao, internalCallContextFactory);
     }
@@ -137,19 +142,34 @@ public class EventsStreamBuilder {
     }
 
     public AccountEventsStreams buildForAccount(final InternalTenantContext internalTenantContext) throws EntitlementApiException {
-        // Retrieve the subscriptions (map bundle id -> subscriptions)
-        final Map<UUID, List<SubscriptionBase>> subscriptions;
-        try {
-            final VersionedCatalog catalog = getCatalog(internalTenantContext);
-            subscriptions = subscriptionInternalApi.getSubscriptionsForAccount(catalog, null, internalTenantContext);
-            return buildForAccount(subscriptions, catalog, internalTenantContext);
-        } catch (final SubscriptionBaseApiException e) {
-            throw new EntitlementApiException(e);
+        final VersionedCatalog catalog = getCatalog(internalTenantContext);
+        final AccountEventsStreamsData accountEventsStreamsData = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalTenantContext, () -> {
+            // Retrieve the subscriptions (map bundle id -> subscriptions)
+            final Map<UUID, List<SubscriptionBase>> subscriptions;
+            try {
+                subscriptions = subscriptionInternalApi.getSubscriptionsForAccount(catalog, null, internalTenantContext);
+            } catch (final SubscriptionBaseApiException e) {
+                throw new EntitlementApiException(e);
+            }
+            return loadAccountEventsStreamsData(subscriptions, catalog, internalTenantContext);
+        });
+
+        // The data may be shared with other callers: work on copies of the SubscriptionBase objects, as the entitlement
+        // operations rebuild their transitions
+        final Map<UUID, List<SubscriptionBase>> subscriptions = new HashMap<UUID, List<SubscriptionBase>>();
+        for (final Entry<UUID, List<SubscriptionBase>> entry : accountEventsStreamsData.getSubscriptions().entrySet()) {
+            subscriptions.put(entry.getKey(), subscriptionInternalApi.copySubscriptions(entry.getValue()));
         }
+        return buildForAccount(accountEventsStreamsData, subscriptions, catalog, internalTenantContext);
     }
 
     // Special signature for ProxyBlockingStateDao to save a DAO call
     public AccountEventsStreams buildForAccount(final Map<UUID, List<SubscriptionBase>> subscriptions, final VersionedCatalog catalog, final InternalTenantContext internalTenantContext) throws EntitlementApiException {
+        final AccountEventsStreamsData accountEventsStreamsData = loadAccountEventsStreamsData(subscriptions, catalog, internalTenantContext);
+        return buildForAccount(accountEventsStreamsData, subscriptions, catalog, internalTenantContext);
+    }
+
+    private AccountEventsStreamsData loadAccountEventsStreamsData(final Map<UUID, List<SubscriptionBase>> subscriptions, final VersionedCatalog catalog, final InternalTenantContext internalTenantContext) throws EntitlementApiException {
         // Retrieve the account
         final ImmutableAccountData account;
         final int accountBCD;
@@ -162,20 +182,94 @@ public class EventsStreamBuilder {
 
         if (subscriptions.isEmpty()) {
             // Bail early
-            return new DefaultAccountEventsStreams(account);
+            return new AccountEventsStreamsData(account, accountBCD, Collections.emptyList(), subscriptions, Collections.emptyList());
         }
 
         // Retrieve the bundles
         final List<SubscriptionBaseBundle> bundles = subscriptionInternalApi.getBundlesForAccount(account.getId(), internalTenantContext);
+
+        // Retrieve the blocking states
+        final List<BlockingState> blockingStatesForAccount = defaultBlockingStateDao.getBlockingAllForAccountRecordId(catalog, internalTenantContext);
+
+        return new AccountEventsStreamsData(account, accountBCD, bundles, subscriptions, blockingStatesForAccount);
+    }
+
+    private AccountEventsStreams buildForAccount(final AccountEventsStreamsData accountEventsStreamsData,
+                                                 final Map<UUID, List<SubscriptionBase>> subscriptions,
+                                                 final VersionedCatalog catalog,
+                                                 final InternalTenantContext internalTenantContext) throws EntitlementApiException {
+        if (subscriptions.isEmpty()) {
+            return new DefaultAccountEventsStreams(accountEventsStreamsData.getAccount());
+        }
+        return buildForBundles(accountEventsStreamsData.getAccount(),
+                               accountEventsStreamsData.getAccountBCD(),
+                               accountEventsStreamsData.getBundles(),
+                               subscriptions,
+                               accountEventsStreamsData.getBlockingStates(),
+                               catalog,
+                               internalTenantContext);
+    }
+
+    // Build the EventsStream objects for a subset of the bundles of the account only (e.g. a page of bundles), i.e. the cost doesn't grow with the rest of the account
+    public AccountEventsStreams buildForBundles(final Collection<SubscriptionBaseBundle> bundles, final InternalTenantContext internalTenantContext) throws EntitlementApiException {
+        // Retrieve the account
+        final ImmutableAccountData account;
+        final int accountBCD;
+        try {
+            account = accountInternalApi.getImmutableAccountDataByRecordId(internalTenantContext.getAccountRecordId(), internalTenantContext);
+            accountBCD = accountInternalApi.getBCD(internalTenantContext);
+        } catch (final AccountApiException e) {
+            throw new EntitlementApiException(e);
+        }
+
+        if (bundles.isEmpty()) {
+            // Bail early
+            return new DefaultAccountEventsStreams(account);
+        }
+
+        final VersionedCatalog catalog = getCatalog(internalTenantContext);
+
+        // Retrieve the subscriptions of all the bundles at once
+        final Collection<UUID> bundleIds = bundles.stream().map(SubscriptionBaseBundle::getId).collect(Collectors.toUnmodifiableList());
+        final Map<UUID, List<SubscriptionBase>> subscriptionsPerBundle;
+        try {
+            subscriptionsPerBundle = subscriptionInternalApi.getSubscriptionsForBundles(bundleIds, internalTenantContext);
+        } catch (final SubscriptionBaseApiException e) {
+            throw new EntitlementApiException(e);
+        }
+
+        // Map bundle id -> subscriptions, in the order of the bundles
+        final Map<UUID, List<SubscriptionBase>> subscriptions = new LinkedHashMap<>();
+        final Set<UUID> blockingStateIds = new HashSet<>();
+        blockingStateIds.add(account.getId());
+        for (final SubscriptionBaseBundle bundle : bundles) {
+            final List<SubscriptionBase> subscriptionsForBundle = Objects.requireNonNullElse(subscriptionsPerBundle.get(bundle.getId()), Collections.emptyList());
+            subscriptions.put(bundle.getId(), subscriptionsForBundle);
+            blockingStateIds.add(bundle.getId());
+            for (final SubscriptionBase subscription : subscriptionsForBundle) {
+                blockingStateIds.add(subscription.getId());
+            }
+        }
+
+        // Retrieve the blocking states for these objects only
+        final List<BlockingState> blockingStatesForBundles = defaultBlockingStateDao.getByBlockingIds(blockingStateIds, false, internalTenantContext);
+
+        return buildForBundles(account, accountBCD, bundles, subscriptions, blockingStatesForBundles, catalog, internalTenantContext);
+    }
+
+    private AccountEventsStreams buildForBundles(final ImmutableAccountData account,
+                                                 final int accountBCD,
+                                                 final Collection<SubscriptionBaseBundle> bundles,
+                                                 final Map<UUID, List<SubscriptionBase>> subscriptions,
+                                                 final List<BlockingState> blockingStatesForAccount,
+                                                 final VersionedCatalog catalog,
+                                                 final InternalTenantContext internalTenantContext) throws EntitlementApiException {
         // Map bundle id -> bundles
         final Map<UUID, SubscriptionBaseBundle> bundlesPerId = new HashMap<UUID, SubscriptionBaseBundle>();
         for (final SubscriptionBaseBundle bundle : bundles) {
             bundlesPerId.put(bundle.getId(), bundle);
         }
 
-        // Retrieve the blocking states
-        final List<BlockingState> blockingStatesForAccount = defaultBlockingStateDao.getBlockingAllForAccountRecordId(catalog, internalTenantContext);
-
         // Optimization: build lookup tables for blocking states states
         final Collection<BlockingState> accountBlockingStates = new LinkedList<>();
         final Map<UUID, List<BlockingState>> blockingStatesPerSubscription = new HashMap<>();
@@ -32,6 +32,7 @@ import org.killbill.billing.entitlement.block.BlockingChecker;
 import org.killbill.billing.entitlement.block.DefaultBlockingChecker;
 import org.killbill.billing.entitlement.dao.BlockingStateDao;
 import org.killbill.billing.entitlement.dao.ProxyBlockingStateDao;
+import org.killbill.billing.entitlement.engine.core.AccountEventsStreamsCache;
 import org.killbill.billing.entitlement.engine.core.EntitlementUtils;
 import org.killbill.billing.entitlement.engine.core.EventsStreamBuilder;
 import org.killbill.billing.entitlement.plugin.api.EntitlementPluginApi;
@@ -39,8 +40,10 @@ import org.killbill.billing.glue.EntitlementModule;
 import org.killbill.billing.junction.BlockingInternalApi;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.glue.SecurityModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 import com.google.inject.TypeLiteral;
 
@@ -55,8 +58,13 @@ public class DefaultEntitlementModule extends KillBillModule implements Entitlem
         bind(EntitlementPluginExecution.class).asEagerSingleton();
     }
 
+    protected void installConfig() {
+        bind(EntitlementConfig.class).toInstance(new ConfigurationObjectFactory(skifeConfigSource).build(EntitlementConfig.class));
+    }
+
     @Override
     protected void configure() {
+        installConfig();
         installBlockingStateDao();
         installBlockingApi();
         installEntitlementApi();
@@ -65,6 +73,7 @@ public class DefaultEntitlementModule extends KillBillModule implements Entitlem
         installBlockingChecker();
         bind(EntitlementService.class).to(DefaultEntitlementService.class).asEagerSingleton();
         bind(EntitlementUtils.class).asEagerSingleton();
+        bind(AccountEventsStreamsCache.class).asEagerSingleton();
         bind(EventsStreamBuilder.class).asEagerSingleton();
         installEntitlementPluginApi();
     }
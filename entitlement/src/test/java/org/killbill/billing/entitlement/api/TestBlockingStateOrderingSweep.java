@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.entitlement.EntitlementTestSuiteNoDB;
+import org.killbill.billing.junction.DefaultBlockingState;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+// Verify the sweep in BlockingStateOrdering generates the exact same stream as the original algorithm, on randomly generated streams
+public class TestBlockingStateOrderingSweep extends EntitlementTestSuiteNoDB {
+
+    private static final int NB_ITERATIONS = 1000;
+
+    private static final String[] SERVICES = {KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), EntitlementOrderingBase.BILLING_SERVICE_NAME, "svc1", "svc2"};
+    private static final String[] ENTITLEMENT_SERVICE_STATES = {DefaultEntitlementApi.ENT_STATE_START, DefaultEntitlementApi.ENT_STATE_CANCELLED, "stuff"};
+    private static final SubscriptionEventType[] BASE_EVENT_TYPES = {SubscriptionEventType.START_ENTITLEMENT,
+                                                                     SubscriptionEventType.START_BILLING,
+                                                                     SubscriptionEventType.PHASE,
+                                                                     SubscriptionEventType.CHANGE,
+                                                                     SubscriptionEventType.STOP_ENTITLEMENT,
+                                                                     SubscriptionEventType.STOP_BILLING};
+
+    private final Plan[] plans = {null, Mockito.mock(Plan.class), Mockito.mock(Plan.class), Mockito.mock(Plan.class)};
+
+    @Test(groups = "fast", description = "Blocking states sorted per entitlement, with account and bundle states shared across entitlements")
+    public void testSortedBlockingStatesPerEntitlement() {
+        for (long seed = 0; seed < NB_ITERATIONS; seed++) {
+            verifySameStream(seed, false);
+        }
+    }
+
+    @Test(groups = "fast", description = "Blocking states in random order")
+    public void testUnsortedBlockingStates() {
+        for (long seed = 0; seed < NB_ITERATIONS; seed++) {
+            verifySameStream(seed, true);
+        }
+    }
+
+    private void verifySameStream(final long seed, final boolean shuffleBlockingStates) {
+        final Random random = new Random(seed);
+        final DateTime now = clock.getUTCNow();
+        // Use few dates, to have lots of events on the same date
+        final int nbDays = 1 + random.nextInt(8);
+
+        final List<UUID> entitlementIds = new ArrayList<UUID>();
+        final int nbEntitlements = 1 + random.nextInt(4);
+        for (int i = 0; i < nbEntitlements; i++) {
+            entitlementIds.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        final List<SubscriptionEvent> subscriptionEvents = new ArrayList<SubscriptionEvent>();
+        for (final UUID entitlementId : entitlementIds) {
+            final int nbEvents = random.nextInt(6);
+            for (int i = 0; i < nbEvents; i++) {
+                final UUID eventId = new UUID(random.nextLong(), random.nextLong());
+                final DateTime effectiveDate = randomDate(random, now, nbDays);
+                final SubscriptionEventType eventType = BASE_EVENT_TYPES[random.nextInt(BASE_EVENT_TYPES.length)];
+                subscriptionEvents.add(createEvent(random, eventId, entitlementId, eventType, effectiveDate));
+
+                // Multiplexed event (same id, different type)
+                final SubscriptionEventType otherEventType = BASE_EVENT_TYPES[random.nextInt(BASE_EVENT_TYPES.length)];
+                if (random.nextInt(4) == 0 && otherEventType != eventType) {
+                    subscriptionEvents.add(createEvent(random, eventId, entitlementId, otherEventType, effectiveDate));
+                }
+            }
+        }
+        // Same ordering as SubscriptionEventOrdering
+        subscriptionEvents.sort(Comparator.comparing((SubscriptionEvent input) -> ((DefaultSubscriptionEvent) input).getEffectiveDateTime())
+                                          .thenComparing(SubscriptionEvent::getEntitlementId)
+                                          .thenComparing(SubscriptionEvent::getSubscriptionEventType));
+
+        // Blocking states are retrieved per entitlement (see BlockingStateOrdering#insertSorted): account and bundle states show up multiple times
+        final List<BlockingState> sharedBlockingStates = new ArrayList<BlockingState>();
+        final int nbSharedBlockingStates = random.nextInt(4);
+        for (int i = 0; i < nbSharedBlockingStates; i++) {
+            final BlockingStateType type = random.nextBoolean() ? BlockingStateType.ACCOUNT : BlockingStateType.SUBSCRIPTION_BUNDLE;
+            sharedBlockingStates.add(createBlockingState(random, new UUID(random.nextLong(), random.nextLong()), type, randomDate(random, now, nbDays)));
+        }
+        final List<BlockingState> blockingStates = new ArrayList<BlockingState>();
+        for (final UUID entitlementId : entitlementIds) {
+            final List<BlockingState> entitlementBlockingStates = new ArrayList<BlockingState>();
+            if (random.nextInt(3) != 0) {
+                entitlementBlockingStates.add(createBlockingState(random, entitlementId, BlockingStateType.SUBSCRIPTION, DefaultEntitlementApi.ENT_STATE_START, KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName(), randomDate(random, now, nbDays)));
+            }
+            final int nbBlockingStates = random.nextInt(6);
+            for (int i = 0; i < nbBlockingStates; i++) {
+                entitlementBlockingStates.add(createBlockingState(random, entitlementId, BlockingStateType.SUBSCRIPTION, randomDate(random, now, nbDays)));
+            }
+            for (final BlockingState sharedBlockingState : sharedBlockingStates) {
+                if (random.nextInt(4) != 0) {
+                    entitlementBlockingStates.add(sharedBlockingState);
+                }
+            }
+            entitlementBlockingStates.sort(Comparator.comparing(BlockingState::getEffectiveDate));
+            blockingStates.addAll(entitlementBlockingStates);
+        }
+        if (shuffleBlockingStates) {
+            Collections.shuffle(blockingStates, random);
+        }
+
+        final LinkedList<SubscriptionEvent> expected = new LinkedList<SubscriptionEvent>(subscriptionEvents);
+        new LegacyBlockingStateOrdering().computeEvents(new LinkedList<UUID>(entitlementIds), blockingStates, internalCallContext, expected);
+
+        final LinkedList<SubscriptionEvent> actual = new LinkedList<SubscriptionEvent>(subscriptionEvents);
+        BlockingStateOrdering.INSTANCE.computeEvents(new LinkedList<UUID>(entitlementIds), blockingStates, internalCallContext, actual);
+
+        Assert.assertEquals(actual, expected, "Seed " + seed);
+    }
+
+    private SubscriptionEvent createEvent(final Random random, final UUID eventId, final UUID entitlementId, final SubscriptionEventType eventType, final DateTime effectiveDate) {
+        return new DefaultSubscriptionEvent(eventId,
+                                            entitlementId,
+                                            effectiveDate,
+                                            eventType,
+                                            false,
+                                            false,
+                                            EntitlementOrderingBase.getServiceName(eventType),
+                                            eventType.toString(),
+                                            null,
+                                            plans[random.nextInt(plans.length)],
+                                            null,
+                                            null,
+                                            null,
+                                            null,
+                                            plans[random.nextInt(plans.length)],
+                                            null,
+                                            null,
+                                            null,
+                                            effectiveDate,
+                                            internalCallContext);
+    }
+
+    private BlockingState createBlockingState(final Random random, final UUID blockedId, final BlockingStateType type, final DateTime effectiveDate) {
+        final String service = SERVICES[random.nextInt(SERVICES.length)];
+        final String stateName = KILLBILL_SERVICES.ENTITLEMENT_SERVICE.getServiceName().equals(service) ? ENTITLEMENT_SERVICE_STATES[random.nextInt(ENTITLEMENT_SERVICE_STATES.length)] : "stuff";
+        return createBlockingState(random, blockedId, type, stateName, service, effectiveDate);
+    }
+
+    private BlockingState createBlockingState(final Random random, final UUID blockedId, final BlockingStateType type, final String stateName, final String service, final DateTime effectiveDate) {
+        return new DefaultBlockingState(new UUID(random.nextLong(), random.nextLong()),
+                                        blockedId,
+                                        type,
+                                        stateName,
+                                        service,
+                                        random.nextBoolean(),
+                                        random.nextBoolean(),
+                                        random.nextBoolean(),
+                                        effectiveDate,
+                                        effectiveDate,
+                                        effectiveDate,
+                                        0L);
+    }
+
+    private DateTime randomDate(final Random random, final DateTime now, final int nbDays) {
+        return now.plusDays(random.nextInt(nbDays)).plusHours(random.nextInt(5) == 0 ? 1 : 0);
+    }
+}
@@ -187,6 +187,32 @@ public class TestDefaultEntitlementApi extends EntitlementTestSuiteWithEmbeddedD
         Assert.assertNull(reactivatedEntitlement.getEffectiveEndDate());
     }
 
+    @Test(groups = "slow")
+    public void testGetAllEntitlementsForAccountIdWithSnapshots() throws AccountApiException, EntitlementApiException {
+        final LocalDate initialDate = new LocalDate(2013, 8, 7);
+        clock.setDay(initialDate);
+
+        final Account account = createAccount(getAccountData(7));
+
+        final PlanPhaseSpecifier spec = new PlanPhaseSpecifier("Shotgun", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME, null);
+        testListener.pushExpectedEvents(NextEvent.CREATE, NextEvent.BLOCK);
+        entitlementApi.createBaseEntitlement(account.getId(), new DefaultEntitlementSpecifier(spec), account.getExternalKey(), null, null, false, true, Collections.emptyList(), callContext);
+        assertListenerStatus();
+
+        // The account snapshot is re-used, but each caller gets its own SubscriptionBase objects
+        final List<Entitlement> entitlements = entitlementApi.getAllEntitlementsForAccountId(account.getId(), callContext);
+        final List<Entitlement> entitlementsAgain = entitlementApi.getAllEntitlementsForAccountId(account.getId(), callContext);
+        Assert.assertEquals(entitlements.size(), 1);
+        Assert.assertEquals(entitlementsAgain.size(), 1);
+        Assert.assertNotSame(((DefaultEntitlement) entitlementsAgain.get(0)).getSubscriptionBase(), ((DefaultEntitlement) entitlements.get(0)).getSubscriptionBase());
+
+        // Any change is visible right away
+        testListener.pushExpectedEvents(NextEvent.CANCEL, NextEvent.BLOCK);
+        entitlements.get(0).cancelEntitlementWithDateOverrideBillingPolicy(clock.getUTCToday(), BillingActionPolicy.IMMEDIATE, Collections.emptyList(), callContext);
+        assertListenerStatus();
+        Assert.assertEquals(entitlementApi.getAllEntitlementsForAccountId(account.getId(), callContext).get(0).getState(), EntitlementState.CANCELLED);
+    }
+
     @Test(groups = "slow")
     public void testCreateEntitlementWithCheck() throws AccountApiException, EntitlementApiException {
         final LocalDate initialDate = new LocalDate(2013, 8, 7);
@@ -20,6 +20,7 @@ package org.killbill.billing.entitlement.api;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -791,6 +792,32 @@ public class TestDefaultSubscriptionApi extends EntitlementTestSuiteWithEmbedded
         Assert.assertNull(bundles.getNextOffset());
     }
 
+    @Test(groups = "slow")
+    public void testGetSubscriptionsForAccountPageContent() throws AccountApiException, SubscriptionApiException, EntitlementApiException {
+        final Account account = createAccount(getAccountData(7));
+
+        final PlanPhaseSpecifier spec = new PlanPhaseSpecifier("Shotgun", BillingPeriod.MONTHLY, PriceListSet.DEFAULT_PRICELIST_NAME, null);
+        for (int i = 0; i < 3; i++) {
+            testListener.pushExpectedEvents(NextEvent.CREATE, NextEvent.BLOCK);
+            entitlementApi.createBaseEntitlement(account.getId(), new DefaultEntitlementSpecifier(spec), null, null, null, false, true, Collections.emptyList(), callContext);
+            assertListenerStatus();
+        }
+
+        // Each page is built at once, verify it matches the bundles built one by one
+        final List<SubscriptionBundle> page = new LinkedList<SubscriptionBundle>();
+        subscriptionApi.getSubscriptionBundlesForAccountId(account.getId(), 1L, 2L, callContext).iterator().forEachRemaining(page::add);
+        assertEquals(page.size(), 2);
+        for (final SubscriptionBundle bundle : page) {
+            final SubscriptionBundle expectedBundle = subscriptionApi.getSubscriptionBundle(bundle.getId(), callContext);
+            assertEquals(bundle.getAccountId(), expectedBundle.getAccountId());
+            assertEquals(bundle.getExternalKey(), expectedBundle.getExternalKey());
+            assertEquals(bundle.getSubscriptions().size(), expectedBundle.getSubscriptions().size());
+            assertEquals(bundle.getSubscriptions().get(0).getId(), expectedBundle.getSubscriptions().get(0).getId());
+            assertEquals(bundle.getSubscriptions().get(0).getState(), expectedBundle.getSubscriptions().get(0).getState());
+            assertEquals(bundle.getTimeline().getSubscriptionEvents().size(), expectedBundle.getTimeline().getSubscriptionEvents().size());
+        }
+    }
+
     private void verifyBlockingStates(final Iterable<BlockingState> result, final List<BlockingState> expected, final boolean dateOnly) {
         int i = 0;
         final Iterator<BlockingState> iterator = result.iterator();
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.entitlement.engine.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.account.api.ImmutableAccountData;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.VersionedCatalog;
+import org.killbill.billing.entitlement.EntitlementTestSuiteNoDB;
+import org.killbill.billing.entitlement.api.BlockingState;
+import org.killbill.billing.subscription.api.SubscriptionBase;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseBundle;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseTransition;
+import org.killbill.billing.util.config.definition.EntitlementConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestAccountEventsStreamsCache extends EntitlementTestSuiteNoDB {
+
+    private NonEntityDao mockNonEntityDao;
+    private VersionedCatalog catalog;
+    private AccountEventsStreamsCache accountEventsStreamsCache;
+    private AtomicInteger nbLoads;
+
+    @Override
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+
+        mockNonEntityDao = Mockito.mock(NonEntityDao.class);
+        Mockito.when(mockNonEntityDao.retrieveAccountEventsVersion(Mockito.any(InternalTenantContext.class))).thenReturn(1L);
+        catalog = Mockito.mock(VersionedCatalog.class);
+        Mockito.when(catalog.getVersions()).thenReturn(List.of());
+        accountEventsStreamsCache = createCache(10);
+        nbLoads = new AtomicInteger();
+    }
+
+    @Test(groups = "fast")
+    public void testReusedUntilAccountChanges() throws Exception {
+        final AccountEventsStreamsData first = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        Assert.assertSame(accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null)), first);
+        Assert.assertEquals(nbLoads.get(), 1);
+
+        // Committed change to the account
+        Mockito.when(mockNonEntityDao.retrieveAccountEventsVersion(Mockito.any(InternalTenantContext.class))).thenReturn(2L);
+        final AccountEventsStreamsData second = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        Assert.assertNotSame(second, first);
+        Assert.assertSame(accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null)), second);
+        Assert.assertEquals(nbLoads.get(), 2);
+        Assert.assertEquals(accountEventsStreamsCache.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testNotReusedAfterCatalogReload() throws Exception {
+        final AccountEventsStreamsData first = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+
+        final VersionedCatalog reloadedCatalog = Mockito.mock(VersionedCatalog.class);
+        Mockito.when(reloadedCatalog.getVersions()).thenReturn(List.of());
+        Assert.assertNotSame(accountEventsStreamsCache.getAccountEventsStreamsData(reloadedCatalog, internalCallContext, () -> load(null)), first);
+        Assert.assertEquals(nbLoads.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testNotReusedOnceAnEventBecomesEffective() throws Exception {
+        final DateTime nextPhaseDate = clock.getUTCNow().plusDays(30);
+        final AccountEventsStreamsData first = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(nextPhaseDate));
+
+        clock.addDays(29);
+        Assert.assertSame(accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(nextPhaseDate)), first);
+
+        clock.addDays(1);
+        Assert.assertNotSame(accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(nextPhaseDate)), first);
+        Assert.assertEquals(nbLoads.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testSnapshotIsReadOnly() throws Exception {
+        final AccountEventsStreamsData snapshot = accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        final UUID bundleId = snapshot.getBundles().get(0).getId();
+        try {
+            snapshot.getSubscriptions().get(bundleId).clear();
+            Assert.fail("Snapshot should be read-only");
+        } catch (final UnsupportedOperationException ignored) {
+        }
+        try {
+            snapshot.getSubscriptions().remove(bundleId);
+            Assert.fail("Snapshot should be read-only");
+        } catch (final UnsupportedOperationException ignored) {
+        }
+        Assert.assertEquals(accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null)).getSubscriptions().get(bundleId).size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testUnknownVersion() throws Exception {
+        Mockito.when(mockNonEntityDao.retrieveAccountEventsVersion(Mockito.any(InternalTenantContext.class))).thenReturn(null);
+
+        accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        Assert.assertEquals(nbLoads.get(), 2);
+        Assert.assertEquals(accountEventsStreamsCache.size(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testDisabled() throws Exception {
+        accountEventsStreamsCache = createCache(0);
+
+        accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        accountEventsStreamsCache.getAccountEventsStreamsData(catalog, internalCallContext, () -> load(null));
+        Assert.assertEquals(nbLoads.get(), 2);
+        Mockito.verify(mockNonEntityDao, Mockito.never()).getLastAuditLogRecordIdForAccountRecordId(Mockito.any(InternalTenantContext.class));
+    }
+
+    private AccountEventsStreamsCache createCache(final int maxSize) {
+        final EntitlementConfig entitlementConfig = Mockito.mock(EntitlementConfig.class);
+        Mockito.when(entitlementConfig.getAccountEventsStreamsCacheMaxSize()).thenReturn(maxSize);
+        return new AccountEventsStreamsCache(mockNonEntityDao, clock, entitlementConfig);
+    }
+
+    private AccountEventsStreamsData load(final DateTime nextTransitionDate) {
+        nbLoads.incrementAndGet();
+
+        final SubscriptionBaseTransition transition = Mockito.mock(SubscriptionBaseTransition.class);
+        Mockito.when(transition.getEffectiveTransitionTime()).thenReturn(nextTransitionDate);
+        final SubscriptionBase subscription = Mockito.mock(SubscriptionBase.class);
+        Mockito.when(subscription.getAllTransitions(false)).thenReturn(List.of(transition));
+
+        final SubscriptionBaseBundle bundle = Mockito.mock(SubscriptionBaseBundle.class);
+        Mockito.when(bundle.getId()).thenReturn(UUID.randomUUID());
+        return new AccountEventsStreamsData(Mockito.mock(ImmutableAccountData.class),
+                                            1,
+                                            List.of(bundle),
+                                            Map.of(bundle.getId(), List.of(subscription)),
+                                            List.of(Mockito.mock(BlockingState.class)));
+    }
+}
@@ -20,10 +20,14 @@
 package org.killbill.billing.invoice;
 
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -36,6 +40,10 @@ import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -111,6 +119,7 @@ import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.config.TimeSpanConverter;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.billing.util.queue.QueueRetryException;
@@ -157,6 +166,7 @@ public class InvoiceDispatcher {
     private final InvoiceConfig invoiceConfig;
     private final ParkedAccountsManager parkedAccountsManager;
     private final InvoiceOptimizer invoiceOptimizer;
+    private final NonEntityDao nonEntityDao;
 
     @Inject
     public InvoiceDispatcher(final InvoiceGenerator generator,
@@ -172,7 +182,8 @@ public class InvoiceDispatcher {
                              final InvoiceConfig invoiceConfig,
                              final Clock clock,
                              final InvoiceOptimizer invoiceOptimizer,
-                             final ParkedAccountsManager parkedAccountsManager) {
+                             final ParkedAccountsManager parkedAccountsManager,
+                             final NonEntityDao nonEntityDao) {
         this.generator = generator;
         this.billingApi = billingApi;
         this.subscriptionApi = SubscriptionApi;
@@ -187,6 +198,7 @@ public class InvoiceDispatcher {
         this.notificationQueueService = notificationQueueService;
         this.invoiceConfig = invoiceConfig;
         this.parkedAccountsManager = parkedAccountsManager;
+        this.nonEntityDao = nonEntityDao;
     }
 
     public void processAccountBCDChange(final UUID accountId, final InternalCallContext internalCallContext) {
@@ -326,7 +338,7 @@ public class InvoiceDispatcher {
             // Grab lock unless we do a dry-run
             final boolean isDryRun = dryRunArguments != null;
             lock = !isDryRun ? locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), invoiceConfig.getMaxGlobalLockRetries()) : null;
-            return processAccountInternal(isApiCall, parkedAccount, accountId, targetDate, dryRunArguments, isRescheduled, allowSplitting, properties, context);
+            return processAccountInternal(isApiCall, parkedAccount, accountId, targetDate, dryRunArguments, isRescheduled, allowSplitting, properties, null, null, context);
         } catch (final LockFailedException e) {
             if (isApiCall) {
                 throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice: failed to acquire lock");
@@ -357,6 +369,169 @@ public class InvoiceDispatcher {
     }
 
 
+    //
+    // Batch invoicing mode (e.g. when many accounts are due at the same time, see NextBillingDateBatcher): accounts are still processed
+    // one at a time, with the usual ACCNT_INV_PAY lock semantics, but the invoices and billing events of the next accounts in the batch
+    // are fetched ahead of time on the prefetch executor, so that DB latency overlaps with invoice generation and commit.
+    //
+    // The lock of an account is only grabbed right before it is processed, so the prefetching is strictly read-only (the account BCD
+    // is only set under the lock, see getBillingEventsForAccountIfBCDSet). The versions of the account invoices and entitlement state
+    // are read before the data: once the lock is held, if either has changed (or if the BCD still had to be set), the prefetched data
+    // is discarded and fetched again, as in processAccount.
+    //
+    // Failures are reported per account, in the order of the requests, and don't abort the rest of the batch.
+    //
+    public List<BatchAccountResult> processAccountsInBatch(final List<BatchAccountRequest> requests, final ExecutorService prefetchExecutor) {
+        final BatchAccountResult[] results = new BatchAccountResult[requests.size()];
+        if (requests.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        final int prefetchDepth = Math.max(1, invoiceConfig.getBatchInvoicingPrefetchDepth());
+        final Map<InvoiceTiming, Long> batchInvoiceTimings = new EnumMap<>(InvoiceTiming.class);
+        final Deque<PrefetchedAccount> prefetchedAccounts = new ArrayDeque<>(prefetchDepth + 1);
+
+        final long batchStartNano = System.nanoTime();
+        int nbFailures = 0;
+        int nextRequestIdx = 0;
+        try {
+            while (nextRequestIdx < requests.size() || !prefetchedAccounts.isEmpty()) {
+                // Keep the window full: the account being processed plus up to prefetchDepth accounts ahead
+                while (prefetchedAccounts.size() <= prefetchDepth && nextRequestIdx < requests.size()) {
+                    final int requestIdx = nextRequestIdx++;
+                    final BatchAccountRequest request = requests.get(requestIdx);
+                    try {
+                        final PrefetchedAccount prefetchedAccount = prefetchAccount(requestIdx, request, prefetchExecutor);
+                        if (prefetchedAccount != null) {
+                            prefetchedAccounts.addLast(prefetchedAccount);
+                        } else {
+                            results[requestIdx] = new BatchAccountResult(request, Collections.emptyList(), null);
+                        }
+                    } catch (final RuntimeException e) {
+                        results[requestIdx] = new BatchAccountResult(request, Collections.emptyList(), e);
+                    }
+                }
+
+                final PrefetchedAccount currentAccount = prefetchedAccounts.pollFirst();
+                if (currentAccount != null) {
+                    results[currentAccount.getRequestIdx()] = processPrefetchedAccount(currentAccount, batchInvoiceTimings);
+                }
+            }
+        } finally {
+            // Only non-empty if we exited abnormally
+            for (final PrefetchedAccount prefetchedAccount : prefetchedAccounts) {
+                prefetchedAccount.getAccountData().cancel(true);
+            }
+        }
+
+        for (final BatchAccountResult result : results) {
+            if (result.getFailure() != null) {
+                nbFailures++;
+            }
+        }
+        printInvoiceTiming(String.format("Batch invoice timings (nbAccounts=%s, nbFailures=%s, total=%s mSec): ", requests.size(), nbFailures, (System.nanoTime() - batchStartNano) / NANO_TO_MILLI_SEC), batchInvoiceTimings);
+        return Arrays.asList(results);
+    }
+
+    // Same checks as processAccountFromNotificationOrBusEvent and processAccount, then start fetching the invoices and billing events
+    private PrefetchedAccount prefetchAccount(final int requestIdx, final BatchAccountRequest request, final ExecutorService prefetchExecutor) {
+        final UUID accountId = request.getAccountId();
+        final InternalCallContext context = request.getContext();
+        if (!invoiceConfig.isInvoicingSystemEnabled(context)) {
+            log.warn("Invoicing system is off, parking accountId='{}'", accountId);
+            parkAccount(accountId, context);
+            return null;
+        }
+
+        try {
+            if (parkedAccountsManager.isParked(context)) {
+                log.warn("Ignoring invoice generation process for accountId='{}', targetDate='{}', account is parked", accountId.toString(), request.getTargetDate());
+                return null;
+            }
+        } catch (final TagApiException e) {
+            log.warn("Unable to determine parking state for accountId='{}'", accountId);
+        }
+
+        final Future<PrefetchedAccountData> accountData = prefetchExecutor.submit(() -> {
+            // Versions first: a write committing while the data is read will make it stale
+            final Long eventsVersion = nonEntityDao.retrieveAccountEventsVersion(context);
+            final Long invoicesVersion = invoiceDao.getAccountInvoicesVersion(context);
+
+            long startNano = System.nanoTime();
+            final AccountInvoices accountInvoices = invoiceOptimizer.getInvoices(context);
+            final long fetchInvoicesNanos = System.nanoTime() - startNano;
+
+            startNano = System.nanoTime();
+            final BillingEventSet billingEvents = billingApi.getBillingEventsForAccountIfBCDSet(accountId, accountInvoices.getBillingEventCutoffDate(), context);
+            return new PrefetchedAccountData(eventsVersion, invoicesVersion, accountInvoices, fetchInvoicesNanos, billingEvents, System.nanoTime() - startNano);
+        });
+        return new PrefetchedAccount(requestIdx, request, accountData);
+    }
+
+    private BatchAccountResult processPrefetchedAccount(final PrefetchedAccount prefetchedAccount, final Map<InvoiceTiming, Long> batchInvoiceTimings) {
+        final BatchAccountRequest request = prefetchedAccount.getRequest();
+        final UUID accountId = request.getAccountId();
+        final InternalCallContext context = request.getContext();
+
+        GlobalLock lock = null;
+        try {
+            try {
+                lock = locker.lockWithNumberOfTries(LockerType.ACCNT_INV_PAY.toString(), accountId.toString(), invoiceConfig.getMaxGlobalLockRetries());
+            } catch (final LockFailedException e) {
+                if (!rescheduleProcessAccount(accountId, context)) {
+                    log.warn("Failed to process invoice for accountId='{}', targetDate='{}'", accountId, request.getTargetDate(), e);
+                }
+                return new BatchAccountResult(request, Collections.emptyList(), null);
+            }
+
+            final PrefetchedAccountData accountData = getPrefetchedAccountDataIfUpToDate(prefetchedAccount, context);
+            final List<Invoice> invoices = processAccountInternal(false,
+                                                                  false,
+                                                                  accountId,
+                                                                  request.getTargetDate(),
+                                                                  null,
+                                                                  request.isRescheduled(),
+                                                                  true,
+                                                                  Collections.emptyList(),
+                                                                  accountData,
+                                                                  batchInvoiceTimings,
+                                                                  context);
+            return new BatchAccountResult(request, invoices, null);
+        } catch (final InvoiceApiException | RuntimeException e) {
+            return new BatchAccountResult(request, Collections.emptyList(), e);
+        } finally {
+            // No-op if the data was consumed
+            prefetchedAccount.getAccountData().cancel(true);
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    // Must be called with the lock held: null if the data has to be fetched again
+    private PrefetchedAccountData getPrefetchedAccountDataIfUpToDate(final PrefetchedAccount prefetchedAccount, final InternalCallContext context) {
+        final PrefetchedAccountData accountData;
+        try {
+            accountData = prefetchedAccount.getAccountData().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for prefetched account data", e);
+        } catch (final CancellationException | ExecutionException e) {
+            // Any persistent failure will be reported by the regular path
+            log.info("Failed to prefetch data for accountId='{}', fetching it again", prefetchedAccount.getRequest().getAccountId(), e);
+            return null;
+        }
+
+        if (accountData.getBillingEvents() == null ||
+            !Objects.equals(accountData.getEventsVersion(), nonEntityDao.retrieveAccountEventsVersion(context)) ||
+            !Objects.equals(accountData.getInvoicesVersion(), invoiceDao.getAccountInvoicesVersion(context))) {
+            log.info("Prefetched data for accountId='{}' is stale, fetching it again", prefetchedAccount.getRequest().getAccountId());
+            return null;
+        }
+        return accountData;
+    }
+
+
     private enum InvoiceTiming {
         BILLING_EVENTS,
         FETCH_INVOICES,
@@ -376,6 +551,8 @@ public class InvoiceDispatcher {
                                                  final boolean isRescheduled,
                                                  final boolean allowSplitting,
                                                  final Iterable<PluginProperty> properties,
+                                                 @Nullable final PrefetchedAccountData prefetchedAccountData,
+                                                 @Nullable final Map<InvoiceTiming, Long> batchInvoiceTimings,
                                                  final InternalCallContext context) throws InvoiceApiException {
         final boolean isDryRun = dryRunArguments != null;
         final boolean upcomingInvoiceDryRun = isDryRun && DryRunType.UPCOMING_INVOICE.equals(dryRunArguments.getDryRunType());
@@ -394,14 +571,23 @@ public class InvoiceDispatcher {
         final Map<InvoiceTiming, Long> invoiceTimings = new HashMap<>();
         try {
 
-            long startNano = System.nanoTime();
-            final AccountInvoices accountInvoices = invoiceOptimizer.getInvoices(context);
-            invoiceTimings.put(InvoiceTiming.FETCH_INVOICES, System.nanoTime() - startNano);
-
-            // Make sure to first set the BCD if needed then get the account object (to have the BCD set)
-            startNano = System.nanoTime();
-            final BillingEventSet billingEvents = billingApi.getBillingEventsForAccountAndUpdateAccountBCD(accountId, dryRunArguments, accountInvoices.getBillingEventCutoffDate(), context);
-            invoiceTimings.put(InvoiceTiming.BILLING_EVENTS, System.nanoTime() - startNano);
+            final AccountInvoices accountInvoices;
+            final BillingEventSet billingEvents;
+            if (prefetchedAccountData != null) {
+                accountInvoices = prefetchedAccountData.getAccountInvoices();
+                invoiceTimings.put(InvoiceTiming.FETCH_INVOICES, prefetchedAccountData.getFetchInvoicesNanos());
+                billingEvents = prefetchedAccountData.getBillingEvents();
+                invoiceTimings.put(InvoiceTiming.BILLING_EVENTS, prefetchedAccountData.getFetchBillingEventsNanos());
+            } else {
+                long startNano = System.nanoTime();
+                accountInvoices = invoiceOptimizer.getInvoices(context);
+                invoiceTimings.put(InvoiceTiming.FETCH_INVOICES, System.nanoTime() - startNano);
+
+                // Make sure to first set the BCD if needed then get the account object (to have the BCD set)
+                startNano = System.nanoTime();
+                billingEvents = billingApi.getBillingEventsForAccountAndUpdateAccountBCD(accountId, dryRunArguments, accountInvoices.getBillingEventCutoffDate(), context);
+                invoiceTimings.put(InvoiceTiming.BILLING_EVENTS, System.nanoTime() - startNano);
+            }
             if (!isApiCall && billingEvents.isAccountAutoInvoiceOff()) {
                 return Collections.emptyList();
             }
@@ -456,7 +642,11 @@ public class InvoiceDispatcher {
                 }
             }
 
-            printInvoiceTiming(invoiceTimings);
+            if (batchInvoiceTimings != null) {
+                invoiceTimings.forEach((timing, value) -> batchInvoiceTimings.merge(timing, value, Long::sum));
+            } else {
+                printInvoiceTiming("Invoice timings: ", invoiceTimings);
+            }
             return result;
         } catch (final CatalogApiException e) {
             log.warn("Failed to retrieve BillingEvents for accountId='{}', dryRunArguments='{}'", accountId, dryRunArguments, e);
@@ -482,9 +672,9 @@ public class InvoiceDispatcher {
         }
     }
 
-    private void printInvoiceTiming(final Map<InvoiceTiming, Long> invoiceTimings) {
+    private void printInvoiceTiming(final String prefix, final Map<InvoiceTiming, Long> invoiceTimings) {
         boolean first = true;
-        final StringBuilder tmp = new StringBuilder("Invoice timings: ");
+        final StringBuilder tmp = new StringBuilder(prefix);
         for (final InvoiceTiming key : InvoiceTiming.values()) {
             if (!first) {
                 tmp.append(", ");
@@ -1521,4 +1711,135 @@ public class InvoiceDispatcher {
         }
     }
 
+    public static class BatchAccountRequest {
+
+        private final UUID accountId;
+        private final LocalDate targetDate;
+        private final boolean isRescheduled;
+        private final InternalCallContext context;
+
+        public BatchAccountRequest(final UUID accountId, @Nullable final LocalDate targetDate, final boolean isRescheduled, final InternalCallContext context) {
+            this.accountId = accountId;
+            this.targetDate = targetDate;
+            this.isRescheduled = isRescheduled;
+            this.context = context;
+        }
+
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        public LocalDate getTargetDate() {
+            return targetDate;
+        }
+
+        public boolean isRescheduled() {
+            return isRescheduled;
+        }
+
+        public InternalCallContext getContext() {
+            return context;
+        }
+    }
+
+    public static class BatchAccountResult {
+
+        private final BatchAccountRequest request;
+        private final List<Invoice> invoices;
+        private final Exception failure;
+
+        public BatchAccountResult(final BatchAccountRequest request, final List<Invoice> invoices, @Nullable final Exception failure) {
+            this.request = request;
+            this.invoices = invoices;
+            this.failure = failure;
+        }
+
+        public BatchAccountRequest getRequest() {
+            return request;
+        }
+
+        public List<Invoice> getInvoices() {
+            return invoices;
+        }
+
+        // Either an InvoiceApiException or a RuntimeException (e.g. QueueRetryException)
+        @Nullable
+        public Exception getFailure() {
+            return failure;
+        }
+    }
+
+    private static class PrefetchedAccountData {
+
+        private final Long eventsVersion;
+        private final Long invoicesVersion;
+        private final AccountInvoices accountInvoices;
+        private final long fetchInvoicesNanos;
+        private final BillingEventSet billingEvents;
+        private final long fetchBillingEventsNanos;
+
+        public PrefetchedAccountData(@Nullable final Long eventsVersion,
+                                     @Nullable final Long invoicesVersion,
+                                     final AccountInvoices accountInvoices,
+                                     final long fetchInvoicesNanos,
+                                     @Nullable final BillingEventSet billingEvents,
+                                     final long fetchBillingEventsNanos) {
+            this.eventsVersion = eventsVersion;
+            this.invoicesVersion = invoicesVersion;
+            this.accountInvoices = accountInvoices;
+            this.fetchInvoicesNanos = fetchInvoicesNanos;
+            this.billingEvents = billingEvents;
+            this.fetchBillingEventsNanos = fetchBillingEventsNanos;
+        }
+
+        public Long getEventsVersion() {
+            return eventsVersion;
+        }
+
+        public Long getInvoicesVersion() {
+            return invoicesVersion;
+        }
+
+        public AccountInvoices getAccountInvoices() {
+            return accountInvoices;
+        }
+
+        public long getFetchInvoicesNanos() {
+            return fetchInvoicesNanos;
+        }
+
+        // Null if the account BCD still has to be set
+        public BillingEventSet getBillingEvents() {
+            return billingEvents;
+        }
+
+        public long getFetchBillingEventsNanos() {
+            return fetchBillingEventsNanos;
+        }
+    }
+
+    private static class PrefetchedAccount {
+
+        private final int requestIdx;
+        private final BatchAccountRequest request;
+        private final Future<PrefetchedAccountData> accountData;
+
+        public PrefetchedAccount(final int requestIdx, final BatchAccountRequest request, final Future<PrefetchedAccountData> accountData) {
+            this.requestIdx = requestIdx;
+            this.request = request;
+            this.accountData = accountData;
+        }
+
+        public int getRequestIdx() {
+            return requestIdx;
+        }
+
+        public BatchAccountRequest getRequest() {
+            return request;
+        }
+
+        public Future<PrefetchedAccountData> getAccountData() {
+            return accountData;
+        }
+    }
 }
@@ -37,6 +37,7 @@ import org.killbill.billing.events.ChangedField;
 import org.killbill.billing.events.EffectiveSubscriptionInternalEvent;
 import org.killbill.billing.events.InvoiceCreationInternalEvent;
 import org.killbill.billing.events.RequestedSubscriptionInternalEvent;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountRequest;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceInternalApi;
 import org.killbill.billing.invoice.api.InvoiceListenerService;
@@ -68,6 +69,7 @@ public class InvoiceListener extends RetryableService implements InvoiceListener
     private static final Logger log = LoggerFactory.getLogger(InvoiceListener.class);
 
     private final InvoiceDispatcher dispatcher;
+    private final NextBillingDateBatcher nextBillingDateBatcher;
     private final InternalCallContextFactory internalCallContextFactory;
     private final InvoiceInternalApi invoiceApi;
     private final RetryableSubscriber retryableSubscriber;
@@ -78,12 +80,14 @@ public class InvoiceListener extends RetryableService implements InvoiceListener
     public InvoiceListener(final AccountInternalApi accountApi,
                            final InternalCallContextFactory internalCallContextFactory,
                            final InvoiceDispatcher dispatcher,
+                           final NextBillingDateBatcher nextBillingDateBatcher,
                            final InvoiceInternalApi invoiceApi,
                            final NotificationQueueService notificationQueueService,
                            final BusDispatcherOptimizer busDispatcherOptimizer,
                            final Clock clock) {
         super(notificationQueueService);
         this.dispatcher = dispatcher;
+        this.nextBillingDateBatcher = nextBillingDateBatcher;
         this.internalCallContextFactory = internalCallContextFactory;
         this.invoiceApi = invoiceApi;
         this.busDispatcherOptimizer = busDispatcherOptimizer;
@@ -259,7 +263,12 @@ public class InvoiceListener extends RetryableService implements InvoiceListener
     public void handleNextBillingDateEvent(final DateTime eventDateTime, final boolean isRescheduled, final UUID userToken, final Long accountRecordId, final Long tenantRecordId) {
         final InternalCallContext context = internalCallContextFactory.createInternalCallContext(tenantRecordId, accountRecordId, "Next Billing Date", CallOrigin.INTERNAL, UserType.SYSTEM, userToken);
         try {
-            dispatcher.processSubscriptionForInvoiceGeneration(context.toLocalDate(eventDateTime), isRescheduled, context);
+            if (nextBillingDateBatcher.isEnabled()) {
+                final UUID accountId = internalCallContextFactory.createCallContext(context).getAccountId();
+                nextBillingDateBatcher.processAccount(new BatchAccountRequest(accountId, context.toLocalDate(eventDateTime), isRescheduled, context));
+            } else {
+                dispatcher.processSubscriptionForInvoiceGeneration(context.toLocalDate(eventDateTime), isRescheduled, context);
+            }
         } catch (final InvoiceApiException e) {
             log.warn("Unable to process next billing date event, eventDateTime='{}'", eventDateTime, e);
         }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountRequest;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountResult;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.commons.concurrent.Executors;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the next billing date notifications dispatched concurrently (see org.killbill.notificationq.main.notification.nbThreads)
+ * into batches for {@link InvoiceDispatcher#processAccountsInBatch}, when org.killbill.invoice.batch.prefetchDepth is set.
+ * <p/>
+ * Each notification thread only returns once its own account has been processed (by itself or by another notification thread),
+ * so notifications are still acked after the invoice is committed, and a failure is rethrown in the thread of the notification it belongs to.
+ * <p/>
+ * Each notification thread whose request hasn't been picked up yet processes its own batch (its request, followed by the requests
+ * queued up by the other threads in the meantime), so several batches can be processed concurrently.
+ */
+public class NextBillingDateBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NextBillingDateBatcher.class);
+
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private final InvoiceDispatcher dispatcher;
+    private final InvoiceConfig invoiceConfig;
+    private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+
+    private volatile ExecutorService prefetchExecutor;
+
+    @Inject
+    public NextBillingDateBatcher(final InvoiceDispatcher dispatcher, final InvoiceConfig invoiceConfig) {
+        this.dispatcher = dispatcher;
+        this.invoiceConfig = invoiceConfig;
+    }
+
+    public void initialize() {
+        final int prefetchDepth = invoiceConfig.getBatchInvoicingPrefetchDepth();
+        if (prefetchDepth > 0) {
+            prefetchExecutor = Executors.newFixedThreadPool(prefetchDepth, "invoice-batch-prefetch");
+        }
+    }
+
+    public void stop() {
+        final ExecutorService executor = prefetchExecutor;
+        if (executor == null) {
+            return;
+        }
+        prefetchExecutor = null;
+
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS)) {
+                log.warn("Timed out while shutting down the invoice batch prefetch executor");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return prefetchExecutor != null;
+    }
+
+    public List<Invoice> processAccount(final BatchAccountRequest request) throws InvoiceApiException {
+        final PendingRequest pendingRequest = new PendingRequest(request);
+        pendingRequests.add(pendingRequest);
+
+        // Only one thread can remove it: if it's already gone, it is part of the batch of another notification thread
+        if (pendingRequests.remove(pendingRequest)) {
+            processBatch(pollBatch(pendingRequest));
+        }
+
+        final BatchAccountResult result;
+        try {
+            result = pendingRequest.getResult().get();
+        } catch (final InterruptedException e) {
+            // The batch will still complete it (but the notification will be retried)
+            Thread.currentThread().interrupt();
+            throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Interrupted while waiting for batch invoice generation");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new InvoiceApiException(cause, ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice in batch");
+            }
+        }
+
+        if (result.getFailure() instanceof InvoiceApiException) {
+            throw (InvoiceApiException) result.getFailure();
+        } else if (result.getFailure() != null) {
+            throw (RuntimeException) result.getFailure();
+        }
+        return result.getInvoices();
+    }
+
+    @VisibleForTesting
+    int getNbPendingRequests() {
+        return pendingRequests.size();
+    }
+
+    private List<PendingRequest> pollBatch(final PendingRequest firstRequest) {
+        // The account being processed plus the ones being prefetched
+        final int maxBatchSize = Math.max(1, invoiceConfig.getBatchInvoicingPrefetchDepth()) + 1;
+        final List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+        batch.add(firstRequest);
+        PendingRequest pendingRequest;
+        while (batch.size() < maxBatchSize && (pendingRequest = pendingRequests.poll()) != null) {
+            batch.add(pendingRequest);
+        }
+        return batch;
+    }
+
+    private void processBatch(final List<PendingRequest> batch) {
+        try {
+            final ExecutorService executor = prefetchExecutor;
+            if (executor == null) {
+                throw new IllegalStateException("Invoice batch prefetch executor has been stopped");
+            }
+
+            final List<BatchAccountRequest> requests = new ArrayList<>(batch.size());
+            for (final PendingRequest pendingRequest : batch) {
+                requests.add(pendingRequest.getRequest());
+            }
+
+            final List<BatchAccountResult> results = dispatcher.processAccountsInBatch(requests, executor);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).getResult().complete(results.get(i));
+            }
+        } catch (final Throwable e) {
+            // Rethrown in each notification thread
+            for (final PendingRequest pendingRequest : batch) {
+                pendingRequest.getResult().completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class PendingRequest {
+
+        private final BatchAccountRequest request;
+        private final CompletableFuture<BatchAccountResult> result = new CompletableFuture<>();
+
+        public PendingRequest(final BatchAccountRequest request) {
+            this.request = request;
+        }
+
+        public BatchAccountRequest getRequest() {
+            return request;
+        }
+
+        public CompletableFuture<BatchAccountResult> getResult() {
+            return result;
+        }
+    }
+}
@@ -19,34 +19,53 @@
 package org.killbill.billing.invoice.api;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
+import org.killbill.billing.invoice.glue.DefaultInvoiceModule;
 import org.killbill.billing.invoice.notification.ParentInvoiceCommitmentNotifier;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.bus.api.PersistentBus;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
+import org.killbill.billing.invoice.NextBillingDateBatcher;
+import org.killbill.billing.invoice.generator.SubscriptionPartitionExecutor;
 import org.killbill.billing.invoice.notification.NextBillingDateNotifier;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.tenant.api.TenantInternalApi;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService.NotificationQueueAlreadyExists;
 
 public class DefaultInvoiceService implements InvoiceService {
 
     private final NextBillingDateNotifier dateNotifier;
+    private final NextBillingDateBatcher nextBillingDateBatcher;
     private final InvoiceListener invoiceListener;
     private final InvoiceTagHandler tagHandler;
     private final BusOptimizer eventBus;
     private final ParentInvoiceCommitmentNotifier parentInvoiceNotifier;
+    private final TenantInternalApi tenantInternalApi;
+    private final CacheInvalidationCallback templateCacheInvalidationCallback;
+    private final SubscriptionPartitionExecutor partitionExecutor;
 
     @Inject
     public DefaultInvoiceService(final InvoiceListener invoiceListener, final InvoiceTagHandler tagHandler, final BusOptimizer eventBus,
-                                 final NextBillingDateNotifier dateNotifier, final ParentInvoiceCommitmentNotifier parentInvoiceNotifier) {
+                                 final NextBillingDateNotifier dateNotifier, final NextBillingDateBatcher nextBillingDateBatcher,
+                                 final ParentInvoiceCommitmentNotifier parentInvoiceNotifier,
+                                 final TenantInternalApi tenantInternalApi,
+                                 @Named(DefaultInvoiceModule.INVOICE_TEMPLATE_INVALIDATION_CALLBACK) final CacheInvalidationCallback templateCacheInvalidationCallback,
+                                 final SubscriptionPartitionExecutor partitionExecutor) {
         this.invoiceListener = invoiceListener;
         this.tagHandler = tagHandler;
         this.eventBus = eventBus;
         this.dateNotifier = dateNotifier;
+        this.nextBillingDateBatcher = nextBillingDateBatcher;
         this.parentInvoiceNotifier = parentInvoiceNotifier;
+        this.tenantInternalApi = tenantInternalApi;
+        this.templateCacheInvalidationCallback = templateCacheInvalidationCallback;
+        this.partitionExecutor = partitionExecutor;
     }
 
     @Override
@@ -67,8 +86,14 @@ public class DefaultInvoiceService implements InvoiceService {
         } catch (PersistentBus.EventBusException e) {
             throw new RuntimeException("Failed to register bus handlers", e);
         }
+        nextBillingDateBatcher.initialize();
         dateNotifier.initialize();
         parentInvoiceNotifier.initialize();
+
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_TEMPLATE, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_MP_TEMPLATE, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.INVOICE_TRANSLATION_, templateCacheInvalidationCallback);
+        tenantInternalApi.initializeCacheInvalidationCallback(TenantKey.CATALOG_TRANSLATION_, templateCacheInvalidationCallback);
     }
 
     @LifecycleHandlerType(LifecycleLevel.START_SERVICE)
@@ -86,6 +111,8 @@ public class DefaultInvoiceService implements InvoiceService {
             throw new RuntimeException("Failed to unregister bus handlers", e);
         }
         dateNotifier.stop();
+        nextBillingDateBatcher.stop();
         parentInvoiceNotifier.stop();
+        partitionExecutor.shutdown();
     }
 }
@@ -180,6 +180,21 @@ public class MultiTenantInvoiceConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getMaxGlobalLockRetries();
     }
 
+    @Override
+    public int getBatchInvoicingPrefetchDepth() {
+        return staticConfig.getBatchInvoicingPrefetchDepth();
+    }
+
+    @Override
+    public int getGeneratorParallelism() {
+        return staticConfig.getGeneratorParallelism();
+    }
+
+    @Override
+    public int getGeneratorParallelismMinSubscriptions() {
+        return staticConfig.getGeneratorParallelismMinSubscriptions();
+    }
+
     @Override
     public List<String> getInvoicePluginNames() {
         return staticConfig.getInvoicePluginNames();
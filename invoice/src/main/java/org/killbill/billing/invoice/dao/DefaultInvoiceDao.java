@@ -20,6 +20,7 @@
 package org.killbill.billing.invoice.dao;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -78,21 +79,24 @@ import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoWrapperFactory;
 import org.killbill.billing.util.optimizer.BusOptimizer;
+import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.bus.api.BusEvent;
 import org.killbill.bus.api.PersistentBus.EventBusException;
 import org.killbill.clock.Clock;
+import org.killbill.commons.embeddeddb.EmbeddedDB;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.commons.utils.collect.Iterables;
@@ -129,8 +133,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     private final ParentInvoiceCommitmentPoster parentInvoiceCommitmentPoster;
     private final TagInternalApi tagInternalApi;
     private final AuditDao auditDao;
-
-
+    private final Clock clock;
+    private final EmbeddedDB.DBEngine dbEngine;
 
     @Inject
     public DefaultInvoiceDao(final TagInternalApi tagInternalApi,
@@ -146,8 +150,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                              final CBADao cbaDao,
                              final ParentInvoiceCommitmentPoster parentInvoiceCommitmentPoster,
                              final AuditDao auditDao,
-                             final InternalCallContextFactory internalCallContextFactory) {
-        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), InvoiceSqlDao.class);
+                             final InternalCallContextFactory internalCallContextFactory,
+                             final EmbeddedDB embeddedDB,
+                             final DaoConfig daoConfig) {
+        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, daoConfig), InvoiceSqlDao.class);
         this.tagInternalApi = tagInternalApi;
         this.nextBillingDatePoster = nextBillingDatePoster;
         this.eventBus = eventBus;
@@ -156,9 +162,11 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         this.invoiceDaoHelper = invoiceDaoHelper;
         this.cbaDao = cbaDao;
         this.auditDao = auditDao;
+        this.clock = clock;
         this.objectIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
         this.nonEntityDao = nonEntityDao;
         this.parentInvoiceCommitmentPoster = parentInvoiceCommitmentPoster;
+        this.dbEngine = embeddedDB.getDBEngine();
     }
 
     @Override
@@ -379,6 +387,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                 final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
                 final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
                 final InvoiceBillingEventSqlDao billingEventSqlDao = entitySqlDaoWrapperFactory.become(InvoiceBillingEventSqlDao.class);
+                invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
 
                 final ExistingInvoiceMetadata existingInvoiceMetadata;
                 if (existingInvoiceMetadataOrNull == null) {
@@ -542,7 +551,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final boolean isSearchKeyCurrency = isSearchKeyCurrency(searchKey);
 
         return paginationHelper.getPagination(InvoiceSqlDao.class,
-                                              new PaginationIteratorBuilder<InvoiceModelDao, Invoice, InvoiceSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<InvoiceModelDao, Invoice, InvoiceSqlDao>() {
                                                   @Override
                                                   public Long getCount(final InvoiceSqlDao invoiceSqlDao, final InternalTenantContext context) {
                                                       if (invoiceNumber != null) {
@@ -568,6 +577,18 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
                                                           return Collections.emptyIterator();
                                                       }
                                                   }
+
+                                                  @Override
+                                                  public Iterator<InvoiceModelDao> buildAfterRecordId(final InvoiceSqlDao invoiceSqlDao, final Long lastRecordId, final Long limit, final DefaultPaginationSqlDaoHelper.Ordering ordering, final InternalTenantContext context) {
+                                                      if (invoiceNumber != null) {
+                                                          // Single match, returned with the first page
+                                                          return Collections.emptyIterator();
+                                                      }
+                                                      if (isSearchKeyCurrency) {
+                                                          return invoiceSqlDao.searchByCurrencyBetweenRecordIds(searchKey, getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                      }
+                                                      return invoiceSqlDao.searchByAccountOrInvoiceIdBetweenRecordIds(searchKey, getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -578,40 +599,123 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     @Override
     public BigDecimal getAccountBalance(final UUID accountId, final InternalTenantContext context) {
         final List<Tag> invoicesTags = getInvoicesTags(context);
+        final String writtenOffFingerprint = computeWrittenOffFingerprint(invoicesTags);
 
-        return transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
-            BigDecimal cba = BigDecimal.ZERO;
+        final InvoiceAccountBalanceModelDao projection = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).getForAccount(context));
+        if (projection != null && projection.isUpToDate(writtenOffFingerprint)) {
+            return projection.getBalance();
+        }
 
-            BigDecimal accountBalance = BigDecimal.ZERO;
-            final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(false, true, invoicesTags, entitySqlDaoWrapperFactory, context);
-            for (final InvoiceModelDao cur : invoices) {
+        // Read the version before the invoices (same RO transaction): if a write commits in between, the conditional update below is a no-op
+        final AccountBalanceWithVersion accountBalance = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
+            final InvoiceAccountBalanceModelDao currentProjection = entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).getForAccount(context);
+            return new AccountBalanceWithVersion(currentProjection != null ? currentProjection.getVersion() : null,
+                                                 computeAccountBalanceFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context));
+        });
 
-                // Skip DRAFT OR VOID invoices
-                if (cur.getStatus().equals(InvoiceStatus.DRAFT) || cur.getStatus().equals(InvoiceStatus.VOID)) {
-                    continue;
-                }
+        // Short write, outside of the read transaction
+        if (accountBalance.getVersion() != null && accountBalance.getAccountBalance().isCachable()) {
+            transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class)
+                                                                                                       .updateComputedBalance(accountBalance.getVersion(),
+                                                                                                                              accountBalance.getAccountBalance().getBalance(),
+                                                                                                                              accountBalance.getAccountBalance().getCba(),
+                                                                                                                              writtenOffFingerprint,
+                                                                                                                              clock.getUTCNow().toDate(),
+                                                                                                                              context));
+        }
+        return accountBalance.getAccountBalance().getBalance();
+    }
 
-                final boolean hasZeroParentBalance =
-                        cur.getParentInvoice() != null &&
-                        (cur.getParentInvoice().isWrittenOff() ||
-                         cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
-                         cur.getParentInvoice().getStatus() == InvoiceStatus.VOID ||
-                         InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
-
-                    // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
-                    final BigDecimal invoiceBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur);
-                    accountBalance = accountBalance.add(invoiceBalance);
-                    cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
-                }
-                return accountBalance.subtract(cba);
+    @Override
+    public boolean rebuildAccountBalance(final UUID accountId, final InternalCallContext context) {
+        final List<Tag> invoicesTags = getInvoicesTags(context);
+        final String writtenOffFingerprint = computeWrittenOffFingerprint(invoicesTags);
+
+        return transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            final InvoiceAccountBalanceSqlDao accountBalanceSqlDao = entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class);
+            InvoiceAccountBalanceModelDao projection = accountBalanceSqlDao.getForAccount(context);
+            if (projection == null) {
+                invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
+                projection = accountBalanceSqlDao.getForAccount(context);
+            }
+
+            // Only a projection which would be served as is can have drifted
+            final AccountBalance accountBalance = computeAccountBalanceFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
+            final boolean hasDrift = projection.isUpToDate(writtenOffFingerprint) &&
+                                     (projection.getBalance().compareTo(accountBalance.getBalance()) != 0 || projection.getCba().compareTo(accountBalance.getCba()) != 0);
+            if (hasDrift) {
+                log.warn("Account balance projection drift for accountId='{}': projection={}, recomputed balance={}, recomputed cba={}",
+                         accountId, projection, accountBalance.getBalance(), accountBalance.getCba());
+            }
+
+            if (accountBalance.isCachable()) {
+                accountBalanceSqlDao.updateComputedBalance(projection.getVersion(), accountBalance.getBalance(), accountBalance.getCba(), writtenOffFingerprint, context.getUpdatedDate().toDate(), context);
+            }
+            return hasDrift;
         });
     }
 
+    private AccountBalance computeAccountBalanceFromTransaction(final List<Tag> invoicesTags, final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalTenantContext context) {
+        BigDecimal cba = BigDecimal.ZERO;
+
+        BigDecimal accountBalance = BigDecimal.ZERO;
+        boolean hasParentInvoices = false;
+        final List<InvoiceModelDao> invoices = invoiceDaoHelper.getAllInvoicesByAccountFromTransaction(false, true, invoicesTags, entitySqlDaoWrapperFactory, context);
+        for (final InvoiceModelDao cur : invoices) {
+
+            // Skip DRAFT OR VOID invoices
+            if (cur.getStatus().equals(InvoiceStatus.DRAFT) || cur.getStatus().equals(InvoiceStatus.VOID)) {
+                continue;
+            }
+
+            hasParentInvoices = hasParentInvoices || cur.getParentInvoice() != null;
+            final boolean hasZeroParentBalance =
+                    cur.getParentInvoice() != null &&
+                    (cur.getParentInvoice().isWrittenOff() ||
+                     cur.getParentInvoice().getStatus() == InvoiceStatus.DRAFT ||
+                     cur.getParentInvoice().getStatus() == InvoiceStatus.VOID ||
+                     InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur.getParentInvoice()).compareTo(BigDecimal.ZERO) == 0);
+
+            // invoices that are WRITTEN_OFF or paid children invoices are excluded from balance computation but the cba summation needs to be included
+            final BigDecimal invoiceBalance = cur.isWrittenOff() || hasZeroParentBalance ? BigDecimal.ZERO : InvoiceModelDaoHelper.getRawBalanceForRegularInvoice(cur);
+            accountBalance = accountBalance.add(invoiceBalance);
+            cba = cba.add(InvoiceModelDaoHelper.getCBAAmount(cur));
+        }
+        // The balance of child invoices depends on the parent account invoices, which aren't tracked by the projection of the child account
+        return new AccountBalance(accountBalance.subtract(cba), cba, !hasParentInvoices);
+    }
+
+    // Invalidates the balance projection of the account (the row is created on the first write)
+    private void invalidateAccountBalance(final EntitySqlDaoWrapperFactory entitySqlDaoWrapperFactory, final InternalCallContext context) {
+        final InvoiceAccountBalanceSqlDao accountBalanceSqlDao = entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class);
+        if (EmbeddedDB.DBEngine.POSTGRESQL.equals(dbEngine)) {
+            accountBalanceSqlDao.incrementOrCreateVersionPostgreSQL(UUIDs.randomUUID().toString(), context);
+        } else {
+            accountBalanceSqlDao.incrementOrCreateVersion(UUIDs.randomUUID().toString(), context);
+        }
+    }
+
+    // WRITTEN_OFF tags can be added or removed outside of the invoice DAO
+    private static String computeWrittenOffFingerprint(final List<Tag> invoicesTags) {
+        final String writtenOffInvoiceIds = invoicesTags.stream()
+                                                        .filter(input -> input.getTagDefinitionId().equals(ControlTagType.WRITTEN_OFF.getId()))
+                                                        .map(input -> input.getObjectId().toString())
+                                                        .sorted()
+                                                        .collect(Collectors.joining(","));
+        return UUID.nameUUIDFromBytes(writtenOffInvoiceIds.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
     @Override
     public BigDecimal getAccountCBA(final UUID accountId, final InternalTenantContext context) {
         return transactionalSqlDao.execute(true, entityWrapperFactory -> cbaDao.getAccountCBAFromTransaction(entityWrapperFactory, context));
     }
 
+    @Override
+    public Long getAccountInvoicesVersion(final InternalTenantContext context) {
+        final InvoiceAccountBalanceModelDao projection = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).getForAccount(context));
+        return projection != null ? projection.getVersion() : null;
+    }
+
     @Override
     public List<InvoiceModelDao> getUnpaidInvoicesByAccountId(final UUID accountId, @Nullable final LocalDate startDate, @Nullable final LocalDate upToDate, final InternalTenantContext context) {
         final List<Tag> invoicesTags = getInvoicesTags(context);
@@ -662,6 +766,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         return transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoicePaymentSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
 
             final InvoiceSqlDao transInvoiceDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
@@ -766,6 +871,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         return transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoicePaymentSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
 
             final List<InvoicePaymentModelDao> invoicePayments = transactional.getByPaymentId(paymentId.toString(), context);
@@ -815,6 +921,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         return transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoicePaymentSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
 
             final InvoicePaymentModelDao invoicePayment = transactional.getPaymentForCookieId(chargebackTransactionExternalKey, context);
@@ -848,7 +955,10 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
     @Override
     public InvoiceItemModelDao doCBAComplexity(final InvoiceModelDao invoice, final InternalCallContext context) throws InvoiceApiException {
-        return transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> cbaDao.computeCBAComplexity(invoice, null, entitySqlDaoWrapperFactory, context));
+        return transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
+            return cbaDao.computeCBAComplexity(invoice, null, entitySqlDaoWrapperFactory, context);
+        });
     }
 
     @Override
@@ -928,6 +1038,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
 
     private void notifyOfPaymentCompletionInternal(final InvoicePaymentModelDao invoicePayment, final UUID paymentAttemptId, final boolean completion, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoicePaymentSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoicePaymentSqlDao.class);
             //
             // In case of notifyOfPaymentInit we always want to record the row with status = INIT
@@ -1018,6 +1129,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final Set<UUID> invoiceIds = new HashSet<>();
 
         transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
 
             // Retrieve the invoice and make sure it belongs to the right account
@@ -1080,6 +1192,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             cbaDao.doCBAComplexityFromTransaction(invoicesTags, entitySqlDaoWrapperFactory, context);
             return null;
         });
@@ -1215,6 +1328,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         final List<Tag> invoicesTags = getInvoicesTags(context);
 
         transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoiceSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
 
             // Retrieve the invoice and make sure it belongs to the right account
@@ -1290,6 +1404,9 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     public void createParentChildInvoiceRelation(final InvoiceParentChildModelDao invoiceRelation, final InternalCallContext context) throws InvoiceApiException {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
             final InvoiceParentChildrenSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoiceParentChildrenSqlDao.class);
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
+            // The balance of the child account now depends on the parent invoice
+            entitySqlDaoWrapperFactory.getHandle().attach(InvoiceAccountBalanceSqlDao.class).incrementVersionForInvoice(invoiceRelation.getChildInvoiceId().toString(), context);
             createAndRefresh(transactional, invoiceRelation, context);
             return null;
         });
@@ -1320,6 +1437,7 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
     @Override
     public void updateInvoiceItemAmount(final UUID invoiceItemId, final BigDecimal amount, final InternalCallContext context) throws InvoiceApiException {
         transactionalSqlDao.execute(false, InvoiceApiException.class, entitySqlDaoWrapperFactory -> {
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, context);
             final InvoiceItemSqlDao transactional = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
 
             // Retrieve the invoice and make sure it belongs to the right account
@@ -1347,6 +1465,8 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
             final InvoiceSqlDao invoiceSqlDao = entitySqlDaoWrapperFactory.become(InvoiceSqlDao.class);
             final InvoiceItemSqlDao transInvoiceItemSqlDao = entitySqlDaoWrapperFactory.become(InvoiceItemSqlDao.class);
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, childAccountContext);
+            invalidateAccountBalance(entitySqlDaoWrapperFactory, parentAccountContext);
 
             // create child and parent invoices
 
@@ -1544,4 +1664,48 @@ public class DefaultInvoiceDao extends EntityDaoBase<InvoiceModelDao, Invoice, I
         return false;
     }
 
+    private static final class AccountBalanceWithVersion {
+
+        // Null if the projection row doesn't exist yet
+        private final Long version;
+        private final AccountBalance accountBalance;
+
+        private AccountBalanceWithVersion(@Nullable final Long version, final AccountBalance accountBalance) {
+            this.version = version;
+            this.accountBalance = accountBalance;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public AccountBalance getAccountBalance() {
+            return accountBalance;
+        }
+    }
+
+    private static final class AccountBalance {
+
+        private final BigDecimal balance;
+        private final BigDecimal cba;
+        private final boolean cachable;
+
+        private AccountBalance(final BigDecimal balance, final BigDecimal cba, final boolean cachable) {
+            this.balance = balance;
+            this.cba = cba;
+            this.cachable = cachable;
+        }
+
+        public BigDecimal getBalance() {
+            return balance;
+        }
+
+        public BigDecimal getCba() {
+            return cba;
+        }
+
+        public boolean isCachable() {
+            return cachable;
+        }
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntityModelDao;
+import org.killbill.billing.util.entity.dao.EntityModelDaoBase;
+
+// Per-account projection of the balance and CBA: version is bumped by each invoice write, the projection is valid when computedVersion == version
+public class InvoiceAccountBalanceModelDao extends EntityModelDaoBase implements EntityModelDao<Entity> {
+
+    private Long version;
+    private Long computedVersion;
+    private BigDecimal balance;
+    private BigDecimal cba;
+    // Name-based UUID of the invoices tagged as WRITTEN_OFF when the projection was computed
+    private String writtenOffFingerprint;
+
+    public InvoiceAccountBalanceModelDao() { /* For the DAO mapper */ }
+
+    public InvoiceAccountBalanceModelDao(final UUID id, final DateTime createdDate, final DateTime updatedDate, final Long version,
+                                         final Long computedVersion, final BigDecimal balance, final BigDecimal cba, final String writtenOffFingerprint) {
+        super(id, createdDate, updatedDate);
+        this.version = version;
+        this.computedVersion = computedVersion;
+        this.balance = balance;
+        this.cba = cba;
+        this.writtenOffFingerprint = writtenOffFingerprint;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(final Long version) {
+        this.version = version;
+    }
+
+    public Long getComputedVersion() {
+        return computedVersion;
+    }
+
+    public void setComputedVersion(final Long computedVersion) {
+        this.computedVersion = computedVersion;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(final BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getCba() {
+        return cba;
+    }
+
+    public void setCba(final BigDecimal cba) {
+        this.cba = cba;
+    }
+
+    public String getWrittenOffFingerprint() {
+        return writtenOffFingerprint;
+    }
+
+    public void setWrittenOffFingerprint(final String writtenOffFingerprint) {
+        this.writtenOffFingerprint = writtenOffFingerprint;
+    }
+
+    public boolean isUpToDate(final String currentWrittenOffFingerprint) {
+        return computedVersion != null &&
+               computedVersion.equals(version) &&
+               balance != null &&
+               currentWrittenOffFingerprint.equals(writtenOffFingerprint);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("InvoiceAccountBalanceModelDao");
+        sb.append("{id=").append(id);
+        sb.append(", version=").append(version);
+        sb.append(", computedVersion=").append(computedVersion);
+        sb.append(", balance=").append(balance);
+        sb.append(", cba=").append(cba);
+        sb.append(", writtenOffFingerprint='").append(writtenOffFingerprint).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final InvoiceAccountBalanceModelDao that = (InvoiceAccountBalanceModelDao) o;
+
+        if (id != null ? !id.equals(that.id) : that.id != null) {
+            return false;
+        }
+        if (version != null ? !version.equals(that.version) : that.version != null) {
+            return false;
+        }
+        if (computedVersion != null ? !computedVersion.equals(that.computedVersion) : that.computedVersion != null) {
+            return false;
+        }
+        if (balance != null ? !balance.equals(that.balance) : that.balance != null) {
+            return false;
+        }
+        if (cba != null ? !cba.equals(that.cba) : that.cba != null) {
+            return false;
+        }
+        if (writtenOffFingerprint != null ? !writtenOffFingerprint.equals(that.writtenOffFingerprint) : that.writtenOffFingerprint != null) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (version != null ? version.hashCode() : 0);
+        result = 31 * result + (computedVersion != null ? computedVersion.hashCode() : 0);
+        result = 31 * result + (writtenOffFingerprint != null ? writtenOffFingerprint.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public TableName getTableName() {
+        return TableName.INVOICE_ACCOUNT_BALANCES;
+    }
+
+    @Override
+    public TableName getHistoryTableName() {
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.dao;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntitySqlDao;
+import org.killbill.commons.jdbi.binder.SmartBindBean;
+import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
+import org.skife.jdbi.v2.sqlobject.Bind;
+import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+
+// Attached directly to the transaction handle (i.e. not through EntitySqlDaoWrapperFactory#become): the projection isn't audited
+@KillBillSqlDaoStringTemplate
+public interface InvoiceAccountBalanceSqlDao extends EntitySqlDao<InvoiceAccountBalanceModelDao, Entity> {
+
+    @SqlQuery
+    InvoiceAccountBalanceModelDao getForAccount(@SmartBindBean final InternalTenantContext context);
+
+    // Bumps the version of the account, creating the row if needed (upsert)
+    @SqlUpdate
+    int incrementOrCreateVersion(@Bind("id") final String id,
+                                 @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    int incrementOrCreateVersionPostgreSQL(@Bind("id") final String id,
+                                           @SmartBindBean final InternalCallContext context);
+
+    @SqlUpdate
+    int incrementVersionForInvoice(@Bind("invoiceId") final String invoiceId,
+                                   @SmartBindBean final InternalCallContext context);
+
+    // No-op if the version was bumped in the meantime by a concurrent write
+    @SqlUpdate
+    int updateComputedBalance(@Bind("version") final Long version,
+                              @Bind("balance") final BigDecimal balance,
+                              @Bind("cba") final BigDecimal cba,
+                              @Bind("writtenOffFingerprint") final String writtenOffFingerprint,
+                              @Bind("updatedDate") final Date updatedDate,
+                              @SmartBindBean final InternalTenantContext context);
+}
@@ -91,6 +91,18 @@ public interface InvoiceDao extends EntityDao<InvoiceModelDao, Invoice, InvoiceA
 
     BigDecimal getAccountCBA(UUID accountId, InternalTenantContext context);
 
+    /**
+     * Recompute the account balance projection from scratch, compare it with the persisted one and fix it.
+     *
+     * @param accountId the account id
+     * @param context   the callcontext
+     * @return true if the persisted (up-to-date) projection didn't match the recomputed balance or CBA
+     */
+    boolean rebuildAccountBalance(UUID accountId, InternalCallContext context);
+
+    // Incremented in the transaction of any write to the invoices of the account (null if there was none)
+    Long getAccountInvoicesVersion(InternalTenantContext context);
+
     List<InvoiceModelDao> getUnpaidInvoicesByAccountId(UUID accountId, @Nullable LocalDate startDate, @Nullable LocalDate upToDate, InternalTenantContext context);
 
     // Include migrated invoices
@@ -75,6 +75,15 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
                                                          @Define("ordering") final String ordering,
                                                          @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    Iterator<InvoiceModelDao> searchByAccountOrInvoiceIdBetweenRecordIds(@Bind("searchKey") final String searchKey,
+                                                                         @Bind("minRecordId") final Long minRecordId,
+                                                                         @Bind("maxRecordId") final Long maxRecordId,
+                                                                         @Bind("rowCount") final Long rowCount,
+                                                                         @Define("ordering") final String ordering,
+                                                                         @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     Long getSearchByAccountOrInvoiceIdCount(@Bind("searchKey") final String searchKey,
                                             @SmartBindBean final InternalTenantContext context);
@@ -87,6 +96,15 @@ public interface InvoiceSqlDao extends EntitySqlDao<InvoiceModelDao, Invoice> {
                                                @Define("ordering") final String ordering,
                                                @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    Iterator<InvoiceModelDao> searchByCurrencyBetweenRecordIds(@Bind("searchKey") final String searchKey,
+                                                               @Bind("minRecordId") final Long minRecordId,
+                                                               @Bind("maxRecordId") final Long maxRecordId,
+                                                               @Bind("rowCount") final Long rowCount,
+                                                               @Define("ordering") final String ordering,
+                                                               @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     Long getSearchByCurrencyCount(@Bind("searchKey") final String searchKey,
                                   @SmartBindBean final InternalTenantContext context);
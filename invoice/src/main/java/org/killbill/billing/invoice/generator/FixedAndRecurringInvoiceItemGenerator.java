@@ -79,10 +79,16 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
     private static final Logger log = LoggerFactory.getLogger(FixedAndRecurringInvoiceItemGenerator.class);
 
     private final InvoiceConfig config;
+    private final SubscriptionPartitionExecutor partitionExecutor;
 
     @Inject
-    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock) {
+    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock, final SubscriptionPartitionExecutor partitionExecutor) {
         this.config = config;
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    public FixedAndRecurringInvoiceItemGenerator(final InvoiceConfig config, final Clock clock) {
+        this(config, clock, SubscriptionPartitionExecutor.SEQUENTIAL);
     }
 
     public InvoiceGeneratorResult generateItems(final ImmutableAccountData account, final UUID invoiceId, final BillingEventSet eventSet,
@@ -95,7 +101,7 @@ public class FixedAndRecurringInvoiceItemGenerator extends InvoiceItemGenerator
 
         final InvoicePruner invoicePruner = new InvoicePruner(existingInvoices);
         final Set<UUID> toBeIgnored = invoicePruner.getFullyRepairedItemsClosure();
-        final AccountItemTree accountItemTree = new AccountItemTree(account.getId(), invoiceId, config.getProrationFixedDays(internalCallContext));
+        final AccountItemTree accountItemTree = new AccountItemTree(account.getId(), invoiceId, config.getProrationFixedDays(internalCallContext), partitionExecutor);
         for (final Invoice invoice : existingInvoices.getInvoices()) {
             for (final InvoiceItem item : invoice.getInvoiceItems()) {
                 if (toBeIgnored.contains(item.getId())) {
@@ -63,6 +63,7 @@ public abstract class InvoiceItemGenerator {
         }
     }
 
+    // Thread-safe, as the items of a given invoice may be generated in parallel (see SubscriptionPartitionExecutor)
     public static class InvoiceItemGeneratorLogger {
 
         private final UUID invoiceId;
@@ -81,14 +82,14 @@ public abstract class InvoiceItemGenerator {
             this.enabled = delegate.isDebugEnabled();
         }
 
-        public void append(final Object event, final Collection<InvoiceItem> items) {
+        public synchronized void append(final Object event, final Collection<InvoiceItem> items) {
             if (!enabled || items.isEmpty()) {
                 return;
             }
             append(event, items.toArray(new InvoiceItem[items.size()]));
         }
 
-        public void append(final Object event, final InvoiceItem... items) {
+        public synchronized void append(final Object event, final InvoiceItem... items) {
             if (!enabled || items.length == 0) {
                 return;
             }
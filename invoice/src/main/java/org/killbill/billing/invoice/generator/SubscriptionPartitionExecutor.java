@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs per-subscription invoice generation work (item trees, usage intervals) on a bounded fork-join pool
+ * for accounts with enough subscriptions, and inline otherwise.
+ * <p/>
+ * Results are always returned in the order of the partitions, so the output doesn't depend on the mode.
+ */
+public class SubscriptionPartitionExecutor {
+
+    public static final SubscriptionPartitionExecutor SEQUENTIAL = new SubscriptionPartitionExecutor(0, Integer.MAX_VALUE);
+
+    private static final Logger log = LoggerFactory.getLogger(SubscriptionPartitionExecutor.class);
+
+    private static final String THREAD_NAME_PREFIX = "invoice-generator-";
+    private static final long TIMEOUT_EXECUTOR_SEC = 3L;
+
+    private final ForkJoinPool pool;
+    private final int minPartitions;
+
+    @Inject
+    public SubscriptionPartitionExecutor(final InvoiceConfig invoiceConfig) {
+        this(invoiceConfig.getGeneratorParallelism(), invoiceConfig.getGeneratorParallelismMinSubscriptions());
+    }
+
+    @VisibleForTesting
+    public SubscriptionPartitionExecutor(final int parallelism, final int minPartitions) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, SubscriptionPartitionExecutor::newWorkerThread, null, false) : null;
+        this.minPartitions = Math.max(minPartitions, 2);
+    }
+
+    public boolean isParallel(final int nbPartitions) {
+        // Once shut down, the work still in progress falls back to running inline
+        return pool != null && !pool.isShutdown() && nbPartitions >= minPartitions;
+    }
+
+    public void shutdown() {
+        if (pool == null) {
+            return;
+        }
+
+        pool.shutdownNow();
+        try {
+            if (!pool.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS)) {
+                log.warn("Timed out while shutting down the invoice generator pool");
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public <P, R> List<R> map(final Collection<P> partitions, final PartitionTask<P, R> task) throws InvoiceApiException {
+        final List<R> results = new ArrayList<>(partitions.size());
+        if (!isParallel(partitions.size())) {
+            for (final P partition : partitions) {
+                results.add(task.apply(partition));
+            }
+            return results;
+        }
+
+        final List<ForkJoinTask<R>> forkJoinTasks = new ArrayList<>(partitions.size());
+        for (final P partition : partitions) {
+            forkJoinTasks.add(pool.submit(() -> task.apply(partition)));
+        }
+        try {
+            for (final ForkJoinTask<R> forkJoinTask : forkJoinTasks) {
+                results.add(forkJoinTask.get());
+            }
+            return results;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvoiceApiException(e, ErrorCode.UNEXPECTED_ERROR, "Interrupted while generating invoice items");
+        } catch (final ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            // No-op for the completed ones
+            for (final ForkJoinTask<R> forkJoinTask : forkJoinTasks) {
+                forkJoinTask.cancel(false);
+            }
+        }
+    }
+
+    public <P, R> List<R> transform(final Collection<P> partitions, final Function<P, R> function) {
+        try {
+            return map(partitions, function::apply);
+        } catch (final InvoiceApiException e) {
+            // Only on interruption, as the function cannot throw any checked exception
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public <P> void forEach(final Collection<P> partitions, final Consumer<P> action) {
+        transform(partitions, partition -> {
+            action.accept(partition);
+            return null;
+        });
+    }
+
+    private static InvoiceApiException unwrap(final Throwable throwable) {
+        // The fork-join framework may wrap the original exception (checked exceptions) or re-create it in the caller thread
+        for (Throwable cur = throwable; cur != null; cur = cur.getCause()) {
+            if (cur instanceof InvoiceApiException) {
+                return (InvoiceApiException) cur;
+            }
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        return new InvoiceApiException(throwable, ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice items");
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(final ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName(THREAD_NAME_PREFIX + thread.getPoolIndex());
+        return thread;
+    }
+
+    public interface PartitionTask<P, R> {
+
+        R apply(P partition) throws InvoiceApiException;
+    }
+}
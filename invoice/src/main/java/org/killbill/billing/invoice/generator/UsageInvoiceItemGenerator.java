@@ -71,11 +71,17 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
 
     private final RawUsageOptimizer rawUsageOptimizer;
     private final InvoiceConfig invoiceConfig;
+    private final SubscriptionPartitionExecutor partitionExecutor;
 
     @Inject
-    public UsageInvoiceItemGenerator(final RawUsageOptimizer rawUsageOptimizer, final InvoiceConfig invoiceConfig) {
+    public UsageInvoiceItemGenerator(final RawUsageOptimizer rawUsageOptimizer, final InvoiceConfig invoiceConfig, final SubscriptionPartitionExecutor partitionExecutor) {
         this.rawUsageOptimizer = rawUsageOptimizer;
         this.invoiceConfig = invoiceConfig;
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    public UsageInvoiceItemGenerator(final RawUsageOptimizer rawUsageOptimizer, final InvoiceConfig invoiceConfig) {
+        this(rawUsageOptimizer, invoiceConfig, SubscriptionPartitionExecutor.SEQUENTIAL);
     }
 
 
@@ -103,6 +109,7 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
 
             final boolean isDryRun = dryRunInfo != null;
             RawUsageOptimizerResult rawUsgRes = null;
+            final List<List<BillingEvent>> perSubscriptionEvents = new ArrayList<>();
             List<BillingEvent> curEvents = new ArrayList<>();
             UUID curSubscriptionId = null;
             while (events.hasNext()) {
@@ -138,33 +145,35 @@ public class UsageInvoiceItemGenerator extends InvoiceItemGenerator {
                     continue;
                 }
 
-
-
                 final UUID subscriptionId = event.getSubscriptionId();
                 if (curSubscriptionId != null && !curSubscriptionId.equals(subscriptionId)) {
-                    final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, curEvents, rawUsgRes.getRawUsage(), rawUsgRes.getExistingTrackingIds(), targetDate, rawUsgRes.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
-                    final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(curSubscriptionId);
-
-                    final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : Collections.emptyList(), invoiceItemGeneratorLogger, isDryRun);
-                    final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                    items.addAll(newInArrearUsageItems);
-                    trackingIds.addAll(subscriptionResult.getTrackingIds());
-
-                    updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+                    perSubscriptionEvents.add(curEvents);
                     curEvents = new ArrayList<>();
                 }
                 curSubscriptionId = subscriptionId;
                 curEvents.add(event);
             }
             if (curSubscriptionId != null) {
-                final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, curEvents, rawUsgRes.getRawUsage(), rawUsgRes.getExistingTrackingIds(), targetDate, rawUsgRes.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
-                final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(curSubscriptionId);
+                perSubscriptionEvents.add(curEvents);
+            }
 
-                final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : Collections.emptyList(), invoiceItemGeneratorLogger, isDryRun);
-                final List<InvoiceItem> newInArrearUsageItems = subscriptionResult.getInvoiceItems();
-                items.addAll(newInArrearUsageItems);
+            // Subscriptions are independent from each other and may be processed in parallel: the results are then applied in order
+            final RawUsageOptimizerResult rawUsageOptimizerResult = rawUsgRes;
+            final List<SubscriptionUsageInArrearItemsAndNextNotificationDate> subscriptionResults = partitionExecutor.map(perSubscriptionEvents, subscriptionEvents -> {
+                final SubscriptionUsageInArrear subscriptionUsageInArrear = new SubscriptionUsageInArrear(account.getId(), invoiceId, subscriptionEvents, rawUsageOptimizerResult.getRawUsage(), rawUsageOptimizerResult.getExistingTrackingIds(), targetDate, rawUsageOptimizerResult.getRawUsageStartDate(), usageDetailMode, invoiceConfig, internalCallContext);
+                final List<InvoiceItem> usageInArrearItems = perSubscriptionInArrearUsageItems.get(subscriptionEvents.get(0).getSubscriptionId());
+                try {
+                    return subscriptionUsageInArrear.computeMissingUsageInvoiceItems(usageInArrearItems != null ? usageInArrearItems : Collections.emptyList(), invoiceItemGeneratorLogger, isDryRun);
+                } catch (final CatalogApiException e) {
+                    throw new InvoiceApiException(e);
+                }
+            });
+            for (int i = 0; i < perSubscriptionEvents.size(); i++) {
+                final UUID subscriptionId = perSubscriptionEvents.get(i).get(0).getSubscriptionId();
+                final SubscriptionUsageInArrearItemsAndNextNotificationDate subscriptionResult = subscriptionResults.get(i);
+                items.addAll(subscriptionResult.getInvoiceItems());
                 trackingIds.addAll(subscriptionResult.getTrackingIds());
-                updatePerSubscriptionNextNotificationUsageDate(curSubscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
+                updatePerSubscriptionNextNotificationUsageDate(subscriptionId, subscriptionResult.getPerUsageNotificationDates(), BillingMode.IN_ARREAR, perSubscriptionFutureNotificationDates);
             }
             invoiceItemGeneratorLogger.logItems();
 
@@ -22,6 +22,7 @@ import org.killbill.billing.glue.InvoiceModule;
 import org.killbill.billing.invoice.InvoiceDispatcher;
 import org.killbill.billing.invoice.InvoiceListener;
 import org.killbill.billing.invoice.InvoiceTagHandler;
+import org.killbill.billing.invoice.NextBillingDateBatcher;
 import org.killbill.billing.invoice.ParkedAccountsManager;
 import org.killbill.billing.invoice.api.DefaultInvoiceService;
 import org.killbill.billing.invoice.api.InvoiceApiHelper;
@@ -41,6 +42,7 @@ import org.killbill.billing.invoice.dao.InvoiceDaoHelper;
 import org.killbill.billing.invoice.generator.DefaultInvoiceGenerator;
 import org.killbill.billing.invoice.generator.FixedAndRecurringInvoiceItemGenerator;
 import org.killbill.billing.invoice.generator.InvoiceGenerator;
+import org.killbill.billing.invoice.generator.SubscriptionPartitionExecutor;
 import org.killbill.billing.invoice.generator.UsageInvoiceItemGenerator;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDateNotifier;
 import org.killbill.billing.invoice.notification.DefaultNextBillingDatePoster;
@@ -50,10 +52,13 @@ import org.killbill.billing.invoice.optimizer.InvoiceOptimizer;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizerExp;
 import org.killbill.billing.invoice.optimizer.InvoiceOptimizerNoop;
 import org.killbill.billing.invoice.plugin.api.InvoicePluginApi;
+import org.killbill.billing.invoice.template.InvoiceTemplateCache;
+import org.killbill.billing.invoice.template.InvoiceTemplateCacheInvalidationCallback;
 import org.killbill.billing.invoice.template.bundles.DefaultResourceBundleFactory;
 import org.killbill.billing.invoice.usage.RawUsageOptimizer;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.tenant.api.TenantInternalApi.CacheInvalidationCallback;
 import org.killbill.billing.util.config.definition.InvoiceConfig;
 import org.killbill.billing.util.glue.KillBillModule;
 import org.killbill.billing.util.template.translation.TranslatorConfig;
@@ -64,6 +69,7 @@ import com.google.inject.name.Names;
 
 public class DefaultInvoiceModule extends KillBillModule implements InvoiceModule {
 
+    public static final String INVOICE_TEMPLATE_INVALIDATION_CALLBACK = "InvoiceTemplateInvalidationCallback";
 
     public DefaultInvoiceModule(final KillbillConfigSource configSource) {
         super(configSource);
@@ -100,6 +106,8 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
     }
 
     protected void installResourceBundleFactory() {
+        bind(InvoiceTemplateCache.class).asEagerSingleton();
+        bind(CacheInvalidationCallback.class).annotatedWith(Names.named(INVOICE_TEMPLATE_INVALIDATION_CALLBACK)).to(InvoiceTemplateCacheInvalidationCallback.class).asEagerSingleton();
         bind(ResourceBundleFactory.class).to(DefaultResourceBundleFactory.class).asEagerSingleton();
     }
 
@@ -114,6 +122,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
 
     protected void installInvoiceDispatcher() {
         bind(InvoiceDispatcher.class).asEagerSingleton();
+        bind(NextBillingDateBatcher.class).asEagerSingleton();
     }
 
     protected void installInvoiceListener() {
@@ -128,6 +137,7 @@ public class DefaultInvoiceModule extends KillBillModule implements InvoiceModul
         bind(InvoiceGenerator.class).to(DefaultInvoiceGenerator.class).asEagerSingleton();
         bind(FixedAndRecurringInvoiceItemGenerator.class).asEagerSingleton();
         bind(UsageInvoiceItemGenerator.class).asEagerSingleton();
+        bind(SubscriptionPartitionExecutor.class).asEagerSingleton();
     }
 
     protected void installInvoicePluginApi() {
@@ -19,7 +19,9 @@ package org.killbill.billing.invoice.template;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -40,7 +42,7 @@ import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.util.LocaleUtils;
 import org.killbill.commons.utils.Strings;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
-import org.killbill.billing.util.email.templates.TemplateEngine;
+import org.killbill.billing.util.email.templates.TemplateEngine.CompiledTemplate;
 import org.killbill.billing.util.template.translation.TranslatorConfig;
 import org.killbill.commons.utils.io.IOUtils;
 import org.killbill.xmlloader.UriAccessor;
@@ -50,23 +52,23 @@ public class HtmlInvoiceGenerator {
     private final InvoiceFormatterFactory factory;
     private final TranslatorConfig config;
     private final CurrencyConversionApi currencyConversionApi;
-    private final TemplateEngine templateEngine;
     private final TenantInternalApi tenantApi;
     private final ResourceBundleFactory bundleFactory;
+    private final InvoiceTemplateCache invoiceTemplateCache;
 
     @Inject
     public HtmlInvoiceGenerator(final InvoiceFormatterFactory factory,
-                                final TemplateEngine templateEngine,
                                 final TranslatorConfig config,
                                 final CurrencyConversionApi currencyConversionApi,
                                 final ResourceBundleFactory bundleFactory,
-                                final TenantInternalApi tenantInternalApi) {
+                                final TenantInternalApi tenantInternalApi,
+                                final InvoiceTemplateCache invoiceTemplateCache) {
         this.factory = factory;
         this.config = config;
         this.currencyConversionApi = currencyConversionApi;
-        this.templateEngine = templateEngine;
         this.bundleFactory = bundleFactory;
         this.tenantApi = tenantInternalApi;
+        this.invoiceTemplateCache = invoiceTemplateCache;
     }
 
     public HtmlInvoice generateInvoice(final Account account, @Nullable final Invoice invoice, final boolean manualPay, final InternalTenantContext context) throws IOException {
@@ -75,40 +77,77 @@ public class HtmlInvoiceGenerator {
             return null;
         }
 
-        final String accountLocale = Strings.emptyToNull(account.getLocale());
-        final Locale locale = accountLocale == null ? Locale.getDefault() : LocaleUtils.toLocale(accountLocale);
+        return new AccountRenderer(account, manualPay, context).render(invoice);
+    }
+
+    // Render many invoices of the same account: bundles, translator and template are looked up once.
+    // The result is in the same order as the input (null entries for null or empty invoices, as for generateInvoice)
+    public List<HtmlInvoice> generateInvoices(final Account account, final Iterable<Invoice> invoices, final boolean manualPay, final InternalTenantContext context) throws IOException {
+        final List<HtmlInvoice> result = new ArrayList<HtmlInvoice>();
+        AccountRenderer accountRenderer = null;
+        for (final Invoice invoice : invoices) {
+            if (invoice == null || invoice.getNumberOfItems() == 0) {
+                result.add(null);
+                continue;
+            }
+
+            if (accountRenderer == null) {
+                accountRenderer = new AccountRenderer(account, manualPay, context);
+            }
+            result.add(accountRenderer.render(invoice));
+        }
+        return result;
+    }
 
-        final HtmlInvoice invoiceData = new HtmlInvoice();
-        final Map<String, Object> data = new HashMap<String, Object>();
+    private final class AccountRenderer {
 
-        final ResourceBundle invoiceBundle = accountLocale != null ?
-                                             bundleFactory.createBundle(LocaleUtils.toLocale(accountLocale), config.getInvoiceTemplateBundlePath(), ResourceBundleType.INVOICE_TRANSLATION, context) : null;
-        final ResourceBundle defaultInvoiceBundle = bundleFactory.createBundle(Locale.getDefault(), config.getInvoiceTemplateBundlePath(), ResourceBundleType.INVOICE_TRANSLATION, context);
-        final DefaultInvoiceTranslator invoiceTranslator = new DefaultInvoiceTranslator(invoiceBundle, defaultInvoiceBundle);
+        private final Account account;
+        private final Locale locale;
+        private final InternalTenantContext context;
+        private final DefaultInvoiceTranslator invoiceTranslator;
+        private final CompiledTemplate template;
 
-        data.put("text", invoiceTranslator);
-        data.put("account", account);
+        private AccountRenderer(final Account account, final boolean manualPay, final InternalTenantContext context) throws IOException {
+            final String accountLocale = Strings.emptyToNull(account.getLocale());
 
-        final InvoiceFormatter formattedInvoice = factory.createInvoiceFormatter(config, invoice, locale, currencyConversionApi, bundleFactory, context);
-        data.put("invoice", formattedInvoice);
+            this.account = account;
+            this.locale = accountLocale == null ? Locale.getDefault() : LocaleUtils.toLocale(accountLocale);
+            this.context = context;
 
-        invoiceData.setSubject(invoiceTranslator.getInvoiceEmailSubject());
-        final String templateText = getTemplateText(locale, manualPay, context);
-        invoiceData.setBody(templateEngine.executeTemplateText(templateText, data));
-        return invoiceData;
-    }
+            final ResourceBundle invoiceBundle = accountLocale != null ?
+                                                 bundleFactory.createBundle(LocaleUtils.toLocale(accountLocale), config.getInvoiceTemplateBundlePath(), ResourceBundleType.INVOICE_TRANSLATION, context) : null;
+            final ResourceBundle defaultInvoiceBundle = bundleFactory.createBundle(Locale.getDefault(), config.getInvoiceTemplateBundlePath(), ResourceBundleType.INVOICE_TRANSLATION, context);
+            this.invoiceTranslator = new DefaultInvoiceTranslator(invoiceBundle, defaultInvoiceBundle);
+            this.template = getTemplate(locale, manualPay, context);
+        }
 
-    private String getTemplateText(final Locale locale, final boolean manualPay, final InternalTenantContext context) throws IOException {
+        private HtmlInvoice render(final Invoice invoice) {
+            final HtmlInvoice invoiceData = new HtmlInvoice();
+            final Map<String, Object> data = new HashMap<String, Object>();
+
+            data.put("text", invoiceTranslator);
+            data.put("account", account);
+
+            final InvoiceFormatter formattedInvoice = factory.createInvoiceFormatter(config, invoice, locale, currencyConversionApi, bundleFactory, context);
+            data.put("invoice", formattedInvoice);
+
+            invoiceData.setSubject(invoiceTranslator.getInvoiceEmailSubject());
+            invoiceData.setBody(template.execute(data));
+            return invoiceData;
+        }
+    }
 
+    private CompiledTemplate getTemplate(final Locale locale, final boolean manualPay, final InternalTenantContext context) throws IOException {
+        final String defaultTemplateName = manualPay ? config.getManualPayTemplateName() : config.getTemplateName();
         if (InternalCallContextFactory.INTERNAL_TENANT_RECORD_ID.equals(context.getTenantRecordId())) {
-            return getDefaultTemplate(manualPay ? config.getManualPayTemplateName() : config.getTemplateName());
+            return invoiceTemplateCache.getDefaultTemplate(defaultTemplateName, () -> getDefaultTemplate(defaultTemplateName));
         }
         final String template = manualPay ?
                                 tenantApi.getManualPayInvoiceTemplate(locale, context) :
                                 tenantApi.getInvoiceTemplate(locale, context);
         return template == null ?
-               getDefaultTemplate(manualPay ? config.getManualPayTemplateName() : config.getTemplateName()) :
-               template;
+               invoiceTemplateCache.getDefaultTemplate(defaultTemplateName, () -> getDefaultTemplate(defaultTemplateName)) :
+               invoiceTemplateCache.getTenantTemplate(context.getTenantRecordId(), locale, manualPay, template);
     }
 
     private String getDefaultTemplate(final String templateName) throws IOException {
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.util.email.templates.TemplateEngine;
+import org.killbill.billing.util.email.templates.TemplateEngine.CompiledTemplate;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+
+// Compiled invoice templates and parsed translation bundles, per tenant. Entries remember the text they were built from
+// and are rebuilt if the tenant text (itself cached by the tenant module) changed, so that rendering stays correct even
+// before the TenantCacheInvalidation callbacks (see InvoiceTemplateCacheInvalidationCallback) have released the stale entries
+public class InvoiceTemplateCache {
+
+    private final TemplateEngine templateEngine;
+    private final Map<String, CachedEntry<CompiledTemplate>> templates;
+    private final Map<String, CachedEntry<ResourceBundle>> bundles;
+
+    @Inject
+    public InvoiceTemplateCache(final TemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+        this.templates = new ConcurrentHashMap<String, CachedEntry<CompiledTemplate>>();
+        this.bundles = new ConcurrentHashMap<String, CachedEntry<ResourceBundle>>();
+    }
+
+    public CompiledTemplate getTenantTemplate(final Long tenantRecordId, final Locale locale, final boolean manualPay, final String templateText) {
+        final String key = getTenantKeyPrefix(tenantRecordId, manualPay ? TenantKey.INVOICE_MP_TEMPLATE : TenantKey.INVOICE_TEMPLATE) + locale;
+        final CachedEntry<CompiledTemplate> cachedEntry = templates.get(key);
+        if (cachedEntry != null && cachedEntry.isBuiltFrom(templateText)) {
+            return cachedEntry.getValue();
+        }
+
+        final CompiledTemplate compiledTemplate = templateEngine.compileTemplateText(templateText);
+        templates.put(key, new CachedEntry<CompiledTemplate>(templateText, compiledTemplate));
+        return compiledTemplate;
+    }
+
+    // Default templates are static (configuration)
+    public CompiledTemplate getDefaultTemplate(final String templateName, final TemplateTextLoader templateTextLoader) throws IOException {
+        final String key = "default/" + templateName;
+        final CachedEntry<CompiledTemplate> cachedEntry = templates.get(key);
+        if (cachedEntry != null) {
+            return cachedEntry.getValue();
+        }
+
+        final CompiledTemplate compiledTemplate = templateEngine.compileTemplateText(templateTextLoader.load());
+        templates.put(key, new CachedEntry<CompiledTemplate>(templateName, compiledTemplate));
+        return compiledTemplate;
+    }
+
+    @Nullable
+    public ResourceBundle getTenantBundle(final Long tenantRecordId, final Locale locale, final ResourceBundleType type, final String bundleText, final BundleParser bundleParser) {
+        final String key = getTenantKeyPrefix(tenantRecordId, toTenantKey(type)) + locale;
+        final CachedEntry<ResourceBundle> cachedEntry = bundles.get(key);
+        if (cachedEntry != null && cachedEntry.isBuiltFrom(bundleText)) {
+            return cachedEntry.getValue();
+        }
+
+        final ResourceBundle bundle = bundleParser.parse(bundleText);
+        if (bundle != null) {
+            bundles.put(key, new CachedEntry<ResourceBundle>(bundleText, bundle));
+        }
+        return bundle;
+    }
+
+    public void invalidate(final TenantKey tenantKey, final Long tenantRecordId) {
+        final String prefix = getTenantKeyPrefix(tenantRecordId, tenantKey);
+        templates.keySet().removeIf(key -> key.startsWith(prefix));
+        bundles.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @VisibleForTesting
+    int size() {
+        return templates.size() + bundles.size();
+    }
+
+    private static String getTenantKeyPrefix(final Long tenantRecordId, final TenantKey tenantKey) {
+        return tenantRecordId + "/" + tenantKey + "/";
+    }
+
+    private static TenantKey toTenantKey(final ResourceBundleType type) {
+        return type == ResourceBundleType.CATALOG_TRANSLATION ? TenantKey.CATALOG_TRANSLATION_ : TenantKey.INVOICE_TRANSLATION_;
+    }
+
+    public interface TemplateTextLoader {
+
+        String load() throws IOException;
+    }
+
+    public interface BundleParser {
+
+        @Nullable
+        ResourceBundle parse(String bundleText);
+    }
+
+    private static final class CachedEntry<T> {
+
+        private final String source;
+        private final T value;
+
+        private CachedEntry(final String source, final T value) {
+            this.source = source;
+            this.value = value;
+        }
+
+        private boolean isBuiltFrom(final String otherSource) {
+            return source == otherSource || Objects.equals(source, otherSource);
+        }
+
+        private T getValue() {
+            return value;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import javax.inject.Inject;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory;
+import org.killbill.billing.invoice.template.InvoiceTemplateCache;
 import org.killbill.billing.tenant.api.TenantInternalApi;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.xmlloader.UriAccessor;
@@ -42,10 +43,12 @@ public class DefaultResourceBundleFactory implements ResourceBundleFactory {
     private static final Logger logger = LoggerFactory.getLogger(DefaultResourceBundleFactory.class);
 
     private final TenantInternalApi tenantApi;
+    private final InvoiceTemplateCache invoiceTemplateCache;
 
     @Inject
-    public DefaultResourceBundleFactory(final TenantInternalApi tenantApi) {
+    public DefaultResourceBundleFactory(final TenantInternalApi tenantApi, final InvoiceTemplateCache invoiceTemplateCache) {
         this.tenantApi = tenantApi;
+        this.invoiceTemplateCache = invoiceTemplateCache;
     }
 
     @Override
@@ -55,12 +58,19 @@ public class DefaultResourceBundleFactory implements ResourceBundleFactory {
         }
         final String bundle = getTenantBundleForType(locale, type, tenantContext);
         if (bundle != null) {
-            try {
-                return new PropertyResourceBundle(new ByteArrayInputStream(bundle.getBytes(StandardCharsets.UTF_8)));
-            } catch (IOException e) {
-                logger.warn("Failed to de-serialize the property bundle for tenant {} and locale {}", tenantContext.getTenantRecordId(), locale);
-                // Fall through...
+            // Parsed once per tenant, locale and type
+            final ResourceBundle tenantBundle = invoiceTemplateCache.getTenantBundle(tenantContext.getTenantRecordId(), locale, type, bundle, bundleText -> {
+                try {
+                    return new PropertyResourceBundle(new ByteArrayInputStream(bundleText.getBytes(StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    logger.warn("Failed to de-serialize the property bundle for tenant {} and locale {}", tenantContext.getTenantRecordId(), locale);
+                    return null;
+                }
+            });
+            if (tenantBundle != null) {
+                return tenantBundle;
             }
+            // Fall through...
         }
         return getGlobalBundle(locale, bundlePath);
     }
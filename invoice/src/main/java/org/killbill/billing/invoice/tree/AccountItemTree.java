@@ -21,6 +21,7 @@ package org.killbill.billing.invoice.tree;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.UUID;
 
 import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceItemType;
+import org.killbill.billing.invoice.generator.SubscriptionPartitionExecutor;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.collect.Iterables;
 
@@ -39,7 +41,8 @@ import org.killbill.commons.utils.collect.Iterables;
  * associated to a given subscription. That also means that invoice item adjustment which cross subscriptions
  * can't be correctly handled when they compete with other forms of adjustments.
  * <p/>
- * <p>The class is not thread safe, there is no such use case today, and there is a lifecyle to respect:
+ * <p>The class is not thread safe (the <tt>SubscriptionItemTree</tt> are only processed in parallel internally, through the
+ * <tt>SubscriptionPartitionExecutor</tt>), and there is a lifecyle to respect:
  * <ul>
  * <li>Add existing invoice items
  * <li>Build the tree,
@@ -54,12 +57,17 @@ public class AccountItemTree {
     private final Map<UUID, SubscriptionItemTree> subscriptionItemTree;
     private final List<InvoiceItem> allExistingItems;
     private final List<InvoiceItem> pendingItemAdj;
+    private final SubscriptionPartitionExecutor partitionExecutor;
 
     private boolean isBuilt;
 
     private int prorationFixedDays;
 
     public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, final int prorationFixedDays) {
+        this(accountId, targetInvoiceId, prorationFixedDays, SubscriptionPartitionExecutor.SEQUENTIAL);
+    }
+
+    public AccountItemTree(final UUID accountId, final UUID targetInvoiceId, final int prorationFixedDays, final SubscriptionPartitionExecutor partitionExecutor) {
         this.accountId = accountId;
         this.targetInvoiceId = targetInvoiceId;
         this.subscriptionItemTree = new HashMap<UUID, SubscriptionItemTree>();
@@ -67,6 +75,7 @@ public class AccountItemTree {
         this.allExistingItems = new LinkedList<InvoiceItem>();
         this.pendingItemAdj = new LinkedList<InvoiceItem>();
         this.prorationFixedDays = prorationFixedDays;
+        this.partitionExecutor = partitionExecutor;
     }
 
     /**
@@ -81,9 +90,7 @@ public class AccountItemTree {
             }
             pendingItemAdj.clear();
         }
-        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.build();
-        }
+        partitionExecutor.forEach(subscriptionItemTree.values(), SubscriptionItemTree::build);
         isBuilt = true;
     }
 
@@ -136,23 +143,25 @@ public class AccountItemTree {
     public void mergeWithProposedItems(final List<InvoiceItem> proposedItems) {
 
         build();
-        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.flatten(true);
-        }
+        partitionExecutor.forEach(subscriptionItemTree.values(), tree -> tree.flatten(true));
 
+        // Proposed items are grouped per subscription (preserving their order), as each tree can then be merged independently
+        final Map<UUID, List<InvoiceItem>> perSubscriptionProposedItems = new LinkedHashMap<>();
         for (final InvoiceItem item : proposedItems) {
             final UUID subscriptionId = getSubscriptionId(item, null);
-            SubscriptionItemTree tree = subscriptionItemTree.get(subscriptionId);
-            if (tree == null) {
-                tree = new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays);
-                subscriptionItemTree.put(subscriptionId, tree);
+            if (!subscriptionItemTree.containsKey(subscriptionId)) {
+                subscriptionItemTree.put(subscriptionId, new SubscriptionItemTree(subscriptionId, targetInvoiceId, prorationFixedDays));
             }
-            tree.mergeProposedItem(item);
+            perSubscriptionProposedItems.computeIfAbsent(subscriptionId, k -> new ArrayList<>()).add(item);
         }
+        partitionExecutor.forEach(perSubscriptionProposedItems.entrySet(), entry -> {
+            final SubscriptionItemTree tree = subscriptionItemTree.get(entry.getKey());
+            for (final InvoiceItem item : entry.getValue()) {
+                tree.mergeProposedItem(item);
+            }
+        });
 
-        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            tree.buildForMerge();
-        }
+        partitionExecutor.forEach(subscriptionItemTree.values(), SubscriptionItemTree::buildForMerge);
     }
 
     /**
@@ -160,8 +169,7 @@ public class AccountItemTree {
      */
     public List<InvoiceItem> getResultingItemList() {
         final List<InvoiceItem> result = new ArrayList<InvoiceItem>();
-        for (final SubscriptionItemTree tree : subscriptionItemTree.values()) {
-            final List<InvoiceItem> simplifiedView = tree.getView();
+        for (final List<InvoiceItem> simplifiedView : partitionExecutor.transform(subscriptionItemTree.values(), SubscriptionItemTree::getView)) {
             if (simplifiedView.size() > 0) {
                 result.addAll(simplifiedView);
             }
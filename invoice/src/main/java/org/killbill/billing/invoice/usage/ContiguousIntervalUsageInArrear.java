@@ -56,6 +56,7 @@ import org.killbill.billing.invoice.model.UsageInvoiceItem;
 import org.killbill.billing.invoice.usage.details.UsageInArrearAggregate;
 import org.killbill.billing.junction.BillingEvent;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
+import org.killbill.billing.usage.DailyRawUsageRecord;
 import org.killbill.billing.usage.api.RawUsageRecord;
 import org.killbill.billing.usage.api.RolledUpUnit;
 import org.killbill.clock.ClockUtil;
@@ -450,9 +451,9 @@ public abstract class ContiguousIntervalUsageInArrear {
                     if (prevRawUsage.getDate().compareTo(prevDate) >= 0 &&
                         (prevRawUsage.getDate().compareTo(curDate) < 0 || isUsageForCancellationDay)) {
                         final BigDecimal currentAmount = perRangeUnitToAmount.get(prevRawUsage.getUnitType());
-                        final BigDecimal updatedAmount = computeUpdatedAmount(currentAmount, prevRawUsage.getAmount());
+                        final BigDecimal updatedAmount = computeUpdatedAmount(currentAmount, prevRawUsage);
                         perRangeUnitToAmount.put(prevRawUsage.getUnitType(), updatedAmount);
-                        trackingIds.add(new TrackingRecordId(prevRawUsage.getTrackingId(), invoiceId, prevRawUsage.getSubscriptionId(), prevRawUsage.getUnitType(), usageClockUtil.toLocalDate(prevRawUsage.getDate(), internalTenantContext)));
+                        addTrackingIds(trackingIds, prevRawUsage);
                         prevRawUsage = null;
                     }
                 }
@@ -477,9 +478,9 @@ public abstract class ContiguousIntervalUsageInArrear {
                         }
 
                         final BigDecimal currentAmount = perRangeUnitToAmount.get(curRawUsage.getUnitType());
-                        final BigDecimal updatedAmount = computeUpdatedAmount(currentAmount, curRawUsage.getAmount());
+                        final BigDecimal updatedAmount = computeUpdatedAmount(currentAmount, curRawUsage);
                         perRangeUnitToAmount.put(curRawUsage.getUnitType(), updatedAmount);
-                        trackingIds.add(new TrackingRecordId(curRawUsage.getTrackingId(), invoiceId, curRawUsage.getSubscriptionId(), curRawUsage.getUnitType(), usageClockUtil.toLocalDate(curRawUsage.getDate(), internalTenantContext)));
+                        addTrackingIds(trackingIds, curRawUsage);
                     }
                 }
 
@@ -535,6 +536,25 @@ public abstract class ContiguousIntervalUsageInArrear {
         return result;
     }
 
+    private void addTrackingIds(final Set<TrackingRecordId> trackingIds, final RawUsageRecord rawUsage) {
+        final LocalDate recordDate = usageClockUtil.toLocalDate(rawUsage.getDate(), internalTenantContext);
+        if (rawUsage instanceof DailyRawUsageRecord) {
+            for (final String trackingId : ((DailyRawUsageRecord) rawUsage).getTrackingIds()) {
+                trackingIds.add(new TrackingRecordId(trackingId, invoiceId, rawUsage.getSubscriptionId(), rawUsage.getUnitType(), recordDate));
+            }
+        } else {
+            trackingIds.add(new TrackingRecordId(rawUsage.getTrackingId(), invoiceId, rawUsage.getSubscriptionId(), rawUsage.getUnitType(), recordDate));
+        }
+    }
+
+    // Aggregated usage points carry both the sum (CONSUMABLE) and the max (CAPACITY) of their amounts
+    private BigDecimal computeUpdatedAmount(@Nullable final BigDecimal currentAmount, final RawUsageRecord rawUsage) {
+        if (usage.getUsageType() == UsageType.CAPACITY && rawUsage instanceof DailyRawUsageRecord) {
+            return computeUpdatedAmount(currentAmount, ((DailyRawUsageRecord) rawUsage).getMaxAmount());
+        }
+        return computeUpdatedAmount(currentAmount, rawUsage.getAmount());
+    }
+
     /**
      * Based on usage type compute new amount
      *
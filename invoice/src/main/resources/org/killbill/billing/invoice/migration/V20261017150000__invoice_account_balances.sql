@@ -0,0 +1,22 @@
+CREATE TABLE invoice_account_balances (
+    record_id serial unique,
+    id varchar(36) NOT NULL,
+    version bigint NOT NULL default 0,
+    computed_version bigint default NULL,
+    balance decimal(15,9) default NULL,
+    cba decimal(15,9) default NULL,
+    written_off_fingerprint varchar(36) default NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX invoice_account_balances_id ON invoice_account_balances(id);
+CREATE UNIQUE INDEX invoice_account_balances_account_record_id ON invoice_account_balances(account_record_id);
+CREATE INDEX invoice_account_balances_tenant_account_record_id ON invoice_account_balances(tenant_record_id, account_record_id);
+
+insert into invoice_account_balances (id, version, created_date, updated_date, account_record_id, tenant_record_id)
+select uuid(), 0, min(created_date), max(created_date), account_record_id, tenant_record_id
+from invoices
+group by account_record_id, tenant_record_id;
@@ -33,6 +33,7 @@ import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.formatters.InvoiceFormatterFactory;
 import org.killbill.billing.invoice.template.HtmlInvoice;
 import org.killbill.billing.invoice.template.HtmlInvoiceGenerator;
+import org.killbill.billing.invoice.template.InvoiceTemplateCache;
 import org.killbill.billing.invoice.template.formatters.DefaultInvoiceFormatterFactory;
 import org.killbill.billing.util.email.templates.MustacheTemplateEngine;
 import org.killbill.billing.util.email.templates.TemplateEngine;
@@ -58,7 +59,7 @@ public class TestHtmlInvoiceGenerator extends InvoiceTestSuiteNoDB {
         final TranslatorConfig config = new ConfigurationObjectFactory(skifeConfigSource).build(TranslatorConfig.class);
         final TemplateEngine templateEngine = new MustacheTemplateEngine();
         final InvoiceFormatterFactory factory = new DefaultInvoiceFormatterFactory();
-        g = new HtmlInvoiceGenerator(factory, templateEngine, config, null, resourceBundleFactory, null);
+        g = new HtmlInvoiceGenerator(factory, config, null, resourceBundleFactory, null, new InvoiceTemplateCache(templateEngine));
     }
 
     @Test(groups = "fast")
@@ -70,6 +71,25 @@ public class TestHtmlInvoiceGenerator extends InvoiceTestSuiteNoDB {
         Assert.assertEquals(output.getSubject(), "Your invoice");
     }
 
+    @Test(groups = "fast")
+    public void testGenerateInvoices() throws Exception {
+        final Account account = createAccount();
+        final List<Invoice> invoices = new ArrayList<Invoice>();
+        invoices.add(createInvoice());
+        invoices.add(null);
+        invoices.add(createInvoice());
+
+        final List<HtmlInvoice> outputs = g.generateInvoices(account, invoices, false, internalCallContext);
+        Assert.assertEquals(outputs.size(), 3);
+        Assert.assertNull(outputs.get(1));
+
+        final HtmlInvoice expected = g.generateInvoice(account, invoices.get(0), false, internalCallContext);
+        for (final HtmlInvoice output : new HtmlInvoice[]{outputs.get(0), outputs.get(2)}) {
+            Assert.assertEquals(output.getSubject(), expected.getSubject());
+            Assert.assertEquals(output.getBody(), expected.getBody());
+        }
+    }
+
     @Test(groups = "fast")
     public void testGenerateEmptyInvoice() throws Exception {
         final Invoice invoice = Mockito.mock(Invoice.class);
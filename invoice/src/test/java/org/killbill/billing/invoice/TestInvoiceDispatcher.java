@@ -20,8 +20,10 @@ package org.killbill.billing.invoice;
 
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nullable;
 
@@ -40,6 +42,8 @@ import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.catalog.api.PhaseType;
 import org.killbill.billing.catalog.api.Plan;
 import org.killbill.billing.catalog.api.PlanPhase;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountRequest;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountResult;
 import org.killbill.billing.invoice.TestInvoiceHelper.DryRunFutureDateArguments;
 import org.killbill.billing.invoice.api.DryRunArguments;
 import org.killbill.billing.invoice.api.Invoice;
@@ -52,9 +56,12 @@ import org.killbill.billing.junction.BillingEventSet;
 import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.api.TagDefinitionApiException;
+import org.killbill.billing.util.globallocker.LockerType;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.SystemTags;
+import org.killbill.commons.concurrent.Executors;
 import org.mockito.Mockito;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.tweak.HandleCallback;
@@ -83,7 +90,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
 
         dispatcher = new InvoiceDispatcher(generator, accountApi, billingApi, subscriptionApi, invoiceDao,
                                            internalCallContextFactory,  invoicePluginDispatcher, locker, bus,
-                                           notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager);
+                                           notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager, nonEntityDao);
 
     }
 
@@ -107,7 +114,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
 
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(generator, accountApi, billingApi, subscriptionApi, invoiceDao,
                                                                    internalCallContextFactory, invoicePluginDispatcher, locker, bus,
-                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager);
+                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager, nonEntityDao);
 
         Invoice invoice = processAccountFromNotificationOrBusEventAndAssertResult(accountId, target, new DryRunFutureDateArguments(), false, context);
 
@@ -147,7 +154,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
 
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(generator, accountApi, billingApi, subscriptionApi, invoiceDao,
                                                                    internalCallContextFactory, invoicePluginDispatcher, locker, bus,
-                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager);
+                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager, nonEntityDao);
 
         // Verify initial tags state for account
         Assert.assertTrue(tagUserApi.getTagsForAccount(accountId, true, callContext).isEmpty());
@@ -298,7 +305,7 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
         Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.<UUID>any(), Mockito.<DryRunArguments>any(), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
         final InvoiceDispatcher dispatcher = new InvoiceDispatcher(generator, accountApi, billingApi, subscriptionApi, invoiceDao,
                                                                    internalCallContextFactory, invoicePluginDispatcher, locker, bus,
-                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager);
+                                                                   notificationQueueService, invoiceConfig, clock, invoiceOptimizer, parkedAccountsManager, nonEntityDao);
         final Invoice invoice = processAccountFromNotificationOrBusEventAndAssertResult(account.getId(), new LocalDate("2012-07-30"), null, false, context);
         Assert.assertNotNull(invoice);
 
@@ -339,6 +346,83 @@ public class TestInvoiceDispatcher extends InvoiceTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testBatchInvoicing() throws Exception {
+        final Account secondAccount = invoiceUtil.createAccount(callContext);
+        final InternalCallContext secondContext = internalCallContextFactory.createInternalCallContext(secondAccount.getId(), callContext);
+        final Account thirdAccount = invoiceUtil.createAccount(callContext);
+        final InternalCallContext thirdContext = internalCallContextFactory.createInternalCallContext(thirdAccount.getId(), callContext);
+
+        final Plan plan = MockPlan.createBicycleNoTrialEvergreen1USD();
+        final PlanPhase planPhase = MockPlanPhase.create1USDMonthlyEvergreen();
+        final DateTime effectiveDate = clock.getUTCNow().minusDays(1);
+
+        final BillingEventSet events = new MockBillingEventSet();
+        events.add(invoiceUtil.createMockBillingEvent(account, subscription, effectiveDate, plan, planPhase,
+                                                      null, BigDecimal.ONE, Currency.USD, BillingPeriod.MONTHLY, 1,
+                                                      BillingMode.IN_ADVANCE, "", 1L, SubscriptionBaseTransitionType.CREATE));
+        final BillingEventSet thirdEvents = new MockBillingEventSet();
+        thirdEvents.add(invoiceUtil.createMockBillingEvent(thirdAccount, invoiceUtil.createSubscription(), effectiveDate, plan, planPhase,
+                                                           null, BigDecimal.TEN, Currency.USD, BillingPeriod.MONTHLY, 1,
+                                                           BillingMode.IN_ADVANCE, "", 1L, SubscriptionBaseTransitionType.CREATE));
+
+        // Prefetched data for the first account is used as-is
+        Mockito.when(billingApi.getBillingEventsForAccountIfBCDSet(Mockito.eq(account.getId()), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any())).thenReturn(events);
+        // Failure for the account in the middle of the batch (BCD not set, billing events are retrieved under the lock)
+        final IllegalStateException failure = new IllegalStateException("Unable to retrieve billing events");
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.eq(secondAccount.getId()), Mockito.<DryRunArguments>any(), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any())).thenThrow(failure);
+        // Invoices of the third account are modified while its data is being prefetched
+        final BillingEventSet staleThirdEvents = new MockBillingEventSet();
+        Mockito.when(billingApi.getBillingEventsForAccountIfBCDSet(Mockito.eq(thirdAccount.getId()), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any())).thenAnswer(invocation -> {
+            final Date now = clock.getUTCNow().toDate();
+            dbi.withHandle(handle -> handle.execute("insert into invoice_account_balances (id, version, created_date, updated_date, account_record_id, tenant_record_id) values (?, 0, ?, ?, ?, ?)",
+                                                    UUIDs.randomUUID().toString(), now, now, thirdContext.getAccountRecordId(), thirdContext.getTenantRecordId()));
+            return staleThirdEvents;
+        });
+        Mockito.when(billingApi.getBillingEventsForAccountAndUpdateAccountBCD(Mockito.eq(thirdAccount.getId()), Mockito.<DryRunArguments>any(), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any())).thenReturn(thirdEvents);
+
+        final LocalDate target = internalCallContext.toLocalDate(effectiveDate);
+        final ExecutorService prefetchExecutor = Executors.newFixedThreadPool(2, "test-invoice-batch-prefetch");
+        final List<BatchAccountResult> results;
+        try {
+            results = dispatcher.processAccountsInBatch(List.of(new BatchAccountRequest(account.getId(), target, false, context),
+                                                                new BatchAccountRequest(secondAccount.getId(), target, false, secondContext),
+                                                                new BatchAccountRequest(thirdAccount.getId(), target, false, thirdContext)),
+                                                        prefetchExecutor);
+        } finally {
+            prefetchExecutor.shutdownNow();
+        }
+
+        // Results are in the order of the requests
+        Assert.assertEquals(results.size(), 3);
+        Assert.assertEquals(results.get(0).getRequest().getAccountId(), account.getId());
+        Assert.assertNull(results.get(0).getFailure());
+        Assert.assertEquals(results.get(0).getInvoices().size(), 1);
+        Assert.assertEquals(results.get(0).getInvoices().get(0).getBalance().compareTo(BigDecimal.ONE), 0);
+
+        Assert.assertEquals(results.get(1).getRequest().getAccountId(), secondAccount.getId());
+        Assert.assertEquals(results.get(1).getFailure(), failure);
+        Assert.assertEquals(results.get(1).getInvoices().size(), 0);
+
+        Assert.assertEquals(results.get(2).getRequest().getAccountId(), thirdAccount.getId());
+        Assert.assertNull(results.get(2).getFailure());
+        Assert.assertEquals(results.get(2).getInvoices().size(), 1);
+        Assert.assertEquals(results.get(2).getInvoices().get(0).getBalance().compareTo(BigDecimal.TEN), 0);
+
+        Assert.assertEquals(invoiceDao.getInvoicesByAccount(false, true, context).size(), 1);
+        Assert.assertEquals(invoiceDao.getInvoicesByAccount(false, true, secondContext).size(), 0);
+        Assert.assertEquals(invoiceDao.getInvoicesByAccount(false, true, thirdContext).size(), 1);
+
+        // The account BCD is only updated with the lock held
+        Mockito.verify(billingApi, Mockito.never()).getBillingEventsForAccountAndUpdateAccountBCD(Mockito.eq(account.getId()), Mockito.<DryRunArguments>any(), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any());
+        Mockito.verify(billingApi, Mockito.times(1)).getBillingEventsForAccountAndUpdateAccountBCD(Mockito.eq(thirdAccount.getId()), Mockito.<DryRunArguments>any(), Mockito.<LocalDate>any(), Mockito.<InternalCallContext>any());
+
+        // Locks have been released
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), account.getId().toString()));
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), secondAccount.getId().toString()));
+        Assert.assertTrue(locker.isFree(LockerType.ACCNT_INV_PAY.toString(), thirdAccount.getId().toString()));
+    }
+
     private Invoice processAccountFromNotificationOrBusEventAndAssertResult(final UUID accountId,
                                                                             @Nullable final LocalDate targetDate,
                                                                             @Nullable final DryRunArguments dryRunArguments,
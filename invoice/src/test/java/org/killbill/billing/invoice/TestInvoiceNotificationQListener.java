@@ -40,10 +40,11 @@ public class TestInvoiceNotificationQListener extends InvoiceListener {
                                             final Clock clock,
                                             final InternalCallContextFactory internalCallContextFactory,
                                             final InvoiceDispatcher dispatcher,
+                                            final NextBillingDateBatcher nextBillingDateBatcher,
                                             final InvoiceInternalApi invoiceApi,
                                             final BusDispatcherOptimizer busOptimizer,
                                             final NotificationQueueService notificationQueueService) {
-        super(accountApi, internalCallContextFactory, dispatcher, invoiceApi, notificationQueueService, busOptimizer, clock);
+        super(accountApi, internalCallContextFactory, dispatcher, nextBillingDateBatcher, invoiceApi, notificationQueueService, busOptimizer, clock);
     }
 
     @Override
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountRequest;
+import org.killbill.billing.invoice.InvoiceDispatcher.BatchAccountResult;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.util.config.definition.InvoiceConfig;
+import org.killbill.commons.concurrent.Executors;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestNextBillingDateBatcher extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testFailuresAreReportedPerAccount() throws Exception {
+        final Invoice invoice = Mockito.mock(Invoice.class);
+        final UUID failedAccountId = UUID.randomUUID();
+        final InvoiceApiException failure = new InvoiceApiException(ErrorCode.UNEXPECTED_ERROR, "Failed to generate invoice");
+
+        final InvoiceDispatcher dispatcher = Mockito.mock(InvoiceDispatcher.class);
+        Mockito.when(dispatcher.processAccountsInBatch(Mockito.<List<BatchAccountRequest>>any(), Mockito.<ExecutorService>any())).thenAnswer(invocation -> {
+            final List<BatchAccountRequest> requests = invocation.getArgument(0);
+            final List<BatchAccountResult> results = new ArrayList<>();
+            for (final BatchAccountRequest request : requests) {
+                if (failedAccountId.equals(request.getAccountId())) {
+                    results.add(new BatchAccountResult(request, Collections.emptyList(), failure));
+                } else {
+                    results.add(new BatchAccountResult(request, List.of(invoice), null));
+                }
+            }
+            return results;
+        });
+
+        final NextBillingDateBatcher batcher = createBatcher(dispatcher);
+        try {
+            Assert.assertEquals(batcher.processAccount(createRequest(UUID.randomUUID())), List.of(invoice));
+            try {
+                batcher.processAccount(createRequest(failedAccountId));
+                Assert.fail("Failure should have been rethrown");
+            } catch (final InvoiceApiException e) {
+                Assert.assertEquals(e, failure);
+            }
+            // Not affected by the previous failure
+            Assert.assertEquals(batcher.processAccount(createRequest(UUID.randomUUID())), List.of(invoice));
+        } finally {
+            batcher.stop();
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrentBatches() throws Exception {
+        final CountDownLatch inFirstBatch = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final List<List<UUID>> batches = Collections.synchronizedList(new ArrayList<>());
+
+        final InvoiceDispatcher dispatcher = Mockito.mock(InvoiceDispatcher.class);
+        Mockito.when(dispatcher.processAccountsInBatch(Mockito.<List<BatchAccountRequest>>any(), Mockito.<ExecutorService>any())).thenAnswer(invocation -> {
+            final List<BatchAccountRequest> requests = invocation.getArgument(0);
+            final List<UUID> accountIds = new ArrayList<>();
+            final List<BatchAccountResult> results = new ArrayList<>();
+            for (final BatchAccountRequest request : requests) {
+                accountIds.add(request.getAccountId());
+                final Invoice invoice = Mockito.mock(Invoice.class);
+                Mockito.when(invoice.getAccountId()).thenReturn(request.getAccountId());
+                results.add(new BatchAccountResult(request, List.of(invoice), null));
+            }
+            batches.add(accountIds);
+
+            if (batches.size() == 1) {
+                inFirstBatch.countDown();
+                Assert.assertTrue(releaseFirstBatch.await(10, TimeUnit.SECONDS));
+            }
+            return results;
+        });
+
+        final NextBillingDateBatcher batcher = createBatcher(dispatcher);
+        final ExecutorService notificationThreads = Executors.newFixedThreadPool(3, "test-next-billing-date-notification");
+        try {
+            final UUID firstAccountId = UUID.randomUUID();
+            final Future<List<Invoice>> firstInvoices = notificationThreads.submit(() -> batcher.processAccount(createRequest(firstAccountId)));
+            Assert.assertTrue(inFirstBatch.await(10, TimeUnit.SECONDS));
+
+            // Not blocked by the batch being processed by the first notification thread
+            final UUID secondAccountId = UUID.randomUUID();
+            final UUID thirdAccountId = UUID.randomUUID();
+            final Future<List<Invoice>> secondInvoices = notificationThreads.submit(() -> batcher.processAccount(createRequest(secondAccountId)));
+            final Future<List<Invoice>> thirdInvoices = notificationThreads.submit(() -> batcher.processAccount(createRequest(thirdAccountId)));
+            Assert.assertEquals(secondInvoices.get(10, TimeUnit.SECONDS).get(0).getAccountId(), secondAccountId);
+            Assert.assertEquals(thirdInvoices.get(10, TimeUnit.SECONDS).get(0).getAccountId(), thirdAccountId);
+            Assert.assertFalse(firstInvoices.isDone());
+
+            releaseFirstBatch.countDown();
+            Assert.assertEquals(firstInvoices.get(10, TimeUnit.SECONDS).get(0).getAccountId(), firstAccountId);
+
+            // Each request was processed exactly once
+            Assert.assertEquals(batches.get(0), List.of(firstAccountId));
+            final List<UUID> otherAccountIds = new ArrayList<>();
+            for (final List<UUID> batch : batches.subList(1, batches.size())) {
+                otherAccountIds.addAll(batch);
+            }
+            Assert.assertEquals(otherAccountIds.size(), 2);
+            Assert.assertTrue(otherAccountIds.containsAll(List.of(secondAccountId, thirdAccountId)));
+            Assert.assertEquals(batcher.getNbPendingRequests(), 0);
+        } finally {
+            notificationThreads.shutdownNow();
+            batcher.stop();
+        }
+    }
+
+    private NextBillingDateBatcher createBatcher(final InvoiceDispatcher dispatcher) {
+        final InvoiceConfig batchInvoiceConfig = Mockito.mock(InvoiceConfig.class);
+        Mockito.when(batchInvoiceConfig.getBatchInvoicingPrefetchDepth()).thenReturn(2);
+
+        final NextBillingDateBatcher batcher = new NextBillingDateBatcher(dispatcher, batchInvoiceConfig);
+        batcher.initialize();
+        Assert.assertTrue(batcher.isEnabled());
+        return batcher;
+    }
+
+    private BatchAccountRequest createRequest(final UUID accountId) {
+        return new BatchAccountRequest(accountId, null, false, Mockito.mock(InternalCallContext.class));
+    }
+}
@@ -421,6 +421,16 @@ public class MockInvoiceDao extends MockEntityDaoBase<InvoiceModelDao, Invoice,
         return null;
     }
 
+    @Override
+    public Long getAccountInvoicesVersion(final InternalTenantContext context) {
+        return null;
+    }
+
+    @Override
+    public boolean rebuildAccountBalance(final UUID accountId, final InternalCallContext context) {
+        return false;
+    }
+
     @Override
     public InvoicePaymentModelDao createRefund(final UUID paymentId, final UUID paymentAttemptId, final BigDecimal amount, final boolean isInvoiceAdjusted,
                                                final Map<UUID, BigDecimal> invoiceItemIdsWithAmounts, final String transactionExternalKey,
@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.catalog.DefaultPrice;
@@ -76,6 +77,7 @@ import org.killbill.billing.subscription.api.SubscriptionBase;
 import org.killbill.billing.subscription.api.SubscriptionBaseTransitionType;
 import org.killbill.billing.util.currency.KillBillMoney;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.clock.ClockMock;
 import org.killbill.commons.utils.collect.Iterables;
 import org.mockito.Mockito;
@@ -88,6 +90,7 @@ import static org.killbill.billing.invoice.TestInvoiceHelper.TEN;
 import static org.killbill.billing.invoice.TestInvoiceHelper.TWENTY;
 import static org.killbill.billing.invoice.TestInvoiceHelper.ZERO;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -764,6 +767,43 @@ public class TestInvoiceDao extends InvoiceTestSuiteWithEmbeddedDB {
         assertEquals(balance.compareTo(BigDecimal.ZERO.subtract(payment1)), 0);
     }
 
+    @Test(groups = "slow")
+    public void testAccountBalanceProjection() throws Exception {
+        final UUID accountId = account.getId();
+
+        final InvoiceModelDao invoice1 = new InvoiceModelDao(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD, false);
+        invoice1.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice1.getId(), accountId, UUID.randomUUID(), UUID.randomUUID().toString(), clock.getUTCToday(), clock.getUTCToday(), new BigDecimal("15.0"), Currency.USD, null)));
+        invoiceDao.createInvoices(Collections.singleton(invoice1), null, Collections.emptySet(), new FutureAccountNotifications(), new ExistingInvoiceMetadata(Collections.emptyList()), false, context);
+
+        // Computed on the first read, then served from the projection
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("15.0")), 0);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("15.0")), 0);
+
+        // Writes invalidate the projection
+        final InvoiceModelDao invoice2 = new InvoiceModelDao(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD, false);
+        invoice2.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice2.getId(), accountId, UUID.randomUUID(), UUID.randomUUID().toString(), clock.getUTCToday(), clock.getUTCToday(), new BigDecimal("10.0"), Currency.USD, null)));
+        invoiceDao.createInvoices(Collections.singleton(invoice2), null, Collections.emptySet(), new FutureAccountNotifications(), new ExistingInvoiceMetadata(Collections.emptyList()), false, context);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("25.0")), 0);
+
+        // So do WRITTEN_OFF tags, which are not managed by the invoice DAO
+        tagUserApi.addTag(invoice1.getId(), ObjectType.INVOICE, ControlTagType.WRITTEN_OFF.getId(), callContext);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("10.0")), 0);
+
+        assertFalse(invoiceDao.rebuildAccountBalance(accountId, context));
+
+        // Simulate a drift: it is detected and fixed by the rebuild
+        dbi.withHandle(handle -> handle.execute("update invoice_account_balances set balance = 0 where account_record_id = ?", context.getAccountRecordId()));
+        assertTrue(invoiceDao.rebuildAccountBalance(accountId, context));
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("10.0")), 0);
+        assertFalse(invoiceDao.rebuildAccountBalance(accountId, context));
+
+        // Subsequent writes keep invalidating the projection
+        final InvoiceModelDao invoice3 = new InvoiceModelDao(accountId, clock.getUTCToday(), clock.getUTCToday(), Currency.USD, false);
+        invoice3.addInvoiceItem(new InvoiceItemModelDao(new ExternalChargeInvoiceItem(invoice3.getId(), accountId, UUID.randomUUID(), UUID.randomUUID().toString(), clock.getUTCToday(), clock.getUTCToday(), new BigDecimal("5.0"), Currency.USD, null)));
+        invoiceDao.createInvoices(Collections.singleton(invoice3), null, Collections.emptySet(), new FutureAccountNotifications(), new ExistingInvoiceMetadata(Collections.emptyList()), false, context);
+        assertEquals(invoiceDao.getAccountBalance(accountId, context).compareTo(new BigDecimal("15.0")), 0);
+    }
+
     @Test(groups = "slow")
     public void testAccountBalanceWithRefundNoAdj() throws InvoiceApiException, EntityPersistenceException {
         testAccountBalanceWithRefundInternal(false);
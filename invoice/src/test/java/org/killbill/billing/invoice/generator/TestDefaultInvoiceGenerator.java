@@ -398,6 +398,42 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
         assertNull(invoice2);
     }
 
+    @Test(groups = "fast")
+    public void testParallelGenerationMatchesSequentialGeneration() throws InvoiceApiException, CatalogApiException {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 2);
+        final InvoiceGenerator parallelGenerator = new DefaultInvoiceGenerator(clock,
+                                                                               invoiceConfig,
+                                                                               new FixedAndRecurringInvoiceItemGenerator(invoiceConfig, clock, partitionExecutor),
+                                                                               new UsageInvoiceItemGenerator(rawUsageOptimizer, invoiceConfig, partitionExecutor));
+
+        final BillingEventSet initialEvents = new MockBillingEventSet();
+        final BillingEventSet events = new MockBillingEventSet();
+        final Plan plan = new MockPlan();
+        for (int i = 0; i < 20; i++) {
+            final SubscriptionBase sub = createSubscription();
+            final BillingEvent creation = createBillingEvent(sub.getId(), sub.getBundleId(), invoiceUtil.buildDate(2011, 9, 1 + i), plan, createMockMonthlyPlanPhase(TEN), 1 + i);
+            initialEvents.add(creation);
+            events.add(creation);
+            // Mid-period price change, to generate repairs against the existing invoice
+            events.add(createBillingEvent(sub.getId(), sub.getBundleId(), invoiceUtil.buildDate(2011, 10, 25), plan, createMockMonthlyPlanPhase(TWENTY), 1 + i));
+        }
+
+        final Invoice existingInvoice = generator.generateInvoice(account, initialEvents, new AccountInvoices(), null, invoiceUtil.buildDate(2011, 10, 21), Currency.USD, null, Collections.emptyList(), internalCallContext).getInvoice();
+        final List<Invoice> existingInvoices = new ArrayList<Invoice>();
+        existingInvoices.add(existingInvoice);
+
+        final LocalDate targetDate = invoiceUtil.buildDate(2011, 12, 31);
+        final Invoice sequentialInvoice = generator.generateInvoice(account, events, new AccountInvoices(null, null, existingInvoices), null, targetDate, Currency.USD, null, Collections.emptyList(), internalCallContext).getInvoice();
+        final Invoice parallelInvoice = parallelGenerator.generateInvoice(account, events, new AccountInvoices(null, null, existingInvoices), null, targetDate, Currency.USD, null, Collections.emptyList(), internalCallContext).getInvoice();
+
+        assertNotNull(sequentialInvoice);
+        assertNotNull(parallelInvoice);
+        assertTrue(sequentialInvoice.getInvoiceItems().stream().anyMatch(item -> item.getInvoiceItemType() == InvoiceItemType.REPAIR_ADJ));
+        // Same items, in the same order
+        assertEquals(describeItems(parallelInvoice), describeItems(sequentialInvoice));
+        assertEquals(parallelInvoice.getBalance().compareTo(sequentialInvoice.getBalance()), 0);
+    }
+
     // TODO: modify this test to keep a running total of expected invoice amount over time
     @Test(groups = "fast")
     public void testMultiplePlansWithUtterChaos() throws InvoiceApiException, CatalogApiException {
@@ -1338,6 +1374,14 @@ public class TestDefaultInvoiceGenerator extends InvoiceTestSuiteNoDB {
                                  null, BillingPeriod.ANNUAL, phaseType);
     }
 
+    private List<String> describeItems(final Invoice invoice) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (final InvoiceItem item : invoice.getInvoiceItems()) {
+            descriptions.add(String.format("%s %s %s %s %s %s", item.getInvoiceItemType(), item.getSubscriptionId(), item.getStartDate(), item.getEndDate(), item.getAmount(), item.getLinkedItemId()));
+        }
+        return descriptions;
+    }
+
     private SubscriptionBase createSubscription() {
         return createSubscription(UUID.randomUUID(), UUID.randomUUID());
     }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestSubscriptionPartitionExecutor extends InvoiceTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testSequentialBelowThreshold() throws InvoiceApiException {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 10);
+        Assert.assertFalse(partitionExecutor.isParallel(9));
+        Assert.assertTrue(partitionExecutor.isParallel(10));
+
+        final Thread caller = Thread.currentThread();
+        final List<Boolean> results = partitionExecutor.map(createPartitions(9), partition -> Thread.currentThread() == caller);
+        Assert.assertEquals(results.size(), 9);
+        Assert.assertFalse(results.contains(false));
+
+        Assert.assertFalse(SubscriptionPartitionExecutor.SEQUENTIAL.isParallel(Integer.MAX_VALUE - 1));
+        Assert.assertFalse(new SubscriptionPartitionExecutor(1, 2).isParallel(1000));
+    }
+
+    @Test(groups = "fast")
+    public void testSequentialOnceShutdown() throws InvoiceApiException {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 2);
+        Assert.assertTrue(partitionExecutor.isParallel(10));
+
+        partitionExecutor.shutdown();
+        Assert.assertFalse(partitionExecutor.isParallel(10));
+
+        final Thread caller = Thread.currentThread();
+        final List<Boolean> results = partitionExecutor.map(createPartitions(10), partition -> Thread.currentThread() == caller);
+        Assert.assertEquals(results.size(), 10);
+        Assert.assertFalse(results.contains(false));
+
+        // No-op without a pool
+        SubscriptionPartitionExecutor.SEQUENTIAL.shutdown();
+    }
+
+    @Test(groups = "fast")
+    public void testResultsAreOrdered() throws InvoiceApiException {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 2);
+        final List<Integer> partitions = createPartitions(500);
+
+        final List<Integer> results = partitionExecutor.map(partitions, partition -> partition * 2);
+        Assert.assertEquals(results.size(), partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Assert.assertEquals(results.get(i), (Integer) (i * 2));
+        }
+
+        final List<String> transformed = partitionExecutor.transform(partitions, String::valueOf);
+        for (int i = 0; i < partitions.size(); i++) {
+            Assert.assertEquals(transformed.get(i), String.valueOf(i));
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testInvoiceApiExceptionIsPropagated() {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 2);
+        try {
+            partitionExecutor.map(createPartitions(100), partition -> {
+                if (partition == 42) {
+                    throw new InvoiceApiException(ErrorCode.INVOICE_NOTHING_TO_DO, partition, "null");
+                }
+                return partition;
+            });
+            Assert.fail();
+        } catch (final InvoiceApiException e) {
+            Assert.assertEquals(e.getCode(), ErrorCode.INVOICE_NOTHING_TO_DO.getCode());
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testRuntimeExceptionIsPropagated() {
+        final SubscriptionPartitionExecutor partitionExecutor = new SubscriptionPartitionExecutor(4, 2);
+        try {
+            partitionExecutor.forEach(createPartitions(100), partition -> {
+                if (partition == 42) {
+                    throw new IllegalStateException("Invalid state for partition " + partition);
+                }
+            });
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("42"));
+        }
+    }
+
+    private List<Integer> createPartitions(final int nbPartitions) {
+        final List<Integer> partitions = new ArrayList<Integer>(nbPartitions);
+        for (int i = 0; i < nbPartitions; i++) {
+            partitions.add(i);
+        }
+        return partitions;
+    }
+}
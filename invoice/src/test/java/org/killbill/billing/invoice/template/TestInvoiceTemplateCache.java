@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.invoice.template;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.invoice.InvoiceTestSuiteNoDB;
+import org.killbill.billing.invoice.api.formatters.ResourceBundleFactory.ResourceBundleType;
+import org.killbill.billing.tenant.api.TenantKV.TenantKey;
+import org.killbill.billing.util.email.templates.MustacheTemplateEngine;
+import org.killbill.billing.util.email.templates.TemplateEngine.CompiledTemplate;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestInvoiceTemplateCache extends InvoiceTestSuiteNoDB {
+
+    private InvoiceTemplateCache invoiceTemplateCache;
+
+    @Override
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+        invoiceTemplateCache = new InvoiceTemplateCache(new MustacheTemplateEngine());
+    }
+
+    @Test(groups = "fast")
+    public void testTenantTemplate() throws Exception {
+        final CompiledTemplate template = invoiceTemplateCache.getTenantTemplate(1L, Locale.US, false, "Hello {{name}}");
+        Assert.assertEquals(template.execute(Map.of("name", "Jim")), "Hello Jim");
+
+        // Same text (not necessarily the same instance): the compiled template is re-used
+        Assert.assertSame(invoiceTemplateCache.getTenantTemplate(1L, Locale.US, false, new String("Hello {{name}}")), template);
+        // Different tenant, locale or kind of template
+        Assert.assertNotSame(invoiceTemplateCache.getTenantTemplate(2L, Locale.US, false, "Hello {{name}}"), template);
+        Assert.assertNotSame(invoiceTemplateCache.getTenantTemplate(1L, Locale.FRANCE, false, "Hello {{name}}"), template);
+        Assert.assertNotSame(invoiceTemplateCache.getTenantTemplate(1L, Locale.US, true, "Hello {{name}}"), template);
+        Assert.assertEquals(invoiceTemplateCache.size(), 4);
+
+        // The tenant uploaded a new template: it is re-compiled, even before the invalidation callback has been invoked
+        final CompiledTemplate updatedTemplate = invoiceTemplateCache.getTenantTemplate(1L, Locale.US, false, "Bonjour {{name}}");
+        Assert.assertEquals(updatedTemplate.execute(Map.of("name", "Jim")), "Bonjour Jim");
+        Assert.assertSame(invoiceTemplateCache.getTenantTemplate(1L, Locale.US, false, "Bonjour {{name}}"), updatedTemplate);
+        Assert.assertEquals(invoiceTemplateCache.size(), 4);
+    }
+
+    @Test(groups = "fast")
+    public void testDefaultTemplate() throws Exception {
+        final AtomicInteger nbLoads = new AtomicInteger();
+        final InvoiceTemplateCache.TemplateTextLoader loader = () -> {
+            nbLoads.incrementAndGet();
+            return "Default {{name}}";
+        };
+
+        final CompiledTemplate template = invoiceTemplateCache.getDefaultTemplate("Template.mustache", loader);
+        Assert.assertEquals(template.execute(Map.of("name", "Jim")), "Default Jim");
+        Assert.assertSame(invoiceTemplateCache.getDefaultTemplate("Template.mustache", loader), template);
+        Assert.assertEquals(nbLoads.get(), 1);
+
+        // Default templates aren't tenant specific
+        invoiceTemplateCache.invalidate(TenantKey.INVOICE_TEMPLATE, 1L);
+        Assert.assertSame(invoiceTemplateCache.getDefaultTemplate("Template.mustache", loader), template);
+        Assert.assertEquals(nbLoads.get(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testTenantBundle() throws Exception {
+        final AtomicInteger nbParses = new AtomicInteger();
+        final InvoiceTemplateCache.BundleParser parser = bundleText -> {
+            nbParses.incrementAndGet();
+            return parseBundle(bundleText);
+        };
+
+        final ResourceBundle bundle = invoiceTemplateCache.getTenantBundle(1L, Locale.US, ResourceBundleType.INVOICE_TRANSLATION, "invoiceTitle=INVOICE", parser);
+        Assert.assertEquals(bundle.getString("invoiceTitle"), "INVOICE");
+        Assert.assertSame(invoiceTemplateCache.getTenantBundle(1L, Locale.US, ResourceBundleType.INVOICE_TRANSLATION, "invoiceTitle=INVOICE", parser), bundle);
+        Assert.assertEquals(nbParses.get(), 1);
+
+        // Invalid bundles aren't cached
+        Assert.assertNull(invoiceTemplateCache.getTenantBundle(1L, Locale.US, ResourceBundleType.CATALOG_TRANSLATION, "foo", bundleText -> null));
+        Assert.assertEquals(invoiceTemplateCache.size(), 1);
+
+        final ResourceBundle updatedBundle = invoiceTemplateCache.getTenantBundle(1L, Locale.US, ResourceBundleType.INVOICE_TRANSLATION, "invoiceTitle=FACTURE", parser);
+        Assert.assertEquals(updatedBundle.getString("invoiceTitle"), "FACTURE");
+        Assert.assertEquals(nbParses.get(), 2);
+    }
+
+    @Test(groups = "fast")
+    public void testInvalidate() throws Exception {
+        invoiceTemplateCache.getTenantTemplate(1L, Locale.US, false, "Hello {{name}}");
+        invoiceTemplateCache.getTenantTemplate(1L, Locale.US, true, "Hello {{name}}");
+        invoiceTemplateCache.getTenantTemplate(11L, Locale.US, false, "Hello {{name}}");
+        invoiceTemplateCache.getTenantBundle(1L, Locale.US, ResourceBundleType.INVOICE_TRANSLATION, "invoiceTitle=INVOICE", this::parseBundle);
+        Assert.assertEquals(invoiceTemplateCache.size(), 4);
+
+        // Only the template of that tenant (and not the one of tenant 11)
+        invoiceTemplateCache.invalidate(TenantKey.INVOICE_TEMPLATE, 1L);
+        Assert.assertEquals(invoiceTemplateCache.size(), 3);
+
+        invoiceTemplateCache.invalidate(TenantKey.INVOICE_TRANSLATION_, 1L);
+        Assert.assertEquals(invoiceTemplateCache.size(), 2);
+
+        invoiceTemplateCache.invalidate(TenantKey.INVOICE_MP_TEMPLATE, 11L);
+        Assert.assertEquals(invoiceTemplateCache.size(), 2);
+    }
+
+    private ResourceBundle parseBundle(final String bundleText) {
+        try {
+            return new PropertyResourceBundle(new StringReader(bundleText));
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+}
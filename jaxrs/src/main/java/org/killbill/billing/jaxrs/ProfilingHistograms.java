@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+import org.killbill.billing.jaxrs.json.ProfilingDataJson;
+import org.killbill.billing.jaxrs.json.ProfilingDataJson.ProfilingDataJsonItem;
+import org.killbill.billing.util.config.definition.JaxrsConfig;
+import org.killbill.billing.util.metrics.LatencyHistogram;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Server side counterpart of the X-Killbill-Profiling-Req header: a fraction of the requests is profiled and each profiled
+// call (resource path, API, DAO method, plugin call, ...) is aggregated into a latency histogram (in microseconds) per tenant
+public class ProfilingHistograms {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfilingHistograms.class);
+
+    private static final String PROP_METRIC_REG_PROFILING = "killbill.profiling.";
+
+    private final JaxrsConfig jaxrsConfig;
+    private final MetricRegistry metricRegistry;
+    private final Map<HistogramKey, LatencyHistogram> histograms;
+
+    @Inject
+    public ProfilingHistograms(final JaxrsConfig jaxrsConfig, final MetricRegistry metricRegistry) {
+        this.jaxrsConfig = jaxrsConfig;
+        this.metricRegistry = metricRegistry;
+        this.histograms = new ConcurrentHashMap<HistogramKey, LatencyHistogram>();
+    }
+
+    public boolean shouldSample() {
+        final double samplingRate = jaxrsConfig.getProfilingSamplingRate();
+        return samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < samplingRate;
+    }
+
+    public String getProfilingFeatures() {
+        return jaxrsConfig.getProfilingFeatures();
+    }
+
+    public void record(@Nullable final UUID tenantId, final ProfilingDataJson profilingData) {
+        for (final ProfilingDataJsonItem item : profilingData.getRawData()) {
+            record(tenantId, item);
+        }
+    }
+
+    private void record(@Nullable final UUID tenantId, final ProfilingDataJsonItem item) {
+        if (item.getDurationUsec() != null && item.getDurationUsec() != Long.MIN_VALUE) {
+            final LatencyHistogram histogram = getOrCreateHistogram(new HistogramKey(tenantId, item.getName()));
+            if (histogram != null) {
+                histogram.record(item.getDurationUsec());
+            }
+        }
+
+        if (item.getCalls() != null) {
+            for (final ProfilingDataJsonItem call : item.getCalls()) {
+                record(tenantId, call);
+            }
+        }
+    }
+
+    public Map<HistogramKey, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    private LatencyHistogram getOrCreateHistogram(final HistogramKey key) {
+        final LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+
+        // Approximate (concurrent creations), but enough to bound the memory and the number of metrics
+        if (histograms.size() >= jaxrsConfig.getProfilingMaxHistograms()) {
+            logger.debug("Too many profiling histograms, ignoring {}", key);
+            return null;
+        }
+
+        return histograms.computeIfAbsent(key, k -> {
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+            registerGauges(k, newHistogram);
+            return newHistogram;
+        });
+    }
+
+    private void registerGauges(final HistogramKey key, final LatencyHistogram histogram) {
+        final String prefix = PROP_METRIC_REG_PROFILING + (key.getTenantId() == null ? "default" : key.getTenantId()) + "." + key.getName().replaceAll("[^A-Za-z0-9_\\-]+", "_") + ".";
+        metricRegistry.gauge(prefix + "count", histogram::getCount);
+        metricRegistry.gauge(prefix + "p50-usec", () -> histogram.getValueAtPercentile(50));
+        metricRegistry.gauge(prefix + "p99-usec", () -> histogram.getValueAtPercentile(99));
+        metricRegistry.gauge(prefix + "max-usec", histogram::getMax);
+    }
+
+    public static final class HistogramKey {
+
+        private final UUID tenantId;
+        private final String name;
+
+        public HistogramKey(@Nullable final UUID tenantId, final String name) {
+            this.tenantId = tenantId;
+            this.name = name;
+        }
+
+        public UUID getTenantId() {
+            return tenantId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final HistogramKey that = (HistogramKey) o;
+            return Objects.equals(tenantId, that.tenantId) && Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, name);
+        }
+
+        @Override
+        public String toString() {
+            return "HistogramKey{tenantId=" + tenantId + ", name='" + name + "'}";
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.jaxrs.json;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -40,6 +41,7 @@ import org.killbill.billing.util.audit.AuditLog;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import io.swagger.annotations.ApiModel;
 
@@ -77,6 +79,77 @@ public class AccountTimelineJson {
 
         this.invoices = new LinkedList<InvoiceJson>();
         // Extract the credits from the invoices first
+        final List<InvoiceItemJson> credits = getCredits(invoices, accountAuditLogs);
+        // Create now the invoice json objects
+        for (final Invoice invoice : invoices) {
+            this.invoices.add(toInvoiceJson(invoice, bundles, credits, accountAuditLogs));
+        }
+
+        this.payments = new LinkedList<InvoicePaymentJson>();
+        for (final Payment payment : payments) {
+            this.payments.add(toInvoicePaymentJson(payment, invoicePayments, accountAuditLogs));
+        }
+    }
+
+    // Same document as the one serialized from the constructor above, but each object is converted to json and written out one at a time,
+    // so that the json objects of the whole timeline are never held together. The domain objects are not streamed though: each section
+    // is a full list (as returned by the APIs) and the account audit logs are needed by all of them.
+    public static void write(final JsonGenerator generator,
+                             final Account account,
+                             final List<Invoice> invoices,
+                             final List<Payment> payments,
+                             final List<InvoicePayment> invoicePayments,
+                             final List<SubscriptionBundle> bundles,
+                             final AccountAuditLogs accountAuditLogs) throws IOException, CatalogApiException {
+        writeStart(generator, account, accountAuditLogs);
+        writeBundles(generator, account, bundles, accountAuditLogs);
+        writeInvoices(generator, invoices, bundles, accountAuditLogs);
+        writePayments(generator, payments, invoicePayments, accountAuditLogs);
+        writeEnd(generator);
+    }
+
+    // The section writers below can be called in any order (between writeStart and writeEnd), e.g. as the data becomes available
+    public static void writeStart(final JsonGenerator generator, final Account account, final AccountAuditLogs accountAuditLogs) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeObjectField("account", new AccountJson(account, null, null, accountAuditLogs));
+        generator.flush();
+    }
+
+    public static void writeBundles(final JsonGenerator generator, final Account account, final List<SubscriptionBundle> bundles, final AccountAuditLogs accountAuditLogs) throws IOException, CatalogApiException {
+        generator.writeArrayFieldStart("bundles");
+        for (final SubscriptionBundle bundle : bundles) {
+            generator.writeObject(new BundleJson(bundle, account.getCurrency(), accountAuditLogs));
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    public static void writeInvoices(final JsonGenerator generator, final List<Invoice> invoices, final List<SubscriptionBundle> bundles, final AccountAuditLogs accountAuditLogs) throws IOException {
+        generator.writeArrayFieldStart("invoices");
+        final List<InvoiceItemJson> credits = getCredits(invoices, accountAuditLogs);
+        for (final Invoice invoice : invoices) {
+            generator.writeObject(toInvoiceJson(invoice, bundles, credits, accountAuditLogs));
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    public static void writePayments(final JsonGenerator generator, final List<Payment> payments, final List<InvoicePayment> invoicePayments, final AccountAuditLogs accountAuditLogs) throws IOException {
+        generator.writeArrayFieldStart("payments");
+        for (final Payment payment : payments) {
+            generator.writeObject(toInvoicePaymentJson(payment, invoicePayments, accountAuditLogs));
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    public static void writeEnd(final JsonGenerator generator) throws IOException {
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static List<InvoiceItemJson> getCredits(final List<Invoice> invoices, final AccountAuditLogs accountAuditLogs) {
         final List<InvoiceItemJson> credits = new ArrayList<InvoiceItemJson>();
         for (final Invoice invoice : invoices) {
             for (final InvoiceItem invoiceItem : invoice.getInvoiceItems()) {
@@ -86,20 +159,20 @@ public class AccountTimelineJson {
                 }
             }
         }
-        // Create now the invoice json objects
-        for (final Invoice invoice : invoices) {
-            final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
-            this.invoices.add(new InvoiceJson(invoice,
-                                              getBundleExternalKey(invoice, bundles),
-                                              credits,
-                                              auditLogs));
-        }
+        return credits;
+    }
 
-        this.payments = new LinkedList<InvoicePaymentJson>();
-        for (final Payment payment : payments) {
-            final UUID invoiceId = JaxRsResourceBase.getInvoiceId(invoicePayments, payment);
-            this.payments.add(new InvoicePaymentJson(payment, invoiceId, accountAuditLogs));
-        }
+    private static InvoiceJson toInvoiceJson(final Invoice invoice, final List<SubscriptionBundle> bundles, final List<InvoiceItemJson> credits, final AccountAuditLogs accountAuditLogs) {
+        final List<AuditLog> auditLogs = accountAuditLogs.getAuditLogsForInvoice(invoice.getId());
+        return new InvoiceJson(invoice,
+                               getBundleExternalKey(invoice, bundles),
+                               credits,
+                               auditLogs);
+    }
+
+    private static InvoicePaymentJson toInvoicePaymentJson(final Payment payment, final List<InvoicePayment> invoicePayments, final AccountAuditLogs accountAuditLogs) {
+        final UUID invoiceId = JaxRsResourceBase.getInvoiceId(invoicePayments, payment);
+        return new InvoicePaymentJson(payment, invoiceId, accountAuditLogs);
     }
 
     public AccountJson getAccount() {
@@ -166,7 +239,7 @@ public class AccountTimelineJson {
         return result;
     }
 
-    private String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
+    private static String getBundleExternalKey(final Invoice invoice, final List<SubscriptionBundle> bundles) {
         final Set<UUID> b = new HashSet<UUID>();
         for (final InvoiceItem cur : invoice.getInvoiceItems()) {
             b.add(cur.getBundleId());
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import org.killbill.billing.util.metrics.LatencyHistogram;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value="ProfilingHistogram")
+public class ProfilingHistogramJson {
+
+    private final String name;
+    private final Long count;
+    private final Double meanUsec;
+    private final Long p50Usec;
+    private final Long p90Usec;
+    private final Long p99Usec;
+    private final Long maxUsec;
+
+    @JsonCreator
+    public ProfilingHistogramJson(@JsonProperty("name") final String name,
+                                  @JsonProperty("count") final Long count,
+                                  @JsonProperty("meanUsec") final Double meanUsec,
+                                  @JsonProperty("p50Usec") final Long p50Usec,
+                                  @JsonProperty("p90Usec") final Long p90Usec,
+                                  @JsonProperty("p99Usec") final Long p99Usec,
+                                  @JsonProperty("maxUsec") final Long maxUsec) {
+        this.name = name;
+        this.count = count;
+        this.meanUsec = meanUsec;
+        this.p50Usec = p50Usec;
+        this.p90Usec = p90Usec;
+        this.p99Usec = p99Usec;
+        this.maxUsec = maxUsec;
+    }
+
+    public ProfilingHistogramJson(final String name, final LatencyHistogram histogram) {
+        this(name,
+             histogram.getCount(),
+             histogram.getMean(),
+             histogram.getValueAtPercentile(50),
+             histogram.getValueAtPercentile(90),
+             histogram.getValueAtPercentile(99),
+             histogram.getMax());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public Double getMeanUsec() {
+        return meanUsec;
+    }
+
+    public Long getP50Usec() {
+        return p50Usec;
+    }
+
+    public Long getP90Usec() {
+        return p90Usec;
+    }
+
+    public Long getP99Usec() {
+        return p99Usec;
+    }
+
+    public Long getMaxUsec() {
+        return maxUsec;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.json;
+
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.usage.RolledUpUsageRecordResult;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+@ApiModel(value = "UsageRecordResult")
+public class UsageRecordResultJson {
+
+    private final UUID subscriptionId;
+    private final String trackingId;
+    private final BillingExceptionJson error;
+
+    @JsonCreator
+    public UsageRecordResultJson(@JsonProperty("subscriptionId") final UUID subscriptionId,
+                                 @JsonProperty("trackingId") final String trackingId,
+                                 @JsonProperty("error") @Nullable final BillingExceptionJson error) {
+        this.subscriptionId = subscriptionId;
+        this.trackingId = trackingId;
+        this.error = error;
+    }
+
+    public UsageRecordResultJson(final RolledUpUsageRecordResult input) {
+        this(input.getSubscriptionId(),
+             input.getTrackingId(),
+             input.isSuccess() ? null : new BillingExceptionJson(input.getError(), false));
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public BillingExceptionJson getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "UsageRecordResultJson{" +
+               "subscriptionId=" + subscriptionId +
+               ", trackingId='" + trackingId + '\'' +
+               ", error=" + error +
+               '}';
+    }
+}
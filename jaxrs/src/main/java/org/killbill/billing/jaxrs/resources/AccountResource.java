@@ -18,6 +18,8 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.util.ArrayList;
@@ -25,12 +27,15 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -52,8 +57,12 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.DateTime;
@@ -66,6 +75,7 @@ import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountData;
 import org.killbill.billing.account.api.AccountEmail;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.audit.AuditInternalApi;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.catalog.api.CatalogApiException;
 import org.killbill.billing.catalog.api.Currency;
@@ -78,6 +88,7 @@ import org.killbill.billing.entitlement.api.Subscription;
 import org.killbill.billing.entitlement.api.SubscriptionApi;
 import org.killbill.billing.entitlement.api.SubscriptionApiException;
 import org.killbill.billing.entitlement.api.SubscriptionBundle;
+import org.killbill.billing.entitlement.api.SubscriptionEvent;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceItem;
@@ -132,6 +143,7 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.config.definition.JaxrsConfig;
 import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.tag.ControlTagType;
 import org.killbill.billing.util.tag.Tag;
@@ -141,6 +153,8 @@ import org.killbill.commons.metrics.api.annotation.TimedResource;
 import org.killbill.notificationq.api.NotificationQueue;
 import org.killbill.notificationq.api.NotificationQueueService;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -164,6 +178,7 @@ public class AccountResource extends JaxRsResourceBase {
     private final JaxrsConfig jaxrsConfig;
     private final RecordIdApi recordIdApi;
     private final NotificationQueueService notificationQueueService;
+    private final AuditInternalApi auditInternalApi;
 
     @Inject
     public AccountResource(final JaxrsUriBuilder uriBuilder,
@@ -173,6 +188,7 @@ public class AccountResource extends JaxRsResourceBase {
                            final PaymentApi paymentApi,
                            final TagUserApi tagUserApi,
                            final AuditUserApi auditUserApi,
+                           final AuditInternalApi auditInternalApi,
                            final CustomFieldUserApi customFieldUserApi,
                            final SubscriptionApi subscriptionApi,
                            final OverdueApi overdueApi,
@@ -191,6 +207,7 @@ public class AccountResource extends JaxRsResourceBase {
         this.jaxrsConfig = jaxrsConfig;
         this.recordIdApi = recordIdApi;
         this.notificationQueueService = notificationQueueService;
+        this.auditInternalApi = auditInternalApi;
     }
 
     @TimedResource
@@ -220,11 +237,12 @@ public class AccountResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getAccounts(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                 @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
-        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(cursor, request);
         final Pagination<Account> accounts = accountUserApi.getAccounts(offset, limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class,
                                                     "getAccounts",
@@ -252,11 +270,12 @@ public class AccountResource extends JaxRsResourceBase {
     public Response searchAccounts(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE) @DefaultValue("false") final Boolean accountWithBalance,
                                    @QueryParam(QUERY_ACCOUNT_WITH_BALANCE_AND_CBA) @DefaultValue("false") final Boolean accountWithBalanceAndCBA,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
-        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(cursor, request);
         final Pagination<Account> accounts = accountUserApi.searchAccounts(searchKey, offset, limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(AccountResource.class,
                                                     "searchAccounts",
@@ -295,11 +314,11 @@ public class AccountResource extends JaxRsResourceBase {
                                                  subscriptionApi.getSubscriptionBundlesForAccountIdAndExternalKey(accountId, externalKey, tenantContext) :
                                                  subscriptionApi.getSubscriptionBundlesForAccountId(accountId, tenantContext);
 
-        final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(account.getId(), auditMode.getLevel(), tenantContext);
-
         final boolean filter = (null != bundlesFilter && !bundlesFilter.isEmpty());
         final List<SubscriptionBundle> subscriptionBundles = filter ? filterBundles(bundles, Arrays.asList(bundlesFilter.split(","))) : bundles;
 
+        final AccountAuditLogs accountAuditLogs = getAuditLogsForBundles(account.getId(), subscriptionBundles, auditMode, tenantContext);
+
         final Collection<BundleJson> result = new LinkedList<BundleJson>();
         for (final SubscriptionBundle subscriptionBundle : subscriptionBundles) {
             result.add(new BundleJson(subscriptionBundle, account.getCurrency(), accountAuditLogs));
@@ -318,9 +337,10 @@ public class AccountResource extends JaxRsResourceBase {
     public Response getAccountBundlesPaginated(@PathParam("accountId") final UUID accountId,
                                                @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                                @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                               @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                                @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                                @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException, SubscriptionApiException, CatalogApiException {
-        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
+        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, cursor, request);
 
         final Pagination<SubscriptionBundle> bundles = subscriptionApi.getSubscriptionBundlesForAccountId(accountId, offset, limit, tenantContext);
 
@@ -335,9 +355,12 @@ public class AccountResource extends JaxRsResourceBase {
                                                     limit,
                                                     queryParams,
                                                     Map.of("accountId", String.valueOf(accountId)));
-        return buildStreamingPaginationResponse(bundles,
+        // The page is bounded by the limit: materialize it to retrieve the audit logs of its bundles only, in one go
+        final List<SubscriptionBundle> page = new ArrayList<>();
+        bundles.iterator().forEachRemaining(page::add);
+        final AccountAuditLogs accountAuditLogs = getAuditLogsForBundles(accountId, page, auditMode, tenantContext);
+        return buildStreamingPaginationResponse(new DefaultPagination<>(bundles, limit, page.iterator()),
                                                 bundle -> {
-                                                    final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext);
                                                     try {
                                                         return new BundleJson(bundle, null, accountAuditLogs);
                                                     } catch (final CatalogApiException e) {
@@ -349,6 +372,24 @@ public class AccountResource extends JaxRsResourceBase {
 
     }
 
+    // Only load the audit logs of the bundles, their subscriptions and their events, not the ones of the whole account
+    private AccountAuditLogs getAuditLogsForBundles(final UUID accountId, final Collection<SubscriptionBundle> bundles, final AuditMode auditMode, final TenantContext tenantContext) {
+        final Map<ObjectType, Set<UUID>> objectIdsPerObjectType = new HashMap<>();
+        for (final SubscriptionBundle bundle : bundles) {
+            objectIdsPerObjectType.computeIfAbsent(ObjectType.BUNDLE, k -> new HashSet<>()).add(bundle.getId());
+            for (final Subscription subscription : bundle.getSubscriptions()) {
+                objectIdsPerObjectType.computeIfAbsent(ObjectType.SUBSCRIPTION, k -> new HashSet<>()).add(subscription.getId());
+                for (final SubscriptionEvent subscriptionEvent : subscription.getSubscriptionEvents()) {
+                    objectIdsPerObjectType.computeIfAbsent(subscriptionEvent.getSubscriptionEventType().getObjectType(), k -> new HashSet<>()).add(subscriptionEvent.getId());
+                }
+            }
+            for (final SubscriptionEvent subscriptionEvent : bundle.getTimeline().getSubscriptionEvents()) {
+                objectIdsPerObjectType.computeIfAbsent(subscriptionEvent.getSubscriptionEventType().getObjectType(), k -> new HashSet<>()).add(subscriptionEvent.getId());
+            }
+        }
+        return auditInternalApi.getAuditLogsForObjects(accountId, objectIdsPerObjectType, auditMode.getLevel(), context.createInternalTenantContext(accountId, tenantContext));
+    }
+
     private List<SubscriptionBundle> filterBundles(final List<SubscriptionBundle> subscriptionBundlesForAccountId, final List<String> bundlesFilter) {
         List<SubscriptionBundle> result = new ArrayList<SubscriptionBundle>();
         for (SubscriptionBundle subscriptionBundle : subscriptionBundlesForAccountId) {
@@ -597,6 +638,183 @@ public class AccountResource extends JaxRsResourceBase {
         return Response.status(Status.OK).entity(json).build();
     }
 
+    @TimedResource
+    @GET
+    @Path("/{accountId:" + UUID_PATTERN + "}/" + TIMELINE + "/" + STREAM)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Retrieve account timeline as a stream", response = AccountTimelineJson.class)
+    @ApiResponses(value = {@ApiResponse(code = 400, message = "Invalid account id supplied"),
+                           @ApiResponse(code = 404, message = "Account not found"),
+                           @ApiResponse(code = 503, message = "Timeline could not be retrieved in time")})
+    public void getAccountTimelineStream(@PathParam("accountId") final UUID accountId,
+                                         @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
+                                         @javax.ws.rs.core.Context final HttpServletRequest request,
+                                         @Suspended final AsyncResponse asyncResponse) throws AccountApiException {
+        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
+
+        final Account account = accountUserApi.getAccountById(accountId, tenantContext);
+
+        // All the sections are retrieved in parallel by the jaxrs executor and the request thread is released right away. The response
+        // is resumed (no polling) once the audit logs, needed by every section, are available (or with a 503 if the jaxrs timeout expires first):
+        // each section is then written, and released, as soon as its data is available. Note that the sections are retrieved as full lists (the APIs
+        // don't page them) and that the audit logs are held until the whole response has been written: the memory saving is on the json side only.
+        final ExecutorService executor = jaxrsExecutors.getJaxrsExecutorService();
+        final TimelineSection<List<SubscriptionBundle>> bundles = new TimelineSection<>(executor, () -> subscriptionApi.getSubscriptionBundlesForAccountId(accountId, tenantContext));
+        final TimelineSection<List<Invoice>> invoices = new TimelineSection<>(executor, () -> invoiceApi.getInvoicesByAccount(accountId, false, false, true, tenantContext));
+        final TimelineSection<List<InvoicePayment>> invoicePayments = new TimelineSection<>(executor, () -> invoicePaymentApi.getInvoicePaymentsByAccount(accountId, tenantContext));
+        final TimelineSection<List<Payment>> payments = new TimelineSection<>(executor, () -> paymentApi.getAccountPayments(accountId, false, false, Collections.emptyList(), tenantContext));
+        // Submitted last: by the time the executor picks it up, the other sections have been picked up as well, so the thread completing it
+        // (which then writes the response) only ever waits on sections being retrieved, never on sections queued behind other requests
+        final TimelineSection<AccountAuditLogs> audits = new TimelineSection<>(executor, () -> auditUserApi.getAccountAuditLogs(accountId, auditMode.getLevel(), tenantContext));
+        final List<TimelineSection<?>> sections = List.of(bundles, invoices, invoicePayments, payments, audits);
+
+        final long timeoutMillis = jaxrsConfig.getJaxrsTimeout().getMillis();
+        final long deadlineMillis = System.currentTimeMillis() + timeoutMillis;
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(response -> {
+            log.warn("Timeout while retrieving timeline for accountId='{}'", accountId);
+            sections.forEach(TimelineSection::cancel);
+            response.resume(Response.status(Status.SERVICE_UNAVAILABLE).build());
+        });
+
+        audits.getFuture().whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                log.warn("Exception while retrieving timeline for accountId='{}'", accountId, cause);
+                sections.forEach(TimelineSection::cancel);
+                asyncResponse.resume(cause);
+                return;
+            }
+
+            final StreamingOutput json = new StreamingOutput() {
+                @Override
+                public void write(final OutputStream output) throws IOException, WebApplicationException {
+                    try {
+                        writeAccountTimeline(output, account, bundles, invoices, invoicePayments, payments, audits, deadlineMillis);
+                    } finally {
+                        // Stop the retrievals still in progress if the response couldn't be completed (timeout, failure, client gone away)
+                        sections.forEach(TimelineSection::cancel);
+                    }
+                }
+            };
+            asyncResponse.resume(Response.status(Status.OK).entity(json).build());
+        });
+    }
+
+    private void writeAccountTimeline(final OutputStream output,
+                                      final Account account,
+                                      final TimelineSection<List<SubscriptionBundle>> bundles,
+                                      final TimelineSection<List<Invoice>> invoices,
+                                      final TimelineSection<List<InvoicePayment>> invoicePayments,
+                                      final TimelineSection<List<Payment>> payments,
+                                      final TimelineSection<AccountAuditLogs> audits,
+                                      final long deadlineMillis) throws IOException {
+        final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+        generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+        // Invoices need the bundles (external keys) and payments the invoice payments
+        final CompletableFuture<Void> invoicesReady = CompletableFuture.allOf(invoices.getFuture(), bundles.getFuture());
+        final CompletableFuture<Void> paymentsReady = CompletableFuture.allOf(payments.getFuture(), invoicePayments.getFuture());
+        boolean bundlesWritten = false;
+        boolean invoicesWritten = false;
+        boolean paymentsWritten = false;
+        try {
+            AccountTimelineJson.writeStart(generator, account, audits.get());
+            while (!bundlesWritten || !invoicesWritten || !paymentsWritten) {
+                final List<CompletableFuture<?>> pending = new LinkedList<CompletableFuture<?>>();
+                if (!bundlesWritten) {
+                    pending.add(bundles.getFuture());
+                }
+                if (!invoicesWritten) {
+                    pending.add(invoicesReady);
+                }
+                if (!paymentsWritten) {
+                    pending.add(paymentsReady);
+                }
+                CompletableFuture.anyOf(pending.toArray(new CompletableFuture<?>[0])).get(Math.max(deadlineMillis - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+
+                // Sections which failed in the meantime are rethrown by join
+                if (!bundlesWritten && bundles.getFuture().isDone()) {
+                    bundles.getFuture().join();
+                    AccountTimelineJson.writeBundles(generator, account, bundles.get(), audits.get());
+                    bundlesWritten = true;
+                }
+                if (!invoicesWritten && invoicesReady.isDone()) {
+                    invoicesReady.join();
+                    AccountTimelineJson.writeInvoices(generator, invoices.get(), bundles.get(), audits.get());
+                    invoices.release();
+                    invoicesWritten = true;
+                }
+                if (!paymentsWritten && paymentsReady.isDone()) {
+                    paymentsReady.join();
+                    AccountTimelineJson.writePayments(generator, payments.get(), invoicePayments.get(), audits.get());
+                    payments.release();
+                    invoicePayments.release();
+                    paymentsWritten = true;
+                }
+                if (bundlesWritten && invoicesWritten) {
+                    bundles.release();
+                }
+            }
+            AccountTimelineJson.writeEnd(generator);
+            generator.close();
+        } catch (final TimeoutException e) {
+            // The status has already been sent: all we can do is abort the response
+            log.warn("Timeout while retrieving timeline for accountId='{}'", account.getId());
+            throw new WebApplicationException(e, Status.SERVICE_UNAVAILABLE);
+        } catch (final ExecutionException | CompletionException e) {
+            log.warn("Exception while retrieving timeline for accountId='{}'", account.getId(), e.getCause());
+            throw new WebApplicationException(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebApplicationException(e);
+        } catch (final CatalogApiException e) {
+            throw new WebApplicationException(e);
+        } finally {
+            audits.release();
+        }
+    }
+
+    // Section of the account timeline retrieved by the jaxrs executor. The retrieval runs as a plain Future task so that, unlike
+    // CompletableFuture#cancel, cancelling it interrupts the retrieval in progress (or prevents it from starting at all).
+    // The result is kept outside of the future, so that it can be released as soon as it has been written out.
+    private static final class TimelineSection<T> {
+
+        private final CompletableFuture<Void> future;
+        private final Future<?> task;
+
+        private volatile T result;
+
+        private TimelineSection(final ExecutorService executor, final Callable<T> callable) {
+            this.future = new CompletableFuture<Void>();
+            this.task = executor.submit(() -> {
+                try {
+                    result = callable.call();
+                    future.complete(null);
+                } catch (final Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+
+        public CompletableFuture<Void> getFuture() {
+            return future;
+        }
+
+        public T get() {
+            return result;
+        }
+
+        public void release() {
+            result = null;
+        }
+
+        public void cancel() {
+            task.cancel(true);
+            future.cancel(false);
+        }
+    }
+
     private <T> T waitOnFutureAndHandleTimeout(final String logSuffix, final Future<T> future, final long timeoutMsec, final Iterable<Future> toBeCancelled) throws PaymentApiException, AccountApiException, InvoiceApiException, SubscriptionApiException {
         try {
             return waitOnFutureAndHandleTimeout(future, timeoutMsec);
@@ -741,10 +959,11 @@ public class AccountResource extends JaxRsResourceBase {
     public Response getInvoicesForAccountPaginated(@PathParam("accountId") final UUID accountId,
                                           @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                           @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                          @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                           @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                           @javax.ws.rs.core.Context final HttpServletRequest request) throws AccountApiException {
 
-        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, request);
+        final TenantContext tenantContext = context.createTenantContextWithAccountId(accountId, cursor, request);
 
         final Pagination<Invoice> invoices = invoiceApi.getInvoicesByAccount(accountId, offset, limit, tenantContext);
 
@@ -21,10 +21,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -55,7 +57,9 @@ import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.catalog.api.VersionedCatalog;
 import org.killbill.billing.invoice.api.InvoiceApiException;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.jaxrs.ProfilingHistograms;
 import org.killbill.billing.jaxrs.json.AdminPaymentJson;
+import org.killbill.billing.jaxrs.json.ProfilingHistogramJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.AdminPaymentApi;
@@ -119,6 +123,7 @@ public class AdminResource extends JaxRsResourceBase {
     private final PersistentBus persistentBus;
     private final NotificationQueueService notificationQueueService;
     private final KillbillHealthcheck killbillHealthcheck;
+    private final ProfilingHistograms profilingHistograms;
 
     @Inject
     public AdminResource(final JaxrsUriBuilder uriBuilder,
@@ -136,6 +141,7 @@ public class AdminResource extends JaxRsResourceBase {
                          final PersistentBus persistentBus,
                          final NotificationQueueService notificationQueueService,
                          final KillbillHealthcheck killbillHealthcheck,
+                         final ProfilingHistograms profilingHistograms,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
@@ -147,6 +153,7 @@ public class AdminResource extends JaxRsResourceBase {
         this.persistentBus = persistentBus;
         this.notificationQueueService = notificationQueueService;
         this.killbillHealthcheck = killbillHealthcheck;
+        this.profilingHistograms = profilingHistograms;
     }
 
     @GET
@@ -390,15 +397,13 @@ public class AdminResource extends JaxRsResourceBase {
         // getting Tenant Record Id
         final Long tenantRecordId = recordIdApi.getRecordId(tenantContext.getTenantId(), ObjectType.TENANT, tenantContext);
 
-        final Function<String, Boolean> tenantKeysMatcher = key -> key != null && key.endsWith("::" + tenantRecordId);
-
         // clear tenant-record-id cache by tenantId
         final CacheController<String, Long> tenantRecordIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_RECORD_ID);
         tenantRecordIdCacheController.remove(currentTenant.getId().toString());
 
         // clear tenant-payment-state-machine-config cache by tenantRecordId
         final CacheController<String, Object> tenantPaymentStateMachineConfigCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_PAYMENT_STATE_MACHINE_CONFIG);
-        tenantPaymentStateMachineConfigCacheController.remove(tenantKeysMatcher);
+        tenantPaymentStateMachineConfigCacheController.removeByTenantRecordId(tenantRecordId);
 
         // clear tenant cache by tenantApiKey
         final CacheController<String, Tenant> tenantCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT);
@@ -406,7 +411,7 @@ public class AdminResource extends JaxRsResourceBase {
 
         // clear tenant-kv cache by tenantRecordId
         final CacheController<String, String> tenantKVCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_KV);
-        tenantKVCacheController.remove(tenantKeysMatcher);
+        tenantKVCacheController.removeByTenantRecordId(tenantRecordId);
 
         // clear tenant-config cache by tenantRecordId
         final CacheController<Long, PerTenantConfig> tenantConfigCacheController = cacheControllerDispatcher.getCacheController(CacheType.TENANT_CONFIG);
@@ -443,6 +448,24 @@ public class AdminResource extends JaxRsResourceBase {
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    @GET
+    @Path("/" + PROFILING)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Retrieve the latency histograms aggregated by the server side profiling for the current tenant", response = ProfilingHistogramJson.class, responseContainer = "List")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation")})
+    public Response getProfilingHistograms(@javax.ws.rs.core.Context final HttpServletRequest request) {
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+
+        final List<ProfilingHistogramJson> result = profilingHistograms.getHistograms()
+                                                                       .entrySet()
+                                                                       .stream()
+                                                                       .filter(entry -> Objects.equals(entry.getKey().getTenantId(), tenantContext.getTenantId()))
+                                                                       .map(entry -> new ProfilingHistogramJson(entry.getKey().getName(), entry.getValue()))
+                                                                       .sorted(Comparator.comparing(ProfilingHistogramJson::getName))
+                                                                       .collect(Collectors.toUnmodifiableList());
+        return Response.status(Status.OK).entity(result).build();
+    }
+
     private Iterable<NotificationEventWithMetadata<NotificationEvent>> getNotifications(@Nullable final String queueName,
                                                                                         @Nullable final String serviceName,
                                                                                         final boolean includeInProcessing,
@@ -64,6 +64,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.audit.AuditInternalApi;
 import org.killbill.billing.catalog.api.BillingActionPolicy;
 import org.killbill.billing.catalog.api.PlanPhasePriceOverride;
 import org.killbill.billing.catalog.api.PlanPhaseSpecifier;
@@ -137,6 +138,7 @@ public class InvoiceResource extends JaxRsResourceBase {
 
     private final InvoiceUserApi invoiceApi;
     private final TenantUserApi tenantApi;
+    private final AuditInternalApi auditInternalApi;
     private final Locale defaultLocale;
 
     @Inject
@@ -149,11 +151,13 @@ public class InvoiceResource extends JaxRsResourceBase {
                            final TagUserApi tagUserApi,
                            final CustomFieldUserApi customFieldUserApi,
                            final AuditUserApi auditUserApi,
+                           final AuditInternalApi auditInternalApi,
                            final TenantUserApi tenantApi,
                            final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.invoiceApi = invoiceApi;
         this.tenantApi = tenantApi;
+        this.auditInternalApi = auditInternalApi;
         this.defaultLocale = Locale.getDefault();
     }
 
@@ -168,12 +172,20 @@ public class InvoiceResource extends JaxRsResourceBase {
                                                      final AuditMode auditMode,
                                                      final TenantContext tenantContext) throws InvoiceApiException {
         final List<InvoiceItem> childInvoiceItems = withChildrenItems ? invoiceApi.getInvoiceItemsByParentInvoice(invoice.getId(), tenantContext) : null;
-        final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(invoice.getAccountId(), auditMode.getLevel(), tenantContext);
+        final AccountAuditLogs accountAuditLogs = getInvoiceAuditLogs(invoice, auditMode, tenantContext);
 
         final InvoiceJson json = new InvoiceJson(invoice, childInvoiceItems, accountAuditLogs);
         return Response.status(Status.OK).entity(json).build();
     }
 
+    // Only load the audit logs of the invoice and its items, not the ones of the whole account
+    private AccountAuditLogs getInvoiceAuditLogs(final Invoice invoice, final AuditMode auditMode, final TenantContext tenantContext) {
+        final Map<ObjectType, List<UUID>> objectIdsPerObjectType = new HashMap<>();
+        objectIdsPerObjectType.put(ObjectType.INVOICE, List.of(invoice.getId()));
+        objectIdsPerObjectType.put(ObjectType.INVOICE_ITEM, invoice.getInvoiceItems().stream().map(InvoiceItem::getId).collect(Collectors.toUnmodifiableList()));
+        return auditInternalApi.getAuditLogsForObjects(invoice.getAccountId(), objectIdsPerObjectType, auditMode.getLevel(), context.createInternalTenantContext(invoice.getAccountId(), tenantContext));
+    }
+
 
     @TimedResource
     @GET
@@ -214,7 +226,7 @@ public class InvoiceResource extends JaxRsResourceBase {
         while (it.hasNext()) {
             final Invoice invoice  = it.next();
             final List<InvoiceItem> childInvoiceItems = withChildrenItems ? invoiceApi.getInvoiceItemsByParentInvoice(invoice.getId(), tenantContext) : null;
-            final AccountAuditLogs accountAuditLogs = auditUserApi.getAccountAuditLogs(invoice.getAccountId(), auditMode.getLevel(), tenantContext);
+            final AccountAuditLogs accountAuditLogs = getInvoiceAuditLogs(invoice, auditMode, tenantContext);
             result.add(new InvoiceJson(invoice, childInvoiceItems, accountAuditLogs));
         }
         if (result.isEmpty()) {
@@ -313,9 +325,10 @@ public class InvoiceResource extends JaxRsResourceBase {
     @ApiResponses(value = {})
     public Response getInvoices(@QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                 @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                 @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                 @javax.ws.rs.core.Context final HttpServletRequest request) throws InvoiceApiException {
-        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(cursor, request);
         final Pagination<Invoice> invoices = invoiceApi.getInvoices(offset, limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "getInvoices", invoices.getNextOffset(), limit, Map.of(QUERY_AUDIT, auditMode.getLevel().toString()), Collections.emptyMap());
 
@@ -331,9 +344,10 @@ public class InvoiceResource extends JaxRsResourceBase {
     public Response searchInvoices(@PathParam("searchKey") final String searchKey,
                                    @QueryParam(QUERY_SEARCH_OFFSET) @DefaultValue("0") final Long offset,
                                    @QueryParam(QUERY_SEARCH_LIMIT) @DefaultValue("100") final Long limit,
+                                   @QueryParam(QUERY_PAGINATION_CURSOR) final String cursor,
                                    @QueryParam(QUERY_AUDIT) @DefaultValue("NONE") final AuditMode auditMode,
                                    @javax.ws.rs.core.Context final HttpServletRequest request) throws SubscriptionApiException {
-        final TenantContext tenantContext = context.createTenantContextNoAccountId(request);
+        final TenantContext tenantContext = context.createTenantContextNoAccountId(cursor, request);
         final Pagination<Invoice> invoices = invoiceApi.searchInvoices(searchKey, offset, limit, tenantContext);
         final URI nextPageUri = uriBuilder.nextPage(InvoiceResource.class, "searchInvoices", invoices.getNextOffset(), limit, Map.of(QUERY_AUDIT, auditMode.getLevel().toString()), Map.of("searchKey", searchKey));
 
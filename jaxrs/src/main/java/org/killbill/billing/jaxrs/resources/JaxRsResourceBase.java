@@ -44,6 +44,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.DateTime;
@@ -103,6 +104,7 @@ import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.customfield.CustomField;
 import org.killbill.billing.util.customfield.StringCustomField;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.jackson.ObjectMapper;
@@ -348,13 +350,18 @@ public abstract class JaxRsResourceBase implements JaxrsResource {
             }
         };
 
+        // Listings supporting it also hand out a cursor: the next page is then served with a seek query (see PaginationCursor)
+        final String nextCursor = entities instanceof DefaultPagination ? ((DefaultPagination<E>) entities).getNextCursor() : null;
+        final URI nextPageUriWithCursor = nextCursor == null || nextPageUri == null ? nextPageUri : UriBuilder.fromUri(nextPageUri).replaceQueryParam(QUERY_PAGINATION_CURSOR, nextCursor).build();
+
         return Response.status(Status.OK)
                        .entity(json)
                        .header(HDR_PAGINATION_CURRENT_OFFSET, entities.getCurrentOffset())
                        .header(HDR_PAGINATION_NEXT_OFFSET, entities.getNextOffset())
                        .header(HDR_PAGINATION_TOTAL_NB_RECORDS, entities.getTotalNbRecords())
                        .header(HDR_PAGINATION_MAX_NB_RECORDS, entities.getMaxNbRecords())
-                       .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUri)
+                       .header(HDR_PAGINATION_NEXT_PAGE_URI, nextPageUriWithCursor)
+                       .header(HDR_PAGINATION_NEXT_CURSOR, nextCursor)
                        .build();
     }
 
@@ -27,6 +27,7 @@ public interface JaxrsResource {
     String PREFIX = API_PREFIX + API_VERSION + API_POSTFIX;
 
     String TIMELINE = "timeline";
+    String STREAM = "stream";
     String REGISTER_NOTIFICATION_CALLBACK = "registerNotificationCallback";
     String UPLOAD_PLUGIN_CONFIG = "uploadPluginConfig";
     String UPLOAD_PER_TENANT_CONFIG = "uploadPerTenantConfig";
@@ -52,6 +53,7 @@ public interface JaxrsResource {
     String HDR_PAGINATION_TOTAL_NB_RECORDS = "X-Killbill-Pagination-TotalNbRecords";
     String HDR_PAGINATION_MAX_NB_RECORDS = "X-Killbill-Pagination-MaxNbRecords";
     String HDR_PAGINATION_NEXT_PAGE_URI = "X-Killbill-Pagination-NextPageUri";
+    String HDR_PAGINATION_NEXT_CURSOR = "X-Killbill-Pagination-NextCursor";
 
     /*
      * Patterns
@@ -85,6 +87,7 @@ public interface JaxrsResource {
     String QUERY_ENTITLEMENT_POLICY = "entitlementPolicy";
     String QUERY_SEARCH_OFFSET = "offset";
     String QUERY_SEARCH_LIMIT = "limit";
+    String QUERY_PAGINATION_CURSOR = "cursor";
     String QUERY_ENTITLEMENT_EFFECTIVE_FROM_DT = "effectiveFromDate";
     String QUERY_FORCE_NEW_BCD_WITH_PAST_EFFECTIVE_DATE = "forceNewBcdWithPastEffectiveDate";
 
@@ -303,6 +306,7 @@ public interface JaxrsResource {
 
     String CACHE = "cache";
     String HEALTHCHECK = "healthcheck";
+    String PROFILING = "profiling";
 
     String QUERY_INCLUDED_DELETED = "includedDeleted";
     String AUDIT_LOG = "auditLogs";
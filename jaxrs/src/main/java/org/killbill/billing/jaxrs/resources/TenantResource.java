@@ -53,6 +53,7 @@ import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.tenant.api.ReservedTenantKey;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.tenant.api.TenantApiException;
 import org.killbill.billing.tenant.api.TenantData;
@@ -67,6 +68,7 @@ import org.killbill.billing.util.callcontext.TenantContext;
 import org.killbill.billing.util.callcontext.UserType;
 import org.killbill.clock.Clock;
 import org.killbill.commons.metrics.api.annotation.TimedResource;
+import org.killbill.commons.utils.Preconditions;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -356,6 +358,7 @@ public class TenantResource extends JaxRsResourceBase {
                                @HeaderParam(HDR_COMMENT) final String comment,
                                @javax.ws.rs.core.Context final HttpServletRequest request,
                                @javax.ws.rs.core.Context  final UriInfo uriInfo) throws TenantApiException {
+        verifyNotReservedKey(key);
         final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
         tenantApi.addTenantKeyValue(key, value, callContext);
         return uriBuilder.buildResponse(uriInfo, TenantResource.class, "getUserKeyValue", key, request);
@@ -387,11 +390,16 @@ public class TenantResource extends JaxRsResourceBase {
                                               @HeaderParam(HDR_REASON) final String reason,
                                               @HeaderParam(HDR_COMMENT) final String comment,
                                               @javax.ws.rs.core.Context final HttpServletRequest request) throws TenantApiException {
+        verifyNotReservedKey(key);
         final CallContext callContext = context.createCallContextNoAccountId(createdBy, reason, comment, request);
         tenantApi.deleteTenantKey(key, callContext);
         return Response.status(Status.NO_CONTENT).build();
     }
 
+    private void verifyNotReservedKey(final String key) {
+        Preconditions.checkArgument(!ReservedTenantKey.isReserved(key), "Key %s is reserved", key);
+    }
+
 
 
     private Response insertTenantKey(final TenantKey key,
@@ -17,9 +17,13 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
@@ -38,8 +42,10 @@ import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 
 import org.joda.time.DateTime;
+import org.killbill.billing.ErrorCode;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
 import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.entitlement.api.EntitlementApi;
 import org.killbill.billing.entitlement.api.EntitlementApiException;
@@ -47,15 +53,17 @@ import org.killbill.billing.jaxrs.json.RolledUpUsageJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UnitUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UsageRecordJson;
+import org.killbill.billing.jaxrs.json.UsageRecordResultJson;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
 import org.killbill.billing.payment.api.InvoicePaymentApi;
 import org.killbill.billing.payment.api.PaymentApi;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.usage.RolledUpUsageRecordResult;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
 import org.killbill.billing.usage.api.RolledUpUsage;
 import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
-import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.api.CustomFieldUserApi;
 import org.killbill.billing.util.api.TagUserApi;
@@ -79,8 +87,9 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 @Api(value = JaxrsResource.USAGES_PATH, description = "Operations on usage", tags="Usage")
 public class UsageResource extends JaxRsResourceBase {
 
-    private final UsageUserApi usageUserApi;
+    private final BulkUsageUserApi usageUserApi;
     private final EntitlementApi entitlementApi;
+    private final EntitlementInternalApi entitlementInternalApi;
 
     @Inject
     public UsageResource(final JaxrsUriBuilder uriBuilder,
@@ -88,15 +97,17 @@ public class UsageResource extends JaxRsResourceBase {
                          final CustomFieldUserApi customFieldUserApi,
                          final AuditUserApi auditUserApi,
                          final AccountUserApi accountUserApi,
-                         final UsageUserApi usageUserApi,
+                         final BulkUsageUserApi usageUserApi,
                          final PaymentApi paymentApi,
                          final InvoicePaymentApi invoicePaymentApi,
                          final EntitlementApi entitlementApi,
+                         final EntitlementInternalApi entitlementInternalApi,
                          final Clock clock,
                          final Context context) {
         super(uriBuilder, tagUserApi, customFieldUserApi, auditUserApi, accountUserApi, paymentApi, invoicePaymentApi, null, clock, context);
         this.usageUserApi = usageUserApi;
         this.entitlementApi = entitlementApi;
+        this.entitlementInternalApi = entitlementInternalApi;
     }
 
     @TimedResource
@@ -114,20 +125,7 @@ public class UsageResource extends JaxRsResourceBase {
                                 @javax.ws.rs.core.Context final UriInfo uriInfo) throws EntitlementApiException,
                                                                                         AccountApiException,
                                                                                         UsageApiException {
-        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
-        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
-                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
-        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty(), "json.getUnitUsageRecords() is empty");
-
-        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
-            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
-            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
-                                        "UnitUsageRecordJson usageRecords must have at least one element.");
-            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
-                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
-                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
-            }
-        }
+        verifySubscriptionUsageRecordJson(json);
         final CallContext callContextNoAccount = context.createCallContextNoAccountId(createdBy, reason, comment, request);
         // Verify subscription exists..
         final Entitlement entitlement = entitlementApi.getEntitlementForId(json.getSubscriptionId(), false, callContextNoAccount);
@@ -145,6 +143,83 @@ public class UsageResource extends JaxRsResourceBase {
         return Response.status(Status.CREATED).build();
     }
 
+    @TimedResource
+    @POST
+    @Path("/bulk")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Record usage for multiple subscriptions", response = UsageRecordResultJson.class, responseContainer = "List")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Successful operation, see the individual results for rejected records"),
+                           @ApiResponse(code = 400, message = "Invalid usage records supplied")})
+    public Response recordUsageInBulk(final List<SubscriptionUsageRecordJson> json,
+                                      @HeaderParam(HDR_CREATED_BY) final String createdBy,
+                                      @HeaderParam(HDR_REASON) final String reason,
+                                      @HeaderParam(HDR_COMMENT) final String comment,
+                                      @javax.ws.rs.core.Context final HttpServletRequest request) throws EntitlementApiException {
+        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
+        Preconditions.checkArgument(!json.isEmpty(), "SubscriptionUsageRecordJson body is empty");
+
+        for (final SubscriptionUsageRecordJson subscriptionUsageRecordJson : json) {
+            verifySubscriptionUsageRecordJson(subscriptionUsageRecordJson);
+        }
+
+        final CallContext callContextNoAccount = context.createCallContextNoAccountId(createdBy, reason, comment, request);
+
+        // Same check as recordUsage, with the entitlements of all the records resolved in one call
+        final Set<UUID> subscriptionIds = new HashSet<>();
+        for (final SubscriptionUsageRecordJson subscriptionUsageRecordJson : json) {
+            subscriptionIds.add(subscriptionUsageRecordJson.getSubscriptionId());
+        }
+        final Map<UUID, Entitlement> entitlements = entitlementInternalApi.getEntitlementsForIds(subscriptionIds, context.createInternalTenantContextWithoutAccountRecordId(callContextNoAccount));
+
+        final RolledUpUsageRecordResult[] rejected = new RolledUpUsageRecordResult[json.size()];
+        final List<SubscriptionUsageRecord> records = new ArrayList<>(json.size());
+        for (int i = 0; i < json.size(); i++) {
+            final SubscriptionUsageRecordJson subscriptionUsageRecordJson = json.get(i);
+            final UUID subscriptionId = subscriptionUsageRecordJson.getSubscriptionId();
+            final Entitlement entitlement = entitlements.get(subscriptionId);
+            if (entitlement == null) {
+                rejected[i] = new RolledUpUsageRecordResult(subscriptionId, subscriptionUsageRecordJson.getTrackingId(), new UsageApiException(ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, subscriptionId));
+                continue;
+            }
+            if (entitlement.getEffectiveEndDate() != null) {
+                final DateTime highestRecordDate = getHighestRecordDate(subscriptionUsageRecordJson.getUnitUsageRecords());
+                if (entitlement.getEffectiveEndDate().compareTo(highestRecordDate) < 0) {
+                    rejected[i] = new RolledUpUsageRecordResult(subscriptionId, subscriptionUsageRecordJson.getTrackingId(), new UsageApiException(ErrorCode.SUB_INVALID_REQUESTED_DATE, highestRecordDate, entitlement.getEffectiveEndDate()));
+                    continue;
+                }
+            }
+            records.add(subscriptionUsageRecordJson.toSubscriptionUsageRecord());
+        }
+
+        // Records can span multiple accounts: tracking ids are validated in bulk by the usage module
+        final List<RolledUpUsageRecordResult> recorded = records.isEmpty() ? List.of() : usageUserApi.recordRolledUpUsage(records, callContextNoAccount);
+
+        final List<UsageRecordResultJson> result = new ArrayList<>(json.size());
+        int recordedIdx = 0;
+        for (final RolledUpUsageRecordResult rejectedResult : rejected) {
+            result.add(new UsageRecordResultJson(rejectedResult != null ? rejectedResult : recorded.get(recordedIdx++)));
+        }
+        return Response.status(Status.OK).entity(result).build();
+    }
+
+    private void verifySubscriptionUsageRecordJson(final SubscriptionUsageRecordJson json) {
+        verifyNonNullOrEmpty(json, "SubscriptionUsageRecordJson body should be specified");
+        verifyNonNullOrEmpty(json.getSubscriptionId(), "SubscriptionUsageRecordJson subscriptionId needs to be set",
+                             json.getUnitUsageRecords(), "SubscriptionUsageRecordJson unitUsageRecords needs to be set");
+        Preconditions.checkArgument(!json.getUnitUsageRecords().isEmpty(), "json.getUnitUsageRecords() is empty");
+
+        for (final UnitUsageRecordJson unitUsageRecordJson : json.getUnitUsageRecords()) {
+            verifyNonNullOrEmpty(unitUsageRecordJson.getUnitType(), "UnitUsageRecordJson unitType need to be set");
+            Preconditions.checkArgument(Iterables.size(unitUsageRecordJson.getUsageRecords()) > 0,
+                                        "UnitUsageRecordJson usageRecords must have at least one element.");
+            for (final UsageRecordJson usageRecordJson : unitUsageRecordJson.getUsageRecords()) {
+                verifyNonNull(usageRecordJson.getAmount(), "UsageRecordJson amount needs to be set");
+                verifyNonNull(usageRecordJson.getRecordDate(), "UsageRecordJson recordDate needs to be set");
+            }
+        }
+    }
+
     @VisibleForTesting
     DateTime getHighestRecordDate(final List<UnitUsageRecordJson> records) {
         return records.stream()
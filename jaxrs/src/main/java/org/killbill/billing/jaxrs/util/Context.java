@@ -20,10 +20,12 @@ package org.killbill.billing.jaxrs.util;
 
 import java.util.UUID;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.servlet.ServletRequest;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.jaxrs.resources.JaxrsResource;
 import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.commons.utils.Preconditions;
@@ -78,15 +80,24 @@ public class Context {
         return createTenantContextWithAccountId(null, request);
     }
 
+    // For listings: the cursor handed out with the previous page, if any, is passed down to the DAOs (see PaginationCursor)
+    public TenantContext createTenantContextNoAccountId(@Nullable final String paginationCursor, final ServletRequest request) {
+        return createTenantContextWithAccountId(null, paginationCursor, request);
+    }
+
     public TenantContext createTenantContextWithAccountId(final UUID accountId, final ServletRequest request) {
+        return createTenantContextWithAccountId(accountId, null, request);
+    }
+
+    public TenantContext createTenantContextWithAccountId(final UUID accountId, @Nullable final String paginationCursor, final ServletRequest request) {
         final TenantContext tenantContext;
 
         final Tenant tenant = getTenantFromRequest(request);
         if (tenant == null) {
             // Multi-tenancy may not have been configured - default to "default" tenant (see InternalCallContextFactory)
-            tenantContext = contextFactory.createTenantContext(accountId, null);
+            tenantContext = contextFactory.createTenantContext(accountId, null, paginationCursor);
         } else {
-            tenantContext = contextFactory.createTenantContext(accountId, tenant.getId());
+            tenantContext = contextFactory.createTenantContext(accountId, tenant.getId(), paginationCursor);
         }
 
         populateMDCContext(tenantContext);
@@ -119,6 +130,14 @@ public class Context {
         }
     }
 
+    public InternalTenantContext createInternalTenantContext(final UUID accountId, final TenantContext tenantContext) {
+        return internalCallContextFactory.createInternalTenantContext(accountId, tenantContext);
+    }
+
+    public InternalTenantContext createInternalTenantContextWithoutAccountRecordId(final TenantContext tenantContext) {
+        return internalCallContextFactory.createInternalTenantContextWithoutAccountRecordId(tenantContext);
+    }
+
     private void populateMDCContext(final CallContext callContext) {
         // InternalCallContextFactory will do it for us
         internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(callContext);
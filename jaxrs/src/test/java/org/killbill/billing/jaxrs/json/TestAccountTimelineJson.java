@@ -16,7 +16,57 @@
 
 package org.killbill.billing.jaxrs.json;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.invoice.api.Invoice;
+import org.killbill.billing.invoice.api.InvoiceStatus;
 import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.mock.MockAccountBuilder;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 
 public class TestAccountTimelineJson extends JaxrsTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testStreamingMatchesJson() throws Exception {
+        final Account account = new MockAccountBuilder(UUID.randomUUID()).name(UUID.randomUUID().toString())
+                                                                         .externalKey(UUID.randomUUID().toString())
+                                                                         .currency(Currency.USD)
+                                                                         .build();
+
+        final Invoice invoice = Mockito.mock(Invoice.class);
+        Mockito.when(invoice.getId()).thenReturn(UUID.randomUUID());
+        Mockito.when(invoice.getAccountId()).thenReturn(account.getId());
+        Mockito.when(invoice.getInvoiceNumber()).thenReturn(1);
+        Mockito.when(invoice.getInvoiceDate()).thenReturn(new LocalDate(2023, 1, 1));
+        Mockito.when(invoice.getTargetDate()).thenReturn(new LocalDate(2023, 1, 1));
+        Mockito.when(invoice.getCurrency()).thenReturn(Currency.USD);
+        Mockito.when(invoice.getStatus()).thenReturn(InvoiceStatus.COMMITTED);
+        Mockito.when(invoice.getChargedAmount()).thenReturn(BigDecimal.TEN);
+        Mockito.when(invoice.getBalance()).thenReturn(BigDecimal.TEN);
+        Mockito.when(invoice.getInvoiceItems()).thenReturn(Collections.emptyList());
+        final List<Invoice> invoices = List.of(invoice);
+
+        final AccountAuditLogs accountAuditLogs = Mockito.mock(AccountAuditLogs.class);
+
+        final AccountTimelineJson accountTimelineJson = new AccountTimelineJson(account, invoices, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), accountAuditLogs);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final JsonGenerator generator = mapper.getFactory().createGenerator(output);
+        AccountTimelineJson.write(generator, account, invoices, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), accountAuditLogs);
+        generator.close();
+
+        Assert.assertEquals(mapper.readTree(output.toByteArray()), mapper.readTree(mapper.writeValueAsBytes(accountTimelineJson)));
+    }
 }
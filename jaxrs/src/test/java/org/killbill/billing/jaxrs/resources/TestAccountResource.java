@@ -0,0 +1,295 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.jaxrs.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountUserApi;
+import org.killbill.billing.audit.AuditInternalApi;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.entitlement.api.Subscription;
+import org.killbill.billing.entitlement.api.SubscriptionApi;
+import org.killbill.billing.entitlement.api.SubscriptionBundle;
+import org.killbill.billing.entitlement.api.SubscriptionBundleTimeline;
+import org.killbill.billing.entitlement.api.SubscriptionEvent;
+import org.killbill.billing.entitlement.api.SubscriptionEventType;
+import org.killbill.billing.invoice.api.InvoicePaymentApi;
+import org.killbill.billing.invoice.api.InvoiceUserApi;
+import org.killbill.billing.jaxrs.JaxrsExecutors;
+import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.AccountTimelineJson;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.jaxrs.util.JaxrsUriBuilder;
+import org.killbill.billing.mock.MockAccountBuilder;
+import org.killbill.billing.payment.api.PaymentApi;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.api.AuditUserApi;
+import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.JaxrsConfig;
+import org.killbill.billing.util.entity.DefaultPagination;
+import org.mockito.ArgumentCaptor;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestAccountResource extends JaxrsTestSuiteNoDB {
+
+    private HttpServletRequest servletRequest;
+    private TenantContext tenantContext;
+    private AccountUserApi accountUserApi;
+    private InvoiceUserApi invoiceUserApi;
+    private InvoicePaymentApi invoicePaymentApi;
+    private PaymentApi paymentApi;
+    private SubscriptionApi subscriptionApi;
+    private AuditUserApi auditUserApi;
+    private AuditInternalApi auditInternalApi;
+    private ExecutorService executor;
+    private JaxrsExecutors jaxrsExecutors;
+    private JaxrsConfig jaxrsConfig;
+    private Context context;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() {
+        if (hasFailed()) {
+            return;
+        }
+        servletRequest = mock(HttpServletRequest.class);
+        tenantContext = mock(TenantContext.class);
+        accountUserApi = mock(AccountUserApi.class);
+        invoiceUserApi = mock(InvoiceUserApi.class);
+        invoicePaymentApi = mock(InvoicePaymentApi.class);
+        paymentApi = mock(PaymentApi.class);
+        subscriptionApi = mock(SubscriptionApi.class);
+        auditUserApi = mock(AuditUserApi.class);
+        auditInternalApi = mock(AuditInternalApi.class);
+        executor = Executors.newFixedThreadPool(5);
+        jaxrsExecutors = mock(JaxrsExecutors.class);
+        when(jaxrsExecutors.getJaxrsExecutorService()).thenReturn(executor);
+        jaxrsConfig = mock(JaxrsConfig.class);
+        when(jaxrsConfig.getJaxrsTimeout()).thenReturn(new TimeSpan("30s"));
+        context = mock(Context.class);
+        when(context.createTenantContextWithAccountId(any(), any())).thenReturn(tenantContext);
+        when(context.createTenantContextWithAccountId(any(), any(), any())).thenReturn(tenantContext);
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private AccountResource createAccountResource() {
+        return new AccountResource(mock(JaxrsUriBuilder.class),
+                                   accountUserApi,
+                                   invoiceUserApi,
+                                   invoicePaymentApi,
+                                   paymentApi,
+                                   null,
+                                   auditUserApi,
+                                   auditInternalApi,
+                                   null,
+                                   subscriptionApi,
+                                   null,
+                                   null,
+                                   jaxrsExecutors,
+                                   jaxrsConfig,
+                                   context,
+                                   null,
+                                   null);
+    }
+
+    @Test(groups = "fast")
+    public void testGetAccountBundlesPaginatedOnlyLoadsPageAuditLogs() throws Exception {
+        final UUID accountId = UUIDs.randomUUID();
+        final SubscriptionEvent subscriptionEvent = mockSubscriptionEvent(SubscriptionEventType.START_BILLING);
+        final SubscriptionEvent blockingStateEvent = mockSubscriptionEvent(SubscriptionEventType.SERVICE_STATE_CHANGE);
+        final Subscription subscription = mock(Subscription.class);
+        final UUID subscriptionId = UUIDs.randomUUID();
+        when(subscription.getId()).thenReturn(subscriptionId);
+        when(subscription.getSubscriptionEvents()).thenReturn(List.of(subscriptionEvent, blockingStateEvent));
+        final SubscriptionBundle bundle1 = mockBundle(List.of(subscription), List.of(subscriptionEvent, blockingStateEvent));
+        final SubscriptionBundle bundle2 = mockBundle(List.of(), List.of());
+
+        when(subscriptionApi.getSubscriptionBundlesForAccountId(eq(accountId), eq(0L), eq(2L), any())).thenReturn(new DefaultPagination<>(0L, 2L, 10L, 10L, List.of(bundle1, bundle2).iterator()));
+        when(auditInternalApi.getAuditLogsForObjects(any(), any(), any(), any())).thenReturn(mock(AccountAuditLogs.class));
+
+        final AccountResource resource = createAccountResource();
+        resource.getAccountBundlesPaginated(accountId, 0L, 2L, null, new AuditMode("FULL"), servletRequest);
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Map<ObjectType, ? extends Collection<UUID>>> objectIdsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(auditInternalApi, times(1)).getAuditLogsForObjects(eq(accountId), objectIdsCaptor.capture(), eq(AuditLevel.FULL), any());
+        verify(auditUserApi, never()).getAccountAuditLogs(any(), any(), any());
+
+        final Map<ObjectType, ? extends Collection<UUID>> objectIds = objectIdsCaptor.getValue();
+        Assert.assertEquals(objectIds.size(), 4);
+        Assert.assertEquals(Set.copyOf(objectIds.get(ObjectType.BUNDLE)), Set.of(bundle1.getId(), bundle2.getId()));
+        Assert.assertEquals(Set.copyOf(objectIds.get(ObjectType.SUBSCRIPTION)), Set.of(subscriptionId));
+        Assert.assertEquals(Set.copyOf(objectIds.get(ObjectType.SUBSCRIPTION_EVENT)), Set.of(subscriptionEvent.getId()));
+        Assert.assertEquals(Set.copyOf(objectIds.get(ObjectType.BLOCKING_STATES)), Set.of(blockingStateEvent.getId()));
+    }
+
+    @Test(groups = "fast")
+    public void testGetAccountTimelineStreamWritesSectionsAsTheyComplete() throws Exception {
+        final Account account = mockTimelineAccount();
+        final AccountAuditLogs accountAuditLogs = mock(AccountAuditLogs.class);
+        when(auditUserApi.getAccountAuditLogs(eq(account.getId()), any(), any())).thenReturn(accountAuditLogs);
+        when(subscriptionApi.getSubscriptionBundlesForAccountId(eq(account.getId()), any())).thenReturn(Collections.emptyList());
+        when(invoiceUserApi.getInvoicesByAccount(eq(account.getId()), eq(false), eq(false), eq(true), any())).thenReturn(Collections.emptyList());
+        when(invoicePaymentApi.getInvoicePaymentsByAccount(eq(account.getId()), any())).thenReturn(Collections.emptyList());
+        // Payments are only available once the other sections have been written out
+        final CountDownLatch paymentsLatch = new CountDownLatch(1);
+        when(paymentApi.getAccountPayments(eq(account.getId()), eq(false), eq(false), any(), any())).thenAnswer(invocation -> {
+            paymentsLatch.await();
+            return Collections.emptyList();
+        });
+
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        createAccountResource().getAccountTimelineStream(account.getId(), new AuditMode("NONE"), servletRequest, asyncResponse);
+        final Response response = awaitResume(asyncResponse);
+        Assert.assertEquals(response.getStatus(), Status.OK.getStatusCode());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final Thread writer = new Thread(() -> {
+            try {
+                ((StreamingOutput) response.getEntity()).write(output);
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!output.toString().contains("\"invoices\"") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(output.toString().contains("\"bundles\""));
+        Assert.assertTrue(output.toString().contains("\"invoices\""));
+        Assert.assertFalse(output.toString().contains("\"payments\""));
+
+        paymentsLatch.countDown();
+        writer.join(10000);
+        Assert.assertFalse(writer.isAlive());
+
+        final AccountTimelineJson expected = new AccountTimelineJson(account, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), accountAuditLogs);
+        Assert.assertEquals(mapper.readTree(output.toByteArray()), mapper.readTree(mapper.writeValueAsBytes(expected)));
+    }
+
+    @Test(groups = "fast")
+    public void testGetAccountTimelineStreamInterruptsRetrievalsOnTimeout() throws Exception {
+        final Account account = mockTimelineAccount();
+        when(subscriptionApi.getSubscriptionBundlesForAccountId(eq(account.getId()), any())).thenReturn(Collections.emptyList());
+        when(invoiceUserApi.getInvoicesByAccount(eq(account.getId()), eq(false), eq(false), eq(true), any())).thenReturn(Collections.emptyList());
+        when(invoicePaymentApi.getInvoicePaymentsByAccount(eq(account.getId()), any())).thenReturn(Collections.emptyList());
+        // Retrievals which never complete on their own
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch interrupted = new CountDownLatch(2);
+        when(paymentApi.getAccountPayments(eq(account.getId()), eq(false), eq(false), any(), any())).thenAnswer(invocation -> awaitInterruption(started, interrupted));
+        when(auditUserApi.getAccountAuditLogs(eq(account.getId()), any(), any())).thenAnswer(invocation -> awaitInterruption(started, interrupted));
+
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        createAccountResource().getAccountTimelineStream(account.getId(), new AuditMode("NONE"), servletRequest, asyncResponse);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        final ArgumentCaptor<TimeoutHandler> timeoutHandlerCaptor = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(timeoutHandlerCaptor.capture());
+        timeoutHandlerCaptor.getValue().handleTimeout(asyncResponse);
+
+        Assert.assertEquals(awaitResume(asyncResponse).getStatus(), Status.SERVICE_UNAVAILABLE.getStatusCode());
+        // The DAO work in progress has been interrupted
+        Assert.assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    private Account mockTimelineAccount() throws Exception {
+        final Account account = new MockAccountBuilder(UUIDs.randomUUID()).name(UUIDs.randomUUID().toString())
+                                                                          .externalKey(UUIDs.randomUUID().toString())
+                                                                          .currency(Currency.USD)
+                                                                          .build();
+        when(accountUserApi.getAccountById(eq(account.getId()), any())).thenReturn(account);
+        return account;
+    }
+
+    private Object awaitInterruption(final CountDownLatch started, final CountDownLatch interrupted) throws InterruptedException {
+        started.countDown();
+        try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        } catch (final InterruptedException e) {
+            interrupted.countDown();
+            throw e;
+        }
+        return null;
+    }
+
+    private Response awaitResume(final AsyncResponse asyncResponse) {
+        final ArgumentCaptor<Object> responseCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse, timeout(10000)).resume(responseCaptor.capture());
+        return (Response) responseCaptor.getValue();
+    }
+
+    private SubscriptionBundle mockBundle(final List<Subscription> subscriptions, final List<SubscriptionEvent> events) {
+        final SubscriptionBundle bundle = mock(SubscriptionBundle.class);
+        final UUID bundleId = UUIDs.randomUUID();
+        when(bundle.getId()).thenReturn(bundleId);
+        when(bundle.getSubscriptions()).thenReturn(subscriptions);
+        final SubscriptionBundleTimeline timeline = mock(SubscriptionBundleTimeline.class);
+        when(timeline.getSubscriptionEvents()).thenReturn(events);
+        when(bundle.getTimeline()).thenReturn(timeline);
+        return bundle;
+    }
+
+    private SubscriptionEvent mockSubscriptionEvent(final SubscriptionEventType subscriptionEventType) {
+        final SubscriptionEvent subscriptionEvent = mock(SubscriptionEvent.class);
+        final UUID subscriptionEventId = UUIDs.randomUUID();
+        when(subscriptionEvent.getId()).thenReturn(subscriptionEventId);
+        when(subscriptionEvent.getSubscriptionEventType()).thenReturn(subscriptionEventType);
+        return subscriptionEvent;
+    }
+}
@@ -17,23 +17,35 @@
 
 package org.killbill.billing.jaxrs.resources;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 import javax.servlet.http.HttpServletRequest;
 
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.audit.AuditInternalApi;
 import org.killbill.billing.invoice.api.Invoice;
 import org.killbill.billing.invoice.api.InvoiceApiException;
+import org.killbill.billing.invoice.api.InvoiceItem;
 import org.killbill.billing.invoice.api.InvoiceUserApi;
 import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
 import org.killbill.billing.jaxrs.util.Context;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.api.AuditLevel;
 import org.killbill.billing.util.api.AuditUserApi;
 import org.killbill.billing.util.audit.AccountAuditLogs;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -43,6 +55,7 @@ public class TestInvoiceResource extends JaxrsTestSuiteNoDB {
     private HttpServletRequest servletRequest;
     private InvoiceUserApi invoiceUserApi;
     private AuditUserApi auditUserApi;
+    private AuditInternalApi auditInternalApi;
     private Context context;
 
     @BeforeMethod(groups = "fast")
@@ -53,6 +66,7 @@ public class TestInvoiceResource extends JaxrsTestSuiteNoDB {
         servletRequest = mock(HttpServletRequest.class);
         invoiceUserApi = mock(InvoiceUserApi.class);
         auditUserApi = mock(AuditUserApi.class);
+        auditInternalApi = mock(AuditInternalApi.class);
         context = mock(Context.class);
     }
 
@@ -67,6 +81,7 @@ public class TestInvoiceResource extends JaxrsTestSuiteNoDB {
                 null,
                 null,
                 auditUserApi,
+                auditInternalApi,
                 null,
                 context
         );
@@ -75,62 +90,97 @@ public class TestInvoiceResource extends JaxrsTestSuiteNoDB {
 
     @Test(groups = "fast")
     public void testGetInvoice() throws InvoiceApiException {
-        final Invoice invoice = mock(Invoice.class);
+        final Invoice invoice = mockInvoice();
         final AccountAuditLogs accountAuditLogs = mock(AccountAuditLogs.class);
 
         when(invoiceUserApi.getInvoice(any(), any())).thenReturn(invoice);
-        when(auditUserApi.getAccountAuditLogs(any(), any(), any())).thenReturn(accountAuditLogs);
+        when(auditInternalApi.getAuditLogsForObjects(any(), any(), any(), any())).thenReturn(accountAuditLogs);
 
         final InvoiceResource resource = createInvoiceResource();
         resource.getInvoice(UUIDs.randomUUID(), false, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, never()).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(1)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(1)).getAuditLogsForObjects(any(), any(), any(), any());
 
         resource.getInvoice(UUIDs.randomUUID(), true, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, times(1)).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(2)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(2)).getAuditLogsForObjects(any(), any(), any(), any());
+        verify(auditUserApi, never()).getAccountAuditLogs(any(), any(), any());
     }
 
     @Test(groups = "fast")
     public void testGetInvoiceByNumber() throws InvoiceApiException {
-        final Invoice invoice = mock(Invoice.class);
+        final Invoice invoice = mockInvoice();
         final AccountAuditLogs accountAuditLogs = mock(AccountAuditLogs.class);
 
         when(invoiceUserApi.getInvoiceByNumber(any(), any())).thenReturn(invoice);
-        when(auditUserApi.getAccountAuditLogs(any(), any(), any())).thenReturn(accountAuditLogs);
+        when(auditInternalApi.getAuditLogsForObjects(any(), any(), any(), any())).thenReturn(accountAuditLogs);
 
         final InvoiceResource resource = createInvoiceResource();
         resource.getInvoiceByNumber(123, false, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, never()).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(1)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(1)).getAuditLogsForObjects(any(), any(), any(), any());
 
         resource.getInvoiceByNumber(123, true, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, times(1)).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(2)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(2)).getAuditLogsForObjects(any(), any(), any(), any());
+        verify(auditUserApi, never()).getAccountAuditLogs(any(), any(), any());
     }
 
     @Test(groups = "fast")
     public void testGetInvoiceByItemId() throws InvoiceApiException {
-        final Invoice invoice = mock(Invoice.class);
+        final Invoice invoice = mockInvoice();
         final AccountAuditLogs accountAuditLogs = mock(AccountAuditLogs.class);
 
         when(invoiceUserApi.getInvoiceByInvoiceItem(any(), any())).thenReturn(invoice);
-        when(auditUserApi.getAccountAuditLogs(any(), any(), any())).thenReturn(accountAuditLogs);
+        when(auditInternalApi.getAuditLogsForObjects(any(), any(), any(), any())).thenReturn(accountAuditLogs);
 
         final InvoiceResource resource = createInvoiceResource();
         resource.getInvoiceByItemId(UUIDs.randomUUID(), false, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, never()).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(1)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(1)).getAuditLogsForObjects(any(), any(), any(), any());
 
         resource.getInvoiceByItemId(UUIDs.randomUUID(), true, new AuditMode("NONE"), servletRequest);
 
         verify(invoiceUserApi, times(1)).getInvoiceItemsByParentInvoice(any(), any());
-        verify(auditUserApi, times(2)).getAccountAuditLogs(any(), any(), any());
+        verify(auditInternalApi, times(2)).getAuditLogsForObjects(any(), any(), any(), any());
+        verify(auditUserApi, never()).getAccountAuditLogs(any(), any(), any());
+    }
+
+    @Test(groups = "fast")
+    public void testGetInvoiceOnlyLoadsInvoiceAuditLogs() throws InvoiceApiException {
+        final Invoice invoice = mockInvoice();
+        final InvoiceItem invoiceItem = mock(InvoiceItem.class);
+        final UUID invoiceItemId = UUIDs.randomUUID();
+        when(invoiceItem.getId()).thenReturn(invoiceItemId);
+        when(invoice.getInvoiceItems()).thenReturn(List.of(invoiceItem));
+        when(invoiceUserApi.getInvoice(any(), any())).thenReturn(invoice);
+        when(auditInternalApi.getAuditLogsForObjects(any(), any(), any(), any())).thenReturn(mock(AccountAuditLogs.class));
+
+        final InvoiceResource resource = createInvoiceResource();
+        resource.getInvoice(invoice.getId(), false, new AuditMode("FULL"), servletRequest);
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Map<ObjectType, ? extends Collection<UUID>>> objectIdsCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(auditInternalApi, times(1)).getAuditLogsForObjects(eq(invoice.getAccountId()), objectIdsCaptor.capture(), eq(AuditLevel.FULL), any());
+        verify(auditUserApi, never()).getAccountAuditLogs(any(), any(), any());
+
+        final Map<ObjectType, ? extends Collection<UUID>> objectIds = objectIdsCaptor.getValue();
+        Assert.assertEquals(objectIds.size(), 2);
+        Assert.assertEquals(List.copyOf(objectIds.get(ObjectType.INVOICE)), List.of(invoice.getId()));
+        Assert.assertEquals(List.copyOf(objectIds.get(ObjectType.INVOICE_ITEM)), List.of(invoiceItemId));
     }
 
+    private Invoice mockInvoice() {
+        final Invoice invoice = mock(Invoice.class);
+        final UUID invoiceId = UUIDs.randomUUID();
+        final UUID accountId = UUIDs.randomUUID();
+        when(invoice.getId()).thenReturn(invoiceId);
+        when(invoice.getAccountId()).thenReturn(accountId);
+        return invoice;
+    }
 }
@@ -19,12 +19,31 @@ package org.killbill.billing.jaxrs.resources;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
 
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
+import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.entitlement.EntitlementInternalApi;
+import org.killbill.billing.entitlement.api.Entitlement;
 import org.killbill.billing.jaxrs.JaxrsTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UnitUsageRecordJson;
 import org.killbill.billing.jaxrs.json.SubscriptionUsageRecordJson.UsageRecordJson;
+import org.killbill.billing.jaxrs.json.UsageRecordResultJson;
+import org.killbill.billing.jaxrs.util.Context;
+import org.killbill.billing.usage.RolledUpUsageRecordResult;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
+import org.killbill.billing.usage.api.SubscriptionUsageRecord;
+import org.killbill.billing.usage.api.UsageApiException;
+import org.killbill.billing.util.callcontext.CallContext;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -42,6 +61,7 @@ public class TestUsageResource extends JaxrsTestSuiteNoDB {
                 null, // paymentApi
                 null, // invoicePaymentApi
                 null, // entitlementApi
+                null, // entitlementInternalApi
                 null, // clock
                 null // context
         );
@@ -81,4 +101,64 @@ public class TestUsageResource extends JaxrsTestSuiteNoDB {
 
         Assert.assertTrue(result.compareTo(new LocalDate(2018, 04, 18).toDateTimeAtStartOfDay()) == 0);
     }
+
+    @SuppressWarnings("unchecked")
+    @Test(groups = "fast")
+    public void testRecordUsageInBulkWithPartialFailures() throws Exception {
+        final UUID activeSubscriptionId = UUID.randomUUID();
+        final UUID cancelledSubscriptionId = UUID.randomUUID();
+        final UUID unknownSubscriptionId = UUID.randomUUID();
+        final UUID duplicateSubscriptionId = UUID.randomUUID();
+        final DateTime recordDate = new LocalDate(2018, 03, 04).toDateTimeAtStartOfDay();
+
+        final Entitlement activeEntitlement = Mockito.mock(Entitlement.class);
+        final Entitlement cancelledEntitlement = Mockito.mock(Entitlement.class);
+        Mockito.when(cancelledEntitlement.getEffectiveEndDate()).thenReturn(recordDate.minusDays(1));
+
+        // The unknown subscription is left out of the resolved entitlements
+        final EntitlementInternalApi entitlementInternalApi = Mockito.mock(EntitlementInternalApi.class);
+        Mockito.when(entitlementInternalApi.getEntitlementsForIds(Mockito.eq(Set.of(activeSubscriptionId, cancelledSubscriptionId, unknownSubscriptionId, duplicateSubscriptionId)), Mockito.any()))
+               .thenReturn(Map.of(activeSubscriptionId, activeEntitlement,
+                                  duplicateSubscriptionId, activeEntitlement,
+                                  cancelledSubscriptionId, cancelledEntitlement));
+
+        // The usage module rejects the duplicate tracking id, and records the other one
+        final BulkUsageUserApi usageUserApi = Mockito.mock(BulkUsageUserApi.class);
+        Mockito.when(usageUserApi.recordRolledUpUsage(Mockito.<List<SubscriptionUsageRecord>>any(), Mockito.any()))
+               .thenReturn(List.of(new RolledUpUsageRecordResult(activeSubscriptionId, "t1", null),
+                                   new RolledUpUsageRecordResult(duplicateSubscriptionId, "t4", new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, "t4"))));
+
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.createCallContextNoAccountId(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(Mockito.mock(CallContext.class));
+        Mockito.when(context.createInternalTenantContextWithoutAccountRecordId(Mockito.any())).thenReturn(Mockito.mock(InternalTenantContext.class));
+
+        final UsageResource usageResource = new UsageResource(null, null, null, null, null, usageUserApi, null, null, null, entitlementInternalApi, null, context);
+
+        final List<UnitUsageRecordJson> unitUsageRecords = List.of(new UnitUsageRecordJson("foo", List.of(new UsageRecordJson(recordDate, BigDecimal.TEN))));
+        final List<SubscriptionUsageRecordJson> input = List.of(new SubscriptionUsageRecordJson(activeSubscriptionId, "t1", unitUsageRecords),
+                                                                new SubscriptionUsageRecordJson(cancelledSubscriptionId, "t2", unitUsageRecords),
+                                                                new SubscriptionUsageRecordJson(unknownSubscriptionId, "t3", unitUsageRecords),
+                                                                new SubscriptionUsageRecordJson(duplicateSubscriptionId, "t4", unitUsageRecords));
+        final Response response = usageResource.recordUsageInBulk(input, "createdBy", null, null, Mockito.mock(HttpServletRequest.class));
+        Assert.assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+
+        // Only the records which passed the entitlement checks are sent to the usage module
+        final ArgumentCaptor<List<SubscriptionUsageRecord>> recorded = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(usageUserApi).recordRolledUpUsage(recorded.capture(), Mockito.any());
+        Assert.assertEquals(recorded.getValue().size(), 2);
+        Assert.assertEquals(recorded.getValue().get(0).getSubscriptionId(), activeSubscriptionId);
+        Assert.assertEquals(recorded.getValue().get(1).getSubscriptionId(), duplicateSubscriptionId);
+
+        // One result per record, in the input order
+        final List<UsageRecordResultJson> results = (List<UsageRecordResultJson>) response.getEntity();
+        Assert.assertEquals(results.size(), 4);
+        Assert.assertEquals(results.get(0).getSubscriptionId(), activeSubscriptionId);
+        Assert.assertNull(results.get(0).getError());
+        Assert.assertEquals(results.get(1).getSubscriptionId(), cancelledSubscriptionId);
+        Assert.assertEquals(results.get(1).getError().getCode(), (Integer) ErrorCode.SUB_INVALID_REQUESTED_DATE.getCode());
+        Assert.assertEquals(results.get(2).getSubscriptionId(), unknownSubscriptionId);
+        Assert.assertEquals(results.get(2).getError().getCode(), (Integer) ErrorCode.SUB_INVALID_SUBSCRIPTION_ID.getCode());
+        Assert.assertEquals(results.get(3).getSubscriptionId(), duplicateSubscriptionId);
+        Assert.assertEquals(results.get(3).getError().getCode(), (Integer) ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS.getCode());
+    }
 }
@@ -89,6 +89,15 @@ public class DefaultInternalBillingApi implements BillingInternalApi {
         this.tagApi = tagApi;
     }
 
+    @Override
+    public BillingEventSet getBillingEventsForAccountIfBCDSet(final UUID accountId, @Nullable final LocalDate cutoffDt, final InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException {
+        // The BCD is never reset once set, so no update will be attempted below
+        if (accountApi.getBCD(context) == 0) {
+            return null;
+        }
+        return getBillingEventsForAccountAndUpdateAccountBCD(accountId, null, cutoffDt, context);
+    }
+
     @Override
     public BillingEventSet getBillingEventsForAccountAndUpdateAccountBCD(final UUID accountId, final DryRunArguments dryRunArguments, @Nullable final LocalDate cutoffDt, final InternalCallContext context) throws CatalogApiException, AccountApiException, SubscriptionBaseApiException {
 
@@ -41,6 +41,20 @@ public class MultiTenantOverdueConfig extends MultiTenantLockAwareConfigBase imp
         this.staticConfig = staticConfig;
     }
 
+    @Override
+    public TimeSpan getRefreshCoalescingWindow() {
+        return staticConfig.getRefreshCoalescingWindow();
+    }
+
+    @Override
+    public TimeSpan getRefreshCoalescingWindow(final InternalTenantContext tenantContext) {
+        final String result = getStringTenantConfig("getRefreshCoalescingWindow", tenantContext);
+        if (result != null) {
+            return new TimeSpan(result);
+        }
+        return getRefreshCoalescingWindow();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return OverdueConfig.class;
@@ -24,6 +24,7 @@ import java.util.UUID;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.joda.time.DateTime;
 import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.Account;
 import org.killbill.billing.account.api.AccountInternalApi;
@@ -36,7 +37,6 @@ import org.killbill.billing.events.InvoiceCreationInternalEvent;
 import org.killbill.billing.events.InvoicePaymentErrorInternalEvent;
 import org.killbill.billing.events.InvoicePaymentInfoInternalEvent;
 import org.killbill.billing.overdue.api.OverdueApiException;
-import org.killbill.billing.overdue.api.OverdueConfig;
 import org.killbill.billing.overdue.caching.OverdueConfigCache;
 import org.killbill.billing.overdue.config.DefaultOverdueConfig;
 import org.killbill.billing.overdue.config.DefaultOverdueState;
@@ -51,6 +51,7 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.CallOrigin;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.OverdueConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.optimizer.BusDispatcherOptimizer;
 import org.killbill.billing.util.tag.ControlTagType;
@@ -73,6 +74,7 @@ public class OverdueListener {
     private final NonEntityDao nonEntityDao;
     private final AccountInternalApi accountApi;
     private final BusDispatcherOptimizer busDispatcherOptimizer;
+    private final OverdueConfig overdueProperties;
 
     @Inject
     public OverdueListener(final NonEntityDao nonEntityDao,
@@ -82,7 +84,8 @@ public class OverdueListener {
                            final OverdueConfigCache overdueConfigCache,
                            final BusDispatcherOptimizer busDispatcherOptimizer,
                            final InternalCallContextFactory internalCallContextFactory,
-                           final AccountInternalApi accountApi) {
+                           final AccountInternalApi accountApi,
+                           final OverdueConfig overdueProperties) {
         this.nonEntityDao = nonEntityDao;
         this.clock = clock;
         this.asyncPoster = asyncPoster;
@@ -91,6 +94,7 @@ public class OverdueListener {
         this.objectIdCacheController = cacheControllerDispatcher.getCacheController(CacheType.OBJECT_ID);
         this.internalCallContextFactory = internalCallContextFactory;
         this.accountApi = accountApi;
+        this.overdueProperties = overdueProperties;
     }
 
     @AllowConcurrentEvents
@@ -173,8 +177,15 @@ public class OverdueListener {
             return;
         }
 
-        OverdueAsyncBusNotificationKey notificationKey = new OverdueAsyncBusNotificationKey(accountId, action);
-        asyncPoster.insertOverdueNotification(accountId, callContext.getCreatedDate(), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, callContext);
+        // Refreshes are coalesced: any event received before a pending notification is processed won't trigger another one (see OverdueAsyncBusPoster)
+        final DateTime effectiveDate;
+        if (action == OverdueAsyncBusNotificationAction.CLEAR) {
+            effectiveDate = callContext.getCreatedDate();
+        } else {
+            effectiveDate = callContext.getCreatedDate().plus(overdueProperties.getRefreshCoalescingWindow(callContext).getMillis());
+        }
+
+        insertOverdueNotification(accountId, action, effectiveDate, callContext);
 
         try {
             // Refresh parent
@@ -182,8 +193,7 @@ public class OverdueListener {
             if (account.getParentAccountId() != null && account.isPaymentDelegatedToParent()) {
                 final InternalTenantContext parentAccountInternalTenantContext = internalCallContextFactory.createInternalTenantContext(account.getParentAccountId(), callContext);
                 final InternalCallContext parentAccountContext = internalCallContextFactory.createInternalCallContext(parentAccountInternalTenantContext.getAccountRecordId(), callContext);
-                notificationKey = new OverdueAsyncBusNotificationKey(account.getParentAccountId(), action);
-                asyncPoster.insertOverdueNotification(account.getParentAccountId(), callContext.getCreatedDate(), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, parentAccountContext);
+                insertOverdueNotification(account.getParentAccountId(), action, effectiveDate, parentAccountContext);
             }
 
             // Refresh children
@@ -193,8 +203,7 @@ public class OverdueListener {
                     if (childAccount.isPaymentDelegatedToParent()) {
                         final InternalTenantContext internalTenantContext = internalCallContextFactory.createInternalTenantContext(childAccount.getId(), callContext);
                         final InternalCallContext accountContext = internalCallContextFactory.createInternalCallContext(internalTenantContext.getAccountRecordId(), callContext);
-                        notificationKey = new OverdueAsyncBusNotificationKey(childAccount.getId(), action);
-                        asyncPoster.insertOverdueNotification(childAccount.getId(), callContext.getCreatedDate(), OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, accountContext);
+                        insertOverdueNotification(childAccount.getId(), action, effectiveDate, accountContext);
                     }
                 }
             }
@@ -203,11 +212,21 @@ public class OverdueListener {
         }
     }
 
+    private void insertOverdueNotification(final UUID accountId, final OverdueAsyncBusNotificationAction action, final DateTime effectiveDate, final InternalCallContext context) {
+        if (action == OverdueAsyncBusNotificationAction.CLEAR) {
+            // Make sure a pending refresh doesn't prevent the CLEAR from being recorded
+            asyncPoster.clearOverdueCheckNotifications(accountId, OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, OverdueAsyncBusNotificationKey.class, context);
+        }
+
+        final OverdueAsyncBusNotificationKey notificationKey = new OverdueAsyncBusNotificationKey(accountId, action);
+        asyncPoster.insertOverdueNotification(accountId, effectiveDate, OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE, notificationKey, context);
+    }
+
     // Optimization: don't bother running the Overdue machinery if it's disabled
     private boolean shouldInsertNotification(final InternalTenantContext internalTenantContext) {
-        OverdueConfig overdueConfig;
+        DefaultOverdueConfig overdueConfig;
         try {
-            overdueConfig = overdueConfigCache.getOverdueConfig(internalTenantContext);
+            overdueConfig = (DefaultOverdueConfig) overdueConfigCache.getOverdueConfig(internalTenantContext);
         } catch (final OverdueApiException e) {
             log.warn("Failed to extract overdue config for tenantRecordId='{}'", internalTenantContext.getTenantRecordId());
             overdueConfig = null;
@@ -216,7 +235,7 @@ public class OverdueListener {
             return false;
         }
 
-        for (final DefaultOverdueState state : ((DefaultOverdueConfig) overdueConfig).getOverdueStatesAccount().getStates()) {
+        for (final DefaultOverdueState state : overdueConfig.getOverdueStatesAccount().getStates()) {
             if (state.getConditionEvaluation() != null) {
                 return true;
             }
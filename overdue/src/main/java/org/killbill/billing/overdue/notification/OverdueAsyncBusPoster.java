@@ -49,9 +49,9 @@ public class OverdueAsyncBusPoster extends DefaultOverduePosterBase {
                                                                                                         final Iterable<NotificationEventWithMetadata<T>> futureNotifications,
                                                                                                         final DateTime futureNotificationTime,
                                                                                                         final NotificationQueue overdueQueue) {
-        // If we already have notification for that account we don't insert the new one
-        // Note that this is slightly incorrect because we could for instance already have a REFRESH and insert a CLEAR, but if that were the case,
-        // if means overdue state would change very rapidly and the behavior would anyway be non deterministic
+        // If we already have notification for that account we don't insert the new one: this is what coalesces the refreshes
+        // received within org.killbill.overdue.refreshCoalescingWindow. Pending REFRESH notifications are removed by the
+        // OverdueListener prior inserting a CLEAR, so that it isn't swallowed by a delayed REFRESH.
         // Note: don't use isEmpty() to go through all results to close the connection
         return Iterables.size(futureNotifications) == 0;
     }
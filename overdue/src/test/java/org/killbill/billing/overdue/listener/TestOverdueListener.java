@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.overdue.listener;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.account.api.Account;
+import org.killbill.billing.account.api.AccountInternalApi;
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.events.ControlTagCreationInternalEvent;
+import org.killbill.billing.events.InvoiceCreationInternalEvent;
+import org.killbill.billing.overdue.OverdueTestSuiteNoDB;
+import org.killbill.billing.overdue.caching.OverdueConfigCache;
+import org.killbill.billing.overdue.config.DefaultOverdueConfig;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotificationKey.OverdueAsyncBusNotificationAction;
+import org.killbill.billing.overdue.notification.OverdueAsyncBusNotifier;
+import org.killbill.billing.overdue.notification.OverduePoster;
+import org.killbill.billing.util.cache.CacheControllerDispatcher;
+import org.killbill.billing.util.callcontext.CallOrigin;
+import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.callcontext.UserType;
+import org.killbill.billing.util.config.definition.OverdueConfig;
+import org.killbill.billing.util.dao.NonEntityDao;
+import org.killbill.billing.util.optimizer.BusDispatcherOptimizer;
+import org.killbill.billing.util.tag.ControlTagType;
+import org.killbill.billing.util.tag.TagDefinition;
+import org.killbill.xmlloader.XMLLoader;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestOverdueListener extends OverdueTestSuiteNoDB {
+
+    private UUID accountId;
+    private AccountInternalApi accountInternalApi;
+    private InternalCallContextFactory contextFactory;
+    private OverduePoster poster;
+    private OverdueListener overdueListener;
+
+    @Override
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        super.beforeMethod();
+
+        accountId = UUID.randomUUID();
+        poster = Mockito.mock(OverduePoster.class);
+
+        final DefaultOverdueConfig config = XMLLoader.getObjectFromStreamNoValidation(new ByteArrayInputStream(testOverdueHelper.getConfigXml().getBytes(StandardCharsets.UTF_8)), DefaultOverdueConfig.class);
+        final OverdueConfigCache configCache = Mockito.mock(OverdueConfigCache.class);
+        Mockito.when(configCache.getOverdueConfig(Mockito.any(InternalTenantContext.class))).thenReturn(config);
+
+        final OverdueConfig overdueConfig = Mockito.mock(OverdueConfig.class);
+        Mockito.when(overdueConfig.getRefreshCoalescingWindow(Mockito.any(InternalTenantContext.class))).thenReturn(new TimeSpan("30s"));
+
+        final Account account = Mockito.mock(Account.class);
+        Mockito.when(account.getId()).thenReturn(accountId);
+        accountInternalApi = Mockito.mock(AccountInternalApi.class);
+        Mockito.when(accountInternalApi.getAccountById(Mockito.eq(accountId), Mockito.any(InternalTenantContext.class))).thenReturn(account);
+        Mockito.when(accountInternalApi.getChildrenAccounts(Mockito.eq(accountId), Mockito.any(InternalCallContext.class))).thenReturn(Collections.emptyList());
+
+        contextFactory = Mockito.mock(InternalCallContextFactory.class);
+        Mockito.when(contextFactory.createInternalCallContext(Mockito.nullable(Long.class), Mockito.nullable(Long.class), Mockito.anyString(),
+                                                              Mockito.any(CallOrigin.class), Mockito.any(UserType.class), Mockito.nullable(UUID.class)))
+               .thenReturn(internalCallContext);
+
+        final BusDispatcherOptimizer busDispatcherOptimizer = Mockito.mock(BusDispatcherOptimizer.class);
+        Mockito.when(busDispatcherOptimizer.shouldDispatch(Mockito.any())).thenReturn(true);
+
+        overdueListener = new OverdueListener(Mockito.mock(NonEntityDao.class),
+                                              Mockito.mock(CacheControllerDispatcher.class),
+                                              clock,
+                                              poster,
+                                              configCache,
+                                              busDispatcherOptimizer,
+                                              contextFactory,
+                                              accountInternalApi,
+                                              overdueConfig);
+    }
+
+    @Test(groups = "fast")
+    public void testRefreshIsDelayedByCoalescingWindow() {
+        final InvoiceCreationInternalEvent event = Mockito.mock(InvoiceCreationInternalEvent.class);
+        Mockito.when(event.getAccountId()).thenReturn(accountId);
+
+        overdueListener.handleInvoiceCreation(event);
+
+        Mockito.verify(poster).insertOverdueNotification(accountId,
+                                                         internalCallContext.getCreatedDate().plusSeconds(30),
+                                                         OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE,
+                                                         new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.REFRESH),
+                                                         internalCallContext);
+        Mockito.verify(poster, Mockito.never()).clearOverdueCheckNotifications(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test(groups = "fast")
+    public void testClearIsNotCoalescedWithPendingRefresh() {
+        final TagDefinition tagDefinition = Mockito.mock(TagDefinition.class);
+        Mockito.when(tagDefinition.getName()).thenReturn(ControlTagType.OVERDUE_ENFORCEMENT_OFF.toString());
+        final ControlTagCreationInternalEvent event = Mockito.mock(ControlTagCreationInternalEvent.class);
+        Mockito.when(event.getTagDefinition()).thenReturn(tagDefinition);
+        Mockito.when(event.getObjectType()).thenReturn(ObjectType.ACCOUNT);
+        Mockito.when(event.getObjectId()).thenReturn(accountId);
+
+        overdueListener.handleTagInsert(event);
+
+        final InOrder inOrder = Mockito.inOrder(poster);
+        inOrder.verify(poster).clearOverdueCheckNotifications(accountId,
+                                                              OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE,
+                                                              OverdueAsyncBusNotificationKey.class,
+                                                              internalCallContext);
+        inOrder.verify(poster).insertOverdueNotification(accountId,
+                                                         internalCallContext.getCreatedDate(),
+                                                         OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE,
+                                                         new OverdueAsyncBusNotificationKey(accountId, OverdueAsyncBusNotificationAction.CLEAR),
+                                                         internalCallContext);
+    }
+
+    @Test(groups = "fast")
+    public void testClearRemovesPendingRefreshOfChildAccounts() {
+        final UUID childAccountId = UUID.randomUUID();
+        final Account childAccount = Mockito.mock(Account.class);
+        Mockito.when(childAccount.getId()).thenReturn(childAccountId);
+        Mockito.when(childAccount.isPaymentDelegatedToParent()).thenReturn(true);
+        Mockito.when(accountInternalApi.getChildrenAccounts(Mockito.eq(accountId), Mockito.any(InternalCallContext.class))).thenReturn(List.of(childAccount));
+
+        final InternalTenantContext childTenantContext = Mockito.mock(InternalTenantContext.class);
+        Mockito.when(childTenantContext.getAccountRecordId()).thenReturn(12L);
+        Mockito.when(contextFactory.createInternalTenantContext(Mockito.eq(childAccountId), Mockito.any(InternalCallContext.class))).thenReturn(childTenantContext);
+        final InternalCallContext childCallContext = Mockito.mock(InternalCallContext.class);
+        Mockito.when(contextFactory.createInternalCallContext(Mockito.eq(12L), Mockito.any(InternalCallContext.class))).thenReturn(childCallContext);
+
+        final TagDefinition tagDefinition = Mockito.mock(TagDefinition.class);
+        Mockito.when(tagDefinition.getName()).thenReturn(ControlTagType.OVERDUE_ENFORCEMENT_OFF.toString());
+        final ControlTagCreationInternalEvent event = Mockito.mock(ControlTagCreationInternalEvent.class);
+        Mockito.when(event.getTagDefinition()).thenReturn(tagDefinition);
+        Mockito.when(event.getObjectType()).thenReturn(ObjectType.ACCOUNT);
+        Mockito.when(event.getObjectId()).thenReturn(accountId);
+
+        overdueListener.handleTagInsert(event);
+
+        final InOrder inOrder = Mockito.inOrder(poster);
+        inOrder.verify(poster).clearOverdueCheckNotifications(childAccountId,
+                                                              OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE,
+                                                              OverdueAsyncBusNotificationKey.class,
+                                                              childCallContext);
+        inOrder.verify(poster).insertOverdueNotification(childAccountId,
+                                                         internalCallContext.getCreatedDate(),
+                                                         OverdueAsyncBusNotifier.OVERDUE_ASYNC_BUS_NOTIFIER_QUEUE,
+                                                         new OverdueAsyncBusNotificationKey(childAccountId, OverdueAsyncBusNotificationAction.CLEAR),
+                                                         childCallContext);
+    }
+}
@@ -166,6 +166,26 @@ public class MultiTenantPaymentConfig extends MultiTenantLockAwareConfigBase imp
         return staticConfig.getPaymentPluginThreadNb();
     }
 
+    @Override
+    public int getPaymentPluginQueueSize() {
+        return staticConfig.getPaymentPluginQueueSize();
+    }
+
+    @Override
+    public int getPaymentPluginInfoConcurrency() {
+        return staticConfig.getPaymentPluginInfoConcurrency();
+    }
+
+    @Override
+    public int getPaymentPluginInfoThreadNb() {
+        return staticConfig.getPaymentPluginInfoThreadNb();
+    }
+
+    @Override
+    public TimeSpan getPaymentPluginInfoTimeout() {
+        return staticConfig.getPaymentPluginInfoTimeout();
+    }
+
     @Override
     public int getMaxGlobalLockRetries() {
         return staticConfig.getMaxGlobalLockRetries();
@@ -17,85 +17,179 @@
 
 package org.killbill.billing.payment.core;
 
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.concurrent.Executors;
 import org.killbill.commons.concurrent.WithProfilingThreadPoolExecutor;
+import org.killbill.commons.metrics.api.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class PaymentExecutors {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentExecutors.class);
+
     private static final long TIMEOUT_EXECUTOR_SEC = 3L;
 
-    private static final int DEFAULT_MIN_PLUGIN_THREADS = 5;
+    // Executors are keyed by the plugin name(s) passed by the callers: safety net in case of unexpected (e.g. user provided) names
+    private static final int MAX_PLUGIN_EXECUTORS = 64;
+
+    private static final String DEFAULT_PLUGIN_EXECUTOR_NAME = "default";
 
     private static final String PLUGIN_THREAD_PREFIX = "Plugin-th-";
+    private static final String PLUGIN_INFO_THREAD_PREFIX = "Plugin-info-th-";
     private static final String PAYMENT_PLUGIN_TH_GROUP_NAME = "pay-plugin-grp";
 
+    private static final String PROP_METRIC_REG_PLUGIN_EXECUTOR = "killbill.payment.plugin.executor.";
+    private static final String PROP_METRIC_REG_PLUGIN_INFO_EXECUTOR = "killbill.payment.plugin.info.executor.";
+
     public static final String JANITOR_EXECUTOR_NAMED = "JanitorExecutor";
     public static final String PLUGIN_EXECUTOR_NAMED = "PluginExecutor";
 
     private final PaymentConfig paymentConfig;
+    private final MetricRegistry metricRegistry;
+    private final Map<String, PluginExecutor> pluginExecutors = new ConcurrentHashMap<String, PluginExecutor>();
+    // Read-only calls (plugin info when listing or refreshing payments) are isolated from the payment calls
+    private final Map<String, PluginExecutor> pluginInfoExecutors = new ConcurrentHashMap<String, PluginExecutor>();
 
-    private volatile ThreadPoolExecutor pluginExecutorService;
+    private volatile PluginExecutor defaultPluginExecutor;
+    private volatile PluginExecutor defaultPluginInfoExecutor;
     private volatile ScheduledExecutorService janitorExecutorService;
 
     @Inject
-    public PaymentExecutors(PaymentConfig paymentConfig) {
+    public PaymentExecutors(final PaymentConfig paymentConfig, final MetricRegistry metricRegistry) {
         this.paymentConfig = paymentConfig;
-
+        this.metricRegistry = metricRegistry;
     }
 
     public void initialize() {
-        this.pluginExecutorService = createPluginExecutorService();
-        this.pluginExecutorService.prestartAllCoreThreads();
+        this.defaultPluginExecutor = createPluginExecutor(DEFAULT_PLUGIN_EXECUTOR_NAME);
+        this.defaultPluginExecutor.prestartAllCoreThreads();
+        this.defaultPluginInfoExecutor = createPluginInfoExecutor(DEFAULT_PLUGIN_EXECUTOR_NAME);
         this.janitorExecutorService = createJanitorExecutorService();
     }
 
 
     public void stop() throws InterruptedException {
-        pluginExecutorService.shutdownNow();
+        defaultPluginExecutor.shutdownNow();
+        for (final PluginExecutor pluginExecutor : pluginExecutors.values()) {
+            pluginExecutor.shutdownNow();
+        }
+        defaultPluginInfoExecutor.shutdownNow();
+        for (final PluginExecutor pluginInfoExecutor : pluginInfoExecutors.values()) {
+            pluginInfoExecutor.shutdownNow();
+        }
         janitorExecutorService.shutdownNow();
 
-        pluginExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
-        pluginExecutorService = null;
+        defaultPluginExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        defaultPluginExecutor = null;
+        for (final PluginExecutor pluginExecutor : pluginExecutors.values()) {
+            pluginExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        }
+        pluginExecutors.clear();
+
+        defaultPluginInfoExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        defaultPluginInfoExecutor = null;
+        for (final PluginExecutor pluginInfoExecutor : pluginInfoExecutors.values()) {
+            pluginInfoExecutor.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
+        }
+        pluginInfoExecutors.clear();
 
         janitorExecutorService.awaitTermination(TIMEOUT_EXECUTOR_SEC, TimeUnit.SECONDS);
         janitorExecutorService = null;
     }
 
-    public ExecutorService getPluginExecutorService() {
-        return pluginExecutorService;
+    public PluginExecutor getPluginExecutor(@Nullable final String pluginNames) {
+        return getOrCreatePluginExecutor(pluginNames, pluginExecutors, defaultPluginExecutor, this::createPluginExecutor);
+    }
+
+    // Bulkhead for the read-only plugin calls (getPaymentInfo fan-out), so that they can't starve the payment calls of the same plugin
+    public PluginExecutor getPluginInfoExecutor(@Nullable final String pluginNames) {
+        return getOrCreatePluginExecutor(pluginNames, pluginInfoExecutors, defaultPluginInfoExecutor, this::createPluginInfoExecutor);
+    }
+
+    private PluginExecutor getOrCreatePluginExecutor(@Nullable final String pluginNames,
+                                                     final Map<String, PluginExecutor> executors,
+                                                     final PluginExecutor defaultExecutor,
+                                                     final Function<String, PluginExecutor> executorFactory) {
+        if (pluginNames == null || pluginNames.isEmpty()) {
+            return defaultExecutor;
+        }
+
+        final PluginExecutor pluginExecutor = executors.get(pluginNames);
+        if (pluginExecutor != null) {
+            return pluginExecutor;
+        } else if (executors.size() >= MAX_PLUGIN_EXECUTORS) {
+            log.warn("Too many plugin executors, using the default one for plugin(s) {}", pluginNames);
+            return defaultExecutor;
+        } else {
+            return executors.computeIfAbsent(pluginNames, executorFactory);
+        }
     }
 
     public ScheduledExecutorService getJanitorExecutorService() {
         return janitorExecutorService;
     }
 
-    private ThreadPoolExecutor createPluginExecutorService() {
-        final int minThreadNb = DEFAULT_MIN_PLUGIN_THREADS < paymentConfig.getPaymentPluginThreadNb() ? DEFAULT_MIN_PLUGIN_THREADS : paymentConfig.getPaymentPluginThreadNb();
-        return new WithProfilingThreadPoolExecutor(minThreadNb,
-                                                   paymentConfig.getPaymentPluginThreadNb(),
-                                                   10,
-                                                   TimeUnit.MINUTES,
-                                                   new LinkedBlockingQueue<Runnable>(),
-                                                   new ThreadFactory() {
-
-                                                       @Override
-                                                       public Thread newThread(final Runnable r) {
-                                                           final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
-                                                           th.setName(PLUGIN_THREAD_PREFIX + th.getId());
-                                                           return th;
-                                                       }
-                                                   });
+    //
+    // Core and max sizes are the same (with idle core threads timing out): with a bounded queue, a ThreadPoolExecutor only grows past its core size
+    // once the queue is full, which would otherwise delay all calls behind a slow one.
+    //
+    private PluginExecutor createPluginExecutor(final String name) {
+        return createPluginExecutor(name, paymentConfig.getPaymentPluginThreadNb(), PLUGIN_THREAD_PREFIX, PROP_METRIC_REG_PLUGIN_EXECUTOR);
+    }
+
+    private PluginExecutor createPluginInfoExecutor(final String name) {
+        return createPluginExecutor(name, paymentConfig.getPaymentPluginInfoThreadNb(), PLUGIN_INFO_THREAD_PREFIX, PROP_METRIC_REG_PLUGIN_INFO_EXECUTOR);
+    }
+
+    private PluginExecutor createPluginExecutor(final String name, final int nbThreads, final String threadPrefixBase, final String metricPrefix) {
+        final int queueSize = paymentConfig.getPaymentPluginQueueSize();
+        final BlockingQueue<Runnable> queue = queueSize > 0 ? new LinkedBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>();
+        final String threadPrefix = DEFAULT_PLUGIN_EXECUTOR_NAME.equals(name) ? threadPrefixBase : threadPrefixBase + name + "-";
+        final ThreadPoolExecutor executor = new WithProfilingThreadPoolExecutor(nbThreads,
+                                                                                nbThreads,
+                                                                                10,
+                                                                                TimeUnit.MINUTES,
+                                                                                queue,
+                                                                                new ThreadFactory() {
+
+                                                                                    @Override
+                                                                                    public Thread newThread(final Runnable r) {
+                                                                                        final Thread th = new Thread(new ThreadGroup(PAYMENT_PLUGIN_TH_GROUP_NAME), r);
+                                                                                        th.setName(threadPrefix + th.getId());
+                                                                                        return th;
+                                                                                    }
+                                                                                });
+        executor.allowCoreThreadTimeOut(true);
+
+        final PluginExecutor pluginExecutor = new PluginExecutor(name, executor);
+        registerGauges(metricPrefix, pluginExecutor);
+        return pluginExecutor;
+    }
 
+    private void registerGauges(final String metricPrefix, final PluginExecutor pluginExecutor) {
+        final String prefix = metricPrefix + pluginExecutor.getName() + ".";
+        metricRegistry.gauge(prefix + "submitted", pluginExecutor::getSubmitted);
+        metricRegistry.gauge(prefix + "rejected", pluginExecutor::getRejected);
+        metricRegistry.gauge(prefix + "average-queue-wait-millis", pluginExecutor::getAverageQueueWaitMillis);
+        metricRegistry.gauge(prefix + "max-queue-wait-millis", pluginExecutor::getMaxQueueWaitMillis);
+        metricRegistry.gauge(prefix + "queue-size", pluginExecutor::getQueueSize);
+        metricRegistry.gauge(prefix + "active-threads", pluginExecutor::getActiveCount);
+        metricRegistry.gauge(prefix + "pool-size", pluginExecutor::getPoolSize);
     }
 
     private ScheduledExecutorService createJanitorExecutorService() {
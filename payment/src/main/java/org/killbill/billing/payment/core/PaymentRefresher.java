@@ -17,18 +17,27 @@
 
 package org.killbill.billing.payment.core;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -55,7 +64,9 @@ import org.killbill.billing.payment.dao.PluginPropertySerializer;
 import org.killbill.billing.payment.dao.PluginPropertySerializer.PluginPropertySerializerException;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
+import org.killbill.billing.payment.plugin.api.PaymentPluginStatus;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
+import org.killbill.billing.payment.provider.DefaultNoOpPaymentInfoPlugin;
 import org.killbill.billing.payment.retry.DefaultRetryService;
 import org.killbill.billing.payment.retry.PaymentRetryNotificationKey;
 import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
@@ -63,6 +74,7 @@ import org.killbill.billing.tag.TagInternalApi;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.commons.utils.collect.MultiValueHashMap;
 import org.killbill.commons.utils.collect.MultiValueMap;
@@ -80,8 +92,8 @@ import org.killbill.notificationq.api.NotificationQueueService.NoSuchNotificatio
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPagination;
 import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationFromPlugins;
+import static org.killbill.billing.util.entity.dao.DefaultPaginationHelper.getEntityPaginationInBatches;
 
 // Retrieve payment(s), making sure the Janitor is invoked (on-the-fly Janitor)
 public class PaymentRefresher extends ProcessorBase {
@@ -90,9 +102,19 @@ public class PaymentRefresher extends ProcessorBase {
 
     private static final String SCHEDULED = "SCHEDULED";
     private static final List<PluginProperty> PLUGIN_PROPERTIES = Collections.emptyList();
+    // Number of payments assembled at once in bulk get APIs (each batch costs a handful of queries)
+    private static final int BULK_LOAD_BATCH_SIZE = 100;
+
+    // Plugin property set on the (placeholder) plugin info of the transactions of payments whose plugin info couldn't be retrieved in bulk get APIs
+    public static final String PLUGIN_INFO_UNAVAILABLE_PROPERTY = "PLUGIN_INFO_UNAVAILABLE";
+    public static final String PLUGIN_INFO_TIMEOUT = "TIMEOUT";
+    public static final String PLUGIN_INFO_REJECTED = "REJECTED";
+    public static final String PLUGIN_INFO_ERROR = "ERROR";
 
     private final NotificationQueueService notificationQueueService;
     private final IncompletePaymentTransactionTask incompletePaymentTransactionTask;
+    private final PaymentExecutors paymentExecutors;
+    private final PaymentConfig paymentConfig;
 
     @Inject
     public PaymentRefresher(final PaymentPluginServiceRegistration paymentPluginServiceRegistration,
@@ -104,10 +126,14 @@ public class PaymentRefresher extends ProcessorBase {
                             final InvoiceInternalApi invoiceApi,
                             final Clock clock,
                             final NotificationQueueService notificationQueueService,
-                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask) {
+                            final IncompletePaymentTransactionTask incompletePaymentTransactionTask,
+                            final PaymentExecutors paymentExecutors,
+                            final PaymentConfig paymentConfig) {
         super(paymentPluginServiceRegistration, accountUserApi, paymentDao, tagUserApi, locker, internalCallContextFactory, invoiceApi, clock);
         this.notificationQueueService = notificationQueueService;
         this.incompletePaymentTransactionTask = incompletePaymentTransactionTask;
+        this.paymentExecutors = paymentExecutors;
+        this.paymentConfig = paymentConfig;
     }
 
     protected boolean invokeJanitor(final UUID accountId,
@@ -181,30 +207,22 @@ public class PaymentRefresher extends ProcessorBase {
         final List<PaymentModelDao> paymentsModelDao = paymentDao.getPaymentsForAccount(accountId, tenantContext);
         final List<PaymentTransactionModelDao> transactionsModelDao = paymentDao.getTransactionsForAccount(accountId, tenantContext);
 
-        final Map<UUID, PaymentPluginApi> paymentPluginByPaymentMethodId = new HashMap<>();
-        final Collection<UUID> absentPlugins = new HashSet<>();
+        final Map<UUID, String> pluginInfoUnavailableByPaymentId = new HashMap<>();
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ?
+                                                                                    getPaymentTransactionInfoPlugins(paymentsModelDao, getPluginNameResolver(tenantContext), pluginInfoUnavailableByPaymentId, context) :
+                                                                                    Collections.emptyMap();
+
         final List<Payment> transformedPayments = paymentsModelDao
                 .stream()
-                .map(paymentModelDao -> {
-                    List<PaymentTransactionInfoPlugin> pluginInfo = null;
-
-                    if (withPluginInfo) {
-                        PaymentPluginApi pluginApi = paymentPluginByPaymentMethodId.get(paymentModelDao.getPaymentMethodId());
-                        if (pluginApi == null && !absentPlugins.contains(paymentModelDao.getPaymentMethodId())) {
-                            try {
-                                pluginApi = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, tenantContext);
-                                paymentPluginByPaymentMethodId.put(paymentModelDao.getPaymentMethodId(), pluginApi);
-                            } catch (final PaymentApiException e) {
-                                log.warn("Unable to retrieve pluginApi for payment method " + paymentModelDao.getPaymentMethodId());
-                                absentPlugins.add(paymentModelDao.getPaymentMethodId());
-                            }
-                        }
-
-                        pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context);
-                    }
-
-                    return toPayment(paymentModelDao, transactionsModelDao, pluginInfo, withAttempts, isApiPayment, tenantContext);
-                }).collect(Collectors.toUnmodifiableList());
+                .map(paymentModelDao -> toPayment(paymentModelDao,
+                                                  transactionsModelDao,
+                                                  pluginInfoByPaymentId.get(paymentModelDao.getId()),
+                                                  withAttempts,
+                                                  null,
+                                                  pluginInfoUnavailableByPaymentId.get(paymentModelDao.getId()),
+                                                  isApiPayment,
+                                                  tenantContext))
+                .collect(Collectors.toUnmodifiableList());
 
         // Copy the transformed list, so the transformation function is applied once (otherwise, the Janitor could be invoked multiple times)
         return List.copyOf(transformedPayments);
@@ -284,38 +302,26 @@ public class PaymentRefresher extends ProcessorBase {
                                            final Iterable<PluginProperty> properties,
                                            final TenantContext tenantContext,
                                            final InternalTenantContext internalTenantContext) {
-        final Map<UUID, Optional<PaymentPluginApi>> paymentMethodIdToPaymentPluginApi = new HashMap<>();
+        final Function<PaymentModelDao, String> pluginNameResolver = getPluginNameResolver(internalTenantContext);
 
         try {
-            return getEntityPagination(limit,
-                                       new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                           @Override
-                                           public Pagination<PaymentModelDao> build() {
-                                               // Find all payments for all accounts
-                                               return paymentDao.get(offset, limit, internalTenantContext);
-                                           }
-                                       },
-                                       paymentModelDao -> {
-                                           final PaymentPluginApi pluginApi;
-                                           if (!withPluginInfo) {
-                                               pluginApi = null;
-                                           } else {
-                                               if (paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()) == null) {
-                                                   try {
-                                                       final PaymentPluginApi paymentProviderPlugin = getPaymentProviderPlugin(paymentModelDao.getPaymentMethodId(), true, internalTenantContext);
-                                                       paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.of(paymentProviderPlugin));
-                                                   } catch (final PaymentApiException e) {
-                                                       log.warn("Unable to retrieve PaymentPluginApi for paymentMethodId='{}'", paymentModelDao.getPaymentMethodId(), e);
-                                                       // We use Optional to avoid printing the log line for each result
-                                                       paymentMethodIdToPaymentPluginApi.put(paymentModelDao.getPaymentMethodId(), Optional.empty());
-                                                   }
-                                               }
-                                               pluginApi = paymentMethodIdToPaymentPluginApi.get(paymentModelDao.getPaymentMethodId()).orElse(null);
-                                           }
-                                           final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                           return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, isApiPayment, internalTenantContext);
-                                       }
-                                      );
+            return getEntityPaginationInBatches(limit,
+                                                getBulkLoadBatchSize(limit),
+                                                new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                    @Override
+                                                    public Pagination<PaymentModelDao> build() {
+                                                        // Find all payments for all accounts
+                                                        return paymentDao.get(offset, limit, internalTenantContext);
+                                                    }
+                                                },
+                                                paymentModelDaos -> {
+                                                    final Map<UUID, String> pluginInfoUnavailableByPaymentId = new HashMap<>();
+                                                    final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ?
+                                                                                                                                getPaymentTransactionInfoPlugins(paymentModelDaos, pluginNameResolver, pluginInfoUnavailableByPaymentId, tenantContext) :
+                                                                                                                                Collections.emptyMap();
+                                                    return toPayments(paymentModelDaos, pluginInfoByPaymentId, pluginInfoUnavailableByPaymentId, withAttempts, isApiPayment, internalTenantContext);
+                                                }
+                                               );
         } catch (final PaymentApiException e) {
             log.warn("Unable to get payments", e);
             return new DefaultPagination<Payment>(offset, limit, null, null, Collections.emptyIterator());
@@ -331,21 +337,28 @@ public class PaymentRefresher extends ProcessorBase {
                                            final Iterable<PluginProperty> properties,
                                            final TenantContext tenantContext,
                                            final InternalTenantContext internalTenantContext) throws PaymentApiException {
-        final PaymentPluginApi pluginApi = withPluginInfo ? getPaymentPluginApi(pluginName) : null;
-
-        return getEntityPagination(limit,
-                                   new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                       @Override
-                                       public Pagination<PaymentModelDao> build() {
-                                           // Find all payments for all accounts
-                                           return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
-                                       }
-                                   },
-                                   paymentModelDao -> {
-                                       final List<PaymentTransactionInfoPlugin> pluginInfo = getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, tenantContext);
-                                       return toPayment(paymentModelDao.getId(), pluginInfo, withAttempts, isApiPayment, internalTenantContext);
-                                   }
-                                  );
+        if (withPluginInfo) {
+            // Fail fast if the plugin isn't registered
+            getPaymentPluginApi(pluginName);
+        }
+
+        return getEntityPaginationInBatches(limit,
+                                            getBulkLoadBatchSize(limit),
+                                            new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                @Override
+                                                public Pagination<PaymentModelDao> build() {
+                                                    // Find all payments for all accounts
+                                                    return paymentDao.getPayments(pluginName, offset, limit, internalTenantContext);
+                                                }
+                                            },
+                                            paymentModelDaos -> {
+                                                final Map<UUID, String> pluginInfoUnavailableByPaymentId = new HashMap<>();
+                                                final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = withPluginInfo ?
+                                                                                                                            getPaymentTransactionInfoPlugins(paymentModelDaos, paymentModelDao -> pluginName, pluginInfoUnavailableByPaymentId, tenantContext) :
+                                                                                                                            Collections.emptyMap();
+                                                return toPayments(paymentModelDaos, pluginInfoByPaymentId, pluginInfoUnavailableByPaymentId, withAttempts, isApiPayment, internalTenantContext);
+                                            }
+                                           );
     }
 
     public Pagination<Payment> searchPayments(final String searchKey,
@@ -371,15 +384,16 @@ public class PaymentRefresher extends ProcessorBase {
                                                  );
         } else {
             try {
-                return getEntityPagination(limit,
-                                           new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
-                                               @Override
-                                               public Pagination<PaymentModelDao> build() {
-                                                   return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
-                                               }
-                                           },
-                                           paymentModelDao -> toPayment(paymentModelDao.getId(), null, withAttempts, isApiPayment, internalTenantContext)
-                                          );
+                return getEntityPaginationInBatches(limit,
+                                                    getBulkLoadBatchSize(limit),
+                                                    new SourcePaginationBuilder<PaymentModelDao, PaymentApiException>() {
+                                                        @Override
+                                                        public Pagination<PaymentModelDao> build() {
+                                                            return paymentDao.searchPayments(searchKey, offset, limit, internalTenantContext);
+                                                        }
+                                                    },
+                                                    paymentModelDaos -> toPayments(paymentModelDaos, Collections.emptyMap(), withAttempts, isApiPayment, internalTenantContext)
+                                                   );
             } catch (final PaymentApiException e) {
                 log.warn("Unable to search through payments", e);
                 return new DefaultPagination<Payment>(offset, limit, null, null, Collections.emptyIterator());
@@ -417,33 +431,90 @@ public class PaymentRefresher extends ProcessorBase {
             }
         }
 
-        final Collection<Payment> results = new LinkedList<>();
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new LinkedHashMap<>();
         for (final Entry<UUID, List<PaymentTransactionInfoPlugin>> entry : payments.entrySet()) {
-            final Payment result = toPayment(entry.getKey(), withPluginInfo ? entry.getValue() : Collections.emptyList(), withAttempts, isApiPayment, internalTenantContext);
-            if (result != null) {
-                results.add(result);
-            }
+            pluginInfoByPaymentId.put(entry.getKey(), withPluginInfo ? entry.getValue() : Collections.emptyList());
         }
+        final Collection<Payment> results = toPayments(pluginInfoByPaymentId.keySet(), pluginInfoByPaymentId, withAttempts, isApiPayment, internalTenantContext);
 
         return new DefaultPagination<Payment>(paymentTransactionInfoPlugins,
                                               limit,
                                               results.iterator());
     }
 
-    // Used in bulk get APIs (getPayments / searchPayments)
+    // Used in bulk get APIs (searchPayments)
     @VisibleForTesting
-    Payment toPayment(final UUID paymentId,
-                      @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions,
-                      final boolean withAttempts,
-                      final boolean isApiPayment,
-                      final InternalTenantContext tenantContext) {
-        final PaymentModelDao paymentModelDao = paymentDao.getPayment(paymentId, tenantContext);
-        if (paymentModelDao == null) {
-            log.warn("Unable to find payment id " + paymentId);
-            return null;
+    List<Payment> toPayments(final Collection<UUID> paymentIds,
+                             final Map<UUID, ? extends Iterable<PaymentTransactionInfoPlugin>> pluginTransactionsByPaymentId,
+                             final boolean withAttempts,
+                             final boolean isApiPayment,
+                             final InternalTenantContext tenantContext) {
+        final Map<UUID, PaymentModelDao> paymentModelDaoById = paymentDao.getPayments(paymentIds, tenantContext)
+                                                                         .stream()
+                                                                         .collect(Collectors.toMap(PaymentModelDao::getId, Function.identity()));
+
+        final List<PaymentModelDao> paymentModelDaos = new ArrayList<>(paymentIds.size());
+        for (final UUID paymentId : paymentIds) {
+            final PaymentModelDao paymentModelDao = paymentModelDaoById.get(paymentId);
+            if (paymentModelDao == null) {
+                log.warn("Unable to find payment id " + paymentId);
+            } else {
+                paymentModelDaos.add(paymentModelDao);
+            }
         }
 
-        return toPayment(paymentModelDao, pluginTransactions, withAttempts, isApiPayment, tenantContext);
+        return toPayments(paymentModelDaos, pluginTransactionsByPaymentId, Collections.emptyMap(), withAttempts, isApiPayment, tenantContext);
+    }
+
+    // Used in bulk get APIs (getPayments / searchPayments): transactions and attempts are loaded for all payments at once
+    private List<Payment> toPayments(final List<PaymentModelDao> paymentModelDaos,
+                                     final Map<UUID, ? extends Iterable<PaymentTransactionInfoPlugin>> pluginTransactionsByPaymentId,
+                                     final Map<UUID, String> pluginInfoUnavailableByPaymentId,
+                                     final boolean withAttempts,
+                                     final boolean isApiPayment,
+                                     final InternalTenantContext tenantContext) {
+        if (paymentModelDaos.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<UUID> paymentIds = paymentModelDaos.stream()
+                                                      .map(PaymentModelDao::getId)
+                                                      .collect(Collectors.toUnmodifiableList());
+        final Map<UUID, List<PaymentTransactionModelDao>> transactionsByPaymentId = paymentDao.getTransactionsForPayments(paymentIds, tenantContext)
+                                                                                              .stream()
+                                                                                              .collect(Collectors.groupingBy(PaymentTransactionModelDao::getPaymentId));
+
+        final Map<String, List<PaymentAttemptModelDao>> attemptsByPaymentExternalKey;
+        if (withAttempts) {
+            final Set<String> paymentExternalKeys = paymentModelDaos.stream()
+                                                                    .map(PaymentModelDao::getExternalKey)
+                                                                    .collect(Collectors.toUnmodifiableSet());
+            attemptsByPaymentExternalKey = paymentDao.getPaymentAttempts(paymentExternalKeys, tenantContext)
+                                                     .stream()
+                                                     .collect(Collectors.groupingBy(PaymentAttemptModelDao::getPaymentExternalKey));
+        } else {
+            attemptsByPaymentExternalKey = Collections.emptyMap();
+        }
+
+        final Map<UUID, InternalTenantContext> tenantContextByAccountId = new HashMap<>();
+        final List<Payment> payments = new ArrayList<>(paymentModelDaos.size());
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            final Iterable<PaymentTransactionInfoPlugin> pluginTransactions = pluginTransactionsByPaymentId.get(paymentModelDao.getId());
+            // The account record id is only needed if the Janitor is invoked
+            final InternalTenantContext paymentTenantContext = pluginTransactions == null ?
+                                                               tenantContext :
+                                                               tenantContextByAccountId.computeIfAbsent(paymentModelDao.getAccountId(),
+                                                                                                        accountId -> getInternalTenantContextWithAccountRecordId(accountId, tenantContext));
+            payments.add(toPayment(paymentModelDao,
+                                   transactionsByPaymentId.getOrDefault(paymentModelDao.getId(), Collections.emptyList()),
+                                   pluginTransactions,
+                                   withAttempts,
+                                   attemptsByPaymentExternalKey.getOrDefault(paymentModelDao.getExternalKey(), Collections.emptyList()),
+                                   pluginInfoUnavailableByPaymentId.get(paymentModelDao.getId()),
+                                   isApiPayment,
+                                   paymentTenantContext));
+        }
+        return payments;
     }
 
     // Used in single get APIs (getPayment / getPaymentByExternalKey)
@@ -468,7 +539,7 @@ public class PaymentRefresher extends ProcessorBase {
         final InternalTenantContext tenantContextWithAccountRecordId = getInternalTenantContextWithAccountRecordId(paymentModelDao.getAccountId(), tenantContext);
         final List<PaymentTransactionModelDao> transactionsForPayment = paymentDao.getTransactionsForPayment(paymentModelDao.getId(), tenantContextWithAccountRecordId);
 
-        return toPayment(paymentModelDao, transactionsForPayment, pluginTransactions, withAttempts, isApiPayment, tenantContextWithAccountRecordId);
+        return toPayment(paymentModelDao, transactionsForPayment, pluginTransactions, withAttempts, null, null, isApiPayment, tenantContextWithAccountRecordId);
     }
 
     // Used in both single get APIs and bulk get APIs
@@ -476,6 +547,8 @@ public class PaymentRefresher extends ProcessorBase {
                               final Collection<PaymentTransactionModelDao> allTransactionsModelDao,
                               @Nullable final Iterable<PaymentTransactionInfoPlugin> pluginTransactions,
                               final boolean withAttempts,
+                              @Nullable final List<PaymentAttemptModelDao> paymentAttemptsModelDao,
+                              @Nullable final String pluginInfoUnavailableReason,
                               final boolean isApiPayment,
                               final InternalTenantContext internalTenantContext) {
         // Need to filter for optimized codepaths looking up by account_record_id
@@ -490,7 +563,9 @@ public class PaymentRefresher extends ProcessorBase {
 
         final Collection<PaymentTransaction> transactions = new LinkedList<PaymentTransaction>();
         for (final PaymentTransactionModelDao newPaymentTransactionModelDao : transactionsModelDao) {
-            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactions);
+            final PaymentTransactionInfoPlugin paymentTransactionInfoPlugin = pluginInfoUnavailableReason != null ?
+                                                                              toPluginInfoUnavailable(newPaymentTransactionModelDao, pluginInfoUnavailableReason) :
+                                                                              findPaymentTransactionInfoPlugin(newPaymentTransactionModelDao, pluginTransactions);
             final PaymentTransaction transaction = new DefaultPaymentTransaction(newPaymentTransactionModelDao.getId(),
                                                                                  newPaymentTransactionModelDao.getAttemptId(),
                                                                                  newPaymentTransactionModelDao.getTransactionExternalKey(),
@@ -523,7 +598,9 @@ public class PaymentRefresher extends ProcessorBase {
                                   curPaymentModelDao.getExternalKey(),
                                   sortedTransactions,
                                   (withAttempts && !sortedTransactions.isEmpty()) ?
-                                  getPaymentAttempts(paymentDao.getPaymentAttempts(curPaymentModelDao.getExternalKey(), internalTenantContext),
+                                  getPaymentAttempts(paymentAttemptsModelDao != null ?
+                                                     paymentAttemptsModelDao :
+                                                     paymentDao.getPaymentAttempts(curPaymentModelDao.getExternalKey(), internalTenantContext),
                                                      internalTenantContext) : null
         );
     }
@@ -611,6 +688,10 @@ public class PaymentRefresher extends ProcessorBase {
         return null;
     }
 
+    private int getBulkLoadBatchSize(final Long limit) {
+        return (int) Math.max(1L, Math.min(limit, BULK_LOAD_BATCH_SIZE));
+    }
+
     private InternalTenantContext getInternalTenantContextWithAccountRecordId(final UUID accountId, final InternalTenantContext tenantContext) {
         final InternalTenantContext tenantContextWithAccountRecordId;
         if (tenantContext.getAccountRecordId() == null) {
@@ -621,7 +702,112 @@ public class PaymentRefresher extends ProcessorBase {
         return tenantContextWithAccountRecordId;
     }
 
-    // Used in bulk get API (getAccountPayments / getPayments)
+    // Used in bulk get APIs (getAccountPayments / getPayments): the plugin calls are fanned out on the plugin info executors, with at most
+    // getPaymentPluginInfoConcurrency() calls in flight for the request, and must all complete within getPaymentPluginInfoTimeout().
+    // Payments whose plugin info couldn't be retrieved are recorded in pluginInfoUnavailableByPaymentId (with the reason)
+    private Map<UUID, List<PaymentTransactionInfoPlugin>> getPaymentTransactionInfoPlugins(final Iterable<PaymentModelDao> paymentModelDaos,
+                                                                                          final Function<PaymentModelDao, String> pluginNameResolver,
+                                                                                          final Map<UUID, String> pluginInfoUnavailableByPaymentId,
+                                                                                          final TenantContext context) {
+        final int concurrency = Math.max(1, paymentConfig.getPaymentPluginInfoConcurrency());
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(paymentConfig.getPaymentPluginInfoTimeout().getMillis());
+
+        final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId = new HashMap<>();
+        final Map<String, Optional<PaymentPluginApi>> pluginApiByName = new HashMap<>();
+        final Deque<Entry<UUID, Future<List<PaymentTransactionInfoPlugin>>>> inFlightCalls = new ArrayDeque<>(concurrency);
+        for (final PaymentModelDao paymentModelDao : paymentModelDaos) {
+            final String pluginName = pluginNameResolver.apply(paymentModelDao);
+            final PaymentPluginApi pluginApi = pluginName == null ? null : pluginApiByName.computeIfAbsent(pluginName, this::getPaymentPluginApiIfAvailable).orElse(null);
+            if (pluginApi == null) {
+                continue;
+            }
+
+            if (inFlightCalls.size() >= concurrency) {
+                awaitPaymentTransactionInfoPlugins(inFlightCalls.poll(), deadlineNanos, pluginInfoByPaymentId, pluginInfoUnavailableByPaymentId);
+            }
+
+            try {
+                final Future<List<PaymentTransactionInfoPlugin>> future = paymentExecutors.getPluginInfoExecutor(pluginName)
+                                                                                          .submit(() -> getPaymentTransactionInfoPluginsIfNeeded(pluginApi, paymentModelDao, context));
+                inFlightCalls.add(Map.entry(paymentModelDao.getId(), future));
+            } catch (final RejectedExecutionException e) {
+                pluginInfoUnavailableByPaymentId.put(paymentModelDao.getId(), PLUGIN_INFO_REJECTED);
+            }
+        }
+
+        while (!inFlightCalls.isEmpty()) {
+            awaitPaymentTransactionInfoPlugins(inFlightCalls.poll(), deadlineNanos, pluginInfoByPaymentId, pluginInfoUnavailableByPaymentId);
+        }
+
+        if (!pluginInfoUnavailableByPaymentId.isEmpty()) {
+            log.warn("Unable to retrieve plugin info for {} payment(s), returning them without plugin info: {}", pluginInfoUnavailableByPaymentId.size(), pluginInfoUnavailableByPaymentId);
+        }
+
+        return pluginInfoByPaymentId;
+    }
+
+    private void awaitPaymentTransactionInfoPlugins(final Entry<UUID, Future<List<PaymentTransactionInfoPlugin>>> inFlightCall,
+                                                    final long deadlineNanos,
+                                                    final Map<UUID, List<PaymentTransactionInfoPlugin>> pluginInfoByPaymentId,
+                                                    final Map<UUID, String> pluginInfoUnavailableByPaymentId) {
+        final UUID paymentId = inFlightCall.getKey();
+        final Future<List<PaymentTransactionInfoPlugin>> future = inFlightCall.getValue();
+        try {
+            // Once the deadline has passed, only the calls which have already completed are used
+            pluginInfoByPaymentId.put(paymentId, future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            pluginInfoUnavailableByPaymentId.put(paymentId, PLUGIN_INFO_TIMEOUT);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            pluginInfoUnavailableByPaymentId.put(paymentId, PLUGIN_INFO_TIMEOUT);
+        } catch (final ExecutionException e) {
+            log.warn("Unable to retrieve plugin info for payment " + paymentId, e.getCause());
+            pluginInfoUnavailableByPaymentId.put(paymentId, PLUGIN_INFO_ERROR);
+        }
+    }
+
+    // The plugin name of each payment is looked up once per payment method
+    private Function<PaymentModelDao, String> getPluginNameResolver(final InternalTenantContext tenantContext) {
+        final Map<UUID, Optional<String>> pluginNameByPaymentMethodId = new HashMap<>();
+        return paymentModelDao -> pluginNameByPaymentMethodId.computeIfAbsent(paymentModelDao.getPaymentMethodId(), paymentMethodId -> {
+            try {
+                return Optional.of(getPaymentMethodById(paymentMethodId, true, tenantContext).getPluginName());
+            } catch (final PaymentApiException e) {
+                // We use Optional to avoid printing the log line for each result
+                log.warn("Unable to retrieve PaymentPluginApi for paymentMethodId='{}'", paymentMethodId, e);
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    private Optional<PaymentPluginApi> getPaymentPluginApiIfAvailable(final String pluginName) {
+        try {
+            return Optional.of(getPaymentPluginApi(pluginName));
+        } catch (final PaymentApiException e) {
+            log.warn("Unable to retrieve PaymentPluginApi for pluginName='{}'", pluginName, e);
+            return Optional.empty();
+        }
+    }
+
+    // Placeholder for the plugin info of a transaction when it couldn't be retrieved from the plugin (the transaction state is the one from the database)
+    private PaymentTransactionInfoPlugin toPluginInfoUnavailable(final PaymentTransactionModelDao paymentTransactionModelDao, final String reason) {
+        return new DefaultNoOpPaymentInfoPlugin(paymentTransactionModelDao.getPaymentId(),
+                                                paymentTransactionModelDao.getId(),
+                                                paymentTransactionModelDao.getTransactionType(),
+                                                paymentTransactionModelDao.getProcessedAmount(),
+                                                paymentTransactionModelDao.getProcessedCurrency(),
+                                                paymentTransactionModelDao.getEffectiveDate(),
+                                                paymentTransactionModelDao.getCreatedDate(),
+                                                PaymentPluginStatus.UNDEFINED,
+                                                paymentTransactionModelDao.getGatewayErrorCode(),
+                                                paymentTransactionModelDao.getGatewayErrorMsg(),
+                                                null,
+                                                null,
+                                                List.of(new PluginProperty(PLUGIN_INFO_UNAVAILABLE_PROPERTY, reason, false)));
+    }
+
     private List<PaymentTransactionInfoPlugin> getPaymentTransactionInfoPluginsIfNeeded(@Nullable final PaymentPluginApi pluginApi, final PaymentModelDao paymentModelDao, final TenantContext context) {
         if (pluginApi == null) {
             return null;
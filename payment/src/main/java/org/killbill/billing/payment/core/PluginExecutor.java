@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.payment.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bulkhead for the calls to a given payment plugin (or chain of control plugins): a slow plugin can only exhaust its own threads and queue
+public class PluginExecutor {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Long::max, 0L);
+
+    public PluginExecutor(final String name, final ThreadPoolExecutor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    public <T> Future<T> submit(final Callable<T> task) throws RejectedExecutionException {
+        final long enqueuedNanos = System.nanoTime();
+        try {
+            final Future<T> future = executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    recordQueueWait(System.nanoTime() - enqueuedNanos);
+                    return task.call();
+                }
+            });
+            submitted.increment();
+            return future;
+        } catch (final RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private void recordQueueWait(final long waitNanos) {
+        queueWaitNanos.add(waitNanos);
+        maxQueueWaitNanos.accumulate(waitNanos);
+    }
+
+    void prestartAllCoreThreads() {
+        executor.prestartAllCoreThreads();
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public double getAverageQueueWaitMillis() {
+        final long nbSubmitted = submitted.sum();
+        return nbSubmitted == 0 ? 0.0 : (queueWaitNanos.sum() / (double) nbSubmitted) / 1000000.0;
+    }
+
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1000000.0;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+}
@@ -19,6 +19,7 @@
 package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -47,6 +48,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public List<PaymentAttemptModelDao> getPaymentAttempts(String paymentExternalKey, InternalTenantContext context);
 
+    public List<PaymentAttemptModelDao> getPaymentAttempts(Collection<String> paymentExternalKeys, InternalTenantContext context);
+
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(String externalKey, InternalTenantContext context);
 
     public List<PaymentTransactionModelDao> getPaymentTransactionsByExternalKey(String transactionExternalKey, InternalTenantContext context);
@@ -91,6 +94,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public PaymentModelDao getPayment(UUID paymentId, InternalTenantContext context);
 
+    public List<PaymentModelDao> getPayments(Collection<UUID> paymentIds, InternalTenantContext context);
+
     public PaymentTransactionModelDao getPaymentTransaction(UUID transactionId, InternalTenantContext context);
 
     public List<PaymentModelDao> getPaymentsForAccount(UUID accountId, InternalTenantContext context);
@@ -101,6 +106,8 @@ public interface PaymentDao extends EntityDao<PaymentModelDao, Payment, PaymentA
 
     public List<PaymentTransactionModelDao> getTransactionsForPayment(UUID paymentId, InternalTenantContext context);
 
+    public List<PaymentTransactionModelDao> getTransactionsForPayments(Collection<UUID> paymentIds, InternalTenantContext context);
+
     public PaymentAttemptModelDao getPaymentAttempt(UUID attemptId, InternalTenantContext context);
 
     public PaymentMethodModelDao insertPaymentMethod(PaymentMethodModelDao paymentMethod, InternalCallContext context);
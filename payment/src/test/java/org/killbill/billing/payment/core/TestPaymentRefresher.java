@@ -17,12 +17,18 @@
 
 package org.killbill.billing.payment.core;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
 
 import org.joda.time.DateTime;
 import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.catalog.api.Currency;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.DefaultPayment;
 import org.killbill.billing.payment.api.Payment;
@@ -30,15 +36,21 @@ import org.killbill.billing.payment.api.PaymentApiException;
 import org.killbill.billing.payment.api.PaymentAttempt;
 import org.killbill.billing.payment.api.PaymentTransaction;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.payment.api.TransactionStatus;
 import org.killbill.billing.payment.api.TransactionType;
+import org.killbill.billing.payment.dao.PaymentMethodModelDao;
+import org.killbill.billing.payment.dao.PaymentModelDao;
+import org.killbill.billing.payment.dao.PaymentTransactionModelDao;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApi;
 import org.killbill.billing.payment.plugin.api.PaymentPluginApiException;
 import org.killbill.billing.payment.plugin.api.PaymentTransactionInfoPlugin;
 import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.config.definition.PaymentConfig;
 import org.killbill.commons.utils.collect.Iterables;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
 import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -103,14 +115,19 @@ public class TestPaymentRefresher extends PaymentTestSuiteNoDB {
                                                              invoiceApi,
                                                              clock,
                                                              null, // notificationQueueService
-                                                             null /* incompletePaymentTransactionTask */);
+                                                             null, // incompletePaymentTransactionTask
+                                                             paymentExecutors,
+                                                             paymentConfig);
         final PaymentRefresher toMock = Mockito.spy(result);
-        Mockito.doReturn(anyPayment())
-               .when(toMock).toPayment(Mockito.any(UUID.class),
-                                       Mockito.anyIterable(),
-                                       Mockito.anyBoolean(),
-                                       Mockito.anyBoolean(),
-                                       Mockito.any());
+        Mockito.doAnswer(invocation -> {
+                   final Collection<UUID> paymentIds = invocation.getArgument(0);
+                   return paymentIds.stream().map(paymentId -> anyPayment()).collect(Collectors.toUnmodifiableList());
+               })
+               .when(toMock).toPayments(Mockito.any(),
+                                        Mockito.anyMap(),
+                                        Mockito.anyBoolean(),
+                                        Mockito.anyBoolean(),
+                                        Mockito.any());
         return toMock;
     }
 
@@ -135,11 +152,89 @@ public class TestPaymentRefresher extends PaymentTestSuiteNoDB {
                                                                       callContext,
                                                                       internalCallContext);
         Assert.assertEquals(Iterables.size(payments), 3);
-        Mockito.verify(refresher, Mockito.times(3))
-               .toPayment(Mockito.any(UUID.class),
-                              Mockito.anyIterable(),
-                              Mockito.anyBoolean(),
-                              Mockito.anyBoolean(),
-                              Mockito.any(InternalTenantContext.class));
+        // All payments are loaded at once
+        Mockito.verify(refresher, Mockito.times(1))
+               .toPayments(Mockito.argThat(paymentIds -> paymentIds.size() == 3),
+                           Mockito.anyMap(),
+                           Mockito.anyBoolean(),
+                           Mockito.anyBoolean(),
+                           Mockito.any(InternalTenantContext.class));
+    }
+
+    @Test(groups = "fast")
+    public void testGetAccountPaymentsWithPluginInfoDeadline() throws Exception {
+        final UUID accountId = UUIDs.randomUUID();
+        final UUID paymentMethodId = UUIDs.randomUUID();
+        final DateTime now = clock.getUTCNow();
+        Mockito.when(paymentPluginRegistrar.getPaymentMethodById(Mockito.eq(paymentMethodId), Mockito.eq(true), Mockito.any(InternalTenantContext.class)))
+               .thenReturn(new PaymentMethodModelDao(paymentMethodId, null, now, now, accountId, PLUGIN_NAME, true));
+
+        final PaymentModelDao slowPayment = insertPayment(accountId, paymentMethodId);
+        final PaymentModelDao fastPayment = insertPayment(accountId, paymentMethodId);
+
+        // The plugin only answers for the slow payment once the test is done
+        final CountDownLatch slowPaymentLatch = new CountDownLatch(1);
+        final List<String> threadNames = Collections.synchronizedList(new ArrayList<String>());
+        final PaymentPluginApi paymentPluginApi = Mockito.mock(PaymentPluginApi.class);
+        Mockito.when(paymentPluginApi.getPaymentInfo(Mockito.eq(accountId), Mockito.any(UUID.class), Mockito.any(), Mockito.any()))
+               .thenAnswer(invocation -> {
+                   threadNames.add(Thread.currentThread().getName());
+                   if (slowPayment.getId().equals(invocation.getArgument(1))) {
+                       slowPaymentLatch.await();
+                   }
+                   return Collections.emptyList();
+               });
+        Mockito.when(paymentPluginRegistrar.getPaymentPluginApi(PLUGIN_NAME)).thenReturn(paymentPluginApi);
+
+        final PaymentConfig pluginInfoConfig = Mockito.mock(PaymentConfig.class);
+        Mockito.when(pluginInfoConfig.getPaymentPluginInfoConcurrency()).thenReturn(2);
+        Mockito.when(pluginInfoConfig.getPaymentPluginInfoTimeout()).thenReturn(new TimeSpan("500ms"));
+
+        final PaymentRefresher refresher = new PaymentRefresher(paymentPluginRegistrar,
+                                                                accountInternalApi,
+                                                                paymentDao,
+                                                                null, // tagInternalApi / tagUserApi
+                                                                null, // GlobalLocker / locker
+                                                                internalCallContextFactory,
+                                                                invoiceApi,
+                                                                clock,
+                                                                null, // notificationQueueService
+                                                                null, // incompletePaymentTransactionTask
+                                                                paymentExecutors,
+                                                                pluginInfoConfig);
+        try {
+            final List<Payment> payments = refresher.getAccountPayments(accountId, true, false, true, callContext, internalCallContext);
+            Assert.assertEquals(payments.size(), 2);
+            for (final Payment payment : payments) {
+                Assert.assertEquals(payment.getTransactions().size(), 1);
+                final PaymentTransactionInfoPlugin paymentInfoPlugin = payment.getTransactions().get(0).getPaymentInfoPlugin();
+                if (payment.getId().equals(slowPayment.getId())) {
+                    // Missed the deadline: returned without plugin info, but flagged
+                    Assert.assertNotNull(paymentInfoPlugin);
+                    Assert.assertEquals(paymentInfoPlugin.getProperties().size(), 1);
+                    Assert.assertEquals(paymentInfoPlugin.getProperties().get(0).getKey(), PaymentRefresher.PLUGIN_INFO_UNAVAILABLE_PROPERTY);
+                    Assert.assertEquals(paymentInfoPlugin.getProperties().get(0).getValue(), PaymentRefresher.PLUGIN_INFO_TIMEOUT);
+                } else {
+                    Assert.assertEquals(payment.getId(), fastPayment.getId());
+                    Assert.assertNull(paymentInfoPlugin);
+                }
+            }
+
+            // The plugin info calls don't use the executor of the payment calls
+            Assert.assertEquals(threadNames.size(), 2);
+            for (final String threadName : threadNames) {
+                Assert.assertTrue(threadName.startsWith("Plugin-info-th-"), threadName);
+            }
+        } finally {
+            slowPaymentLatch.countDown();
+        }
+    }
+
+    private PaymentModelDao insertPayment(final UUID accountId, final UUID paymentMethodId) {
+        final DateTime now = clock.getUTCNow();
+        final PaymentModelDao payment = new PaymentModelDao(now, now, accountId, paymentMethodId, UUIDs.randomUUID().toString());
+        final PaymentTransactionModelDao transaction = new PaymentTransactionModelDao(now, now, null, UUIDs.randomUUID().toString(), payment.getId(), TransactionType.AUTHORIZE, now,
+                                                                                      TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD, null, null);
+        return paymentDao.insertPaymentWithFirstTransaction(payment, transaction, internalCallContext).getPaymentModelDao();
     }
 }
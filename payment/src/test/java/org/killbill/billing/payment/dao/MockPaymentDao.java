@@ -20,6 +20,7 @@ package org.killbill.billing.payment.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -137,6 +138,15 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentAttemptModelDao> getPaymentAttempts(final Collection<String> paymentExternalKeys, final InternalTenantContext context) {
+        synchronized (this) {
+            return attempts.values().stream()
+                    .filter(input -> paymentExternalKeys.contains(input.getPaymentExternalKey()))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
     @Override
     public List<PaymentAttemptModelDao> getPaymentAttemptByTransactionExternalKey(final String transactionExternalKey, final InternalTenantContext context) {
         synchronized (this) {
@@ -270,6 +280,16 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentModelDao> getPayments(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        synchronized (this) {
+            return paymentIds.stream()
+                    .map(payments::get)
+                    .filter(input -> input != null)
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
     @Override
     public PaymentTransactionModelDao getPaymentTransaction(final UUID transactionId, final InternalTenantContext context) {
         synchronized (this) {
@@ -316,6 +336,15 @@ public class MockPaymentDao extends MockEntityDaoBase<PaymentModelDao, Payment,
         }
     }
 
+    @Override
+    public List<PaymentTransactionModelDao> getTransactionsForPayments(final Collection<UUID> paymentIds, final InternalTenantContext context) {
+        synchronized (this) {
+            return transactions.values().stream()
+                    .filter(input -> paymentIds.contains(input.getPaymentId()))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
     @Override
     public PaymentAttemptModelDao getPaymentAttempt(final UUID attemptId, final InternalTenantContext context) {
         synchronized (this) {
@@ -22,6 +22,7 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -302,6 +303,52 @@ public class TestPaymentDao extends PaymentTestSuiteWithEmbeddedDB {
         assertEquals(deletedPaymentMethod.getPluginName(), pluginName);
     }
 
+    @Test(groups = "slow")
+    public void testBulkLoadPaymentsTransactionsAndAttempts() {
+        final UUID accountId = UUID.randomUUID();
+        final DateTime utcNow = clock.getUTCNow();
+
+        final List<PaymentModelDao> payments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final PaymentModelDao paymentModelDao = new PaymentModelDao(utcNow, utcNow, accountId, UUID.randomUUID(), UUID.randomUUID().toString());
+            final PaymentTransactionModelDao transactionModelDao = new PaymentTransactionModelDao(utcNow, utcNow, null, UUID.randomUUID().toString(),
+                                                                                                  paymentModelDao.getId(), TransactionType.AUTHORIZE, utcNow,
+                                                                                                  TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                                                                  "success", "");
+            payments.add(paymentDao.insertPaymentWithFirstTransaction(paymentModelDao, transactionModelDao, internalCallContext).getPaymentModelDao());
+
+            final PaymentAttemptModelDao attempt = new PaymentAttemptModelDao(accountId, paymentModelDao.getPaymentMethodId(), utcNow, utcNow,
+                                                                              paymentModelDao.getExternalKey(), transactionModelDao.getId(), transactionModelDao.getTransactionExternalKey(),
+                                                                              TransactionType.AUTHORIZE, "SUCCESS", BigDecimal.TEN, Currency.USD, List.of("superPlugin"), null);
+            paymentDao.insertPaymentAttemptWithProperties(attempt, internalCallContext);
+        }
+        paymentDao.updatePaymentWithNewTransaction(payments.get(0).getId(),
+                                                   new PaymentTransactionModelDao(utcNow, utcNow, null, UUID.randomUUID().toString(),
+                                                                                  payments.get(0).getId(), TransactionType.CAPTURE, utcNow,
+                                                                                  TransactionStatus.SUCCESS, BigDecimal.TEN, Currency.USD,
+                                                                                  "success", ""),
+                                                   internalCallContext);
+
+        // Only load the first two
+        final List<UUID> paymentIds = List.of(payments.get(0).getId(), payments.get(1).getId());
+        final Set<String> paymentExternalKeys = Set.of(payments.get(0).getExternalKey(), payments.get(1).getExternalKey());
+
+        final List<PaymentModelDao> loadedPayments = paymentDao.getPayments(paymentIds, internalCallContext);
+        assertEquals(loadedPayments.stream().map(PaymentModelDao::getId).collect(Collectors.toUnmodifiableSet()), Set.copyOf(paymentIds));
+
+        final List<PaymentTransactionModelDao> loadedTransactions = paymentDao.getTransactionsForPayments(paymentIds, internalCallContext);
+        assertEquals(loadedTransactions.size(), 3);
+        assertEquals(loadedTransactions.stream().filter(input -> input.getPaymentId().equals(payments.get(0).getId())).count(), 2);
+        assertEquals(loadedTransactions.stream().filter(input -> input.getPaymentId().equals(payments.get(1).getId())).count(), 1);
+
+        final List<PaymentAttemptModelDao> loadedAttempts = paymentDao.getPaymentAttempts(paymentExternalKeys, internalCallContext);
+        assertEquals(loadedAttempts.stream().map(PaymentAttemptModelDao::getPaymentExternalKey).collect(Collectors.toUnmodifiableSet()), paymentExternalKeys);
+
+        assertEquals(paymentDao.getPayments(List.of(), internalCallContext).size(), 0);
+        assertEquals(paymentDao.getTransactionsForPayments(List.of(), internalCallContext).size(), 0);
+        assertEquals(paymentDao.getPaymentAttempts(Set.of(), internalCallContext).size(), 0);
+    }
+
     // Flaky, see https://github.com/killbill/killbill/issues/860
     @Test(groups = "slow", retryAnalyzer = FlakyRetryAnalyzer.class)
     public void testPendingTransactions() {
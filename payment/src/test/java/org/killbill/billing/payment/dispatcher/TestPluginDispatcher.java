@@ -19,13 +19,16 @@
 package org.killbill.billing.payment.dispatcher;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.payment.PaymentTestSuiteNoDB;
 import org.killbill.billing.payment.api.PaymentApiException;
+import org.killbill.billing.payment.core.PluginExecutor;
 import org.killbill.billing.payment.dispatcher.PluginDispatcher.PluginDispatcherReturnType;
 import org.killbill.billing.util.UUIDs;
 import org.killbill.commons.request.Request;
@@ -151,4 +154,41 @@ public class TestPluginDispatcher extends PaymentTestSuiteNoDB {
         Assert.assertEquals(actualRequestId, requestId);
     }
 
+    @Test(groups = "fast")
+    public void testDispatchWithSaturatedPluginExecutor() throws TimeoutException, ExecutionException, InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final PluginExecutor slowPluginExecutor = paymentExecutors.getPluginExecutor("slow-plugin");
+        try {
+            // Fill the threads and the queue of that plugin
+            for (int i = 0; i < paymentConfig.getPaymentPluginThreadNb() + paymentConfig.getPaymentPluginQueueSize(); i++) {
+                slowPluginExecutor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        latch.await();
+                        return null;
+                    }
+                });
+            }
+
+            final Callable<PluginDispatcherReturnType<String>> callable = new Callable<PluginDispatcherReturnType<String>>() {
+                @Override
+                public PluginDispatcherReturnType<String> call() throws Exception {
+                    return PluginDispatcher.<String>createPluginDispatcherReturnType("foo");
+                }
+            };
+
+            try {
+                stringPluginDispatcher.dispatchWithTimeout("slow-plugin", callable, 100, TimeUnit.MILLISECONDS);
+                Assert.fail("Failed : should have had RejectedExecutionException exception");
+            } catch (final RejectedExecutionException e) {
+                Assert.assertEquals(slowPluginExecutor.getRejected(), 1);
+            }
+
+            // Calls to the other plugins aren't impacted
+            Assert.assertEquals(stringPluginDispatcher.dispatchWithTimeout("healthy-plugin", callable, 100, TimeUnit.MILLISECONDS), "foo");
+            Assert.assertEquals(paymentExecutors.getPluginExecutor("healthy-plugin").getRejected(), 0);
+        } finally {
+            latch.countDown();
+        }
+    }
 }
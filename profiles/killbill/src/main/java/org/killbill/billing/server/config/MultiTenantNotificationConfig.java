@@ -59,6 +59,31 @@ public class MultiTenantNotificationConfig extends MultiTenantConfigBase impleme
         return getPushNotificationsRetries();
     }
 
+    @Override
+    public TimeSpan getPushNotificationsTimeout() {
+        return staticConfig.getPushNotificationsTimeout();
+    }
+
+    @Override
+    public int getPushNotificationsMaxConcurrentRequestsPerCallback() {
+        return staticConfig.getPushNotificationsMaxConcurrentRequestsPerCallback();
+    }
+
+    @Override
+    public int getPushNotificationsMaxPendingPerCallback() {
+        return staticConfig.getPushNotificationsMaxPendingPerCallback();
+    }
+
+    @Override
+    public int getPushNotificationsMaxBatchSize() {
+        return staticConfig.getPushNotificationsMaxBatchSize();
+    }
+
+    @Override
+    public int getPushNotificationsThreads() {
+        return staticConfig.getPushNotificationsThreads();
+    }
+
     @Override
     protected Class<? extends KillbillConfig> getConfigClass() {
         return NotificationConfig.class;
@@ -18,13 +18,19 @@
 package org.killbill.billing.server.filters;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
+import javax.inject.Inject;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.ContainerResponseContext;
 import javax.ws.rs.container.ContainerResponseFilter;
 
+import org.killbill.billing.jaxrs.ProfilingHistograms;
 import org.killbill.billing.jaxrs.json.ProfilingDataJson;
+import org.killbill.billing.server.security.TenantFilter;
+import org.killbill.billing.tenant.api.Tenant;
 import org.killbill.billing.util.jackson.ObjectMapper;
 import org.killbill.commons.profiling.Profiling;
 import org.killbill.commons.profiling.ProfilingData;
@@ -43,6 +49,9 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
 
     private static final String PROFILING_HEADER_REQ = "X-Killbill-Profiling-Req";
     private static final String PROFILING_HEADER_RESP = "X-Killbill-Profiling-Resp";
+    private static final String SAMPLED_PROPERTY = "killbill_profiling_sampled";
+    // Aggregated per resource path, not per object
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
@@ -50,20 +59,33 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
         mapper.configure(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS, false);
     }
 
+    private final ProfilingHistograms profilingHistograms;
+
+    @Inject
+    public ProfilingContainerResponseFilter(final ProfilingHistograms profilingHistograms) {
+        this.profilingHistograms = profilingHistograms;
+    }
+
     @Override
     public void filter(final ContainerRequestContext requestContext) {
         final List<String> profilingHeaderRequests = requestContext.getHeaders().get(PROFILING_HEADER_REQ);
         final String profilingHeaderRequest = (profilingHeaderRequests == null || profilingHeaderRequests.isEmpty()) ? null : profilingHeaderRequests.get(0);
-        if (profilingHeaderRequest != null) {
+        // Requests explicitly profiled by the client aren't sampled
+        final boolean sampled = profilingHeaderRequest == null && profilingHistograms.shouldSample();
+        final String profilingFeatures = sampled ? profilingHistograms.getProfilingFeatures() : profilingHeaderRequest;
+        if (profilingFeatures != null) {
             try {
-                Profiling.setPerThreadProfilingData(profilingHeaderRequest);
+                Profiling.setPerThreadProfilingData(profilingFeatures);
+                if (sampled) {
+                    requestContext.setProperty(SAMPLED_PROPERTY, Boolean.TRUE);
+                }
                 // If we need to profile JAXRS let's do it...
                 final ProfilingData profilingData = Profiling.getPerThreadProfilingData();
                 if (profilingData.getProfileFeature().isProfilingJAXRS()) {
-                    profilingData.addStart(ProfilingFeatureType.JAXRS, requestContext.getUriInfo().getPath());
+                    profilingData.addStart(ProfilingFeatureType.JAXRS, getJaxrsProfilingKey(requestContext));
                 }
             } catch (final IllegalArgumentException e) {
-                log.info("Profiling data output {} is not supported, profiling NOT enabled", profilingHeaderRequest);
+                log.info("Profiling data output {} is not supported, profiling NOT enabled", profilingFeatures);
             }
         }
     }
@@ -74,10 +96,15 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
             final ProfilingData rawData = Profiling.getPerThreadProfilingData();
             if (rawData != null) {
                 if (rawData.getProfileFeature().isProfilingJAXRS()) {
-                    rawData.addEnd(ProfilingFeatureType.JAXRS, requestContext.getUriInfo().getPath());
+                    rawData.addEnd(ProfilingFeatureType.JAXRS, getJaxrsProfilingKey(requestContext));
                 }
                 final ProfilingDataJson profilingData = new ProfilingDataJson(rawData);
 
+                if (requestContext.getProperty(SAMPLED_PROPERTY) != null) {
+                    profilingHistograms.record(getTenantId(requestContext), profilingData);
+                    return;
+                }
+
                 final String value;
                 try {
                     value = mapper.writeValueAsString(profilingData);
@@ -90,4 +117,14 @@ public class ProfilingContainerResponseFilter implements ContainerRequestFilter,
             Profiling.resetPerThreadProfilingData();
         }
     }
+
+    private String getJaxrsProfilingKey(final ContainerRequestContext requestContext) {
+        final String path = requestContext.getUriInfo().getPath();
+        return requestContext.getProperty(SAMPLED_PROPERTY) != null ? UUID_PATTERN.matcher(path).replaceAll("{id}") : path;
+    }
+
+    private UUID getTenantId(final ContainerRequestContext requestContext) {
+        final Object tenantObject = requestContext.getProperty(TenantFilter.TENANT);
+        return tenantObject instanceof Tenant ? ((Tenant) tenantObject).getId() : null;
+    }
 }
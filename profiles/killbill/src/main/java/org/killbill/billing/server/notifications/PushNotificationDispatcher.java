@@ -0,0 +1,447 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.killbill.billing.jaxrs.json.NotificationJson;
+import org.killbill.billing.util.config.definition.NotificationConfig;
+import org.killbill.commons.utils.annotation.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the push notifications asynchronously, so that a slow callback endpoint never stalls the bus threads.
+ * <p/>
+ * Notifications are queued per (tenant, callback URL): each queue has at most
+ * <tt>maxConcurrentRequestsPerCallback</tt> requests in flight and <tt>maxPendingPerCallback</tt> notifications waiting.
+ * When the queue is full, or once the request has failed, the notification is handed to the {@link FailureHandler}
+ * (i.e. scheduled for retry). Pending notifications can optionally be coalesced into a single request (JSON array).
+ * <p/>
+ * A notification is never scheduled for retry while its request is still in flight, except on {@link #shutdown}
+ * for the requests which haven't completed within <tt>timeout</tt>. The bus or notification queue entry is acked once the
+ * notifications have been queued: on shutdown, the ones not sent yet are scheduled for retry, but a crash loses them
+ * (at most <tt>maxPendingPerCallback</tt> per callback). Idle queues are evicted.
+ */
+public class PushNotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushNotificationDispatcher.class);
+
+    private static final String USER_AGENT = "KillBill/1.0";
+    private static final String THREAD_NAME_PREFIX = "push-notification-";
+
+    private final ConcurrentMap<CallbackKey, CallbackQueue> callbackQueues = new ConcurrentHashMap<CallbackKey, CallbackQueue>();
+    private final Set<PendingNotification> inFlightNotifications = ConcurrentHashMap.newKeySet();
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final int maxConcurrentRequestsPerCallback;
+    private final int maxPendingPerCallback;
+    private final int maxBatchSize;
+    private final FailureHandler failureHandler;
+
+    private volatile boolean isShutdown = false;
+
+    public PushNotificationDispatcher(final NotificationConfig notificationConfig, final FailureHandler failureHandler) {
+        this(createExecutor(notificationConfig.getPushNotificationsThreads()), notificationConfig, failureHandler);
+    }
+
+    private PushNotificationDispatcher(final ExecutorService executor, final NotificationConfig notificationConfig, final FailureHandler failureHandler) {
+        // A single client is shared across all callbacks, so that connections are kept alive and reused
+        this(HttpClient.newBuilder()
+                       .connectTimeout(Duration.ofMillis(notificationConfig.getPushNotificationsTimeout().getMillis()))
+                       .executor(executor)
+                       .build(),
+             executor,
+             notificationConfig,
+             failureHandler);
+    }
+
+    @VisibleForTesting
+    PushNotificationDispatcher(final HttpClient httpClient, final ExecutorService executor, final NotificationConfig notificationConfig, final FailureHandler failureHandler) {
+        this.httpClient = httpClient;
+        this.executor = executor;
+        this.timeout = Duration.ofMillis(notificationConfig.getPushNotificationsTimeout().getMillis());
+        this.maxConcurrentRequestsPerCallback = Math.max(notificationConfig.getPushNotificationsMaxConcurrentRequestsPerCallback(), 1);
+        this.maxPendingPerCallback = Math.max(notificationConfig.getPushNotificationsMaxPendingPerCallback(), 0);
+        this.maxBatchSize = Math.max(notificationConfig.getPushNotificationsMaxBatchSize(), 1);
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Queue the notification for each of the specified callbacks. This never blocks.
+     *
+     * @param tenantId           the tenant id
+     * @param urls               the callback URLs
+     * @param notification       the notification
+     * @param body               the serialized notification
+     * @param attemptRetryNumber the number of previous attempts
+     */
+    public void dispatch(final UUID tenantId, final Iterable<String> urls, final NotificationJson notification, final String body, final int attemptRetryNumber) {
+        for (final String url : urls) {
+            dispatch(tenantId, url, notification, body, attemptRetryNumber);
+        }
+    }
+
+    /**
+     * Queue the notification for the specified callback. This never blocks.
+     *
+     * @return the queued notification, whose future completes once it has been delivered or scheduled for retry
+     */
+    @VisibleForTesting
+    PendingNotification dispatch(final UUID tenantId, final String url, final NotificationJson notification, final String body, final int attemptRetryNumber) {
+        final PendingNotification pendingNotification = new PendingNotification(tenantId, url, notification, body, attemptRetryNumber);
+        if (isShutdown) {
+            onFailure(List.of(pendingNotification), "dispatcher is shut down");
+            return pendingNotification;
+        }
+
+        final CallbackKey callbackKey = new CallbackKey(tenantId, url);
+        while (true) {
+            final CallbackQueue callbackQueue = callbackQueues.computeIfAbsent(callbackKey, CallbackQueue::new);
+            final OfferResult result = callbackQueue.offer(pendingNotification);
+            if (result == OfferResult.EVICTED) {
+                // Raced with the eviction of an idle queue, a new one will be created
+                continue;
+            }
+            if (result == OfferResult.FULL) {
+                log.warn("Too many pending push notifications for url='{}', tenantId='{}'", url, tenantId);
+                onFailure(List.of(pendingNotification), "maxPendingPerCallback=" + maxPendingPerCallback + " reached");
+            } else {
+                callbackQueue.drain();
+            }
+            return pendingNotification;
+        }
+    }
+
+    public void shutdown() {
+        isShutdown = true;
+
+        // Hand the notifications not yet sent to the retry queue, so they aren't lost
+        for (final CallbackQueue callbackQueue : callbackQueues.values()) {
+            final List<PendingNotification> notSent = callbackQueue.clear();
+            if (!notSent.isEmpty()) {
+                onFailure(notSent, "dispatcher is shut down");
+            }
+        }
+
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out while waiting for in-flight push notifications");
+                executor.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+
+        // Their outcome won't be processed anymore: these may be delivered twice
+        final List<PendingNotification> notCompleted = new ArrayList<PendingNotification>(inFlightNotifications);
+        if (!notCompleted.isEmpty()) {
+            onFailure(notCompleted, "dispatcher is shut down");
+        }
+    }
+
+    @VisibleForTesting
+    int getNbCallbackQueues() {
+        return callbackQueues.size();
+    }
+
+    @VisibleForTesting
+    int getNbPending(final UUID tenantId, final String url) {
+        final CallbackQueue callbackQueue = callbackQueues.get(new CallbackKey(tenantId, url));
+        return callbackQueue == null ? 0 : callbackQueue.getNbPending();
+    }
+
+    @VisibleForTesting
+    int getNbInFlight(final UUID tenantId, final String url) {
+        final CallbackQueue callbackQueue = callbackQueues.get(new CallbackKey(tenantId, url));
+        return callbackQueue == null ? 0 : callbackQueue.getNbInFlight();
+    }
+
+    private void send(final CallbackQueue callbackQueue, final List<PendingNotification> batch) {
+        final PendingNotification first = batch.get(0);
+        final String body;
+        if (batch.size() == 1) {
+            body = first.getBody();
+        } else {
+            final StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(batch.get(i).getBody());
+            }
+            body = sb.append(']').toString();
+        }
+
+        log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", first.getUrl(), body, first.getAttemptRetryNumber());
+        inFlightNotifications.addAll(batch);
+        try {
+            final HttpRequest request = HttpRequest.newBuilder()
+                                                   .uri(URI.create(first.getUrl()))
+                                                   .header("User-Agent", USER_AGENT)
+                                                   .header(PushNotificationListener.HTTP_HEADER_CONTENT_TYPE, PushNotificationListener.CONTENT_TYPE_JSON)
+                                                   .timeout(timeout)
+                                                   .POST(HttpRequest.BodyPublishers.ofString(body))
+                                                   .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                      .whenCompleteAsync((response, throwable) -> {
+                          try {
+                              if (throwable != null) {
+                                  log.warn("Failed to push notification url='{}', tenantId='{}'", first.getUrl(), first.getTenantId(), throwable);
+                                  onFailure(batch, throwable.getMessage());
+                              } else if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                                  onFailure(batch, "statusCode=" + response.statusCode());
+                              } else {
+                                  onSuccess(batch);
+                              }
+                          } finally {
+                              callbackQueue.complete();
+                          }
+                      }, executor);
+        } catch (final RuntimeException e) {
+            // Invalid URL, or executor shut down
+            log.warn("Failed to push notification url='{}', tenantId='{}'", first.getUrl(), first.getTenantId(), e);
+            try {
+                onFailure(batch, e.getMessage());
+            } finally {
+                callbackQueue.complete();
+            }
+        }
+    }
+
+    private void onSuccess(final Iterable<PendingNotification> notifications) {
+        for (final PendingNotification notification : notifications) {
+            inFlightNotifications.remove(notification);
+            if (notification.settle()) {
+                notification.getFuture().complete(null);
+            } else {
+                log.info("Push notification url='{}', tenantId='{}' was delivered after being scheduled for retry on shutdown", notification.getUrl(), notification.getTenantId());
+            }
+        }
+    }
+
+    private void onFailure(final Iterable<PendingNotification> notifications, final String reason) {
+        for (final PendingNotification notification : notifications) {
+            inFlightNotifications.remove(notification);
+            // A notification already handed off (shutdown) is retried only once
+            if (!notification.settle()) {
+                continue;
+            }
+            try {
+                failureHandler.onFailure(notification.getTenantId(), notification.getUrl(), notification.getNotification(), notification.getAttemptRetryNumber(), reason);
+            } catch (final RuntimeException e) {
+                log.warn("Failed to schedule retry for push notification url='{}', tenantId='{}'", notification.getUrl(), notification.getTenantId(), e);
+            } finally {
+                notification.getFuture().complete(null);
+            }
+        }
+    }
+
+    private static ExecutorService createExecutor(final int nbThreads) {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(Math.max(nbThreads, 1), r -> {
+            final Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public interface FailureHandler {
+
+        void onFailure(UUID tenantId, String url, NotificationJson notification, int attemptRetryNumber, String reason);
+    }
+
+    private enum OfferResult {
+        ACCEPTED,
+        FULL,
+        EVICTED
+    }
+
+    private final class CallbackQueue {
+
+        private final CallbackKey callbackKey;
+        private final Deque<PendingNotification> pending = new ArrayDeque<PendingNotification>();
+
+        private int inFlight = 0;
+        private boolean evicted = false;
+
+        private CallbackQueue(final CallbackKey callbackKey) {
+            this.callbackKey = callbackKey;
+        }
+
+        synchronized OfferResult offer(final PendingNotification pendingNotification) {
+            if (evicted) {
+                return OfferResult.EVICTED;
+            }
+            // Pending notifications only accumulate while all the request slots are taken
+            if (pending.size() >= maxPendingPerCallback && inFlight >= maxConcurrentRequestsPerCallback) {
+                return OfferResult.FULL;
+            }
+            pending.addLast(pendingNotification);
+            return OfferResult.ACCEPTED;
+        }
+
+        void drain() {
+            final List<List<PendingNotification>> batches = new ArrayList<List<PendingNotification>>();
+            synchronized (this) {
+                while (inFlight < maxConcurrentRequestsPerCallback && !pending.isEmpty()) {
+                    final List<PendingNotification> batch = new ArrayList<PendingNotification>(Math.min(maxBatchSize, pending.size()));
+                    while (batch.size() < maxBatchSize && !pending.isEmpty()) {
+                        batch.add(pending.pollFirst());
+                    }
+                    batches.add(batch);
+                    inFlight++;
+                }
+            }
+            // Requests are built and submitted outside of the lock
+            for (final List<PendingNotification> batch : batches) {
+                send(this, batch);
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                inFlight--;
+            }
+            if (!isShutdown) {
+                drain();
+            }
+            synchronized (this) {
+                if (!evicted && inFlight == 0 && pending.isEmpty()) {
+                    // Subsequent offers will fail and re-create the queue
+                    evicted = true;
+                    callbackQueues.remove(callbackKey, this);
+                }
+            }
+        }
+
+        synchronized List<PendingNotification> clear() {
+            final List<PendingNotification> notSent = new ArrayList<PendingNotification>(pending);
+            pending.clear();
+            return notSent;
+        }
+
+        synchronized int getNbPending() {
+            return pending.size();
+        }
+
+        synchronized int getNbInFlight() {
+            return inFlight;
+        }
+    }
+
+    private static final class CallbackKey {
+
+        private final UUID tenantId;
+        private final String url;
+
+        private CallbackKey(final UUID tenantId, final String url) {
+            this.tenantId = tenantId;
+            this.url = url;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final CallbackKey that = (CallbackKey) o;
+            return Objects.equals(tenantId, that.tenantId) && Objects.equals(url, that.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, url);
+        }
+    }
+
+    @VisibleForTesting
+    static final class PendingNotification {
+
+        private final UUID tenantId;
+        private final String url;
+        private final NotificationJson notification;
+        private final String body;
+        private final int attemptRetryNumber;
+        private final AtomicBoolean settled = new AtomicBoolean(false);
+        private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+        private PendingNotification(final UUID tenantId, final String url, final NotificationJson notification, final String body, final int attemptRetryNumber) {
+            this.tenantId = tenantId;
+            this.url = url;
+            this.notification = notification;
+            this.body = body == null ? "{}" : body;
+            this.attemptRetryNumber = attemptRetryNumber;
+        }
+
+        UUID getTenantId() {
+            return tenantId;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        NotificationJson getNotification() {
+            return notification;
+        }
+
+        String getBody() {
+            return body;
+        }
+
+        int getAttemptRetryNumber() {
+            return attemptRetryNumber;
+        }
+
+        CompletableFuture<Void> getFuture() {
+            return future;
+        }
+
+        // Returns true only once: the notification is either delivered or scheduled for retry
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
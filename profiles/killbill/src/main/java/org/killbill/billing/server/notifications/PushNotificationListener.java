@@ -20,13 +20,6 @@
 package org.killbill.billing.server.notifications;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -64,18 +57,14 @@ public class PushNotificationListener {
 
     private static final Logger log = LoggerFactory.getLogger(PushNotificationListener.class);
 
-    private static final String USER_AGENT = "KillBill/1.0";
-
     @VisibleForTesting
     public static final String HTTP_HEADER_CONTENT_TYPE = "Content-Type";
     @VisibleForTesting
     public static final String CONTENT_TYPE_JSON = "application/json; charset=UTF-8";
 
-    private static final int TIMEOUT_NOTIFICATION = 15; // 15 seconds
-
     private final TenantUserApi tenantApi;
     private final CallContextFactory contextFactory;
-    private final HttpClient httpClient;
+    private final PushNotificationDispatcher dispatcher;
     private final ObjectMapper mapper;
     private final NotificationQueueService notificationQueueService;
     private final InternalCallContextFactory internalCallContextFactory;
@@ -86,8 +75,6 @@ public class PushNotificationListener {
     public PushNotificationListener(final ObjectMapper mapper, final TenantUserApi tenantApi, final CallContextFactory contextFactory,
                                     final NotificationQueueService notificationQueueService, final InternalCallContextFactory internalCallContextFactory,
                                     final Clock clock, final NotificationConfig notificationConfig) {
-        this.httpClient = HttpClient.newBuilder()
-                                    .connectTimeout(Duration.of(TIMEOUT_NOTIFICATION, ChronoUnit.SECONDS)).build();
         this.tenantApi = tenantApi;
         this.contextFactory = contextFactory;
         this.mapper = mapper;
@@ -95,6 +82,7 @@ public class PushNotificationListener {
         this.internalCallContextFactory = internalCallContextFactory;
         this.clock = clock;
         this.notificationConfig = notificationConfig;
+        this.dispatcher = new PushNotificationDispatcher(notificationConfig, this::saveRetryPushNotificationInQueue);
     }
 
     @AllowConcurrentEvents
@@ -116,42 +104,14 @@ public class PushNotificationListener {
     }
 
     public void shutdown() throws IOException {
+        dispatcher.shutdown();
     }
 
     private void dispatchCallback(final UUID tenantId, final ExtBusEvent event, final Iterable<String> callbacks) throws IOException {
         final NotificationJson notification = new NotificationJson(event);
         final String body = mapper.writeValueAsString(notification);
-        for (final String cur : callbacks) {
-            doPost(tenantId, cur, body, notification, TIMEOUT_NOTIFICATION, 0);
-        }
-    }
-
-    private boolean doPost(final UUID tenantId, final String url, final String body, final NotificationJson notification,
-                           final int timeoutSec, final int attemptRetryNumber) {
-        log.info("Sending push notification url='{}', body='{}', attemptRetryNumber='{}'", url, body, attemptRetryNumber);
-        final HttpRequest request = HttpRequest.newBuilder()
-                                               .uri(URI.create(url))
-                                               .header("User-Agent", USER_AGENT)
-                                               .header(HTTP_HEADER_CONTENT_TYPE, CONTENT_TYPE_JSON)
-                                               .timeout(Duration.of(TIMEOUT_NOTIFICATION, ChronoUnit.SECONDS))
-                                               .POST(HttpRequest.BodyPublishers.ofString(body == null ? "{}" : body))
-                                               .build();
-
-        final HttpResponse<InputStream> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-        } catch (final Exception e) {
-            log.warn("Failed to push notification url='{}', tenantId='{}'", url, tenantId, e);
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber, e.getMessage());
-            return false;
-        }
-
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return true;
-        } else {
-            saveRetryPushNotificationInQueue(tenantId, url, notification, attemptRetryNumber, "statusCode=" + response.statusCode());
-            return false;
-        }
+        // Sent asynchronously: the bus thread doesn't wait on the callback endpoints
+        dispatcher.dispatch(tenantId, callbacks, notification, body, 0);
     }
 
     public void resendPushNotification(final PushNotificationKey key) throws JsonProcessingException {
@@ -162,7 +122,7 @@ public class PushNotificationListener {
                                                                    key.getObjectId(),
                                                                    key.getMetaData());
         final String body = mapper.writeValueAsString(notification);
-        doPost(key.getTenantId(), key.getUrl(), body, notification, TIMEOUT_NOTIFICATION, key.getAttemptNumber());
+        dispatcher.dispatch(key.getTenantId(), List.of(key.getUrl()), notification, body, key.getAttemptNumber());
     }
 
     private void saveRetryPushNotificationInQueue(final UUID tenantId, final String url, final NotificationJson notificationJson, final int attemptRetryNumber, final String reason) {
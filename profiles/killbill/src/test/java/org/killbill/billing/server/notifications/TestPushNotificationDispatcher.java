@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.server.notifications;
+
+import java.net.ConnectException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.awaitility.Awaitility;
+import org.killbill.billing.GuicyKillbillTestSuiteNoDB;
+import org.killbill.billing.jaxrs.json.NotificationJson;
+import org.killbill.billing.util.config.definition.NotificationConfig;
+import org.mockito.Mockito;
+import org.skife.config.TimeSpan;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestPushNotificationDispatcher extends GuicyKillbillTestSuiteNoDB {
+
+    private static final String URL = "http://127.0.0.1:8087/callmeback";
+
+    private final List<HttpRequest> requests = Collections.synchronizedList(new ArrayList<HttpRequest>());
+    private final List<CompletableFuture<HttpResponse<Void>>> responses = Collections.synchronizedList(new ArrayList<CompletableFuture<HttpResponse<Void>>>());
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+    private UUID tenantId;
+    private HttpClient httpClient;
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = "fast")
+    public void beforeMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        requests.clear();
+        responses.clear();
+        failures.clear();
+        tenantId = UUID.randomUUID();
+        executor = Executors.newSingleThreadExecutor();
+
+        httpClient = Mockito.mock(HttpClient.class);
+        Mockito.doAnswer(invocation -> {
+            final CompletableFuture<HttpResponse<Void>> response = new CompletableFuture<HttpResponse<Void>>();
+            responses.add(response);
+            requests.add(invocation.getArgument(0));
+            return response;
+        }).when(httpClient).sendAsync(Mockito.any(HttpRequest.class), Mockito.any());
+    }
+
+    @AfterMethod(groups = "fast")
+    public void afterMethod() throws Exception {
+        if (hasFailed()) {
+            return;
+        }
+
+        executor.shutdownNow();
+    }
+
+    @Test(groups = "fast")
+    public void testConcurrencyLimitPreservesOrdering() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10, 1);
+
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":1}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":2}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":3}", 0);
+
+        // Only one request in flight, the others are pending
+        Assert.assertEquals(requests.size(), 1);
+        Assert.assertEquals(dispatcher.getNbInFlight(tenantId, URL), 1);
+        Assert.assertEquals(dispatcher.getNbPending(tenantId, URL), 2);
+
+        // Another callback isn't impacted
+        final String otherUrl = URL + "2";
+        dispatcher.dispatch(tenantId, otherUrl, createNotification(), "{\"n\":4}", 0);
+        Assert.assertEquals(requests.size(), 2);
+        Assert.assertEquals(requests.get(1).uri().toString(), otherUrl);
+
+        completeResponse(0, 200);
+        awaitRequests(3);
+        completeResponse(2, 200);
+        awaitRequests(4);
+        completeResponse(3, 200);
+        completeResponse(1, 200);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> dispatcher.getNbInFlight(tenantId, URL) == 0);
+
+        Assert.assertEquals(getBody(requests.get(0)), "{\"n\":1}");
+        Assert.assertEquals(getBody(requests.get(2)), "{\"n\":2}");
+        Assert.assertEquals(getBody(requests.get(3)), "{\"n\":3}");
+        Assert.assertEquals(dispatcher.getNbPending(tenantId, URL), 0);
+        Assert.assertTrue(failures.isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void testFailuresAndOverflowAreScheduledForRetry() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 1, 1);
+
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":1}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":2}", 2);
+        // Backlog full
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":3}", 0);
+        Assert.assertEquals(requests.size(), 1);
+        Assert.assertEquals(failures.size(), 1);
+        Assert.assertTrue(failures.get(0).startsWith("0 maxPendingPerCallback"));
+
+        completeResponse(0, 500);
+        awaitRequests(2);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> failures.size() == 2);
+        Assert.assertEquals(failures.get(1), "0 statusCode=500");
+
+        responses.get(1).completeExceptionally(new ConnectException("Connection refused"));
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> failures.size() == 3);
+        Assert.assertEquals(failures.get(2), "2 Connection refused");
+        Assert.assertEquals(dispatcher.getNbInFlight(tenantId, URL), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testPendingNotificationsAreCoalesced() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10, 2);
+
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":1}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":2}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":3}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":4}", 0);
+        Assert.assertEquals(requests.size(), 1);
+
+        completeResponse(0, 200);
+        awaitRequests(2);
+        Assert.assertEquals(getBody(requests.get(1)), "[{\"n\":2},{\"n\":3}]");
+
+        // Each notification of the batch is retried individually
+        completeResponse(1, 503);
+        awaitRequests(3);
+        Assert.assertEquals(getBody(requests.get(2)), "{\"n\":4}");
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> failures.size() == 2);
+    }
+
+    @Test(groups = "fast")
+    public void testIdleQueuesAreEvicted() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10, 1);
+
+        final PushNotificationDispatcher.PendingNotification first = dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":1}", 0);
+        final PushNotificationDispatcher.PendingNotification second = dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":2}", 0);
+        Assert.assertEquals(dispatcher.getNbCallbackQueues(), 1);
+        Assert.assertFalse(first.getFuture().isDone());
+
+        completeResponse(0, 200);
+        awaitRequests(2);
+        Assert.assertTrue(first.getFuture().isDone());
+        Assert.assertFalse(second.getFuture().isDone());
+        Assert.assertEquals(dispatcher.getNbCallbackQueues(), 1);
+
+        completeResponse(1, 200);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> dispatcher.getNbCallbackQueues() == 0);
+        Assert.assertTrue(second.getFuture().isDone());
+
+        // A new queue is created on demand
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":3}", 0);
+        Assert.assertEquals(dispatcher.getNbCallbackQueues(), 1);
+        Assert.assertEquals(requests.size(), 3);
+        Assert.assertTrue(failures.isEmpty());
+    }
+
+    @Test(groups = "fast")
+    public void testInFlightNotificationsAreNotScheduledForRetry() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10, 1);
+
+        // Doesn't wait on the callback, even when the notification is stuck behind another one
+        dispatcher.dispatch(tenantId, List.of(URL), createNotification(), "{\"n\":1}", 0);
+        dispatcher.dispatch(tenantId, List.of(URL), createNotification(), "{\"n\":2}", 1);
+        Assert.assertEquals(requests.size(), 1);
+        Assert.assertEquals(dispatcher.getNbPending(tenantId, URL), 1);
+        Assert.assertTrue(failures.isEmpty());
+
+        // Only retried once the request has failed
+        completeResponse(0, 500);
+        awaitRequests(2);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> failures.size() == 1);
+        Assert.assertEquals(failures.get(0), "0 statusCode=500");
+
+        completeResponse(1, 200);
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> dispatcher.getNbCallbackQueues() == 0);
+        Assert.assertEquals(failures.size(), 1);
+    }
+
+    @Test(groups = "fast")
+    public void testNotificationsNotCompletedAreScheduledForRetryOnShutdown() {
+        final PushNotificationDispatcher dispatcher = createDispatcher(1, 10, 1);
+
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":1}", 0);
+        dispatcher.dispatch(tenantId, URL, createNotification(), "{\"n\":2}", 1);
+        dispatcher.shutdown();
+
+        // Pending first, then in flight
+        Assert.assertEquals(failures.size(), 2);
+        Assert.assertEquals(failures.get(0), "1 dispatcher is shut down");
+        Assert.assertEquals(failures.get(1), "0 dispatcher is shut down");
+    }
+
+    private PushNotificationDispatcher createDispatcher(final int maxConcurrentRequests, final int maxPending, final int maxBatchSize) {
+        final NotificationConfig notificationConfig = Mockito.mock(NotificationConfig.class);
+        Mockito.when(notificationConfig.getPushNotificationsTimeout()).thenReturn(new TimeSpan("500ms"));
+        Mockito.when(notificationConfig.getPushNotificationsMaxConcurrentRequestsPerCallback()).thenReturn(maxConcurrentRequests);
+        Mockito.when(notificationConfig.getPushNotificationsMaxPendingPerCallback()).thenReturn(maxPending);
+        Mockito.when(notificationConfig.getPushNotificationsMaxBatchSize()).thenReturn(maxBatchSize);
+        return new PushNotificationDispatcher(httpClient,
+                                              executor,
+                                              notificationConfig,
+                                              (tenantId, url, notification, attemptRetryNumber, reason) -> failures.add(attemptRetryNumber + " " + reason));
+    }
+
+    private NotificationJson createNotification() {
+        return new NotificationJson("ACCOUNT_CREATION", UUID.randomUUID(), "ACCOUNT", UUID.randomUUID(), null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeResponse(final int index, final int statusCode) {
+        final HttpResponse<Void> response = Mockito.mock(HttpResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(statusCode);
+        responses.get(index).complete(response);
+    }
+
+    private void awaitRequests(final int nbRequests) {
+        Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> requests.size() == nbRequests);
+    }
+
+    private static String getBody(final HttpRequest request) {
+        final StringBuilder body = new StringBuilder();
+        request.bodyPublisher().orElseThrow().subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(final Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(final ByteBuffer item) {
+                body.append(StandardCharsets.UTF_8.decode(item));
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return body.toString();
+    }
+}
@@ -284,6 +284,22 @@ public class DefaultSubscriptionInternalApi extends DefaultSubscriptionBaseCreat
         }
     }
 
+    @Override
+    public Map<UUID, List<SubscriptionBase>> getSubscriptionsForBundles(final Collection<UUID> bundleIds, final InternalTenantContext context) throws SubscriptionBaseApiException {
+        try {
+            final SubscriptionCatalog catalog = subscriptionCatalogApi.getFullCatalog(context);
+            final Map<UUID, List<DefaultSubscriptionBase>> internalSubscriptions = dao.getSubscriptionsForBundles(bundleIds, catalog, context);
+            final Map<UUID, List<SubscriptionBase>> result = new HashMap<>();
+            for (final Entry<UUID, List<DefaultSubscriptionBase>> entry : internalSubscriptions.entrySet()) {
+                final List<DefaultSubscriptionBase> subscriptionsForApiUse = createSubscriptionsForApiUse(entry.getValue());
+                result.put(entry.getKey(), new ArrayList<SubscriptionBase>(subscriptionsForApiUse));
+            }
+            return result;
+        } catch (final CatalogApiException e) {
+            throw new SubscriptionBaseApiException(e);
+        }
+    }
+
     @Override
     public Map<UUID, List<SubscriptionBase>> getSubscriptionsForAccount(final VersionedCatalog publicCatalog, @Nullable final LocalDate cutoffDt, final InternalTenantContext context) throws SubscriptionBaseApiException {
         try {
@@ -300,6 +316,15 @@ public class DefaultSubscriptionInternalApi extends DefaultSubscriptionBaseCreat
         }
     }
 
+    @Override
+    public List<SubscriptionBase> copySubscriptions(final Collection<SubscriptionBase> subscriptions) {
+        final List<SubscriptionBase> result = new ArrayList<SubscriptionBase>(subscriptions.size());
+        for (final SubscriptionBase subscription : subscriptions) {
+            result.add(createSubscriptionForApiUse(subscription));
+        }
+        return result;
+    }
+
     @Override
     public SubscriptionBase getBaseSubscription(final UUID bundleId, final InternalTenantContext context) throws SubscriptionBaseApiException {
         try {
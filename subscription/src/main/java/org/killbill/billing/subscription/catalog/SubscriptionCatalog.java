@@ -17,7 +17,7 @@
 
 package org.killbill.billing.subscription.catalog;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.joda.time.DateTime;
@@ -35,6 +35,8 @@ import org.killbill.billing.catalog.api.StaticCatalog;
 import org.killbill.billing.catalog.api.VersionedCatalog;
 import org.killbill.billing.catalog.api.rules.PlanRules;
 import org.killbill.billing.util.catalog.CatalogDateHelper;
+import org.killbill.billing.util.catalog.CatalogVersionIndex;
+import org.killbill.billing.util.catalog.IndexedVersionedCatalog;
 import org.killbill.clock.Clock;
 
 import static org.killbill.billing.ErrorCode.CAT_NO_SUCH_PLAN;
@@ -49,12 +51,15 @@ public class SubscriptionCatalog {
 
     private final VersionedCatalog catalog;
     private final List<StaticCatalog> versions;
+    private final CatalogVersionIndex versionIndex;
     private final Clock clock;
 
     // package scope
     SubscriptionCatalog(final VersionedCatalog catalog, final Clock clock) {
         this.catalog = catalog;
         this.versions = catalog.getVersions();
+        // The index is cached with the catalog when available, otherwise (e.g. catalogs from plugins) we build it for the lifetime of this wrapper
+        this.versionIndex = catalog instanceof IndexedVersionedCatalog ? ((IndexedVersionedCatalog) catalog).getVersionIndex() : new CatalogVersionIndex(versions);
         this.clock = clock;
     }
 
@@ -80,25 +85,22 @@ public class SubscriptionCatalog {
     }
 
     public Plan getNextPlanVersion(final Plan curPlan) {
-
-        boolean foundCurVersion = false;
-        StaticCatalog nextCatalogVersion = null;
-        for (int i = 0; i < versions.size(); i++) {
-            final StaticCatalog curCatalogversion = versions.get(i);
-            if (foundCurVersion) {
-                nextCatalogVersion = curCatalogversion;
-                break;
-            }
-            if (curCatalogversion.getEffectiveDate().compareTo(curPlan.getCatalog().getEffectiveDate()) == 0) {
-                foundCurVersion = true;
-            }
+        if (versionIndex.size() == 0) {
+            return null;
         }
-        if (nextCatalogVersion == null) {
+
+        final int curVersionIndex = versionIndex.indexOfVersion(curPlan.getCatalog().getEffectiveDate());
+        if (curVersionIndex < 0 || curVersionIndex + 1 >= versionIndex.size()) {
             return null;
         }
 
+        final int nextVersionIndex = curVersionIndex + 1;
+        if (versionIndex.isIndexedPlan(curPlan.getName())) {
+            return versionIndex.findPlan(curPlan.getName(), nextVersionIndex);
+        }
+
         try {
-            return nextCatalogVersion.findPlan(curPlan.getName());
+            return versionIndex.getVersions().get(nextVersionIndex).findPlan(curPlan.getName());
         } catch (final CatalogApiException ignored) {
             return null;
         }
@@ -173,21 +175,32 @@ public class SubscriptionCatalog {
             throw new CatalogApiException(ErrorCode.CAT_NO_CATALOG_FOR_GIVEN_DATE, requestedDate.toDate().toString());
         }
 
+        // Lookups by plan name (most common case, e.g. when rebuilding subscriptions from their events) don't need to go through each version
+        final String indexedPlanName = wrapper.getIndexedPlanName(versionIndex);
+
         CatalogPlanEntry candidateInSubsequentCatalog = null;
         for (int i = catalogs.size() - 1; i >= 0; i--) { // Working backwards to find the latest applicable plan
             final StaticCatalog c = catalogs.get(i);
 
             final Plan plan;
-            try {
-                plan = wrapper.findPlan(c);
-            } catch (final CatalogApiException e) {
-                if (e.getCode() != CAT_NO_SUCH_PLAN.getCode() &&
-                    e.getCode() != ErrorCode.CAT_PLAN_NOT_FOUND.getCode()) {
-                    throw e;
-                } else {
+            if (indexedPlanName != null) {
+                plan = versionIndex.findPlan(indexedPlanName, i);
+                if (plan == null) {
                     // If we can't find an entry it probably means the plan has been retired so we keep looking...
                     continue;
                 }
+            } else {
+                try {
+                    plan = wrapper.findPlan(c);
+                } catch (final CatalogApiException e) {
+                    if (e.getCode() != CAT_NO_SUCH_PLAN.getCode() &&
+                        e.getCode() != ErrorCode.CAT_PLAN_NOT_FOUND.getCode()) {
+                        throw e;
+                    } else {
+                        // If we can't find an entry it probably means the plan has been retired so we keep looking...
+                        continue;
+                    }
+                }
             }
 
             final boolean oldestCatalog = (i == 0);
@@ -222,18 +235,14 @@ public class SubscriptionCatalog {
     }
 
     private List<StaticCatalog> versionsBeforeDate(final DateTime date) {
-
-        final List<StaticCatalog> result = new ArrayList<StaticCatalog>();
-
         // Fetch latest version allowed -- to benefit from custom logic implemented in VersionedCatalog
         final StaticCatalog latestVersion = versionForDate(date);
-        for (StaticCatalog v : versions) {
-            // Add all versions prior or equal to the one returned.
-            if (v.getEffectiveDate().compareTo(latestVersion.getEffectiveDate()) <= 0) {
-                result.add(v);
-            }
+        // Versions are sorted by effective date: all versions prior or equal to the one returned
+        final int latestVersionIndex = versionIndex.indexOfVersionForDate(latestVersion.getEffectiveDate());
+        if (versionIndex.getVersions().get(latestVersionIndex).getEffectiveDate().compareTo(latestVersion.getEffectiveDate()) > 0) {
+            return Collections.emptyList();
         }
-        return result;
+        return versionIndex.getVersions().subList(0, latestVersionIndex + 1);
     }
 
     public StaticCatalog versionForDate(final DateTime date) {
@@ -282,6 +291,14 @@ public class SubscriptionCatalog {
             return catalog.createOrFindPlan(spec, overrides);
         }
 
+        // Plan name to look up in the index, null if the plan needs to be resolved by each version (e.g. overridden plans)
+        public String getIndexedPlanName(final CatalogVersionIndex versionIndex) {
+            if (spec.getPlanName() == null || (overrides != null && overrides.getOverrides() != null && !overrides.getOverrides().isEmpty())) {
+                return null;
+            }
+            return versionIndex.isIndexedPlan(spec.getPlanName()) ? spec.getPlanName() : null;
+        }
+
         public PlanSpecifier getSpec() {
             return spec;
         }
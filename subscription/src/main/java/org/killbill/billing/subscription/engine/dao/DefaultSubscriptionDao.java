@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -97,12 +98,13 @@ import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.commons.utils.collect.MultiValueHashMap;
 import org.killbill.commons.utils.collect.MultiValueMap;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionalJdbiWrapper;
@@ -138,8 +140,9 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                   final NotificationQueueService notificationQueueService, final BusOptimizer eventBus,
                                   final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
                                   final AuditDao auditDao,
-                                  final InternalCallContextFactory internalCallContextFactory) {
-        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory), BundleSqlDao.class);
+                                  final InternalCallContextFactory internalCallContextFactory,
+                                  final DaoConfig daoConfig) {
+        super(nonEntityDao, cacheControllerDispatcher, new EntitySqlDaoTransactionalJdbiWrapper(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, daoConfig), BundleSqlDao.class);
         this.clock = clock;
         this.notificationQueueService = notificationQueueService;
         this.addonUtils = addonUtils;
@@ -191,7 +194,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public Pagination<SubscriptionBundleModelDao> searchSubscriptionBundles(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(BundleSqlDao.class,
-                                              new PaginationIteratorBuilder<SubscriptionBundleModelDao, SubscriptionBaseBundle, BundleSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<SubscriptionBundleModelDao, SubscriptionBaseBundle, BundleSqlDao>() {
                                                   @Override
                                                   public Long getCount(final BundleSqlDao bundleSqlDao, final InternalTenantContext context) {
                                                       return bundleSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -201,6 +204,11 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                                   public Iterator<SubscriptionBundleModelDao> build(final BundleSqlDao bundleSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return bundleSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<SubscriptionBundleModelDao> buildAfterRecordId(final BundleSqlDao bundleSqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return bundleSqlDao.searchBetweenRecordIds(searchKey, String.format("%%%s%%", searchKey), getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -272,6 +280,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                 log.info("Found unused bundle for externalKey='{}': bundleId='{}'", bundle.getExternalKey(), unusedBundle.getId());
                 return unusedBundle;
             }
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final BundleSqlDao bundleSqlDao = entitySqlDaoWrapperFactory.become(BundleSqlDao.class);
 
             for (final SubscriptionBundleModelDao cur : existingBundles) {
@@ -408,6 +417,47 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         return result;
     }
 
+    @Override
+    public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsForBundles(final Collection<UUID> bundleIds, final SubscriptionCatalog catalog, final InternalTenantContext context) throws CatalogApiException {
+        if (bundleIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Load the subscriptions and their events for all the bundles at once
+        final Collection<String> bundleIdsAsStrings = bundleIds.stream().map(UUID::toString).collect(Collectors.toUnmodifiableList());
+        final Map<UUID, List<DefaultSubscriptionBase>> subscriptionsForBundles = new LinkedHashMap<>();
+        final MultiValueMap<UUID, SubscriptionBaseEvent> eventsForSubscriptions = new MultiValueHashMap<>();
+        transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
+            final Map<String, String> bundleExternalKeys = new HashMap<>();
+            for (final SubscriptionBundleModelDao bundleModel : entitySqlDaoWrapperFactory.become(BundleSqlDao.class).getByIds(bundleIdsAsStrings, context)) {
+                bundleExternalKeys.put(bundleModel.getId().toString(), bundleModel.getExternalKey());
+            }
+
+            final List<SubscriptionModelDao> subscriptionModels = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class).getSubscriptionsFromBundleIds(bundleIdsAsStrings, context);
+            if (subscriptionModels.isEmpty()) {
+                return null;
+            }
+
+            for (final SubscriptionModelDao subscriptionModel : subscriptionModels) {
+                subscriptionsForBundles.computeIfAbsent(subscriptionModel.getBundleId(), k -> new LinkedList<>())
+                                       .add(SubscriptionModelDao.toSubscription(subscriptionModel, bundleExternalKeys.get(subscriptionModel.getBundleId().toString())));
+            }
+
+            final Collection<String> subscriptionIds = subscriptionModels.stream().map(input -> input.getId().toString()).collect(Collectors.toUnmodifiableList());
+            final SortedSet<SubscriptionEventModelDao> eventModels = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class).getActiveEventsForSubscriptions(subscriptionIds, context);
+            for (final SubscriptionBaseEvent evt : filterSubscriptionBaseEvents(eventModels)) {
+                eventsForSubscriptions.putElement(evt.getSubscriptionId(), evt);
+            }
+            return null;
+        });
+
+        final Map<UUID, List<DefaultSubscriptionBase>> result = new LinkedHashMap<>();
+        for (final Entry<UUID, List<DefaultSubscriptionBase>> entry : subscriptionsForBundles.entrySet()) {
+            result.put(entry.getKey(), buildBundleSubscriptions(entry.getValue(), eventsForSubscriptions, null, catalog, context));
+        }
+        return result;
+    }
+
     public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsFromAccountId(@Nullable final LocalDate cutoffDt, final InternalTenantContext context) {
         final List<DefaultSubscriptionBase> allSubscriptions = transactionalSqlDao.execute(true, entitySqlDaoWrapperFactory -> {
             final SubscriptionSqlDao subscriptionSqlDao = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
@@ -445,6 +495,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     public void updateChargedThroughDates(final Map<DateTime, List<UUID>> chargeThroughDates, final InternalCallContext context) {
         final InternalCallContext contextWithUpdatedDate = contextWithUpdatedDate(context);
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(contextWithUpdatedDate);
             final SubscriptionSqlDao transactionalDao = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
             for (final Map.Entry<DateTime, List<UUID>>  kv : chargeThroughDates.entrySet()) {
                 transactionalDao.updateChargedThroughDates(kv.getValue(), kv.getKey().toDate(), contextWithUpdatedDate);
@@ -456,6 +507,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public void createNextPhaseOrExpiredEvent(final DefaultSubscriptionBase subscription, final SubscriptionBaseEvent readyPhaseEvent, final SubscriptionBaseEvent nextPhaseOrExpiredEvent, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final SubscriptionEventSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             final UUID subscriptionId = subscription.getId();
             cancelNextPhaseEventFromTransaction(subscriptionId, entitySqlDaoWrapperFactory, context);
@@ -506,6 +558,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                                                                      final InternalCallContext context) {
         final boolean groupBusEvents = eventBus.shouldAggregateSubscriptionEvents(context);
         return transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final SubscriptionSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionSqlDao.class);
             final SubscriptionEventSqlDao eventsDaoFromSameTransaction = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             int busEffSeqId = 0;
@@ -544,6 +597,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public void cancelOrExpireSubscriptionOnNotification(final DefaultSubscriptionBase subscription, final SubscriptionBaseEvent event, final List<DefaultSubscriptionBase> subscriptions, final List<SubscriptionBaseEvent> cancelOrExpireEvents, final SubscriptionCatalog catalog, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             cancelOrExpireSubscriptionsFromTransaction(entitySqlDaoWrapperFactory, subscriptions, cancelOrExpireEvents, catalog, context);
             // Make sure to always send the event, even if there were no subscriptions to cancel
             notifyBusOfEffectiveImmediateChange(entitySqlDaoWrapperFactory, subscription, event, subscriptions.size(), context);
@@ -563,6 +617,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public void cancelSubscriptions(final List<DefaultSubscriptionBase> subscriptions, final List<SubscriptionBaseEvent> cancelEvents, final SubscriptionCatalog catalog, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             cancelOrExpireSubscriptionsFromTransaction(entitySqlDaoWrapperFactory, subscriptions, cancelEvents, catalog, context);
             return null;
         });
@@ -590,6 +645,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
 
         final InternalCallContext contextWithUpdatedDate = contextWithUpdatedDate(context);
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(contextWithUpdatedDate);
             final SubscriptionEventSqlDao eventSqlDao = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             final UUID subscriptionId = subscription.getId();
             final Set<SubscriptionEventModelDao> targetEvents = new HashSet<SubscriptionEventModelDao>();
@@ -634,6 +690,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         Preconditions.checkState(inputChangeEvent.getSubscriptionId().equals(subscription.getId()));
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final SubscriptionEventSqlDao eventSqlDao = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             final SortedSet<SubscriptionEventModelDao> activeSubscriptionEvents = eventSqlDao.getActiveEventsForSubscription(subscription.getId().toString(), context);
             // First event is CREATE/TRANSFER event
@@ -956,6 +1013,9 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
                          final List<TransferCancelData> transferCancelData, final SubscriptionCatalog catalog, final InternalCallContext fromContext, final InternalCallContext toContext) {
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(fromContext);
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(toContext);
+
             // Cancel the subscriptions for the old bundle
             for (final TransferCancelData cancel : transferCancelData) {
                 cancelOrExpireSubscriptionFromTransaction(cancel.getSubscription(), cancel.getCancelEvent(), entitySqlDaoWrapperFactory, catalog, fromContext, 0);
@@ -974,6 +1034,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
     @Override
     public void updateBundleExternalKey(final UUID bundleId, final String externalKey, final InternalCallContext context) {
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final BundleSqlDao bundleSqlDao = entitySqlDaoWrapperFactory.become(BundleSqlDao.class);
             bundleSqlDao.updateBundleExternalKey(bundleId.toString(), externalKey, contextWithUpdatedDate(context));
             return null;
@@ -988,6 +1049,7 @@ public class DefaultSubscriptionDao extends EntityDaoBase<SubscriptionBundleMode
         final SubscriptionBaseTransitionType transitionType = SubscriptionBaseTransitionData.toSubscriptionTransitionType(changeEvent.getType(), null);
 
         transactionalSqlDao.execute(false, entitySqlDaoWrapperFactory -> {
+            entitySqlDaoWrapperFactory.incrementAccountEventsVersion(context);
             final SubscriptionEventSqlDao transactional = entitySqlDaoWrapperFactory.become(SubscriptionEventSqlDao.class);
             createAndRefresh(transactional, new SubscriptionEventModelDao(changeEvent), context);
 
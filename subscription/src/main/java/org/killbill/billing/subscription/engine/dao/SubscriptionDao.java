@@ -18,6 +18,7 @@
 
 package org.killbill.billing.subscription.engine.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -79,6 +80,8 @@ public interface SubscriptionDao extends EntityDao<SubscriptionBundleModelDao, S
 
     Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsForAccount(final SubscriptionCatalog catalog,  LocalDate cutoffDt, InternalTenantContext context) throws CatalogApiException;
 
+    Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsForBundles(Collection<UUID> bundleIds, final SubscriptionCatalog catalog, InternalTenantContext context) throws CatalogApiException;
+
     Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsFromAccountId(@Nullable final LocalDate cutoffDt, final InternalTenantContext context);
 
     // Update
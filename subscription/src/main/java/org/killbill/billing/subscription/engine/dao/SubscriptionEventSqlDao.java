@@ -18,6 +18,7 @@
 
 package org.killbill.billing.subscription.engine.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.SortedSet;
 
@@ -33,6 +34,7 @@ import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.SqlUpdate;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface SubscriptionEventSqlDao extends EntitySqlDao<SubscriptionEventModelDao, SubscriptionBaseEvent> {
@@ -60,6 +62,10 @@ public interface SubscriptionEventSqlDao extends EntitySqlDao<SubscriptionEventM
     public SortedSet<SubscriptionEventModelDao> getActiveEventsForSubscription(@Bind("subscriptionId") String subscriptionId,
                                                                                @SmartBindBean final InternalTenantContext context);
     
+    @SqlQuery
+    public SortedSet<SubscriptionEventModelDao> getActiveEventsForSubscriptions(@BindIn("subscriptionIds") final Collection<String> subscriptionIds,
+                                                                                @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public SortedSet<SubscriptionEventModelDao> getAllEventsForSubscription(@Bind("subscriptionId") String subscriptionId,
                                                                                @SmartBindBean final InternalTenantContext context);    
@@ -46,6 +46,9 @@ public interface SubscriptionSqlDao extends EntitySqlDao<SubscriptionModelDao, S
     public List<SubscriptionModelDao> getSubscriptionsFromBundleId(@Bind("bundleId") String bundleId,
                                                                    @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public List<SubscriptionModelDao> getSubscriptionsFromBundleIds(@BindIn("bundleIds") final Collection<String> bundleIds,
+                                                                    @SmartBindBean final InternalTenantContext context);
 
     @SqlQuery
     public List<SubscriptionModelDao> getActiveByAccountRecordId(@Bind("cutoffDt") Date cutoffDt,
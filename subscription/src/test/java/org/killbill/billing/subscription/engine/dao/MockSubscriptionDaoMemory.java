@@ -20,6 +20,7 @@ package org.killbill.billing.subscription.engine.dao;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -268,6 +269,21 @@ public class MockSubscriptionDaoMemory extends MockEntityDaoBase<SubscriptionBun
         return getSubscriptionsFromAccountId(null, context);
     }
 
+    @Override
+    public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsForBundles(final Collection<UUID> bundleIds, final SubscriptionCatalog catalog, final InternalTenantContext context) {
+        final Map<UUID, List<DefaultSubscriptionBase>> results = new HashMap<UUID, List<DefaultSubscriptionBase>>();
+        for (final DefaultSubscriptionBase cur : subscriptions) {
+            if (!bundleIds.contains(cur.getBundleId())) {
+                continue;
+            }
+            if (results.get(cur.getBundleId()) == null) {
+                results.put(cur.getBundleId(), new LinkedList<DefaultSubscriptionBase>());
+            }
+            results.get(cur.getBundleId()).add(buildSubscription(cur, context));
+        }
+        return results;
+    }
+
     @Override
     public Map<UUID, List<DefaultSubscriptionBase>> getSubscriptionsFromAccountId(@Nullable final LocalDate cutoffDt, final InternalTenantContext context) {
         final Map<UUID, List<DefaultSubscriptionBase>> results = new HashMap<UUID, List<DefaultSubscriptionBase>>();
@@ -25,6 +25,7 @@ import org.killbill.billing.subscription.engine.addon.AddonUtils;
 import org.killbill.billing.util.audit.dao.AuditDao;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.optimizer.BusOptimizer;
 import org.killbill.clock.Clock;
@@ -41,11 +42,13 @@ public class MockSubscriptionDaoSql extends DefaultSubscriptionDao {
                                   final Clock clock, final AddonUtils addonUtils,
                                   final NotificationQueueService notificationQueueService, final BusOptimizer eventBus,
                                   final CacheControllerDispatcher cacheControllerDispatcher, final NonEntityDao nonEntityDao,
-                                  final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory) {
+                                  final AuditDao auditDao, final InternalCallContextFactory internalCallContextFactory,
+                                  final DaoConfig daoConfig) {
         super(dbi, roDbi,
               clock, addonUtils,
               notificationQueueService, eventBus,
               cacheControllerDispatcher, nonEntityDao,
-              auditDao, internalCallContextFactory);
+              auditDao, internalCallContextFactory,
+              daoConfig);
     }
 }
@@ -17,6 +17,7 @@
 
 package org.killbill.billing.subscription.engine.dao;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -364,6 +365,57 @@ public class TestSubscriptionDao extends SubscriptionTestSuiteWithEmbeddedDB {
     }
 
 
+    @Test(groups = "slow")
+    public void testGetSubscriptionsForBundles() throws SubscriptionBaseApiException, CatalogApiException {
+        final DateTime startDate = clock.getUTCNow();
+
+        final SubscriptionBaseBundle bundle1 = dao.createSubscriptionBundle(new DefaultSubscriptionBaseBundle("54341455sttfs2", accountId, startDate, startDate, startDate, startDate), catalog, true, internalCallContext);
+        final SubscriptionBaseBundle bundle2 = dao.createSubscriptionBundle(new DefaultSubscriptionBaseBundle("54341455sttfs3", accountId, startDate, startDate, startDate, startDate), catalog, true, internalCallContext);
+        final SubscriptionBaseBundle bundle3 = dao.createSubscriptionBundle(new DefaultSubscriptionBaseBundle("54341455sttfs4", accountId, startDate, startDate, startDate, startDate), catalog, true, internalCallContext);
+
+        createTestCanceledSubscription(bundle1, null, startDate, null);
+        createTestCanceledSubscription(bundle1, null, startDate, startDate.plusDays(17));
+        createTestCanceledSubscription(bundle2, null, startDate, null);
+        createTestCanceledSubscription(bundle3, null, startDate, null);
+
+        final InternalCallContext callContextWithAccountID = internalCallContextFactory.createInternalCallContext(accountId, callContext);
+        final Map<UUID, List<DefaultSubscriptionBase>> res = dao.getSubscriptionsForBundles(List.of(bundle1.getId(), bundle2.getId()), catalog, callContextWithAccountID);
+        assertEquals(res.size(), 2);
+        assertEquals(res.get(bundle1.getId()).size(), 2);
+        assertEquals(res.get(bundle2.getId()).size(), 1);
+        assertEquals(res.get(bundle1.getId()).get(0).getBundleExternalKey(), bundle1.getExternalKey());
+        // Same subscriptions (and events) as when loading them bundle per bundle
+        for (final SubscriptionBaseBundle bundle : List.of(bundle1, bundle2)) {
+            final List<DefaultSubscriptionBase> expected = dao.getSubscriptions(bundle.getId(), Collections.emptyList(), catalog, callContextWithAccountID);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(res.get(bundle.getId()).get(i).getId(), expected.get(i).getId());
+                assertEquals(res.get(bundle.getId()).get(i).getAllTransitions(false).size(), expected.get(i).getAllTransitions(false).size());
+            }
+        }
+
+        assertEquals(dao.getSubscriptionsForBundles(Collections.emptyList(), catalog, callContextWithAccountID).size(), 0);
+    }
+
+    @Test(groups = "slow")
+    public void testAccountEventsVersion() throws SubscriptionBaseApiException {
+        final DateTime startDate = clock.getUTCNow();
+        final Long initialVersion = nonEntityDao.retrieveAccountEventsVersion(internalCallContext);
+        Assert.assertNotNull(initialVersion);
+
+        // Incremented once per transaction
+        final SubscriptionBaseBundle bundle = dao.createSubscriptionBundle(new DefaultSubscriptionBaseBundle("54341455sttfs5", accountId, startDate, startDate, startDate, startDate), catalog, true, internalCallContext);
+        assertEquals(nonEntityDao.retrieveAccountEventsVersion(internalCallContext), (Long) (initialVersion + 1));
+
+        // Subscription with its creation and cancellation events
+        createTestCanceledSubscription(bundle, null, startDate, startDate.plusDays(17));
+        final Long newVersion = nonEntityDao.retrieveAccountEventsVersion(internalCallContext);
+        Assert.assertTrue(newVersion > initialVersion + 1);
+
+        // Reads don't change it
+        dao.getSubscriptions(bundle.getId(), Collections.emptyList(), catalog, internalCallContext);
+        assertEquals(nonEntityDao.retrieveAccountEventsVersion(internalCallContext), newVersion);
+    }
+
         @Test(groups = "slow")
     public void testDirtyFlag() throws Throwable {
         final IDBI dbiSpy = Mockito.spy(dbi);
@@ -377,7 +429,8 @@ public class TestSubscriptionDao extends SubscriptionTestSuiteWithEmbeddedDB {
                                                                            controlCacheDispatcher,
                                                                            nonEntityDao,
                                                                            auditDao,
-                                                                           internalCallContextFactory);
+                                                                           internalCallContextFactory,
+                                                                           null);
         Mockito.verify(dbiSpy, Mockito.times(0)).open();
         Mockito.verify(roDbiSpy, Mockito.times(0)).open();
 
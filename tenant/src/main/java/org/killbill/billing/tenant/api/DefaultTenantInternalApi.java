@@ -24,6 +24,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.killbill.billing.ErrorCode;
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.tenant.api.TenantKV.TenantKey;
 import org.killbill.billing.tenant.dao.TenantDao;
@@ -120,6 +121,11 @@ public class DefaultTenantInternalApi implements TenantInternalApi {
         return tenantDao.getTenantValueForKey(key, tenantContext);
     }
 
+    @Override
+    public void updateTenantValueForKey(final String key, final String value, final InternalCallContext context) {
+        tenantDao.updateTenantLastKeyValue(key, value, context);
+    }
+
     @Override
     public Tenant getTenantByApiKey(final String key) throws TenantApiException {
         final TenantModelDao tenant = tenantDao.getTenantByApiKey(key);
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.api.svcs;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.usage.DailyRawUsageRecord;
+
+public class DefaultDailyRawUsage extends DefaultRawUsage implements DailyRawUsageRecord {
+
+    private final BigDecimal maxAmount;
+    private final Set<String> trackingIds;
+
+    public DefaultDailyRawUsage(final UUID subscriptionId, final DateTime recordDate, final String unitType, final BigDecimal amount, final BigDecimal maxAmount, final Set<String> trackingIds) {
+        super(subscriptionId, recordDate, unitType, amount, trackingIds.isEmpty() ? null : trackingIds.iterator().next());
+        this.maxAmount = maxAmount;
+        this.trackingIds = trackingIds;
+    }
+
+    @Override
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    @Override
+    public Set<String> getTrackingIds() {
+        return trackingIds;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("DefaultDailyRawUsage{");
+        sb.append("subscriptionId=").append(getSubscriptionId());
+        sb.append(", recordDate=").append(getDate());
+        sb.append(", unitType='").append(getUnitType()).append('\'');
+        sb.append(", amount=").append(getAmount());
+        sb.append(", maxAmount=").append(maxAmount);
+        sb.append(", trackingIds=").append(trackingIds);
+        sb.append('}');
+        return sb.toString();
+    }
+}
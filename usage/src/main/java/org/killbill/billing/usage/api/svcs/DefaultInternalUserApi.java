@@ -18,7 +18,12 @@
 package org.killbill.billing.usage.api.svcs;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -35,8 +40,8 @@ import org.killbill.billing.usage.InternalUserApi;
 import org.killbill.billing.usage.api.BaseUserApi;
 import org.killbill.billing.usage.api.DefaultUsageContext;
 import org.killbill.billing.usage.api.RawUsageRecord;
+import org.killbill.billing.usage.dao.RolledUpUsageDailyTrackingIdModelDao;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
-import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
 import org.killbill.billing.usage.plugin.api.UsageContext;
 import org.killbill.billing.usage.plugin.api.UsagePluginApi;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
@@ -77,10 +82,24 @@ public class DefaultInternalUserApi extends BaseUserApi implements InternalUserA
             return resultFromPlugin;
         }
 
-        final List<RolledUpUsageModelDao> usage = rolledUpUsageDao.getRawUsageForAccount(startDate, endDate, internalTenantContext);
-        return usage.stream()
-                .map(input -> new DefaultRawUsage(input.getSubscriptionId(), input.getRecordDate(), input.getUnitType(), input.getAmount(), input.getTrackingId()))
-                .collect(Collectors.toUnmodifiableList());
+        // Read the per (subscription, unit type, account day) aggregates instead of every single usage point,
+        // along with the tracking ids they aggregate for the invoice lineage
+        final Map<String, Set<String>> trackingIds = new HashMap<>();
+        for (final RolledUpUsageDailyTrackingIdModelDao input : rolledUpUsageDao.getDailyTrackingIdsForAccount(startDate, endDate, internalTenantContext)) {
+            trackingIds.computeIfAbsent(rollupKey(input.getSubscriptionId(), input.getUnitType(), input.getRecordDate()), k -> new TreeSet<>()).add(input.getTrackingId());
+        }
+        return rolledUpUsageDao.getDailyUsageForAccount(startDate, endDate, internalTenantContext)
+                               .stream()
+                               .<RawUsageRecord>map(input -> new DefaultDailyRawUsage(input.getSubscriptionId(),
+                                                                                      input.getRecordDate(),
+                                                                                      input.getUnitType(),
+                                                                                      input.getAmount(),
+                                                                                      input.getMaxAmount(),
+                                                                                      trackingIds.getOrDefault(rollupKey(input.getSubscriptionId(), input.getUnitType(), input.getRecordDate()), Collections.emptySet())))
+                               .collect(Collectors.toUnmodifiableList());
     }
 
+    private static String rollupKey(final UUID subscriptionId, final String unitType, final DateTime recordDate) {
+        return subscriptionId + "::" + unitType + "::" + recordDate.getMillis();
+    }
 }
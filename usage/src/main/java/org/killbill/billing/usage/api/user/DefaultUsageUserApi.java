@@ -19,8 +19,11 @@ package org.killbill.billing.usage.api.user;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -34,7 +37,11 @@ import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.osgi.api.OSGIServiceRegistration;
 import org.killbill.billing.payment.api.PluginProperty;
+import org.killbill.billing.subscription.api.SubscriptionBaseInternalApi;
+import org.killbill.billing.subscription.api.user.SubscriptionBaseApiException;
+import org.killbill.billing.usage.RolledUpUsageRecordResult;
 import org.killbill.billing.usage.api.BaseUserApi;
+import org.killbill.billing.usage.api.BulkUsageUserApi;
 import org.killbill.billing.usage.api.DefaultUsageContext;
 import org.killbill.billing.usage.api.RawUsageRecord;
 import org.killbill.billing.usage.api.RolledUpUnit;
@@ -43,7 +50,6 @@ import org.killbill.billing.usage.api.SubscriptionUsageRecord;
 import org.killbill.billing.usage.api.UnitUsageRecord;
 import org.killbill.billing.usage.api.UsageApiException;
 import org.killbill.billing.usage.api.UsageRecord;
-import org.killbill.billing.usage.api.UsageUserApi;
 import org.killbill.billing.usage.dao.RolledUpUsageDao;
 import org.killbill.billing.usage.dao.RolledUpUsageModelDao;
 import org.killbill.billing.usage.plugin.api.UsageContext;
@@ -52,18 +58,25 @@ import org.killbill.billing.util.UUIDs;
 import org.killbill.billing.util.callcontext.CallContext;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
 import org.killbill.billing.util.callcontext.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
+public class DefaultUsageUserApi extends BaseUserApi implements BulkUsageUserApi {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultUsageUserApi.class);
 
     private final RolledUpUsageDao rolledUpUsageDao;
+    private final SubscriptionBaseInternalApi subscriptionInternalApi;
     private final InternalCallContextFactory internalCallContextFactory;
 
     @Inject
     public DefaultUsageUserApi(final RolledUpUsageDao rolledUpUsageDao,
+                               final SubscriptionBaseInternalApi subscriptionInternalApi,
                                final InternalCallContextFactory internalCallContextFactory,
                                final OSGIServiceRegistration<UsagePluginApi> pluginRegistry) {
         super(pluginRegistry);
         this.rolledUpUsageDao = rolledUpUsageDao;
+        this.subscriptionInternalApi = subscriptionInternalApi;
         this.internalCallContextFactory = internalCallContextFactory;
     }
 
@@ -91,6 +104,79 @@ public class DefaultUsageUserApi extends BaseUserApi implements UsageUserApi {
         rolledUpUsageDao.record(usages, internalCallContext);
     }
 
+    @Override
+    public List<RolledUpUsageRecordResult> recordRolledUpUsage(final List<SubscriptionUsageRecord> records, final CallContext callContext) {
+        log.info("RecordRolledUpUsage nbRecords='{}'", records.size());
+
+        final InternalCallContext tenantCallContext = internalCallContextFactory.createInternalCallContextWithoutAccountRecordId(callContext);
+
+        // Resolve each subscription once (the subscription -> account mapping is cached) and all the tracking ids upfront
+        final Map<UUID, UUID> accountIds = new HashMap<>();
+        final Map<UUID, SubscriptionBaseApiException> invalidSubscriptions = new HashMap<>();
+        final Set<String> trackingIds = new HashSet<>();
+        for (final SubscriptionUsageRecord record : records) {
+            if (!accountIds.containsKey(record.getSubscriptionId()) && !invalidSubscriptions.containsKey(record.getSubscriptionId())) {
+                try {
+                    accountIds.put(record.getSubscriptionId(), subscriptionInternalApi.getAccountIdFromSubscriptionId(record.getSubscriptionId(), tenantCallContext));
+                } catch (final SubscriptionBaseApiException e) {
+                    invalidSubscriptions.put(record.getSubscriptionId(), e);
+                }
+            }
+            if (record.getTrackingId() != null && !record.getTrackingId().isEmpty()) {
+                trackingIds.add(record.getTrackingId());
+            }
+        }
+        final Map<String, Set<UUID>> existingTrackingIds = trackingIds.isEmpty() ? new HashMap<>() : rolledUpUsageDao.getSubscriptionIdsWithTrackingIds(trackingIds, tenantCallContext);
+
+        final RolledUpUsageRecordResult[] results = new RolledUpUsageRecordResult[records.size()];
+        final Map<UUID, List<Integer>> recordIndexesByAccountId = new LinkedHashMap<>();
+        final Map<UUID, List<RolledUpUsageModelDao>> usagesByAccountId = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            final SubscriptionUsageRecord record = records.get(i);
+
+            final UUID accountId = accountIds.get(record.getSubscriptionId());
+            if (accountId == null) {
+                results[i] = new RolledUpUsageRecordResult(record.getSubscriptionId(), record.getTrackingId(), new UsageApiException(invalidSubscriptions.get(record.getSubscriptionId()), ErrorCode.SUB_INVALID_SUBSCRIPTION_ID, record.getSubscriptionId()));
+                continue;
+            }
+
+            final String trackingId;
+            if (record.getTrackingId() == null || record.getTrackingId().isEmpty()) {
+                trackingId = UUIDs.randomUUID().toString();
+            // Same semantics as the single record API: the (subscriptionId, trackingId) pair must be new, including within this batch
+            } else if (!existingTrackingIds.computeIfAbsent(record.getTrackingId(), k -> new HashSet<>()).add(record.getSubscriptionId())) {
+                results[i] = new RolledUpUsageRecordResult(record.getSubscriptionId(), record.getTrackingId(), new UsageApiException(ErrorCode.USAGE_RECORD_TRACKING_ID_ALREADY_EXISTS, record.getTrackingId()));
+                continue;
+            } else {
+                trackingId = record.getTrackingId();
+            }
+
+            final List<RolledUpUsageModelDao> usages = usagesByAccountId.computeIfAbsent(accountId, k -> new ArrayList<>());
+            for (final UnitUsageRecord unitUsageRecord : record.getUnitUsageRecord()) {
+                for (final UsageRecord usageRecord : unitUsageRecord.getDailyAmount()) {
+                    usages.add(new RolledUpUsageModelDao(record.getSubscriptionId(), unitUsageRecord.getUnitType(), usageRecord.getDate(), usageRecord.getAmount(), trackingId));
+                }
+            }
+            recordIndexesByAccountId.computeIfAbsent(accountId, k -> new ArrayList<>()).add(i);
+            results[i] = new RolledUpUsageRecordResult(record.getSubscriptionId(), trackingId, null);
+        }
+
+        // One batch insert per account, so that failures are isolated to the records of that account
+        for (final Map.Entry<UUID, List<RolledUpUsageModelDao>> entry : usagesByAccountId.entrySet()) {
+            try {
+                final InternalCallContext internalCallContext = internalCallContextFactory.createInternalCallContext(entry.getKey(), callContext);
+                rolledUpUsageDao.record(entry.getValue(), internalCallContext);
+            } catch (final RuntimeException e) {
+                log.warn("Failed to record usage for accountId='{}'", entry.getKey(), e);
+                for (final Integer i : recordIndexesByAccountId.get(entry.getKey())) {
+                    results[i] = new RolledUpUsageRecordResult(results[i].getSubscriptionId(), results[i].getTrackingId(), new UsageApiException(e, ErrorCode.UNEXPECTED_ERROR, e.getMessage()));
+                }
+            }
+        }
+
+        return List.of(results);
+    }
+
     @Override
     public RolledUpUsage getUsageForSubscription(final UUID subscriptionId, final String unitType, final DateTime startDate, final DateTime endDate, final Iterable<PluginProperty> properties, final TenantContext tenantContextNoAccountId) {
         final InternalTenantContext internalCallContext = internalCallContextFactory.createInternalTenantContext(subscriptionId, ObjectType.SUBSCRIPTION, tenantContextNoAccountId);
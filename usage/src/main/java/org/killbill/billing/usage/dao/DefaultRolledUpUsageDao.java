@@ -18,33 +18,163 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDate;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.entity.dao.DBRouter;
+import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
+import org.skife.jdbi.v2.TransactionCallback;
+import org.skife.jdbi.v2.exceptions.DBIException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
 
+    private static final Logger log = LoggerFactory.getLogger(DefaultRolledUpUsageDao.class);
+
+    // Safety mechanism to keep the IN clauses reasonable (same value as the @BatchChunkSize on inserts)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    private final IDBI dbi;
     private final DBRouter<RolledUpUsageSqlDao> dbRouter;
+    private final DBRouter<RolledUpUsageDailySqlDao> dailyDbRouter;
+    private final DBRouter<RolledUpUsageDailyTrackingIdSqlDao> trackingIdDbRouter;
 
     @Inject
     public DefaultRolledUpUsageDao(final IDBI dbi, @Named(MAIN_RO_IDBI_NAMED) final IDBI roDbi) {
+        this.dbi = dbi;
         this.dbRouter = new DBRouter<RolledUpUsageSqlDao>(dbi, roDbi, RolledUpUsageSqlDao.class);
+        this.dailyDbRouter = new DBRouter<RolledUpUsageDailySqlDao>(dbi, roDbi, RolledUpUsageDailySqlDao.class);
+        this.trackingIdDbRouter = new DBRouter<RolledUpUsageDailyTrackingIdSqlDao>(dbi, roDbi, RolledUpUsageDailyTrackingIdSqlDao.class);
     }
 
     @Override
     public void record(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
-        dbRouter.onDemand(false).create(usages, context);
+        try {
+            recordWithDailyRollup(usages, context);
+        } catch (final DBIException e) {
+            if (!isRetryable(e)) {
+                throw e;
+            }
+            // Most likely two transactions creating the same rolled_up_usage_daily (or rolled_up_usage_daily_tracking_ids) row: the second attempt will update the row instead
+            log.info("Retrying to record usage after failure: {}", e.getMessage());
+            recordWithDailyRollup(usages, context);
+        }
+    }
+
+    // Duplicate key (SQLState class 23, integrity constraint violation) or serialization failure / deadlock
+    private static boolean isRetryable(final DBIException e) {
+        for (Throwable cur = e; cur != null; cur = cur.getCause()) {
+            if (cur instanceof SQLException && ((SQLException) cur).getSQLState() != null) {
+                final String sqlState = ((SQLException) cur).getSQLState();
+                return sqlState.startsWith("23") || "40001".equals(sqlState) || "40P01".equals(sqlState);
+            }
+        }
+        return false;
+    }
+
+    private void recordWithDailyRollup(final Iterable<RolledUpUsageModelDao> usages, final InternalCallContext context) {
+        dbi.inTransaction((TransactionCallback<Void>) (handle, status) -> {
+            handle.attach(RolledUpUsageSqlDao.class).create(usages, context);
+            updateDailyRollup(usages, handle, context);
+            return null;
+        });
+    }
+
+    // Incrementally maintain the per (subscriptionId, unitType, account day) aggregates, in the same transaction as the raw usage
+    private void updateDailyRollup(final Iterable<RolledUpUsageModelDao> usages, final Handle handle, final InternalCallContext context) {
+        final Map<RollupKey, RolledUpUsageDailyModelDao> rollups = new LinkedHashMap<>();
+        final Map<RollupKey, Set<String>> trackingIds = new HashMap<>();
+        final Set<String> subscriptionIds = new HashSet<>();
+        DateTime minDayStart = null;
+        DateTime maxDayStart = null;
+        for (final RolledUpUsageModelDao usage : usages) {
+            final DateTime dayStart = toDayStart(usage.getRecordDate(), context);
+            final RollupKey key = new RollupKey(usage.getSubscriptionId(), usage.getUnitType(), dayStart);
+            final RolledUpUsageDailyModelDao rollup = rollups.get(key);
+            if (rollup == null) {
+                rollups.put(key, new RolledUpUsageDailyModelDao(usage.getSubscriptionId(), usage.getUnitType(), dayStart, usage.getAmount(), usage.getAmount()));
+            } else {
+                rollup.setAmount(rollup.getAmount().add(usage.getAmount()));
+                rollup.setMaxAmount(rollup.getMaxAmount().max(usage.getAmount()));
+            }
+            trackingIds.computeIfAbsent(key, k -> new HashSet<>()).add(usage.getTrackingId());
+
+            subscriptionIds.add(usage.getSubscriptionId().toString());
+            minDayStart = minDayStart == null || dayStart.isBefore(minDayStart) ? dayStart : minDayStart;
+            maxDayStart = maxDayStart == null || dayStart.isAfter(maxDayStart) ? dayStart : maxDayStart;
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        final RolledUpUsageDailySqlDao dailySqlDao = handle.attach(RolledUpUsageDailySqlDao.class);
+        final RolledUpUsageDailyTrackingIdSqlDao trackingIdSqlDao = handle.attach(RolledUpUsageDailyTrackingIdSqlDao.class);
+        final List<RolledUpUsageDailyModelDao> toUpdate = new ArrayList<>();
+        for (final List<String> chunk : chunk(subscriptionIds)) {
+            for (final RolledUpUsageDailyModelDao existing : dailySqlDao.getForUpdate(chunk, minDayStart.toDate(), maxDayStart.toDate(), context)) {
+                final RolledUpUsageDailyModelDao rollup = rollups.remove(new RollupKey(existing.getSubscriptionId(), existing.getUnitType(), existing.getRecordDate()));
+                if (rollup != null) {
+                    existing.setAmount(existing.getAmount().add(rollup.getAmount()));
+                    existing.setMaxAmount(existing.getMaxAmount().max(rollup.getMaxAmount()));
+                    existing.setUpdatedDate(context.getUpdatedDate());
+                    toUpdate.add(existing);
+                }
+            }
+            // Tracking ids already recorded for these days (e.g. usage recorded in several calls with the same trackingId)
+            for (final RolledUpUsageDailyTrackingIdModelDao existing : trackingIdSqlDao.getForSubscriptions(chunk, minDayStart.toDate(), maxDayStart.toDate(), context)) {
+                final Set<String> pendingTrackingIds = trackingIds.get(new RollupKey(existing.getSubscriptionId(), existing.getUnitType(), existing.getRecordDate()));
+                if (pendingTrackingIds != null) {
+                    pendingTrackingIds.remove(existing.getTrackingId());
+                }
+            }
+        }
+
+        if (!toUpdate.isEmpty()) {
+            dailySqlDao.updateAmounts(toUpdate, context);
+        }
+        if (!rollups.isEmpty()) {
+            dailySqlDao.create(rollups.values(), context);
+        }
+
+        final List<RolledUpUsageDailyTrackingIdModelDao> newTrackingIds = new ArrayList<>();
+        for (final Entry<RollupKey, Set<String>> entry : trackingIds.entrySet()) {
+            for (final String trackingId : entry.getValue()) {
+                newTrackingIds.add(new RolledUpUsageDailyTrackingIdModelDao(entry.getKey().subscriptionId, entry.getKey().unitType, new DateTime(entry.getKey().recordDateMillis, DateTimeZone.UTC), trackingId));
+            }
+        }
+        if (!newTrackingIds.isEmpty()) {
+            trackingIdSqlDao.create(newTrackingIds, context);
+        }
+    }
+
+    // Start of the account day (i.e. at the account reference time) containing recordDate: invoicing compares
+    // usage with billing transitions, which are aligned on the reference time as well
+    static DateTime toDayStart(final DateTime recordDate, final InternalTenantContext context) {
+        final LocalDate day = context.toLocalDate(recordDate);
+        final DateTime dayStart = context.toUTCDateTime(day);
+        return dayStart.isAfter(recordDate) ? context.toUTCDateTime(day.minusDays(1)) : dayStart;
     }
 
     @Override
@@ -52,6 +182,17 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
         return dbRouter.onDemand(false).recordsWithTrackingIdExist(subscriptionId, trackingId, context) != null;
     }
 
+    @Override
+    public Map<String, Set<UUID>> getSubscriptionIdsWithTrackingIds(final Collection<String> trackingIds, final InternalTenantContext context) {
+        final Map<String, Set<UUID>> result = new HashMap<>();
+        for (final List<String> chunk : chunk(trackingIds)) {
+            for (final RolledUpUsageModelDao usage : dbRouter.onDemand(false).getSubscriptionIdsWithTrackingIds(chunk, context)) {
+                result.computeIfAbsent(usage.getTrackingId(), k -> new HashSet<>()).add(usage.getSubscriptionId());
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<RolledUpUsageModelDao> getUsageForSubscription(final UUID subscriptionId, final DateTime startDate, final DateTime endDate, final String unitType, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getUsageForSubscription(subscriptionId, startDate.toDate(), endDate.toDate(), unitType, context);
@@ -67,4 +208,55 @@ public class DefaultRolledUpUsageDao implements RolledUpUsageDao {
     public List<RolledUpUsageModelDao> getRawUsageForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
         return dbRouter.onDemand(true).getRawUsageForAccount(startDate.toDate(), endDate.toDate(), context);
     }
+
+    @Override
+    public List<RolledUpUsageDailyModelDao> getDailyUsageForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
+        return dailyDbRouter.onDemand(true).getDailyUsageForAccount(toDayStart(startDate, context).toDate(), endDate.toDate(), context);
+    }
+
+    @Override
+    public List<RolledUpUsageDailyTrackingIdModelDao> getDailyTrackingIdsForAccount(final DateTime startDate, final DateTime endDate, final InternalTenantContext context) {
+        return trackingIdDbRouter.onDemand(true).getDailyTrackingIdsForAccount(toDayStart(startDate, context).toDate(), endDate.toDate(), context);
+    }
+
+    private static List<List<String>> chunk(final Collection<String> values) {
+        final List<String> valuesAsList = new ArrayList<>(values);
+        final List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < valuesAsList.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(valuesAsList.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, valuesAsList.size())));
+        }
+        return chunks;
+    }
+
+    private static final class RollupKey {
+
+        private final UUID subscriptionId;
+        private final String unitType;
+        private final long recordDateMillis;
+
+        private RollupKey(final UUID subscriptionId, final String unitType, final DateTime recordDate) {
+            this.subscriptionId = subscriptionId;
+            this.unitType = unitType;
+            this.recordDateMillis = recordDate.getMillis();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final RollupKey that = (RollupKey) o;
+            return recordDateMillis == that.recordDateMillis &&
+                   Objects.equals(subscriptionId, that.subscriptionId) &&
+                   Objects.equals(unitType, that.unitType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(subscriptionId, unitType, recordDateMillis);
+        }
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntityModelDao;
+import org.killbill.billing.util.entity.dao.EntityModelDaoBase;
+
+// Aggregate of all the rolled_up_usage rows for a given (subscriptionId, unitType) over a day: recordDate is the start of that day,
+// i.e. the last reference time of the account before the usage points (see DefaultRolledUpUsageDao#toDayStart)
+public class RolledUpUsageDailyModelDao extends EntityModelDaoBase implements EntityModelDao<Entity> {
+
+    private UUID subscriptionId;
+    private String unitType;
+    private DateTime recordDate;
+    // Sum of the amounts (CONSUMABLE usage)
+    private BigDecimal amount;
+    // Max of the amounts (CAPACITY usage)
+    private BigDecimal maxAmount;
+
+    public RolledUpUsageDailyModelDao() { /* For the DAO mapper */ }
+
+    public RolledUpUsageDailyModelDao(final UUID id, final DateTime createdDate, final DateTime updatedDate, final UUID subscriptionId, final String unitType, final DateTime recordDate, final BigDecimal amount, final BigDecimal maxAmount) {
+        super(id, createdDate, updatedDate);
+        this.subscriptionId = subscriptionId;
+        this.unitType = unitType;
+        this.recordDate = recordDate;
+        this.amount = amount;
+        this.maxAmount = maxAmount;
+    }
+
+    public RolledUpUsageDailyModelDao(final UUID subscriptionId, final String unitType, final DateTime recordDate, final BigDecimal amount, final BigDecimal maxAmount) {
+        this(UUIDs.randomUUID(), null, null, subscriptionId, unitType, recordDate, amount, maxAmount);
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(final UUID subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public String getUnitType() {
+        return unitType;
+    }
+
+    public void setUnitType(final String unitType) {
+        this.unitType = unitType;
+    }
+
+    public DateTime getRecordDate() {
+        return recordDate;
+    }
+
+    public void setRecordDate(final DateTime recordDate) {
+        this.recordDate = recordDate;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(final BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(final BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RolledUpUsageDailyModelDao");
+        sb.append("{id=").append(id);
+        sb.append(", subscriptionId=").append(subscriptionId);
+        sb.append(", unitType='").append(unitType).append('\'');
+        sb.append(", recordDate=").append(recordDate);
+        sb.append(", amount=").append(amount);
+        sb.append(", maxAmount=").append(maxAmount);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final RolledUpUsageDailyModelDao that = (RolledUpUsageDailyModelDao) o;
+
+        if (amount != null ? !amount.equals(that.amount) : that.amount != null) {
+            return false;
+        }
+        if (maxAmount != null ? !maxAmount.equals(that.maxAmount) : that.maxAmount != null) {
+            return false;
+        }
+        if (recordDate != null ? !recordDate.equals(that.recordDate) : that.recordDate != null) {
+            return false;
+        }
+        if (id != null ? !id.equals(that.id) : that.id != null) {
+            return false;
+        }
+        if (unitType != null ? !unitType.equals(that.unitType) : that.unitType != null) {
+            return false;
+        }
+        if (subscriptionId != null ? !subscriptionId.equals(that.subscriptionId) : that.subscriptionId != null) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (subscriptionId != null ? subscriptionId.hashCode() : 0);
+        result = 31 * result + (unitType != null ? unitType.hashCode() : 0);
+        result = 31 * result + (recordDate != null ? recordDate.hashCode() : 0);
+        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        result = 31 * result + (maxAmount != null ? maxAmount.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public TableName getTableName() {
+        return TableName.ROLLED_UP_USAGE_DAILY;
+    }
+
+    @Override
+    public TableName getHistoryTableName() {
+        return null;
+    }
+}
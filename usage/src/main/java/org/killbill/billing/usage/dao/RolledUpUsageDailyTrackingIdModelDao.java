@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.usage.dao;
+
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.killbill.billing.util.UUIDs;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.billing.util.entity.dao.EntityModelDao;
+import org.killbill.billing.util.entity.dao.EntityModelDaoBase;
+
+// Tracking ids of the rolled_up_usage rows aggregated in a given rolled_up_usage_daily row (for the invoice lineage)
+public class RolledUpUsageDailyTrackingIdModelDao extends EntityModelDaoBase implements EntityModelDao<Entity> {
+
+    private UUID subscriptionId;
+    private String unitType;
+    private DateTime recordDate;
+    private String trackingId;
+
+    public RolledUpUsageDailyTrackingIdModelDao() { /* For the DAO mapper */ }
+
+    public RolledUpUsageDailyTrackingIdModelDao(final UUID id, final DateTime createdDate, final DateTime updatedDate, final UUID subscriptionId, final String unitType, final DateTime recordDate, final String trackingId) {
+        super(id, createdDate, updatedDate);
+        this.subscriptionId = subscriptionId;
+        this.unitType = unitType;
+        this.recordDate = recordDate;
+        this.trackingId = trackingId;
+    }
+
+    public RolledUpUsageDailyTrackingIdModelDao(final UUID subscriptionId, final String unitType, final DateTime recordDate, final String trackingId) {
+        this(UUIDs.randomUUID(), null, null, subscriptionId, unitType, recordDate, trackingId);
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    public void setSubscriptionId(final UUID subscriptionId) {
+        this.subscriptionId = subscriptionId;
+    }
+
+    public String getUnitType() {
+        return unitType;
+    }
+
+    public void setUnitType(final String unitType) {
+        this.unitType = unitType;
+    }
+
+    public DateTime getRecordDate() {
+        return recordDate;
+    }
+
+    public void setRecordDate(final DateTime recordDate) {
+        this.recordDate = recordDate;
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public void setTrackingId(final String trackingId) {
+        this.trackingId = trackingId;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("RolledUpUsageDailyTrackingIdModelDao");
+        sb.append("{id=").append(id);
+        sb.append(", subscriptionId=").append(subscriptionId);
+        sb.append(", unitType='").append(unitType).append('\'');
+        sb.append(", recordDate=").append(recordDate);
+        sb.append(", trackingId='").append(trackingId).append('\'');
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final RolledUpUsageDailyTrackingIdModelDao that = (RolledUpUsageDailyTrackingIdModelDao) o;
+
+        if (recordDate != null ? !recordDate.equals(that.recordDate) : that.recordDate != null) {
+            return false;
+        }
+        if (trackingId != null ? !trackingId.equals(that.trackingId) : that.trackingId != null) {
+            return false;
+        }
+        if (id != null ? !id.equals(that.id) : that.id != null) {
+            return false;
+        }
+        if (unitType != null ? !unitType.equals(that.unitType) : that.unitType != null) {
+            return false;
+        }
+        if (subscriptionId != null ? !subscriptionId.equals(that.subscriptionId) : that.subscriptionId != null) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = id != null ? id.hashCode() : 0;
+        result = 31 * result + (subscriptionId != null ? subscriptionId.hashCode() : 0);
+        result = 31 * result + (unitType != null ? unitType.hashCode() : 0);
+        result = 31 * result + (recordDate != null ? recordDate.hashCode() : 0);
+        result = 31 * result + (trackingId != null ? trackingId.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public TableName getTableName() {
+        return TableName.ROLLED_UP_USAGE_DAILY_TRACKING_IDS;
+    }
+
+    @Override
+    public TableName getHistoryTableName() {
+        return null;
+    }
+}
@@ -16,7 +16,10 @@
 
 package org.killbill.billing.usage.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -29,9 +32,18 @@ public interface RolledUpUsageDao {
 
     Boolean recordsWithTrackingIdExist(UUID subscriptionId, String trackingId, InternalTenantContext context);
 
+    // Map trackingId -> subscriptionIds which already have rows with that trackingId
+    Map<String, Set<UUID>> getSubscriptionIdsWithTrackingIds(Collection<String> trackingIds, InternalTenantContext context);
+
     List<RolledUpUsageModelDao> getUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, String unitType, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getAllUsageForSubscription(UUID subscriptionId, DateTime startDate, DateTime endDate, InternalTenantContext context);
 
     List<RolledUpUsageModelDao> getRawUsageForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
+
+    // Per (subscriptionId, unitType, account day) aggregates, maintained by record
+    List<RolledUpUsageDailyModelDao> getDailyUsageForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
+
+    // Tracking ids aggregated in the rows returned by getDailyUsageForAccount
+    List<RolledUpUsageDailyTrackingIdModelDao> getDailyTrackingIdsForAccount(DateTime startDate, DateTime endDate, InternalTenantContext context);
 }
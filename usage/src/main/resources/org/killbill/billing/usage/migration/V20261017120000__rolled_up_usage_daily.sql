@@ -0,0 +1,47 @@
+CREATE TABLE rolled_up_usage_daily (
+    record_id serial unique,
+    id varchar(36) NOT NULL,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(255) NOT NULL,
+    record_date datetime NOT NULL,
+    amount decimal(18, 9) NOT NULL,
+    max_amount decimal(18, 9) NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_daily_id ON rolled_up_usage_daily(id);
+CREATE UNIQUE INDEX rolled_up_usage_daily_subscription_id_unit_type_record_date ON rolled_up_usage_daily(subscription_id, unit_type, record_date, tenant_record_id);
+CREATE INDEX rolled_up_usage_daily_tenant_account_record_id ON rolled_up_usage_daily(tenant_record_id, account_record_id);
+
+CREATE TABLE rolled_up_usage_daily_tracking_ids (
+    record_id serial unique,
+    id varchar(36) NOT NULL,
+    subscription_id varchar(36) NOT NULL,
+    unit_type varchar(255) NOT NULL,
+    record_date datetime NOT NULL,
+    tracking_id varchar(128) NOT NULL,
+    created_date datetime NOT NULL,
+    updated_date datetime NOT NULL,
+    account_record_id bigint /*! unsigned */ not null,
+    tenant_record_id bigint /*! unsigned */ not null default 0,
+    PRIMARY KEY(record_id)
+) /*! CHARACTER SET utf8 COLLATE utf8_bin */;
+CREATE UNIQUE INDEX rolled_up_usage_daily_tracking_ids_id ON rolled_up_usage_daily_tracking_ids(id);
+CREATE UNIQUE INDEX rolled_up_usage_daily_tracking_ids_subscription_id ON rolled_up_usage_daily_tracking_ids(subscription_id, unit_type, record_date, tracking_id, tenant_record_id);
+CREATE INDEX rolled_up_usage_daily_tracking_ids_tenant_account_record_id ON rolled_up_usage_daily_tracking_ids(tenant_record_id, account_record_id);
+
+-- record_date is the start of the account day of the usage points, i.e. the last reference time (see TimeAwareContext#toUTCDateTime) before them
+insert into rolled_up_usage_daily (id, subscription_id, unit_type, record_date, amount, max_amount, created_date, updated_date, account_record_id, tenant_record_id)
+select uuid(), u.subscription_id, u.unit_type, timestamp(date(date_sub(u.record_date, interval time_to_sec(time(a.reference_time)) second)), time(a.reference_time)) day_start, sum(u.amount), max(u.amount), min(u.created_date), max(u.created_date), u.account_record_id, u.tenant_record_id
+from rolled_up_usage u
+join accounts a on a.record_id = u.account_record_id
+group by u.subscription_id, u.unit_type, day_start, u.account_record_id, u.tenant_record_id;
+
+insert into rolled_up_usage_daily_tracking_ids (id, subscription_id, unit_type, record_date, tracking_id, created_date, updated_date, account_record_id, tenant_record_id)
+select uuid(), u.subscription_id, u.unit_type, timestamp(date(date_sub(u.record_date, interval time_to_sec(time(a.reference_time)) second)), time(a.reference_time)) day_start, u.tracking_id, min(u.created_date), min(u.created_date), u.account_record_id, u.tenant_record_id
+from rolled_up_usage u
+join accounts a on a.record_id = u.account_record_id
+group by u.subscription_id, u.unit_type, day_start, u.tracking_id, u.account_record_id, u.tenant_record_id;
@@ -19,7 +19,10 @@ package org.killbill.billing.usage.dao;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.joda.time.DateTime;
@@ -194,4 +197,80 @@ public class TestDefaultRolledUpUsageDao extends UsageTestSuiteWithEmbeddedDB {
         assertEquals(rolledUpUsageDao.recordsWithTrackingIdExist(subscriptionId, trackingId, internalCallContext),
                      Boolean.TRUE);
     }
-}
\ No newline at end of file
+
+    @Test(groups = "slow")
+    public void testGetSubscriptionIdsWithTrackingIds() {
+        final UUID subscriptionId1 = UUID.randomUUID();
+        final UUID subscriptionId2 = UUID.randomUUID();
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+        final DateTime recordDate = new LocalDate(2013, 1, 1).toDateTimeAtStartOfDay();
+
+        final List<RolledUpUsageModelDao> usages = new ArrayList<RolledUpUsageModelDao>();
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "foo", recordDate, BigDecimal.ONE, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId1, "bar", recordDate, BigDecimal.ONE, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, "foo", recordDate, BigDecimal.ONE, trackingId1));
+        usages.add(new RolledUpUsageModelDao(subscriptionId2, "foo", recordDate, BigDecimal.TEN, trackingId2));
+        rolledUpUsageDao.record(usages, internalCallContext);
+
+        final Map<String, Set<UUID>> result = rolledUpUsageDao.getSubscriptionIdsWithTrackingIds(List.of(trackingId1, trackingId2, UUIDs.randomUUID().toString()), internalCallContext);
+        assertEquals(result.size(), 2);
+        assertEquals(result.get(trackingId1), Set.of(subscriptionId1, subscriptionId2));
+        assertEquals(result.get(trackingId2), Set.of(subscriptionId2));
+    }
+
+    @Test(groups = "slow")
+    public void testDailyRollup() {
+        final UUID subscriptionId = UUIDs.randomUUID();
+        // Account days start at the account reference time
+        final DateTime day1 = internalCallContext.toUTCDateTime(new LocalDate(2013, 1, 1));
+        final DateTime day2 = internalCallContext.toUTCDateTime(new LocalDate(2013, 1, 2));
+        final String trackingId1 = UUIDs.randomUUID().toString();
+        final String trackingId2 = UUIDs.randomUUID().toString();
+
+        final List<RolledUpUsageModelDao> usages1 = new ArrayList<RolledUpUsageModelDao>();
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1, BigDecimal.valueOf(3L), trackingId1));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1.plusHours(5), BigDecimal.valueOf(4L), trackingId1));
+        usages1.add(new RolledUpUsageModelDao(subscriptionId, "foo", day2.plusMinutes(1), BigDecimal.valueOf(1L), trackingId1));
+        rolledUpUsageDao.record(usages1, internalCallContext);
+
+        // Second batch updates the existing (subscriptionId, unitType, day) aggregates across tracking ids, and creates new ones
+        final List<RolledUpUsageModelDao> usages2 = new ArrayList<RolledUpUsageModelDao>();
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, "foo", day1.plusHours(1), BigDecimal.valueOf(5L), trackingId1));
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, "foo", day2.minusMinutes(1), BigDecimal.valueOf(10L), trackingId2));
+        usages2.add(new RolledUpUsageModelDao(subscriptionId, "bar", day1.plusHours(2), BigDecimal.valueOf(2L), trackingId2));
+        rolledUpUsageDao.record(usages2, internalCallContext);
+
+        final List<RolledUpUsageDailyModelDao> result = rolledUpUsageDao.getDailyUsageForAccount(day1, day2.plusHours(1), internalCallContext);
+        assertEquals(result.size(), 3);
+        for (final RolledUpUsageDailyModelDao rollup : result) {
+            if ("bar".equals(rollup.getUnitType())) {
+                assertEquals(rollup.getRecordDate().compareTo(day1), 0);
+                assertEquals(rollup.getAmount().compareTo(BigDecimal.valueOf(2L)), 0);
+                assertEquals(rollup.getMaxAmount().compareTo(BigDecimal.valueOf(2L)), 0);
+            } else if (rollup.getRecordDate().compareTo(day2) == 0) {
+                assertEquals(rollup.getAmount().compareTo(BigDecimal.ONE), 0);
+                assertEquals(rollup.getMaxAmount().compareTo(BigDecimal.ONE), 0);
+            } else {
+                assertEquals(rollup.getRecordDate().compareTo(day1), 0);
+                assertEquals(rollup.getAmount().compareTo(BigDecimal.valueOf(22L)), 0);
+                assertEquals(rollup.getMaxAmount().compareTo(BigDecimal.TEN), 0);
+            }
+        }
+
+        // Each tracking id is recorded once per (subscriptionId, unitType, day)
+        final List<RolledUpUsageDailyTrackingIdModelDao> trackingIds = rolledUpUsageDao.getDailyTrackingIdsForAccount(day1, day2.plusHours(1), internalCallContext);
+        assertEquals(trackingIds.size(), 4);
+        final Set<String> fooDay1TrackingIds = new HashSet<String>();
+        for (final RolledUpUsageDailyTrackingIdModelDao trackingId : trackingIds) {
+            if ("bar".equals(trackingId.getUnitType())) {
+                assertEquals(trackingId.getTrackingId(), trackingId2);
+            } else if (trackingId.getRecordDate().compareTo(day2) == 0) {
+                assertEquals(trackingId.getTrackingId(), trackingId1);
+            } else {
+                fooDay1TrackingIds.add(trackingId.getTrackingId());
+            }
+        }
+        assertEquals(fooDay1TrackingIds, Set.of(trackingId1, trackingId2));
+    }
+}
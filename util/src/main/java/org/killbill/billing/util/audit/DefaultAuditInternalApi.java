@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.audit;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.audit.AuditInternalApi;
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.dao.AuditDao;
+import org.killbill.billing.util.dao.TableName;
+
+public class DefaultAuditInternalApi implements AuditInternalApi {
+
+    private final AuditDao auditDao;
+
+    @Inject
+    public DefaultAuditInternalApi(final AuditDao auditDao) {
+        this.auditDao = auditDao;
+    }
+
+    @Override
+    public AccountAuditLogs getAuditLogsForObjects(final UUID accountId, final Map<ObjectType, ? extends Collection<UUID>> objectIdsPerObjectType, final AuditLevel auditLevel, final InternalTenantContext context) {
+        // Optimization - bail early
+        if (AuditLevel.NONE.equals(auditLevel)) {
+            return new DefaultAccountAuditLogs(accountId);
+        }
+
+        return new DefaultAccountAuditLogs(accountId, auditLevel, streamAuditLogsForObjects(objectIdsPerObjectType, auditLevel, context));
+    }
+
+    @Override
+    public Iterator<AuditLog> streamAuditLogsForObjects(final Map<ObjectType, ? extends Collection<UUID>> objectIdsPerObjectType, final AuditLevel auditLevel, final InternalTenantContext context) {
+        // Deterministic ordering of the queries (and results)
+        final Map<TableName, Collection<UUID>> objectIdsPerTableName = new EnumMap<>(TableName.class);
+        for (final Entry<ObjectType, ? extends Collection<UUID>> entry : objectIdsPerObjectType.entrySet()) {
+            final TableName tableName = TableName.fromObjectType(entry.getKey());
+            if (tableName != null && !entry.getValue().isEmpty()) {
+                objectIdsPerTableName.put(tableName, entry.getValue());
+            }
+        }
+
+        return auditDao.getAuditLogsForIds(objectIdsPerTableName, auditLevel, context);
+    }
+}
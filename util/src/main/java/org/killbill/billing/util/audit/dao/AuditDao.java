@@ -16,7 +16,10 @@
 
 package org.killbill.billing.util.audit.dao;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -38,5 +41,9 @@ public interface AuditDao {
 
     public List<AuditLog> getAuditLogsForId(TableName tableName, UUID objectId, AuditLevel auditLevel, InternalTenantContext context);
 
+    // Audit logs for the specified objects only (one query per table), grouped by table name
+    // Make sure to consume all when done to release the connection
+    public Iterator<AuditLog> getAuditLogsForIds(Map<TableName, ? extends Collection<UUID>> objectIdsPerTableName, AuditLevel auditLevel, InternalTenantContext context);
+
     List<AuditLogWithHistory> getAuditLogsWithHistoryForId(HistorySqlDao sqlDao, TableName tableName, UUID objectId, AuditLevel auditLevel, InternalTenantContext context);
 }
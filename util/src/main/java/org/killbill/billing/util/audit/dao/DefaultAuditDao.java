@@ -18,10 +18,16 @@
 
 package org.killbill.billing.util.audit.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -41,6 +47,7 @@ import org.killbill.billing.util.audit.DefaultAuditLog;
 import org.killbill.billing.util.audit.DefaultAuditLogWithHistory;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.commons.utils.collect.AbstractIterator;
 import org.killbill.commons.utils.collect.Iterators;
 import org.killbill.billing.util.dao.EntityHistoryModelDao;
 import org.killbill.billing.util.dao.HistorySqlDao;
@@ -58,6 +65,9 @@ import static org.killbill.billing.util.glue.IDBISetup.MAIN_RO_IDBI_NAMED;
 
 public class DefaultAuditDao implements AuditDao {
 
+    // Safety mechanism to keep the IN clauses reasonable (same value as the @BatchChunkSize on inserts)
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     private final DBRouter<NonEntitySqlDao> dbRouter;
     private final EntitySqlDaoTransactionalJdbiWrapper transactionalSqlDao;
 
@@ -100,6 +110,136 @@ public class DefaultAuditDao implements AuditDao {
         return new DefaultAccountAuditLogsForObjectType(auditLevel, allAuditLogs);
     }
 
+    @Override
+    public Iterator<AuditLog> getAuditLogsForIds(final Map<TableName, ? extends Collection<UUID>> objectIdsPerTableName, final AuditLevel auditLevel, final InternalTenantContext context) {
+        if (AuditLevel.NONE.equals(auditLevel)) {
+            return Collections.emptyIterator();
+        }
+
+        // Lazy evaluate records: the queries are run (and streamed) one table at a time, as the results are consumed
+        return new AuditLogsForIdsIterator(objectIdsPerTableName.entrySet().iterator(), auditLevel, context);
+    }
+
+    private Iterator<AuditLog> getAuditLogsDirectlyForIds(final TableName tableName, final Collection<UUID> objectIds, final InternalTenantContext context) {
+        return concatLazily(chunk(objectIds).iterator(), objectIdsChunk -> {
+            final Iterable<RecordIdIdMappings> mappings = dbRouter.onDemand(true).getRecordIdIdMappingsForIds(tableName.getTableName(), toStrings(objectIdsChunk), context);
+            return getAuditLogsForRecordIds(tableName.name(), tableName.getObjectType(), RecordIdIdMappings.toMap(mappings), context);
+        });
+    }
+
+    private Iterator<AuditLog> getAuditLogsViaHistoryForIds(final TableName tableName, final Collection<UUID> objectIds, final InternalTenantContext context) {
+        final TableName historyTableName = tableName.getHistoryTableName();
+        return concatLazily(chunk(objectIds).iterator(), objectIdsChunk -> {
+            final Iterable<RecordIdIdMappings> mappings = dbRouter.onDemand(true).getHistoryRecordIdIdMappingsForIds(tableName.getTableName(), historyTableName.getTableName(), toStrings(objectIdsChunk), context);
+            return getAuditLogsForRecordIds(historyTableName.name(), tableName.getObjectType(), RecordIdIdMappings.toMap(mappings), context);
+        });
+    }
+
+    private Iterator<AuditLog> getAuditLogsForRecordIds(final String auditTableName, final ObjectType objectType, final Map<Long, UUID> idsPerTargetRecordId, final InternalTenantContext context) {
+        // Objects can have many history rows: the target record ids are chunked as well
+        return concatLazily(chunk(idsPerTargetRecordId.keySet()).iterator(), targetRecordIdsChunk -> {
+            // See getAuditLogsForAccountRecordId: we don't want to auto-commit when this method returns
+            final EntitySqlDao auditSqlDao = transactionalSqlDao.onDemandForStreamingResults(EntitySqlDao.class);
+            final Iterator<AuditLogModelDao> auditLogs = auditSqlDao.getAuditLogsForTargetRecordIds(auditTableName, targetRecordIdsChunk, context);
+            return Iterators.transform(auditLogs, input -> new DefaultAuditLog(input, objectType, idsPerTargetRecordId.get(input.getTargetRecordId())));
+        });
+    }
+
+    private static Collection<String> toStrings(final Collection<UUID> objectIds) {
+        return objectIds.stream().map(UUID::toString).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static <T> List<List<T>> chunk(final Collection<T> values) {
+        final List<T> valuesAsList = new ArrayList<>(values);
+        final List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < valuesAsList.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(valuesAsList.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, valuesAsList.size())));
+        }
+        return chunks;
+    }
+
+    // The query for the next chunk is only run once the results of the previous one have been consumed (one streaming result set open at a time)
+    private static <T> Iterator<AuditLog> concatLazily(final Iterator<T> chunks, final Function<T, Iterator<AuditLog>> query) {
+        return new AbstractIterator<AuditLog>() {
+
+            private Iterator<AuditLog> current = Collections.emptyIterator();
+
+            @Override
+            protected AuditLog computeNext() {
+                while (!current.hasNext()) {
+                    if (!chunks.hasNext()) {
+                        return endOfData();
+                    }
+                    current = query.apply(chunks.next());
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private final class AuditLogsForIdsIterator extends AbstractIterator<AuditLog> {
+
+        private final Iterator<? extends Entry<TableName, ? extends Collection<UUID>>> objectIdsPerTableName;
+        private final AuditLevel auditLevel;
+        private final InternalTenantContext context;
+
+        // State for the current table
+        private TableName tableName;
+        private Collection<UUID> objectIds;
+        private Set<UUID> objectIdsWithAuditLogs;
+        private boolean viaHistory;
+        private Iterator<AuditLog> auditLogs = Collections.emptyIterator();
+
+        private AuditLogsForIdsIterator(final Iterator<? extends Entry<TableName, ? extends Collection<UUID>>> objectIdsPerTableName,
+                                        final AuditLevel auditLevel,
+                                        final InternalTenantContext context) {
+            this.objectIdsPerTableName = objectIdsPerTableName;
+            this.auditLevel = auditLevel;
+            this.context = context;
+        }
+
+        @Override
+        protected AuditLog computeNext() {
+            while (true) {
+                while (auditLogs.hasNext()) {
+                    final AuditLog auditLog = auditLogs.next();
+                    objectIdsWithAuditLogs.add(auditLog.getAuditedEntityId());
+                    if (AuditLevel.FULL.equals(auditLevel) || ChangeType.INSERT.equals(auditLog.getChangeType())) {
+                        return auditLog;
+                    }
+                }
+
+                if (viaHistory) {
+                    // History tables may not be populated for objects created prior to 0.22.x, attempt a direct audit search for these
+                    // (see getAuditLogsForId and https://github.com/killbill/killbill/issues/1252)
+                    viaHistory = false;
+                    final List<UUID> objectIdsWithoutAuditLogs = objectIds.stream()
+                                                                          .filter(objectId -> !objectIdsWithAuditLogs.contains(objectId))
+                                                                          .collect(Collectors.toUnmodifiableList());
+                    if (!objectIdsWithoutAuditLogs.isEmpty()) {
+                        auditLogs = getAuditLogsDirectlyForIds(tableName, objectIdsWithoutAuditLogs, context);
+                    }
+                    continue;
+                }
+
+                if (!objectIdsPerTableName.hasNext()) {
+                    return endOfData();
+                }
+
+                final Entry<TableName, ? extends Collection<UUID>> entry = objectIdsPerTableName.next();
+                tableName = entry.getKey();
+                objectIds = entry.getValue();
+                objectIdsWithAuditLogs = new HashSet<>();
+                if (objectIds.isEmpty()) {
+                    continue;
+                }
+
+                viaHistory = tableName.hasHistoryTable();
+                auditLogs = viaHistory ? getAuditLogsViaHistoryForIds(tableName, objectIds, context) : getAuditLogsDirectlyForIds(tableName, objectIds, context);
+            }
+        }
+    }
+
     private Iterator<AuditLog> buildAuditLogsFromModelDao(final Iterator<AuditLogModelDao> auditLogsForAccountRecordId, final InternalTenantContext tenantContext) {
         final Map<TableName, Map<Long, UUID>> recordIdIdsCache = new HashMap<>();
         final Map<TableName, Map<Long, UUID>> historyRecordIdIdsCache = new HashMap<>();
@@ -56,60 +56,63 @@ public @interface Cachable {
     enum CacheType {
 
         /* Mapping from object 'id (UUID as String)' -> object 'recordId (Long)' */
-        RECORD_ID(RECORD_ID_CACHE_NAME, String.class, Long.class, false),
+        RECORD_ID(RECORD_ID_CACHE_NAME, String.class, Long.class, false, false),
 
         /* Mapping from object 'id (UUID as String)' -> matching account object 'accountRecordId (Long)' */
-        ACCOUNT_RECORD_ID(ACCOUNT_RECORD_ID_CACHE_NAME, String.class, Long.class, false),
+        ACCOUNT_RECORD_ID(ACCOUNT_RECORD_ID_CACHE_NAME, String.class, Long.class, false, false),
 
         /* Mapping from object 'id (UUID as String)' -> matching object 'tenantRecordId (Long)' */
-        TENANT_RECORD_ID(TENANT_RECORD_ID_CACHE_NAME, String.class, Long.class, false),
+        TENANT_RECORD_ID(TENANT_RECORD_ID_CACHE_NAME, String.class, Long.class, false, false),
 
         /* Mapping from object 'recordId (Long as String)' -> object 'id (UUID)'  */
-        OBJECT_ID(OBJECT_ID_CACHE_NAME, String.class, UUID.class, true),
+        OBJECT_ID(OBJECT_ID_CACHE_NAME, String.class, UUID.class, true, false),
 
         /* Tenant catalog cache */
-        TENANT_CATALOG(TENANT_CATALOG_CACHE_NAME, Long.class, VersionedCatalog.class, false),
+        TENANT_CATALOG(TENANT_CATALOG_CACHE_NAME, Long.class, VersionedCatalog.class, false, false),
 
         /* Tenant payment state machine config cache (String -> SerializableStateMachineConfig) */
-        TENANT_PAYMENT_STATE_MACHINE_CONFIG(TENANT_PAYMENT_STATE_MACHINE_CONFIG_CACHE_NAME, String.class, Object.class, false),
+        TENANT_PAYMENT_STATE_MACHINE_CONFIG(TENANT_PAYMENT_STATE_MACHINE_CONFIG_CACHE_NAME, String.class, Object.class, false, true),
 
         /* Tenant overdue config cache (String -> DefaultOverdueConfig) */
-        TENANT_OVERDUE_CONFIG(TENANT_OVERDUE_CONFIG_CACHE_NAME, Long.class, Object.class, false),
+        TENANT_OVERDUE_CONFIG(TENANT_OVERDUE_CONFIG_CACHE_NAME, Long.class, Object.class, false, false),
 
         /* Tenant overdue config cache */
-        TENANT_CONFIG(TENANT_CONFIG_CACHE_NAME, Long.class, PerTenantConfig.class, false),
+        TENANT_CONFIG(TENANT_CONFIG_CACHE_NAME, Long.class, PerTenantConfig.class, false, false),
 
         /* Tenant config cache */
-        TENANT_KV(TENANT_KV_CACHE_NAME, String.class, String.class, false),
+        TENANT_KV(TENANT_KV_CACHE_NAME, String.class, String.class, false, true),
 
         /* Tenant cache */
-        TENANT(TENANT_CACHE_NAME, String.class, Tenant.class, false),
+        TENANT(TENANT_CACHE_NAME, String.class, Tenant.class, false, false),
 
         /* Overwritten plans  */
-        OVERRIDDEN_PLAN(OVERRIDDEN_PLAN_CACHE_NAME, String.class, Plan.class, false),
+        OVERRIDDEN_PLAN(OVERRIDDEN_PLAN_CACHE_NAME, String.class, Plan.class, false, false),
 
         /* Immutable account data config cache */
-        ACCOUNT_IMMUTABLE(ACCOUNT_IMMUTABLE_CACHE_NAME, Long.class, ImmutableAccountData.class, false),
+        ACCOUNT_IMMUTABLE(ACCOUNT_IMMUTABLE_CACHE_NAME, Long.class, ImmutableAccountData.class, false, false),
 
         /* Account BCD config cache */
-        ACCOUNT_BCD(ACCOUNT_BCD_CACHE_NAME, UUID.class, Integer.class, false),
+        ACCOUNT_BCD(ACCOUNT_BCD_CACHE_NAME, UUID.class, Integer.class, false, false),
 
         /* Bundle id to Account id cache */
-        ACCOUNT_ID_FROM_BUNDLE_ID(ACCOUNT_ID_FROM_BUNDLE_ID_CACHE_NAME, UUID.class, UUID.class, false),
+        ACCOUNT_ID_FROM_BUNDLE_ID(ACCOUNT_ID_FROM_BUNDLE_ID_CACHE_NAME, UUID.class, UUID.class, false, false),
 
         /* Entitlement id to Bundle id cache */
-        BUNDLE_ID_FROM_SUBSCRIPTION_ID(BUNDLE_ID_FROM_SUBSCRIPTION_ID_CACHE_NAME, UUID.class, UUID.class, false);
+        BUNDLE_ID_FROM_SUBSCRIPTION_ID(BUNDLE_ID_FROM_SUBSCRIPTION_ID_CACHE_NAME, UUID.class, UUID.class, false, false);
 
         private final String cacheName;
         private final Class keyType;
         private final Class valueType;
         private final boolean isKeyPrefixedWithTableName;
+        /* Keys of the form 'key::tenantRecordId' (see CacheControllerDispatcher.CACHE_KEY_SEPARATOR), indexed by tenantRecordId */
+        private final boolean isKeySuffixedWithTenantRecordId;
 
-        CacheType(final String cacheName, final Class keyType, final Class valueType, final boolean isKeyPrefixedWithTableName) {
+        CacheType(final String cacheName, final Class keyType, final Class valueType, final boolean isKeyPrefixedWithTableName, final boolean isKeySuffixedWithTenantRecordId) {
             this.cacheName = cacheName;
             this.keyType = keyType;
             this.valueType = valueType;
             this.isKeyPrefixedWithTableName = isKeyPrefixedWithTableName;
+            this.isKeySuffixedWithTenantRecordId = isKeySuffixedWithTenantRecordId;
         }
 
         public static CacheType findByName(final String input) {
@@ -134,5 +137,7 @@ public @interface Cachable {
         }
 
         public boolean isKeyPrefixedWithTableName() { return isKeyPrefixedWithTableName; }
+
+        public boolean isKeySuffixedWithTenantRecordId() { return isKeySuffixedWithTenantRecordId; }
     }
 }
@@ -33,6 +33,9 @@ public interface CacheController<K, V> {
 
     void remove(Function<K, Boolean> keyMatcher);
 
+    // Only for cache types with keys suffixed by the tenant record id (see CacheType#isKeySuffixedWithTenantRecordId)
+    void removeByTenantRecordId(Long tenantRecordId);
+
     void putIfAbsent(final K key, V value);
 
     int size();
@@ -28,9 +28,13 @@ import javax.cache.CacheManager;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
+import org.killbill.commons.metrics.api.Gauge;
+import org.killbill.commons.metrics.api.MetricRegistry;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.billing.util.cache.Cachable.CacheType;
 import org.killbill.billing.util.config.definition.CacheConfig;
+import org.killbill.billing.util.config.definition.RedisCacheConfig;
+import org.killbill.billing.util.metrics.CacheControllerGaugeFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,14 +46,20 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
     private final CacheManager cacheManager;
     private final Set<BaseCacheLoader> cacheLoaders;
     private final CacheConfig cacheConfig;
+    private final RedisCacheConfig redisCacheConfig;
+    private final MetricRegistry metricRegistry;
 
     @Inject
     public CacheControllerDispatcherProvider(final CacheManager cacheManager,
                                              final Set<BaseCacheLoader> cacheLoaders,
-                                             final CacheConfig cacheConfig) {
+                                             final CacheConfig cacheConfig,
+                                             final RedisCacheConfig redisCacheConfig,
+                                             final MetricRegistry metricRegistry) {
         this.cacheManager = cacheManager;
         this.cacheLoaders = cacheLoaders;
         this.cacheConfig = cacheConfig;
+        this.redisCacheConfig = redisCacheConfig;
+        this.metricRegistry = metricRegistry;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -71,7 +81,13 @@ public class CacheControllerDispatcherProvider implements Provider<CacheControll
                 }
                 Preconditions.checkState(!cache.isClosed(), "Cache '%s' should not be closed", cacheType.getCacheName());
 
-                cacheController = new KillBillCacheController<Object, Object>(cache, cacheLoader);
+                final CacheLoaderStatistics statistics = new CacheLoaderStatistics();
+                // With Redis, the cache is shared across nodes
+                cacheController = new KillBillCacheController<Object, Object>(cache, cacheLoader, statistics, redisCacheConfig.isRedisCachingEnabled());
+
+                // Create the loader metrics for this cache (JCache statistics are registered by CacheProviderBase)
+                final Map<String, Gauge<Object>> metrics = CacheControllerGaugeFactory.forCache(cacheType.getCacheName(), statistics);
+                metrics.keySet().forEach(metricName -> metricRegistry.gauge(metricName, metrics.get(metricName)));
             }
 
             cacheControllers.put(cacheType, cacheController);
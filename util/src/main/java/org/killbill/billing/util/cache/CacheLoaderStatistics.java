@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-cache counters maintained by KillBillCacheController around the cache loaders (see CacheControllerGaugeFactory)
+public class CacheLoaderStatistics {
+
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final AtomicLong currentWaiters = new AtomicLong();
+    private final AtomicLong inFlightLoads = new AtomicLong();
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoadStart() {
+        inFlightLoads.incrementAndGet();
+    }
+
+    void recordLoadEnd(final long elapsedNanos, final boolean success) {
+        inFlightLoads.decrementAndGet();
+        loads.increment();
+        loadTimeNanos.add(elapsedNanos);
+        if (!success) {
+            loadFailures.increment();
+        }
+    }
+
+    void recordWaitStart() {
+        waits.increment();
+        currentWaiters.incrementAndGet();
+    }
+
+    void recordWaitEnd() {
+        currentWaiters.decrementAndGet();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getTotalLoadTimeNanos() {
+        return loadTimeNanos.sum();
+    }
+
+    public double getAverageLoadTimeMillis() {
+        final long nbLoads = loads.sum();
+        return nbLoads == 0 ? 0.0 : (loadTimeNanos.sum() / (double) nbLoads) / 1000000.0;
+    }
+
+    // Number of misses which piggybacked on an in-flight load for the same key
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    public long getCurrentWaiters() {
+        return currentWaiters.get();
+    }
+
+    public long getInFlightLoads() {
+        return inFlightLoads.get();
+    }
+}
@@ -18,17 +18,28 @@
 
 package org.killbill.billing.util.cache;
 
+import java.io.Serializable;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
 import javax.cache.CacheException;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryRemovedListener;
 
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.killbill.commons.utils.Preconditions;
 import org.killbill.commons.utils.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,10 +50,36 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
     private final Cache<K, V> cache;
     private final BaseCacheLoader<K, V> baseCacheLoader;
+    private final CacheLoaderStatistics statistics;
+    // Single-flight loading: concurrent misses for the same key share the same computation,
+    // while misses for different keys proceed in parallel
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<K, CompletableFuture<V>>();
+    // Secondary index tenantRecordId -> keys, maintained on put/remove (and pruned on expiry), to avoid scanning the whole cache on invalidation.
+    // Only built for node-local caches: with a shared provider (Redis), other nodes populate entries this node doesn't know about, so we keep scanning the keys.
+    private final ConcurrentMap<Long, Set<K>> keysByTenantRecordId;
 
     public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader) {
+        this(cache, baseCacheLoader, new CacheLoaderStatistics());
+    }
+
+    public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader, final CacheLoaderStatistics statistics) {
+        this(cache, baseCacheLoader, statistics, false);
+    }
+
+    public KillBillCacheController(final Cache<K, V> cache, final BaseCacheLoader<K, V> baseCacheLoader, final CacheLoaderStatistics statistics, final boolean isSharedCache) {
         this.cache = cache;
         this.baseCacheLoader = baseCacheLoader;
+        this.statistics = statistics;
+        if (baseCacheLoader.getCacheType().isKeySuffixedWithTenantRecordId() && !isSharedCache) {
+            this.keysByTenantRecordId = new ConcurrentHashMap<Long, Set<K>>();
+            // Keep the index in sync when entries go away on their own
+            cache.registerCacheEntryListener(new MutableCacheEntryListenerConfiguration<K, V>(FactoryBuilder.factoryOf(new TenantKeysIndexListener<K, V>(this)),
+                                                                                              null,
+                                                                                              false,
+                                                                                              false));
+        } else {
+            this.keysByTenantRecordId = null;
+        }
     }
 
     @Override
@@ -65,16 +102,11 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
 
         V value;
         try {
-            if (!isKeyInCache(key)) {
-                synchronized (this) {
-                    if (!isKeyInCache(key)) {
-                        value = computeAndCacheValue(key, cacheLoaderArgument);
-                    } else {
-                        value = cache.get(key);
-                    }
-                }
+            value = cache.get(key);
+            if (value == null) {
+                value = loadValue(key, cacheLoaderArgument);
             } else {
-                value = cache.get(key);
+                indexKey(key);
             }
         } catch (final CacheException e) {
             logger.warn("Unable to retrieve cached value for key='{}' and cacheLoaderArgument='{}'", key, cacheLoaderArgument, e);
@@ -91,10 +123,12 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
     @Override
     public void putIfAbsent(final K key, final V value) {
         cache.putIfAbsent(key, value);
+        indexKey(key);
     }
 
     @Override
     public boolean remove(final K key) {
+        unindexKey(key);
         if (isKeyInCache(key)) {
             cache.remove(key);
             return true;
@@ -111,12 +145,37 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
                 toRemove.add(key);
             }
         }
+        for (final K key : toRemove) {
+            unindexKey(key);
+        }
         cache.removeAll(toRemove);
     }
 
+    @Override
+    public void removeByTenantRecordId(final Long tenantRecordId) {
+        Preconditions.checkState(getCacheType().isKeySuffixedWithTenantRecordId(), "Cache '%s' isn't keyed by tenantRecordId", getCacheType().getCacheName());
+        if (tenantRecordId == null) {
+            return;
+        }
+
+        if (keysByTenantRecordId == null) {
+            // Shared cache: the keys need to be scanned to find entries populated by other nodes
+            remove(key -> tenantRecordId.equals(extractTenantRecordId(key)));
+            return;
+        }
+
+        final Set<K> toRemove = keysByTenantRecordId.remove(tenantRecordId);
+        if (toRemove != null && !toRemove.isEmpty()) {
+            cache.removeAll(new HashSet<K>(toRemove));
+        }
+    }
+
     @Override
     public void removeAll() {
         cache.clear();
+        if (keysByTenantRecordId != null) {
+            keysByTenantRecordId.clear();
+        }
     }
 
     @Override
@@ -129,17 +188,143 @@ public class KillBillCacheController<K, V> implements CacheController<K, V> {
         return baseCacheLoader.getCacheType();
     }
 
+    public CacheLoaderStatistics getStatistics() {
+        return statistics;
+    }
+
+    private V loadValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
+        statistics.recordMiss();
+
+        final CompletableFuture<V> newLoad = new CompletableFuture<V>();
+        final CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, newLoad);
+        if (inFlightLoad != null) {
+            return waitForInFlightLoad(inFlightLoad);
+        }
+
+        try {
+            // Another thread may have populated the cache between our lookup and the registration of our load
+            V value = cache.get(key);
+            if (value == null) {
+                value = computeAndCacheValue(key, cacheLoaderArgument);
+            }
+            newLoad.complete(value);
+            return value;
+        } catch (final Throwable e) {
+            // Make sure waiters never block forever, whatever the loader threw (including OutOfMemoryError, StackOverflowError, ...)
+            newLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, newLoad);
+        }
+    }
+
+    private V waitForInFlightLoad(final CompletableFuture<V> inFlightLoad) {
+        statistics.recordWaitStart();
+        try {
+            return inFlightLoad.join();
+        } catch (final CompletionException e) {
+            // Propagate the exception the loading thread saw
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        } finally {
+            statistics.recordWaitEnd();
+        }
+    }
+
     private V computeAndCacheValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
-        final V value = computeValue(key, cacheLoaderArgument);
+        final V value;
+        statistics.recordLoadStart();
+        final long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            value = computeValue(key, cacheLoaderArgument);
+            success = true;
+        } finally {
+            statistics.recordLoadEnd(System.nanoTime() - startNanos, success);
+        }
+
         if (value == null) {
             return null;
         }
 
         cache.put(key, value);
+        indexKey(key);
 
         return value;
     }
 
+    private void indexKey(final K key) {
+        if (keysByTenantRecordId == null) {
+            return;
+        }
+
+        final Long tenantRecordId = extractTenantRecordId(key);
+        if (tenantRecordId != null) {
+            keysByTenantRecordId.computeIfAbsent(tenantRecordId, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unindexKey(final K key) {
+        if (keysByTenantRecordId == null) {
+            return;
+        }
+
+        final Long tenantRecordId = extractTenantRecordId(key);
+        if (tenantRecordId != null) {
+            keysByTenantRecordId.computeIfPresent(tenantRecordId, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    // Evictions aren't reported by JCache: keys of evicted entries are dropped from the index on the next invalidation of their tenant
+    private static final class TenantKeysIndexListener<K, V> implements CacheEntryExpiredListener<K, V>, CacheEntryRemovedListener<K, V>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient KillBillCacheController<K, V> cacheController;
+
+        private TenantKeysIndexListener(final KillBillCacheController<K, V> cacheController) {
+            this.cacheController = cacheController;
+        }
+
+        @Override
+        public void onExpired(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            unindexKeys(events);
+        }
+
+        @Override
+        public void onRemoved(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            unindexKeys(events);
+        }
+
+        private void unindexKeys(final Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            for (final CacheEntryEvent<? extends K, ? extends V> event : events) {
+                cacheController.unindexKey(event.getKey());
+            }
+        }
+    }
+
+    private static Long extractTenantRecordId(final Object key) {
+        final String keyAsString = key.toString();
+        final int separatorIdx = keyAsString.lastIndexOf(CacheControllerDispatcher.CACHE_KEY_SEPARATOR);
+        if (separatorIdx == -1) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(keyAsString.substring(separatorIdx + CacheControllerDispatcher.CACHE_KEY_SEPARATOR.length()));
+        } catch (final NumberFormatException e) {
+            logger.warn("Unable to extract tenantRecordId from cache key='{}'", key);
+            return null;
+        }
+    }
+
     private V computeValue(final K key, final CacheLoaderArgument cacheLoaderArgument) {
         final V value;
         try {
@@ -65,6 +65,10 @@ public class NoOpCacheController<K, V> implements CacheController<K, V> {
     public void remove(final Function<K, Boolean> keyMatcher) {
     }
 
+    @Override
+    public void removeByTenantRecordId(final Long tenantRecordId) {
+    }
+
     @Override
     public void putIfAbsent(final K key, final V value) {
     }
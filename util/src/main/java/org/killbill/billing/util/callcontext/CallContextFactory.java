@@ -26,6 +26,8 @@ public interface CallContextFactory {
 
     TenantContext createTenantContext(@Nullable UUID accountId, @Nullable UUID tenantId);
 
+    TenantContext createTenantContext(@Nullable UUID accountId, @Nullable UUID tenantId, @Nullable String paginationCursor);
+
     CallContext createCallContext(@Nullable UUID accountId, @Nullable UUID tenantId, String userName, CallOrigin callOrigin, UserType userType,
                                   String reasonCode, String comment, UUID userToken);
 }
@@ -39,6 +39,11 @@ public class DefaultCallContextFactory implements CallContextFactory {
         return new DefaultTenantContext(accountId, tenantId);
     }
 
+    @Override
+    public TenantContext createTenantContext(@Nullable final UUID accountId, final UUID tenantId, @Nullable final String paginationCursor) {
+        return new DefaultTenantContext(accountId, tenantId, paginationCursor);
+    }
+
     @Override
     public CallContext createCallContext(@Nullable final UUID accountId, @Nullable final UUID tenantId, final String userName, final CallOrigin callOrigin,
                                          final UserType userType, final String reasonCode, final String comment, final UUID userToken) {
@@ -30,6 +30,7 @@ import org.killbill.billing.ObjectType;
 import org.killbill.billing.account.api.AccountApiException;
 import org.killbill.billing.account.api.ImmutableAccountData;
 import org.killbill.billing.account.api.ImmutableAccountInternalApi;
+import org.killbill.billing.callcontext.DefaultTenantContext;
 import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.commons.utils.Preconditions;
@@ -114,7 +115,7 @@ public class InternalCallContextFactory {
     public InternalTenantContext createInternalTenantContextWithoutAccountRecordId(final TenantContext context) {
         // If tenant id is null, this will default to the default tenant record id (multi-tenancy disabled)
         final Long tenantRecordId = getTenantRecordIdSafe(context);
-        return createInternalTenantContext(tenantRecordId, null);
+        return createInternalTenantContext(tenantRecordId, null, getPaginationCursor(context));
     }
 
     public InternalTenantContext createInternalTenantContext(final UUID accountId, final TenantContext context) {
@@ -143,7 +144,7 @@ public class InternalCallContextFactory {
         //                         "tenant of the pointed object (%s) and the callcontext (%s) don't match!", tenantRecordIdFromObject, tenantRecordIdFromContext);
         final Long tenantRecordId = getTenantRecordIdSafe(context);
         final Long accountRecordId = getAccountRecordIdSafe(objectId, objectType, context);
-        return createInternalTenantContext(tenantRecordId, accountRecordId);
+        return createInternalTenantContext(tenantRecordId, accountRecordId, getPaginationCursor(context));
     }
 
     /**
@@ -154,19 +155,28 @@ public class InternalCallContextFactory {
      * @return internal tenant callcontext
      */
     public InternalTenantContext createInternalTenantContext(final Long tenantRecordId, @Nullable final Long accountRecordId) {
+        return createInternalTenantContext(tenantRecordId, accountRecordId, null);
+    }
+
+    private InternalTenantContext createInternalTenantContext(final Long tenantRecordId, @Nullable final Long accountRecordId, @Nullable final String paginationCursor) {
         populateMDCContext(null, accountRecordId, tenantRecordId);
 
         if (accountRecordId == null) {
-            return new InternalTenantContext(tenantRecordId);
+            return new InternalTenantContext(tenantRecordId, null, null, null, null, paginationCursor);
         } else {
             final ImmutableAccountData immutableAccountData = getImmutableAccountData(accountRecordId, tenantRecordId);
             final DateTimeZone accountTimeZone = immutableAccountData.getTimeZone();
             final DateTimeZone fixedOffsetTimeZone = immutableAccountData.getFixedOffsetTimeZone();
             final DateTime referenceTime = immutableAccountData.getReferenceTime();
-            return new InternalTenantContext(tenantRecordId, accountRecordId, accountTimeZone, fixedOffsetTimeZone, referenceTime);
+            return new InternalTenantContext(tenantRecordId, accountRecordId, accountTimeZone, fixedOffsetTimeZone, referenceTime, paginationCursor);
         }
     }
 
+    // Only set by the listing endpoints (see Context#createTenantContextNoAccountId)
+    private String getPaginationCursor(final TenantContext context) {
+        return context instanceof DefaultTenantContext ? ((DefaultTenantContext) context).getPaginationCursor() : null;
+    }
+
     //
     // Create InternalCallContext
     //
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.catalog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.StaticCatalog;
+
+//
+// Immutable lookup index over the versions of a catalog (sorted by effective date): resolving the version for a date is a binary search
+// and finding a plan by name in a given version is an array access. Plans which can only be resolved dynamically (e.g. overridden plans)
+// aren't indexed -- callers have to fall back to StaticCatalog#findPlan for these.
+//
+public final class CatalogVersionIndex {
+
+    private final List<StaticCatalog> versions;
+    private final long[] effectiveDates;
+    // Plan name -> plan in each version (null if the version doesn't have it), built on first use
+    private volatile Map<String, Plan[]> plansByName;
+
+    public CatalogVersionIndex(final List<StaticCatalog> versions) {
+        this.versions = List.copyOf(versions);
+        this.effectiveDates = new long[this.versions.size()];
+        for (int i = 0; i < this.versions.size(); i++) {
+            final StaticCatalog version = this.versions.get(i);
+            effectiveDates[i] = version.getEffectiveDate().getTime();
+            if (i > 0 && effectiveDates[i] < effectiveDates[i - 1]) {
+                throw new IllegalArgumentException(String.format("Catalog versions aren't sorted by effective date: %s is before %s", version.getEffectiveDate(), this.versions.get(i - 1).getEffectiveDate()));
+            }
+        }
+    }
+
+    public List<StaticCatalog> getVersions() {
+        return versions;
+    }
+
+    public int size() {
+        return versions.size();
+    }
+
+    // Index of the latest version effective at that date -- or the first version if the date is prior all versions (see https://github.com/killbill/killbill/issues/760)
+    public int indexOfVersionForDate(final Date date) {
+        if (versions.isEmpty()) {
+            throw new IllegalStateException(String.format("No existing versions in the VersionedCatalog catalog for input date %s", date));
+        }
+
+        final long time = date.getTime();
+        int low = 0;
+        int high = effectiveDates.length - 1;
+        int result = 0;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (effectiveDates[mid] <= time) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    // Index of the version with that exact effective date, -1 if there is none
+    public int indexOfVersion(final Date effectiveDate) {
+        final int index = indexOfVersionForDate(effectiveDate);
+        return effectiveDates[index] == effectiveDate.getTime() ? index : -1;
+    }
+
+    public StaticCatalog versionForDate(final Date date) {
+        return versions.get(indexOfVersionForDate(date));
+    }
+
+    public boolean isIndexedPlan(final String planName) {
+        return getPlansByName().containsKey(planName);
+    }
+
+    @Nullable
+    public Plan findPlan(final String planName, final int versionIndex) {
+        final Plan[] plans = getPlansByName().get(planName);
+        return plans != null ? plans[versionIndex] : null;
+    }
+
+    private Map<String, Plan[]> getPlansByName() {
+        Map<String, Plan[]> result = plansByName;
+        if (result == null) {
+            result = new HashMap<String, Plan[]>();
+            for (int i = 0; i < versions.size(); i++) {
+                final Collection<Plan> plans = versions.get(i).getPlans();
+                for (final Plan plan : plans != null ? plans : Collections.<Plan>emptyList()) {
+                    result.computeIfAbsent(plan.getName(), name -> new Plan[versions.size()])[i] = plan;
+                }
+            }
+            plansByName = result;
+        }
+        return result;
+    }
+}
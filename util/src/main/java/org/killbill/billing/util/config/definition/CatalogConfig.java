@@ -19,6 +19,7 @@ package org.killbill.billing.util.config.definition;
 
 import org.skife.config.Config;
 import org.skife.config.Default;
+import org.skife.config.DefaultNull;
 import org.skife.config.Description;
 
 public interface CatalogConfig extends KillbillConfig {
@@ -32,4 +33,14 @@ public interface CatalogConfig extends KillbillConfig {
     @Default("1")
     @Description("Number of threads for the XML loader")
     Integer getCatalogThreadNb();
+
+    @Config("org.killbill.catalog.cache.snapshot.enabled")
+    @Default("true")
+    @Description("Whether to store a binary snapshot of the per-tenant catalog in the tenant KV store, to avoid re-parsing the XMLs on cache misses")
+    boolean isCatalogSnapshotEnabled();
+
+    @Config("org.killbill.catalog.cache.snapshot.secret")
+    @DefaultNull
+    @Description("Secret used to sign the per-tenant catalog snapshots (HMAC-SHA256), e.g. a random string of 32+ characters: must be the same on all nodes. Snapshots are neither stored nor used if not set")
+    String getCatalogSnapshotSecret();
 }
@@ -136,6 +136,21 @@ public interface InvoiceConfig extends LockAwareConfig {
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
     int getMaxGlobalLockRetries();
 
+    @Config("org.killbill.invoice.batch.prefetchDepth")
+    @Default("0")
+    @Description("Number of accounts ahead of the current one for which invoices and billing events are fetched when next billing date notifications are processed in batch (0 to disable batching)")
+    int getBatchInvoicingPrefetchDepth();
+
+    @Config("org.killbill.invoice.generator.parallelism")
+    @Default("0")
+    @Description("Number of threads used to generate the items of large accounts, one subscription at a time (0 or 1 to disable)")
+    int getGeneratorParallelism();
+
+    @Config("org.killbill.invoice.generator.parallelism.minSubscriptions")
+    @Default("100")
+    @Description("Minimum number of subscriptions on the account for the items to be generated in parallel")
+    int getGeneratorParallelismMinSubscriptions();
+
     @Config("org.killbill.invoice.plugin")
     @Default("")
     @Description("Default invoice plugin names")
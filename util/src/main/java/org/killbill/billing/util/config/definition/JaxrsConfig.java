@@ -54,4 +54,19 @@ public interface JaxrsConfig extends KillbillConfig {
     @Default("true")
     @Description("Whether GET calls should leverage the read-only database connection")
     boolean shouldGETUseROConnection();
+
+    @Config("org.killbill.jaxrs.profiling.samplingRate")
+    @Default("0")
+    @Description("Fraction (between 0 and 1) of the requests profiled server side to aggregate latency histograms (0 to disable)")
+    double getProfilingSamplingRate();
+
+    @Config("org.killbill.jaxrs.profiling.features")
+    @Default("JAXRS,API,DAO,PLUGIN")
+    @Description("Profiling features enabled for the sampled requests")
+    String getProfilingFeatures();
+
+    @Config("org.killbill.jaxrs.profiling.maxHistograms")
+    @Default("2000")
+    @Description("Maximum number of latency histograms (per tenant, feature and method) kept by the server side profiling")
+    int getProfilingMaxHistograms();
 }
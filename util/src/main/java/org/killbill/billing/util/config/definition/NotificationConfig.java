@@ -38,4 +38,29 @@ public interface NotificationConfig extends KillbillConfig {
     @Description("Delay before which unresolved push notifications should be retried")
     List<TimeSpan> getPushNotificationsRetries(@Param("dummy") final InternalTenantContext tenantContext);
 
+    @Config("org.killbill.billing.server.notifications.timeout")
+    @Default("15s")
+    @Description("Connection and request timeout for push notifications")
+    TimeSpan getPushNotificationsTimeout();
+
+    @Config("org.killbill.billing.server.notifications.maxConcurrentRequestsPerCallback")
+    @Default("1")
+    @Description("Maximum number of in-flight push notification requests per callback URL (1 preserves the ordering of the notifications)")
+    int getPushNotificationsMaxConcurrentRequestsPerCallback();
+
+    @Config("org.killbill.billing.server.notifications.maxPendingPerCallback")
+    @Default("1000")
+    @Description("Maximum number of push notifications waiting to be sent per callback URL, additional ones are scheduled for retry")
+    int getPushNotificationsMaxPendingPerCallback();
+
+    @Config("org.killbill.billing.server.notifications.maxBatchSize")
+    @Default("1")
+    @Description("Maximum number of pending push notifications coalesced into a single request (sent as a JSON array when greater than 1)")
+    int getPushNotificationsMaxBatchSize();
+
+    @Config("org.killbill.billing.server.notifications.threads.nb")
+    @Default("4")
+    @Description("Number of threads used to send push notifications and process the responses")
+    int getPushNotificationsThreads();
+
 }
\ No newline at end of file
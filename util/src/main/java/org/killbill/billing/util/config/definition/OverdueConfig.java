@@ -17,6 +17,22 @@
 
 package org.killbill.billing.util.config.definition;
 
+import org.killbill.billing.callcontext.InternalTenantContext;
+import org.skife.config.Config;
+import org.skife.config.Default;
+import org.skife.config.Description;
+import org.skife.config.Param;
+import org.skife.config.TimeSpan;
+
 public interface OverdueConfig extends LockAwareConfig {
 
+    @Config("org.killbill.overdue.refreshCoalescingWindow")
+    @Default("0s")
+    @Description("Delay before re-evaluating the overdue state of an account after an invoice or payment event: all events received in that window are coalesced into a single refresh (ignored if set to 0s)")
+    TimeSpan getRefreshCoalescingWindow();
+
+    @Config("org.killbill.overdue.refreshCoalescingWindow")
+    @Default("0s")
+    @Description("Delay before re-evaluating the overdue state of an account after an invoice or payment event: all events received in that window are coalesced into a single refresh (ignored if set to 0s)")
+    TimeSpan getRefreshCoalescingWindow(@Param("dummy") final InternalTenantContext tenantContext);
 }
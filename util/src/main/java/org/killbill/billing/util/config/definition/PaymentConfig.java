@@ -122,9 +122,29 @@ public interface PaymentConfig extends LockAwareConfig {
 
     @Config("org.killbill.payment.plugin.threads.nb")
     @Default("10")
-    @Description("Number of threads for plugin executor dispatcher")
+    @Description("Number of threads for each plugin executor dispatcher (one executor per payment plugin)")
     int getPaymentPluginThreadNb();
 
+    @Config("org.killbill.payment.plugin.queue.size")
+    @Default("100")
+    @Description("Maximum number of pending calls for each plugin executor dispatcher before new calls are rejected (0 to reject as soon as all threads are busy)")
+    int getPaymentPluginQueueSize();
+
+    @Config("org.killbill.payment.plugin.info.concurrency")
+    @Default("10")
+    @Description("Maximum number of concurrent plugin calls per request to retrieve the plugin info when listing payments (e.g. all payments of an account)")
+    int getPaymentPluginInfoConcurrency();
+
+    @Config("org.killbill.payment.plugin.info.threads.nb")
+    @Default("5")
+    @Description("Number of threads for each plugin info executor dispatcher (one executor per payment plugin), used to retrieve the plugin info when listing or refreshing payments")
+    int getPaymentPluginInfoThreadNb();
+
+    @Config("org.killbill.payment.plugin.info.timeout")
+    @Default("20s")
+    @Description("Overall deadline to retrieve the plugin info when listing payments: payments whose plugin info isn't retrieved in time are returned without it")
+    TimeSpan getPaymentPluginInfoTimeout();
+
     @Config("org.killbill.payment.globalLock.retries")
     @Default("50")
     @Description("Maximum number of times the system will retry to grab global lock (with a 100ms wait each time)")
@@ -35,6 +35,16 @@ public interface SecurityConfig extends KillbillConfig {
     @Description("Sets the number of times submitted credentials will be hashed before comparing to the credentials stored in the system")
     public Integer getShiroNbHashIterations();
 
+    @Config("org.killbill.security.verifiedCredentialsCache.maxSize")
+    @Default("1000")
+    @Description("Maximum number of users whose verified credentials and roles/permissions are cached by the JDBC realm (0 to disable)")
+    public int getVerifiedCredentialsCacheMaxSize();
+
+    @Config("org.killbill.security.verifiedCredentialsCache.ttl")
+    @Default("5m")
+    @Description("How long verified credentials and roles/permissions are cached by the JDBC realm")
+    public TimeSpan getVerifiedCredentialsCacheTTL();
+
     // LDAP Realm
 
     @Config("org.killbill.security.ldap.userDnTemplate")
@@ -47,6 +47,7 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
@@ -201,7 +202,7 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
     @Override
     public Pagination<CustomFieldModelDao> searchCustomFields(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(CustomFieldSqlDao.class,
-                                              new PaginationIteratorBuilder<CustomFieldModelDao, CustomField, CustomFieldSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<CustomFieldModelDao, CustomField, CustomFieldSqlDao>() {
                                                   @Override
                                                   public Long getCount(final CustomFieldSqlDao customFieldSqlDao, final InternalTenantContext context) {
                                                       return customFieldSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -211,6 +212,11 @@ public class DefaultCustomFieldDao extends EntityDaoBase<CustomFieldModelDao, Cu
                                                   public Iterator<CustomFieldModelDao> build(final CustomFieldSqlDao customFieldSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return customFieldSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<CustomFieldModelDao> buildAfterRecordId(final CustomFieldSqlDao customFieldSqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return customFieldSqlDao.searchBetweenRecordIds(searchKey, String.format("%%%s%%", searchKey), getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
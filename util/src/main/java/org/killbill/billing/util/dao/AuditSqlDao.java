@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -32,6 +33,7 @@ import org.skife.jdbi.v2.sqlobject.SqlBatch;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
 import org.skife.jdbi.v2.sqlobject.customizers.BatchChunkSize;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 /**
  * Note: in the queries below, tableName always refers to the TableName enum, not the actual table name (TableName.getTableName()).
@@ -59,6 +61,12 @@ public interface AuditSqlDao {
                                                                 @Bind("targetRecordId") final long targetRecordId,
                                                                 @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<AuditLogModelDao> getAuditLogsForTargetRecordIds(@Bind("tableName") final String tableName,
+                                                                     @BindIn("targetRecordIds") final Collection<Long> targetRecordIds,
+                                                                     @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public List<AuditLogModelDao> getAuditLogsViaHistoryForTargetRecordId(@Bind("tableName") final String historyTableName, /* Uppercased - used to find entries in audit_log table */
                                                                           @Define("historyTableName") final String actualHistoryTableName, /* Actual table name, used in the inner join query */
@@ -25,6 +25,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.commons.utils.Preconditions;
 import org.killbill.billing.util.cache.CacheController;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
@@ -170,6 +171,12 @@ public class DefaultNonEntityDao implements NonEntityDao {
         return dbRouter.onDemand(true).getHistoryTargetRecordId(recordId, tableName.getTableName());
     }
 
+    @Override
+    public Long retrieveAccountEventsVersion(final InternalTenantContext context) {
+        // No caching either, the point is to detect changes made from any node
+        return dbRouter.onDemand(true).getAccountEventsVersion(context);
+    }
+
     private interface OperationRetrieval<TypeOut> {
 
         public TypeOut doRetrieve(final ObjectType objectType);
@@ -26,6 +26,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.skife.jdbi.v2.SQLStatement;
 import org.skife.jdbi.v2.sqlobject.Binder;
@@ -54,11 +57,9 @@ public @interface EntityHistoryBinder {
                 public void bind(final SQLStatement<?> q, final EntityHistoryBinder bind, final EntityHistoryModelDao<M, E> history) {
                     try {
                         // Emulate @SmartBindBean
-                        final M arg = history.getEntity();
-                        final BeanInfo infos = Introspector.getBeanInfo(arg.getClass());
-                        final PropertyDescriptor[] props = infos.getPropertyDescriptors();
-                        for (final PropertyDescriptor prop : props) {
-                            q.bind(prop.getName(), prop.getReadMethod().invoke(arg));
+                        final Map<String, Object> properties = history.getEntityProperties() != null ? history.getEntityProperties() : getProperties(history.getEntity());
+                        for (final Entry<String, Object> property : properties.entrySet()) {
+                            q.bind(property.getKey(), property.getValue());
                         }
                         q.bind("id", history.getId());
                         q.bind("targetRecordId", history.getTargetRecordId());
@@ -73,5 +74,15 @@ public @interface EntityHistoryBinder {
                 }
             };
         }
+
+        public static Map<String, Object> getProperties(final Object bean) throws IntrospectionException, InvocationTargetException, IllegalAccessException {
+            final BeanInfo infos = Introspector.getBeanInfo(bean.getClass());
+            final PropertyDescriptor[] props = infos.getPropertyDescriptors();
+            final Map<String, Object> properties = new LinkedHashMap<String, Object>(props.length);
+            for (final PropertyDescriptor prop : props) {
+                properties.put(prop.getName(), prop.getReadMethod().invoke(bean));
+            }
+            return properties;
+        }
     }
 }
@@ -18,6 +18,7 @@
 
 package org.killbill.billing.util.dao;
 
+import java.util.Collection;
 import java.util.UUID;
 
 import org.killbill.billing.callcontext.InternalTenantContext;
@@ -25,9 +26,11 @@ import org.killbill.commons.jdbi.template.KillBillSqlDaoStringTemplate;
 import org.skife.jdbi.v2.sqlobject.Bind;
 import org.killbill.commons.jdbi.binder.SmartBindBean;
 import org.skife.jdbi.v2.sqlobject.SqlQuery;
+import org.skife.jdbi.v2.sqlobject.SqlUpdate;
 import org.skife.jdbi.v2.sqlobject.customizers.Define;
 import org.skife.jdbi.v2.sqlobject.mixins.CloseMe;
 import org.skife.jdbi.v2.sqlobject.mixins.Transactional;
+import org.skife.jdbi.v2.unstable.BindIn;
 
 @KillBillSqlDaoStringTemplate
 public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe {
@@ -56,6 +59,13 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public Long getLastHistoryRecordId(@Bind("targetRecordId") Long targetRecordId, @Define("tableName") final String tableName);
 
+    @SqlQuery
+    public Long getAccountEventsVersion(@SmartBindBean final InternalTenantContext context);
+
+    // Must be invoked from the write transaction
+    @SqlUpdate
+    public int incrementAccountEventsVersion(@SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getHistoryTargetRecordId(@Bind("recordId") Long recordId, @Define("tableName") final String tableName);
 
@@ -64,6 +74,12 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
                                                                      @Define("historyTableName") String historyTableName,
                                                                      @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappingsForIds(@Define("tableName") String tableName,
+                                                                           @Define("historyTableName") String historyTableName,
+                                                                           @BindIn("ids") final Collection<String> ids,
+                                                                           @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Iterable<RecordIdIdMappings> getHistoryRecordIdIdMappingsForAccountsTable(@Define("tableName") String tableName,
                                                                                      @Define("historyTableName") String historyTableName,
@@ -77,4 +93,9 @@ public interface NonEntitySqlDao extends Transactional<NonEntitySqlDao>, CloseMe
     @SqlQuery
     public Iterable<RecordIdIdMappings> getRecordIdIdMappings(@Define("tableName") String tableName,
                                                               @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    public Iterable<RecordIdIdMappings> getRecordIdIdMappingsForIds(@Define("tableName") String tableName,
+                                                                    @BindIn("ids") final Collection<String> ids,
+                                                                    @SmartBindBean final InternalTenantContext context);
 }
@@ -42,6 +42,7 @@ public enum TableName {
     INVOICES("invoices", ObjectType.INVOICE, INVOICE_HISTORY),
     INVOICE_TRACKING_ID_HISTORY("invoice_tracking_id_history"),
     INVOICE_TRACKING_IDS("invoice_tracking_ids", null, INVOICE_TRACKING_ID_HISTORY),
+    INVOICE_ACCOUNT_BALANCES("invoice_account_balances"),
     INVOICE_BILLING_EVENTS("invoice_billing_events"),
     INVOICE_PARENT_CHILDREN("invoice_parent_children"),
     NODE_INFOS("node_infos"),
@@ -65,7 +66,9 @@ public enum TableName {
     TENANT_KVS("tenant_kvs", ObjectType.TENANT_KVS),
     TENANT_BROADCASTS("tenant_broadcasts"),
     TAG("tags", ObjectType.TAG, TAG_HISTORY),
-    ROLLED_UP_USAGE("rolled_up_usage");
+    ROLLED_UP_USAGE("rolled_up_usage"),
+    ROLLED_UP_USAGE_DAILY("rolled_up_usage_daily"),
+    ROLLED_UP_USAGE_DAILY_TRACKING_IDS("rolled_up_usage_daily_tracking_ids");
 
     private final String tableName;
     private final ObjectType objectType;
@@ -23,9 +23,16 @@ import com.samskivert.mustache.Template;
 
 public class MustacheTemplateEngine implements TemplateEngine {
 
+    private static final Mustache.Compiler COMPILER = Mustache.compiler().nullValue("");
+
     @Override
     public String executeTemplateText(final String templateText, final Map<String, Object> data) {
-        final Template template = Mustache.compiler().nullValue("").compile(templateText);
-        return template.execute(data);
+        return compileTemplateText(templateText).execute(data);
+    }
+
+    @Override
+    public CompiledTemplate compileTemplateText(final String templateText) {
+        final Template template = COMPILER.compile(templateText);
+        return template::execute;
     }
 }
@@ -22,4 +22,12 @@ public interface TemplateEngine {
 
     public String executeTemplateText(final String templateText, final Map<String, Object> data);
 
+    // Compiled templates are thread-safe and can be executed many times (e.g. cached per tenant)
+    public CompiledTemplate compileTemplateText(final String templateText);
+
+    public interface CompiledTemplate {
+
+        public String execute(final Map<String, Object> data);
+    }
+
 }
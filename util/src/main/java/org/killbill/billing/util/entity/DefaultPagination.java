@@ -36,6 +36,7 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     private final Long totalNbRecords;
     private final Long maxNbRecords;
     private final Iterator<T> delegateIterator;
+    private final String nextCursor;
 
     // Builders when the streaming API can't be used (should only be used for tests)
     // Notes: elements should be the entire records set (regardless of filtering) otherwise maxNbRecords won't be accurate
@@ -59,7 +60,8 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
 
     // Constructor for DAO -> API bridge
     public DefaultPagination(final Pagination original, final Long limit, final Iterator<T> delegate) {
-        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate);
+        this(original.getCurrentOffset(), limit, original.getTotalNbRecords(), original.getMaxNbRecords(), delegate,
+             original instanceof DefaultPagination ? ((DefaultPagination) original).getNextCursor() : null);
     }
 
     // Constructor for DAO getAll calls
@@ -70,12 +72,19 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
     public DefaultPagination(final Long currentOffset, final Long limit,
                              @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
                              final Iterator<T> delegateIterator) {
+        this(currentOffset, limit, totalNbRecords, maxNbRecords, delegateIterator, null);
+    }
+
+    public DefaultPagination(final Long currentOffset, final Long limit,
+                             @Nullable final Long totalNbRecords, @Nullable final Long maxNbRecords,
+                             final Iterator<T> delegateIterator, @Nullable final String nextCursor) {
         this.currentOffset = currentOffset;
         // See DefaultPaginationSqlDaoHelper
         this.limit = Math.abs(limit);
         this.totalNbRecords = totalNbRecords;
         this.maxNbRecords = maxNbRecords;
         this.delegateIterator = delegateIterator;
+        this.nextCursor = nextCursor;
     }
 
     @Override
@@ -115,6 +124,12 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         }
     }
 
+    // Opaque cursor to fetch the next page with, when the listing supports it (see PaginationCursor)
+    @Nullable
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     @Override
     public Long getMaxNbRecords() {
         return maxNbRecords;
@@ -132,6 +147,7 @@ public class DefaultPagination<T> implements Pagination<T>, Closeable {
         sb.append(", nextOffset=").append(getNextOffset());
         sb.append(", totalNbRecords=").append(totalNbRecords);
         sb.append(", maxNbRecords=").append(maxNbRecords);
+        sb.append(", nextCursor=").append(nextCursor);
         sb.append('}');
         return sb.toString();
     }
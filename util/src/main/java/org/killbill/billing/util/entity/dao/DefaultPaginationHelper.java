@@ -16,8 +16,12 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Function;
 
@@ -92,6 +96,19 @@ public class DefaultPaginationHelper {
         return new DefaultPagination<E>(modelsDao, limit, Iterables.toStream(modelsDao).map(function).filter(Objects::nonNull).iterator());
     }
 
+    /**
+     * Similar to {@link #getEntityPagination(Long, SourcePaginationBuilder, Function)}, but the source is still streamed in batches
+     * of (at most) batchSize elements, so that the function can load the associated data for a whole batch at once.
+     */
+    public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationInBatches(final Long limit,
+                                                                                                                   final int batchSize,
+                                                                                                                   final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
+                                                                                                                   final Function<List<O>, List<E>> batchFunction) throws T {
+        final Pagination<O> modelsDao = sourcePaginationBuilder.build();
+
+        return new DefaultPagination<E>(modelsDao, limit, new BatchingIterator<O, E>(modelsDao.iterator(), batchSize, batchFunction));
+    }
+
     public static <E extends Entity, O, T extends BillingExceptionBase> Pagination<E> getEntityPaginationNoException(final Long limit,
                                                                                                                      final SourcePaginationBuilder<O, T> sourcePaginationBuilder,
                                                                                                                      final Function<O, E> function) {
@@ -102,6 +119,41 @@ public class DefaultPaginationHelper {
         }
     }
 
+    private static final class BatchingIterator<O, E> implements Iterator<E> {
+
+        private final Iterator<O> source;
+        private final int batchSize;
+        private final Function<List<O>, List<E>> batchFunction;
+
+        private Iterator<E> currentBatch = Collections.emptyIterator();
+
+        private BatchingIterator(final Iterator<O> source, final int batchSize, final Function<List<O>, List<E>> batchFunction) {
+            this.source = source;
+            this.batchSize = batchSize;
+            this.batchFunction = batchFunction;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentBatch.hasNext() && source.hasNext()) {
+                final List<O> batch = new ArrayList<O>(batchSize);
+                while (batch.size() < batchSize && source.hasNext()) {
+                    batch.add(source.next());
+                }
+                currentBatch = batchFunction.apply(batch).stream().filter(Objects::nonNull).iterator();
+            }
+            return currentBatch.hasNext();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentBatch.next();
+        }
+    }
+
     /**
      * Iterate all element to avoid memory leak.
      */
@@ -18,7 +18,9 @@
 
 package org.killbill.billing.util.entity.dao;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
@@ -83,6 +85,15 @@ public class DefaultPaginationSqlDaoHelper {
         final Ordering ordering = limitMaybeNegative >= 0 ? Ordering.ASC : Ordering.DESC;
         final Long limit = Math.abs(limitMaybeNegative);
 
+        final KeysetPaginationIteratorBuilder<M, E, S> keysetPaginationIteratorBuilder = paginationIteratorBuilder instanceof KeysetPaginationIteratorBuilder && context != null ?
+                                                                                         (KeysetPaginationIteratorBuilder<M, E, S>) paginationIteratorBuilder :
+                                                                                         null;
+        final String listing = getListing(sqlDaoClazz, withAccountRecordId);
+        final PaginationCursor cursor = keysetPaginationIteratorBuilder == null ? null : getRequestedCursor(listing, ordering, context);
+        if (cursor != null) {
+            return getKeysetPagination(sqlDaoClazz, keysetPaginationIteratorBuilder, listing, cursor, offset, limit, ordering, context);
+        }
+
         // Note: the connection will be busy as we stream the results out: hence we cannot use
         // SQL_CALC_FOUND_ROWS / FOUND_ROWS on the actual query.
         // We still need to know the actual number of results, mainly for the UI so that it knows if it needs to fetch
@@ -119,8 +130,66 @@ public class DefaultPaginationSqlDaoHelper {
         final Iterator<M> results = paginationIteratorBuilder.build((S) sqlDao, offset, limit, ordering, context);
 
         final Long totalNbRecords = totalNbRecordsOrNull == null ? maxNbRecords : totalNbRecordsOrNull;
+        if (keysetPaginationIteratorBuilder == null) {
+            return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+        }
+        // Hand out a cursor as well, so that the client can switch to seek queries for the next pages
+        return buildPaginationWithNextCursor(listing, offset, limit, totalNbRecords, maxNbRecords, results, ordering);
+    }
+
+    // Serve the page following the cursor passed in by the client. The counts are skipped: the client got them with the first page
+    // if it needed them, and they would defeat the purpose on very large tables. Records soft-deleted in the meantime are excluded
+    // like for offset pages, but don't shift the following pages.
+    private <E extends Entity, M extends EntityModelDao<E>, S extends EntitySqlDao<M, E>> Pagination<M> getKeysetPagination(final Class<? extends EntitySqlDao<M, E>> sqlDaoClazz,
+                                                                                                                            final KeysetPaginationIteratorBuilder<M, E, S> paginationIteratorBuilder,
+                                                                                                                            final String listing,
+                                                                                                                            final PaginationCursor cursor,
+                                                                                                                            final Long offset,
+                                                                                                                            final Long limit,
+                                                                                                                            final Ordering ordering,
+                                                                                                                            final InternalTenantContext context) {
+        logger.debug("Serving page limit={} for {} after recordId={}", limit, listing, cursor.getLastRecordId());
+
+        final EntitySqlDao<M, E> sqlDao = transactionalSqlDao.onDemandForStreamingResults(sqlDaoClazz);
+        final Iterator<M> results = paginationIteratorBuilder.buildAfterRecordId((S) sqlDao, cursor.getLastRecordId(), limit, ordering, context);
+        return buildPaginationWithNextCursor(listing, offset, limit, null, null, results, ordering);
+    }
 
-        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, results);
+    // The cursor points to the last record of the page, so the page (at most limit records) is read before being handed out:
+    // this spares a lookahead query, and releases the streaming connection right away. If the page isn't full, there is no next page.
+    private <M extends EntityModelDao<?>> Pagination<M> buildPaginationWithNextCursor(final String listing,
+                                                                                      final Long offset,
+                                                                                      final Long limit,
+                                                                                      @Nullable final Long totalNbRecords,
+                                                                                      @Nullable final Long maxNbRecords,
+                                                                                      final Iterator<M> results,
+                                                                                      final Ordering ordering) {
+        final List<M> page = new ArrayList<M>();
+        results.forEachRemaining(page::add);
+
+        final String nextCursor = page.isEmpty() || page.size() < limit ? null : new PaginationCursor(listing, ordering, page.get(page.size() - 1).getRecordId()).encode();
+        return new DefaultPagination<M>(offset, limit, totalNbRecords, maxNbRecords, page.iterator(), nextCursor);
+    }
+
+    private PaginationCursor getRequestedCursor(final String listing, final Ordering ordering, final InternalTenantContext context) {
+        final String encodedCursor = context.getPaginationCursor();
+        if (encodedCursor == null || encodedCursor.isEmpty()) {
+            return null;
+        }
+
+        final PaginationCursor cursor = PaginationCursor.decode(encodedCursor);
+        if (!listing.equals(cursor.getListing())) {
+            // Cursor for another listing of the same request
+            return null;
+        }
+        if (ordering != cursor.getOrdering()) {
+            throw new IllegalArgumentException(String.format("Pagination cursor %s was built for %s ordering", encodedCursor, cursor.getOrdering()));
+        }
+        return cursor;
+    }
+
+    private String getListing(final Class<?> sqlDaoClazz, final boolean withAccountRecordId) {
+        return withAccountRecordId ? sqlDaoClazz.getSimpleName() + "ByAccount" : sqlDaoClazz.getSimpleName();
     }
 
     public abstract static class PaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> {
@@ -133,6 +202,22 @@ public class DefaultPaginationSqlDaoHelper {
         public abstract Iterator<M> build(final S sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context);
     }
 
+    // For builders whose results are ordered by record_id: pages can then be served from a cursor (see PaginationCursor)
+    public abstract static class KeysetPaginationIteratorBuilder<M extends EntityModelDao<E>, E extends Entity, S extends EntitySqlDao<M, E>> extends PaginationIteratorBuilder<M, E, S> {
+
+        // Return the limit records following lastRecordId (preceding it for DESC ordering)
+        public abstract Iterator<M> buildAfterRecordId(final S sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context);
+
+        // Bounds (exclusive) of the record_ids following lastRecordId (preceding it for DESC ordering), for queries filtering on a record_id range
+        protected Long getMinRecordId(final Long lastRecordId, final Ordering ordering) {
+            return ordering == Ordering.ASC ? lastRecordId : 0L;
+        }
+
+        protected Long getMaxRecordId(final Long lastRecordId, final Ordering ordering) {
+            return ordering == Ordering.ASC ? Long.MAX_VALUE : lastRecordId;
+        }
+    }
+
     public enum Ordering {
         ASC,
         DESC
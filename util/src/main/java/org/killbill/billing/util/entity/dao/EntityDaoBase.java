@@ -38,8 +38,8 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
 import org.killbill.commons.utils.annotation.VisibleForTesting;
 
 public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entity, U extends BillingExceptionBase> implements EntityDao<M, E, U> {
@@ -204,7 +204,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
     @Override
     public Pagination<M> get(final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(realSqlDao,
-                                              new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                                              new KeysetPaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
                                                   @Override
                                                   public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
                                                       // Only need to compute it once, because no search filter has been applied (see DefaultPaginationSqlDaoHelper)
@@ -215,6 +215,11 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                   public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return sqlDao.get(offset, limit, getNaturalOrderingColumns(), ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<M> buildAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return ordering == Ordering.ASC ? sqlDao.getAfterRecordId(lastRecordId, limit, context) : sqlDao.getBeforeRecordId(lastRecordId, limit, context);
+                                                  }
                                               },
                                               offset,
                                               limit,
@@ -224,7 +229,7 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
     @Override
     public Pagination<M> getByAccountRecordId(final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPaginationWithAccountRecordId(realSqlDao,
-                                                                 new PaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
+                                                                 new KeysetPaginationIteratorBuilder<M, E, EntitySqlDao<M, E>>() {
                                                                      @Override
                                                                      public Long getCount(final EntitySqlDao<M, E> sqlDao, final InternalTenantContext context) {
                                                                          // Only need to compute it once, because no search filter has been applied (see DefaultPaginationSqlDaoHelper)
@@ -235,6 +240,12 @@ public abstract class EntityDaoBase<M extends EntityModelDao<E>, E extends Entit
                                                                      public Iterator<M> build(final EntitySqlDao<M, E> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                                          return sqlDao.getByAccountRecordIdWithPaginationEnabled(offset, limit, context);
                                                                      }
+
+                                                                     // Like build, these always go forward (by record_id)
+                                                                     @Override
+                                                                     public Iterator<M> buildAfterRecordId(final EntitySqlDao<M, E> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                                         return sqlDao.getByAccountRecordIdAfterRecordId(lastRecordId, limit, context);
+                                                                     }
                                                                  },
                                                                  offset,
                                                                  limit,
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.beans.IntrospectionException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.killbill.billing.callcontext.InternalCallContext;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.dao.EntityAudit;
+import org.killbill.billing.util.dao.EntityHistoryBinder.EntityHistoryBinderFactory;
+import org.killbill.billing.util.dao.EntityHistoryModelDao;
+import org.killbill.billing.util.dao.TableName;
+import org.killbill.billing.util.entity.Entity;
+import org.killbill.commons.utils.Preconditions;
+
+/**
+ * Collects the history and audit rows of a transaction, so that they can be inserted in batches (one per
+ * EntitySqlDao type and context) right before the commit, instead of after each write.
+ * <p/>
+ * This is only used when <tt>org.killbill.dao.deferHistoryAndAudits</tt> is set (see DaoConfig): history and audit
+ * rows are then not visible from the transaction which writes them. Inserted entities aren't read back either: the
+ * history rows and the returned models are built from the inserted models, with the generated record ids.
+ */
+public class EntityHistoryAndAuditBuffer {
+
+    // Insertion ordered, to keep the history and audit rows in the order of the writes
+    private final Map<Class<?>, PendingWrites> pendingWritesBySqlDaoClass = new LinkedHashMap<Class<?>, PendingWrites>();
+
+    <M extends EntityModelDao<E>, E extends Entity> void addHistories(final Class<?> sqlDaoClass,
+                                                                      final EntitySqlDao<M, E> sqlDao,
+                                                                      final TableName tableName,
+                                                                      final ChangeType changeType,
+                                                                      final Collection<M> entities,
+                                                                      final InternalCallContext context) {
+        final List<EntityHistoryModelDao> histories = new ArrayList<EntityHistoryModelDao>(entities.size());
+        for (final M entity : entities) {
+            final EntityHistoryModelDao<M, E> history = new EntityHistoryModelDao<M, E>(entity, entity.getRecordId(), changeType, null, context.getCreatedDate());
+            // The entity could be modified by the time the rows are inserted
+            history.setEntityProperties(snapshotProperties(entity));
+            histories.add(history);
+        }
+        getPendingWrites(sqlDaoClass, sqlDao).add(new PendingWrite(tableName, changeType, histories, null, context));
+    }
+
+    void addAudits(final Class<?> sqlDaoClass,
+                   final EntitySqlDao<?, ?> sqlDao,
+                   final TableName tableName,
+                   final ChangeType changeType,
+                   final Collection<Long> auditTargetRecordIds,
+                   final InternalCallContext context) {
+        getPendingWrites(sqlDaoClass, sqlDao).add(new PendingWrite(tableName, changeType, null, new ArrayList<Long>(auditTargetRecordIds), context));
+    }
+
+    public boolean isEmpty() {
+        return pendingWritesBySqlDaoClass.isEmpty();
+    }
+
+    /**
+     * Insert all pending history and audit rows. Must be invoked from the transaction, before the commit.
+     */
+    public void flush() {
+        for (final PendingWrites pendingWrites : pendingWritesBySqlDaoClass.values()) {
+            pendingWrites.flush();
+        }
+        pendingWritesBySqlDaoClass.clear();
+    }
+
+    private static Map<String, Object> snapshotProperties(final EntityModelDao entity) {
+        try {
+            return EntityHistoryBinderFactory.getProperties(entity);
+        } catch (final IntrospectionException | InvocationTargetException | IllegalAccessException e) {
+            throw new IllegalStateException("Unable to snapshot entity " + entity, e);
+        }
+    }
+
+    private PendingWrites getPendingWrites(final Class<?> sqlDaoClass, final EntitySqlDao<?, ?> sqlDao) {
+        return pendingWritesBySqlDaoClass.computeIfAbsent(sqlDaoClass, k -> new PendingWrites(sqlDao));
+    }
+
+    private static final class PendingWrites {
+
+        // Any instance will do, as they all share the same handle (and templates)
+        private final EntitySqlDao sqlDao;
+        private final List<PendingWrite> writes = new LinkedList<PendingWrite>();
+
+        private PendingWrites(final EntitySqlDao<?, ?> sqlDao) {
+            this.sqlDao = sqlDao;
+        }
+
+        void add(final PendingWrite write) {
+            writes.add(write);
+        }
+
+        @SuppressWarnings("unchecked")
+        void flush() {
+            // The context is bound to each statement (created_by, account_record_id, etc.): batch the rows per context
+            final List<List<PendingWrite>> writesPerContext = new LinkedList<List<PendingWrite>>();
+            for (final PendingWrite write : writes) {
+                List<PendingWrite> sameContextWrites = null;
+                for (final List<PendingWrite> candidate : writesPerContext) {
+                    if (candidate.get(0).context == write.context) {
+                        sameContextWrites = candidate;
+                        break;
+                    }
+                }
+                if (sameContextWrites == null) {
+                    sameContextWrites = new ArrayList<PendingWrite>();
+                    writesPerContext.add(sameContextWrites);
+                }
+                sameContextWrites.add(write);
+            }
+
+            for (final List<PendingWrite> sameContextWrites : writesPerContext) {
+                final InternalCallContext context = sameContextWrites.get(0).context;
+
+                final Collection<EntityHistoryModelDao> histories = new LinkedList<EntityHistoryModelDao>();
+                for (final PendingWrite write : sameContextWrites) {
+                    if (write.histories != null) {
+                        histories.addAll(write.histories);
+                    }
+                }
+                final List<Long> historyRecordIds = histories.isEmpty() ? List.of() : sqlDao.addHistoriesFromTransaction(histories, context);
+                Preconditions.checkState(historyRecordIds.size() == histories.size(), "Wrong number of historyRecordIds=%s (histories=%s)", historyRecordIds, histories);
+
+                final Collection<EntityAudit> audits = new LinkedList<EntityAudit>();
+                int historyIndex = 0;
+                for (final PendingWrite write : sameContextWrites) {
+                    final TableName destinationTableName = Objects.requireNonNullElse(write.tableName.getHistoryTableName(), write.tableName);
+                    if (write.histories != null) {
+                        // Note: audit entries point to the history record id
+                        for (int i = 0; i < write.histories.size(); i++) {
+                            audits.add(new EntityAudit(destinationTableName, historyRecordIds.get(historyIndex++), write.changeType, context.getCreatedDate()));
+                        }
+                    } else {
+                        for (final Long auditTargetRecordId : write.auditTargetRecordIds) {
+                            audits.add(new EntityAudit(destinationTableName, auditTargetRecordId, write.changeType, context.getCreatedDate()));
+                        }
+                    }
+                }
+                sqlDao.insertAuditsFromTransaction(audits, context);
+            }
+            writes.clear();
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final TableName tableName;
+        private final ChangeType changeType;
+        private final List<EntityHistoryModelDao> histories;
+        private final List<Long> auditTargetRecordIds;
+        private final InternalCallContext context;
+
+        private PendingWrite(final TableName tableName,
+                             final ChangeType changeType,
+                             final List<EntityHistoryModelDao> histories,
+                             final List<Long> auditTargetRecordIds,
+                             final InternalCallContext context) {
+            this.tableName = tableName;
+            this.changeType = changeType;
+            this.histories = histories;
+            this.auditTargetRecordIds = auditTargetRecordIds;
+            this.context = context;
+        }
+    }
+}
@@ -87,6 +87,11 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
     Iterator<M> getByAccountRecordIdWithPaginationEnabled(@Bind("offset") final Long offset,
                                                           @Bind("rowCount") final Long rowCount, @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    Iterator<M> getByAccountRecordIdAfterRecordId(@Bind("lastRecordId") final Long lastRecordId,
+                                                  @Bind("rowCount") final Long rowCount, @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public List<M> getByAccountRecordIdIncludedDeleted(@SmartBindBean final InternalTenantContext context);
 
@@ -103,6 +108,17 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                               @Define("ordering") final String ordering,
                               @SmartBindBean final InternalTenantContext context);
 
+    // Seek variant of search, for the records strictly between minRecordId and maxRecordId (see KeysetPaginationIteratorBuilder)
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> searchBetweenRecordIds(@Bind("searchKey") final String searchKey,
+                                              @Bind("likeSearchKey") final String likeSearchKey,
+                                              @Bind("minRecordId") final Long minRecordId,
+                                              @Bind("maxRecordId") final Long maxRecordId,
+                                              @Bind("rowCount") final Long rowCount,
+                                              @Define("ordering") final String ordering,
+                                              @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getSearchCount(@Bind("searchKey") final String searchKey,
                                @Bind("likeSearchKey") final String likeSearchKey,
@@ -120,6 +136,18 @@ public interface EntitySqlDao<M extends EntityModelDao<E>, E extends Entity> ext
                            @Define("ordering") final String ordering,
                            @SmartBindBean final InternalTenantContext context);
 
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getAfterRecordId(@Bind("lastRecordId") final Long lastRecordId,
+                                        @Bind("rowCount") final Long rowCount,
+                                        @SmartBindBean final InternalTenantContext context);
+
+    @SqlQuery
+    @SmartFetchSize(shouldStream = true)
+    public Iterator<M> getBeforeRecordId(@Bind("lastRecordId") final Long lastRecordId,
+                                         @Bind("rowCount") final Long rowCount,
+                                         @SmartBindBean final InternalTenantContext context);
+
     @SqlQuery
     public Long getRecordIdAtOffset(@Bind("offset") final Long offset);
     
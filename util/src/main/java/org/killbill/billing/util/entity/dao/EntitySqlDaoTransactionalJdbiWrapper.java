@@ -22,6 +22,7 @@ import javax.annotation.Nullable;
 
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.clock.Clock;
@@ -44,9 +45,17 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final NonEntityDao nonEntityDao;
     private final InternalCallContextFactory internalCallContextFactory;
+    private final boolean deferHistoryAndAudits;
 
     public EntitySqlDaoTransactionalJdbiWrapper(final IDBI dbi, final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
                                                 final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory) {
+        this(dbi, roDbi, clock, cacheControllerDispatcher, nonEntityDao, internalCallContextFactory, null);
+    }
+
+    public EntitySqlDaoTransactionalJdbiWrapper(final IDBI dbi, final IDBI roDbi, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher,
+                                                final NonEntityDao nonEntityDao, final InternalCallContextFactory internalCallContextFactory,
+                                                @Nullable final DaoConfig daoConfig) {
+        this.deferHistoryAndAudits = daoConfig != null && daoConfig.isDeferHistoryAndAudits();
         this.clock = clock;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.nonEntityDao = nonEntityDao;
@@ -70,8 +79,10 @@ public class EntitySqlDaoTransactionalJdbiWrapper {
 
         @Override
         public ReturnType inTransaction(final EntitySqlDao<M, E> transactionalSqlDao, final TransactionStatus status) throws Exception {
-            final EntitySqlDaoWrapperFactory factoryEntitySqlDao = new EntitySqlDaoWrapperFactory(h, clock, cacheControllerDispatcher, internalCallContextFactory);
-            return entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            final EntitySqlDaoWrapperFactory factoryEntitySqlDao = new EntitySqlDaoWrapperFactory(h, clock, cacheControllerDispatcher, internalCallContextFactory, deferHistoryAndAudits);
+            final ReturnType result = entitySqlDaoTransactionWrapper.inTransaction(factoryEntitySqlDao);
+            factoryEntitySqlDao.flushHistoryAndAudits();
+            return result;
         }
     }
 
@@ -19,9 +19,13 @@
 package org.killbill.billing.util.entity.dao;
 
 import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.killbill.billing.callcontext.InternalCallContext;
 import org.killbill.billing.util.cache.CacheControllerDispatcher;
 import org.killbill.billing.util.callcontext.InternalCallContextFactory;
+import org.killbill.billing.util.dao.NonEntitySqlDao;
 import org.killbill.billing.util.entity.Entity;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.Handle;
@@ -41,11 +45,21 @@ public class EntitySqlDaoWrapperFactory {
 
     private final InternalCallContextFactory internalCallContextFactory;
 
+    // Per transaction, null unless org.killbill.dao.deferHistoryAndAudits is set
+    private final EntityHistoryAndAuditBuffer historyAndAuditBuffer;
+    // Per transaction, to increment the events_version of each account at most once
+    private final Set<Long> accountRecordIdsWithIncrementedEventsVersion = new HashSet<Long>();
+
     public EntitySqlDaoWrapperFactory(final Handle handle, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final InternalCallContextFactory internalCallContextFactory) {
+        this(handle, clock, cacheControllerDispatcher, internalCallContextFactory, false);
+    }
+
+    public EntitySqlDaoWrapperFactory(final Handle handle, final Clock clock, final CacheControllerDispatcher cacheControllerDispatcher, final InternalCallContextFactory internalCallContextFactory, final boolean deferHistoryAndAudits) {
         this.handle = handle;
         this.clock = clock;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.historyAndAuditBuffer = deferHistoryAndAudits ? new EntityHistoryAndAuditBuffer() : null;
     }
 
     /**
@@ -67,13 +81,36 @@ public class EntitySqlDaoWrapperFactory {
         return handle;
     }
 
+    /**
+     * Increment accounts.events_version, at most once per transaction. Invoked by the DAOs writing the entitlement
+     * state of the account (bundles, subscriptions, subscription events and blocking states): the row lock is held
+     * until the commit, so readers seeing the same version see the same committed state.
+     *
+     * @param context the callcontext of the account
+     */
+    public void incrementAccountEventsVersion(final InternalCallContext context) {
+        if (context.getAccountRecordId() == null || !accountRecordIdsWithIncrementedEventsVersion.add(context.getAccountRecordId())) {
+            return;
+        }
+        SqlObjectBuilder.attach(handle, NonEntitySqlDao.class).incrementAccountEventsVersion(context);
+    }
+
+    /**
+     * Insert the history and audit rows deferred until now, if any. Invoked right before the transaction is committed.
+     */
+    public void flushHistoryAndAudits() {
+        if (historyAndAuditBuffer != null && !historyAndAuditBuffer.isEmpty()) {
+            historyAndAuditBuffer.flush();
+        }
+    }
+
     private <NewSqlDao extends EntitySqlDao<NewEntityModelDao, NewEntity>,
             NewEntityModelDao extends EntityModelDao<NewEntity>,
             NewEntity extends Entity> NewSqlDao create(final Class<NewSqlDao> newSqlDaoClass, final NewSqlDao newSqlDao) {
         final ClassLoader classLoader = newSqlDao.getClass().getClassLoader();
         final Class[] interfacesToImplement = {newSqlDaoClass};
         final EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity> wrapperInvocationHandler =
-                new EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity>(newSqlDaoClass, newSqlDao, handle, cacheControllerDispatcher, internalCallContextFactory);
+                new EntitySqlDaoWrapperInvocationHandler<NewSqlDao, NewEntityModelDao, NewEntity>(newSqlDaoClass, newSqlDao, handle, cacheControllerDispatcher, internalCallContextFactory, historyAndAuditBuffer);
 
         final Object newSqlDaoObject = Proxy.newProxyInstance(classLoader, interfacesToImplement, wrapperInvocationHandler);
         return newSqlDaoClass.cast(newSqlDaoObject);
@@ -29,8 +29,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -78,7 +78,8 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
     private final Logger logger = LoggerFactory.getLogger(EntitySqlDaoWrapperInvocationHandler.class);
 
-    private final Map<String, Annotation[][]> parameterAnnotationsByMethod = new ConcurrentHashMap<String, Annotation[][]>();
+    // Shared across instances, as a new handler is created for each transaction
+    private static final Map<Method, MethodMetadata> methodMetadataByMethod = new ConcurrentHashMap<Method, MethodMetadata>();
 
     private final Class<S> sqlDaoClass;
     private final S sqlDao;
@@ -87,6 +88,8 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     private final CacheControllerDispatcher cacheControllerDispatcher;
     private final InternalCallContextFactory internalCallContextFactory;
     private final Profiling<Object, Throwable> prof;
+    // Non null when the history and audit rows are deferred to the end of the transaction
+    private final EntityHistoryAndAuditBuffer historyAndAuditBuffer;
 
     public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
                                                 final S sqlDao,
@@ -94,11 +97,21 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                                 // Special DAO that don't require caching can invoke EntitySqlDaoWrapperInvocationHandler with no caching (e.g NoCachingTenantDao)
                                                 @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
                                                 final InternalCallContextFactory internalCallContextFactory) {
+        this(sqlDaoClass, sqlDao, handle, cacheControllerDispatcher, internalCallContextFactory, null);
+    }
+
+    public EntitySqlDaoWrapperInvocationHandler(final Class<S> sqlDaoClass,
+                                                final S sqlDao,
+                                                final Handle handle,
+                                                @Nullable final CacheControllerDispatcher cacheControllerDispatcher,
+                                                final InternalCallContextFactory internalCallContextFactory,
+                                                @Nullable final EntityHistoryAndAuditBuffer historyAndAuditBuffer) {
         this.sqlDaoClass = sqlDaoClass;
         this.sqlDao = sqlDao;
         this.handle = handle;
         this.cacheControllerDispatcher = cacheControllerDispatcher;
         this.internalCallContextFactory = internalCallContextFactory;
+        this.historyAndAuditBuffer = historyAndAuditBuffer;
         this.prof = new Profiling<Object, Throwable>();
     }
 
@@ -177,14 +190,12 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
     }
 
     private Object invokeSafely(final Method method, final Object[] args) throws Throwable {
-        final Audited auditedAnnotation = method.getAnnotation(Audited.class);
-
-        final boolean isROQuery = method.getAnnotation(SqlQuery.class) != null;
-        Preconditions.checkState(auditedAnnotation != null || isROQuery, "Non-@SqlQuery method %s without @Audited annotation", method);
+        final MethodMetadata methodMetadata = getMethodMetadata(method);
+        Preconditions.checkState(methodMetadata.auditedAnnotation != null || methodMetadata.isROQuery, "Non-@SqlQuery method %s without @Audited annotation", method);
 
         // This can't be AUDIT'ed and CACHABLE'd at the same time as we only cache 'get'
-        if (auditedAnnotation != null) {
-            return invokeWithAuditAndHistory(auditedAnnotation, method, args);
+        if (methodMetadata.auditedAnnotation != null) {
+            return invokeWithAuditAndHistory(methodMetadata, method, args);
         } else {
             return invokeRaw(method, args);
         }
@@ -208,17 +219,17 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         });
     }
 
-    private Object invokeWithAuditAndHistory(final Audited auditedAnnotation, final Method method, final Object[] args) throws Throwable {
+    private Object invokeWithAuditAndHistory(final MethodMetadata methodMetadata, final Method method, final Object[] args) throws Throwable {
         final InternalCallContext contextMaybeWithoutAccountRecordId = retrieveContextFromArguments(args);
-        final List<String> entityIds = retrieveEntityIdsFromArguments(method, args);
+        final List<String> entityIds = retrieveEntityIdsFromArguments(methodMetadata, args);
         Preconditions.checkState(!entityIds.isEmpty(), "@Audited Sql method must have entities (@Bind(\"id\")) as arguments");
         // We cannot always infer the TableName from the signature
         TableName tableName = retrieveTableNameFromArgumentsIfPossible(Arrays.asList(args));
-        final ChangeType changeType = auditedAnnotation.value();
-        final boolean isBatchQuery = method.getAnnotation(SqlBatch.class) != null;
+        final ChangeType changeType = methodMetadata.auditedAnnotation.value();
+        final boolean isBatchQuery = methodMetadata.isBatchQuery;
 
-        // Get the current state before deletion for the history tables
-        final Map<Long, M> deletedAndUpdatedEntities = new HashMap<Long, M>();
+        // Get the current state before deletion for the history tables (insertion ordered, for the history rows)
+        final Map<Long, M> deletedAndUpdatedEntities = new LinkedHashMap<Long, M>();
         // Real jdbc call
         final Object obj = prof.executeWithProfiling(ProfilingFeatureType.DAO_DETAILS, getProfilingId("raw", method), new WithProfilingCallback<Object, Throwable>() {
             @Override
@@ -277,8 +288,13 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                                      "accountRecordId should be set for tableName=%s and changeType=%s", tableName, changeType);
         }
 
+        if (changeType == ChangeType.INSERT && historyAndAuditBuffer != null) {
+            // PERF: build the history rows (and the returned entity) from the inserted models, instead of reading them back
+            populateInsertedEntities(args, entityRecordIds, tableName, context, deletedAndUpdatedEntities);
+        }
+
         final Collection<M> reHydratedEntities = updateHistoryAndAudit(entityRecordIds, deletedAndUpdatedEntities, tableName, changeType, context);
-        if (method.getReturnType().equals(Void.TYPE)) {
+        if (methodMetadata.returnsVoid) {
             // Return early
             return null;
         } else if (isBatchQuery) {
@@ -366,7 +382,11 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
             @Override
             public Collection<M> execute() {
                 if (tableName.getHistoryTableName() == null) {
-                    insertAudits(entityRecordIds, tableName, changeType, context);
+                    if (historyAndAuditBuffer != null) {
+                        historyAndAuditBuffer.addAudits(sqlDaoClass, sqlDao, tableName, changeType, entityRecordIds, context);
+                    } else {
+                        insertAudits(entityRecordIds, tableName, changeType, context);
+                    }
                     return deletedAndUpdatedEntities.values();
                 } else {
                     // Make sure to re-hydrate the objects first (especially needed for create calls)
@@ -388,6 +408,11 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                     }
                     Preconditions.checkState(reHydratedEntities.size() == entityRecordIds.size(), "Wrong number of reHydratedEntities=%s (entityRecordIds=%s)", reHydratedEntities, entityRecordIds);
 
+                    if (historyAndAuditBuffer != null) {
+                        historyAndAuditBuffer.addHistories(sqlDaoClass, sqlDao, tableName, changeType, reHydratedEntities, context);
+                        return reHydratedEntities;
+                    }
+
                     final Collection<Long> auditTargetRecordIds = insertHistories(reHydratedEntities, changeType, context);
                     // Note: audit entries point to the history record id
                     Preconditions.checkState(auditTargetRecordIds.size() == entityRecordIds.size(), "Wrong number of auditTargetRecordIds=%s (entityRecordIds=%s)", auditTargetRecordIds, entityRecordIds);
@@ -401,9 +426,7 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         return (Collection<M>) reHydratedEntitiesOrNull;
     }
 
-    private List<String> retrieveEntityIdsFromArguments(final Method method, final Object[] args) {
-        final Annotation[][] parameterAnnotations = getAnnotations(method);
-
+    private List<String> retrieveEntityIdsFromArguments(final MethodMetadata methodMetadata, final Object[] args) {
         int i = -1;
         for (final Object arg : args) {
             i++;
@@ -422,28 +445,18 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
                 }
             }
 
-            for (final Annotation annotation : parameterAnnotations[i]) {
-                if (arg instanceof String && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
-                    return List.of((String) arg);
-                } else if (arg instanceof Collection && BindIn.class.equals(annotation.annotationType()) && ("ids").equals(((BindIn) annotation).value())) {
-                    return List.copyOf((Collection) arg);
-                }
+            if (arg instanceof String && i == methodMetadata.idParameterIndex) {
+                return List.of((String) arg);
+            } else if (arg instanceof Collection && i == methodMetadata.idsParameterIndex) {
+                return List.copyOf((Collection) arg);
             }
         }
         return Collections.emptyList();
     }
 
-    private Annotation[][] getAnnotations(final Method method) {
-        // Expensive to compute
-        final String methodString = method.toString();
-
-        // Method.getParameterAnnotations() generates lots of garbage objects
-        Annotation[][] parameterAnnotations = parameterAnnotationsByMethod.get(methodString);
-        if (parameterAnnotations == null) {
-            parameterAnnotations = method.getParameterAnnotations();
-            parameterAnnotationsByMethod.put(methodString, parameterAnnotations);
-        }
-        return parameterAnnotations;
+    private static MethodMetadata getMethodMetadata(final Method method) {
+        // Method.getAnnotation() and Method.getParameterAnnotations() are expensive and generate lots of garbage objects
+        return methodMetadataByMethod.computeIfAbsent(method, MethodMetadata::new);
     }
 
     private List<String> extractEntityIdsFromBatchArgument(final Iterable<?> arg) {
@@ -501,6 +514,45 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
         throw new IllegalStateException("TimeZoneAwareEntity should have been found among " + args);
     }
 
+    private void populateInsertedEntities(final Object[] args,
+                                          final List<Long> entityRecordIds,
+                                          final TableName tableName,
+                                          final InternalCallContext context,
+                                          final Map<Long, M> insertedEntities) {
+        final List<M> models = new ArrayList<M>(entityRecordIds.size());
+        for (final Object arg : args) {
+            if (arg instanceof EntityModelDao) {
+                models.add((M) arg);
+                break;
+            } else if (arg instanceof Iterable && retrieveTableNameFromArgumentsIfPossible((Iterable) arg) != null) {
+                for (final Object model : (Iterable) arg) {
+                    models.add((M) model);
+                }
+                break;
+            }
+        }
+        if (models.size() != entityRecordIds.size()) {
+            // Unexpected signature, the entities will be read back from the database
+            return;
+        }
+        for (final M model : models) {
+            if (!(model instanceof EntityModelDaoBase)) {
+                return;
+            }
+        }
+
+        // The generated keys are returned in the order of the inserted rows
+        for (int i = 0; i < models.size(); i++) {
+            final EntityModelDaoBase model = (EntityModelDaoBase) models.get(i);
+            model.setRecordId(entityRecordIds.get(i));
+            if (tableName != TableName.ACCOUNT) {
+                model.setAccountRecordId(context.getAccountRecordId());
+            }
+            model.setTenantRecordId(context.getTenantRecordId());
+            insertedEntities.put(entityRecordIds.get(i), models.get(i));
+        }
+    }
+
     private List<Long> insertHistories(final Iterable<M> reHydratedEntityModelDaos, final ChangeType changeType, final InternalCallContext context) {
         final Collection<EntityHistoryModelDao<M, E>> histories = new LinkedList<EntityHistoryModelDao<M, E>>();
         for (final M reHydratedEntityModelDao : reHydratedEntityModelDaos) {
@@ -545,4 +597,37 @@ public class EntitySqlDaoWrapperInvocationHandler<S extends EntitySqlDao<M, E>,
 
         return stringBuilder.toString();
     }
+
+    private static final class MethodMetadata {
+
+        private final Audited auditedAnnotation;
+        private final boolean isROQuery;
+        private final boolean isBatchQuery;
+        private final boolean returnsVoid;
+        // Position of the @Bind("id") and @BindIn("ids") arguments, if any
+        private final int idParameterIndex;
+        private final int idsParameterIndex;
+
+        private MethodMetadata(final Method method) {
+            this.auditedAnnotation = method.getAnnotation(Audited.class);
+            this.isROQuery = method.getAnnotation(SqlQuery.class) != null;
+            this.isBatchQuery = method.getAnnotation(SqlBatch.class) != null;
+            this.returnsVoid = method.getReturnType().equals(Void.TYPE);
+
+            int idParameterIndex = -1;
+            int idsParameterIndex = -1;
+            final Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+            for (int i = 0; i < parameterAnnotations.length; i++) {
+                for (final Annotation annotation : parameterAnnotations[i]) {
+                    if (idParameterIndex == -1 && Bind.class.equals(annotation.annotationType()) && ("id").equals(((Bind) annotation).value())) {
+                        idParameterIndex = i;
+                    } else if (idsParameterIndex == -1 && BindIn.class.equals(annotation.annotationType()) && ("ids").equals(((BindIn) annotation).value())) {
+                        idsParameterIndex = i;
+                    }
+                }
+            }
+            this.idParameterIndex = idParameterIndex;
+            this.idsParameterIndex = idsParameterIndex;
+        }
+    }
 }
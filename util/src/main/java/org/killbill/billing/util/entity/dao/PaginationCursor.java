@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
+
+/**
+ * Position in a listing ordered by record_id, handed back to the client along with a page
+ * (see {@link org.killbill.billing.util.entity.DefaultPagination#getNextCursor()}) and passed in again
+ * to fetch the following page with a seek query instead of an offset one: the listing endpoints take it as the
+ * cursor query parameter, and it travels down to the DAOs with the context (see InternalTenantContext#getPaginationCursor()).
+ * <p>
+ * The encoded value is opaque to the client: it contains the listing it was built for, the ordering and the
+ * record_id of the last record of the page (the sort key of the listings supporting cursors). No state is kept
+ * on the server, so any node can serve the next page.
+ */
+public final class PaginationCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = ":";
+
+    private final String listing;
+    private final Ordering ordering;
+    private final Long lastRecordId;
+
+    public PaginationCursor(final String listing, final Ordering ordering, final Long lastRecordId) {
+        this.listing = listing;
+        this.ordering = ordering;
+        this.lastRecordId = lastRecordId;
+    }
+
+    public static PaginationCursor decode(final String encoded) throws IllegalArgumentException {
+        final String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Invalid pagination cursor %s", encoded));
+        }
+
+        final String[] parts = decoded.split(SEPARATOR);
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException(String.format("Invalid pagination cursor %s", encoded));
+        }
+
+        try {
+            return new PaginationCursor(parts[1], Ordering.valueOf(parts[2]), Long.valueOf(parts[3]));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Invalid pagination cursor %s", encoded));
+        }
+    }
+
+    public String encode() {
+        final String decoded = String.join(SEPARATOR, VERSION, listing, ordering.toString(), String.valueOf(lastRecordId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getListing() {
+        return listing;
+    }
+
+    public Ordering getOrdering() {
+        return ordering;
+    }
+
+    public Long getLastRecordId() {
+        return lastRecordId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final PaginationCursor that = (PaginationCursor) o;
+        return Objects.equals(listing, that.listing) &&
+               ordering == that.ordering &&
+               Objects.equals(lastRecordId, that.lastRecordId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(listing, ordering, lastRecordId);
+    }
+
+    @Override
+    public String toString() {
+        return "PaginationCursor{" +
+               "listing='" + listing + '\'' +
+               ", ordering=" + ordering +
+               ", lastRecordId=" + lastRecordId +
+               '}';
+    }
+}
@@ -19,8 +19,10 @@
 package org.killbill.billing.util.glue;
 
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.DefaultNonEntityDao;
 import org.killbill.billing.util.dao.NonEntityDao;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class NonEntityDaoModule extends KillBillModule {
 
@@ -31,5 +33,8 @@ public class NonEntityDaoModule extends KillBillModule {
     @Override
     protected void configure() {
         bind(NonEntityDao.class).to(DefaultNonEntityDao.class).asEagerSingleton();
+
+        final DaoConfig daoConfig = new ConfigurationObjectFactory(skifeConfigSource).build(DaoConfig.class);
+        bind(DaoConfig.class).toInstance(daoConfig);
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.killbill.billing.util.cache.CacheLoaderStatistics;
+import org.killbill.commons.metrics.api.Gauge;
+
+// Companion of JCacheGaugeFactory: JCache statistics only cover hits/misses of the underlying cache,
+// these gauges cover the Kill Bill loading layer (load times, single-flight waiters, etc.)
+public class CacheControllerGaugeFactory {
+
+    private static final String PROP_METRIC_REG_CACHE_LOADER_STATISTICS = "killbill.cache.loader.";
+
+    public static Map<String, Gauge<Object>> forCache(final String cacheName, final CacheLoaderStatistics statistics) {
+        final String prefix = PROP_METRIC_REG_CACHE_LOADER_STATISTICS + cacheName + ".";
+
+        final Map<String, Gauge<Object>> gauges = new HashMap<>();
+        gauges.put(prefix + "misses", statistics::getMisses);
+        gauges.put(prefix + "loads", statistics::getLoads);
+        gauges.put(prefix + "load-failures", statistics::getLoadFailures);
+        gauges.put(prefix + "total-load-time-nanos", statistics::getTotalLoadTimeNanos);
+        gauges.put(prefix + "average-load-time-millis", statistics::getAverageLoadTimeMillis);
+        gauges.put(prefix + "waits", statistics::getWaits);
+        gauges.put(prefix + "current-waiters", statistics::getCurrentWaiters);
+        gauges.put(prefix + "in-flight-loads", statistics::getInFlightLoads);
+        return gauges;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free, fixed-size latency histogram: values are bucketed by power of two, each power of two being split into
+// SUB_BUCKETS linear sub-buckets (relative error of percentiles <= 1 / SUB_BUCKETS). Because all instances share
+// the same bucket boundaries, histograms from different keys or nodes can be merged by adding the counts.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+    // Values up to 2^40 (~12 days in microseconds)
+    private static final int MAX_POWER = 40;
+    private static final int NB_BUCKETS = (MAX_POWER - SUB_BUCKETS_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong totalValue;
+    private final AtomicLong maxValue;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(NB_BUCKETS);
+        this.totalCount = new AtomicLong();
+        this.totalValue = new AtomicLong();
+        this.maxValue = new AtomicLong();
+    }
+
+    public void record(final long value) {
+        final long sanitizedValue = Math.max(0, value);
+        counts.incrementAndGet(getBucketIndex(sanitizedValue));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(sanitizedValue);
+        maxValue.accumulateAndGet(sanitizedValue, Math::max);
+    }
+
+    public void merge(final LatencyHistogram other) {
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            final long count = other.counts.get(i);
+            if (count > 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalValue.addAndGet(other.totalValue.get());
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        final long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    // Upper bound of the bucket containing the requested percentile (capped by the max recorded value)
+    public long getValueAtPercentile(final double percentile) {
+        final long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    static int getBucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            // Exact buckets for the smallest values
+            return (int) value;
+        }
+
+        final int power = 63 - Long.numberOfLeadingZeros(value);
+        if (power > MAX_POWER) {
+            return NB_BUCKETS - 1;
+        }
+        final int subBucket = (int) ((value >>> (power - SUB_BUCKETS_BITS)) & (SUB_BUCKETS - 1));
+        return (power - SUB_BUCKETS_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getBucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int power = index / SUB_BUCKETS + SUB_BUCKETS_BITS - 1;
+        final int subBucket = index % SUB_BUCKETS;
+        final long bucketWidth = 1L << (power - SUB_BUCKETS_BITS);
+        return (1L << power) + (subBucket + 1) * bucketWidth - 1;
+    }
+}
@@ -42,7 +42,6 @@ import org.apache.shiro.mgt.DefaultSecurityManager;
 import org.apache.shiro.realm.AuthorizingRealm;
 import org.apache.shiro.realm.Realm;
 import org.apache.shiro.session.UnknownSessionException;
-import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.apache.shiro.subject.Subject;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.security.Logical;
@@ -210,17 +209,19 @@ public class DefaultSecurityApi implements SecurityApi {
     @Override
     public void updateUserPassword(final String username, final String password, final CallContext callContext) throws SecurityApiException {
         userDao.updateUserPassword(username, password, callContext.getUserName());
+        invalidateJDBCRealmCache(username);
     }
 
     @Override
     public void updateUserRoles(final String username, final List<String> roles, final CallContext callContext) throws SecurityApiException {
         userDao.updateUserRoles(username, roles, callContext.getUserName());
-        invalidateJDBCAuthorizationCache(username);
+        invalidateJDBCRealmCache(username);
     }
 
     @Override
     public void invalidateUser(final String username, final CallContext callContext) throws SecurityApiException {
         userDao.invalidateUser(username, callContext.getUserName());
+        invalidateJDBCRealmCache(username);
         // Invalidate the JSESSIONID
         logout();
     }
@@ -242,6 +243,7 @@ public class DefaultSecurityApi implements SecurityApi {
     public void updateRoleDefinition(final String role, final List<String> permissions, final CallContext callContext) throws SecurityApiException {
         final List<String> sanitizedPermissions = sanitizePermissions(permissions);
         userDao.updateRoleDefinition(role, sanitizedPermissions, callContext.getUserName());
+        invalidateJDBCRealmCache(null);
     }
 
     @Override
@@ -292,7 +294,8 @@ public class DefaultSecurityApi implements SecurityApi {
         return expandedPermissions;
     }
 
-    private void invalidateJDBCAuthorizationCache(final String username) {
+    // Other nodes are notified through the broadcast service, see SecurityCacheInvalidationListener
+    private void invalidateJDBCRealmCache(final String username) {
         final Collection<Realm> realms = ((DefaultSecurityManager) SecurityUtils.getSecurityManager()).getRealms();
         final KillBillJdbcRealm killBillJdbcRealm = (KillBillJdbcRealm) realms.stream()
                 .filter(realm -> (realm instanceof KillBillJdbcRealm))
@@ -300,9 +303,7 @@ public class DefaultSecurityApi implements SecurityApi {
                 .orElse(null);
 
         if (killBillJdbcRealm != null) {
-            final SimplePrincipalCollection principals = new SimplePrincipalCollection();
-            principals.add(username, killBillJdbcRealm.getName());
-            killBillJdbcRealm.clearCachedAuthorizationInfo(principals);
+            killBillJdbcRealm.invalidateCachedUser(username);
         }
     }
 
@@ -24,15 +24,24 @@ import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.mgt.SecurityManager;
 import org.killbill.billing.platform.api.LifecycleHandlerType;
 import org.killbill.billing.platform.api.LifecycleHandlerType.LifecycleLevel;
+import org.killbill.billing.util.security.shiro.realm.SecurityCacheInvalidationListener;
+import org.killbill.bus.api.PersistentBus;
+import org.killbill.bus.api.PersistentBus.EventBusException;
 
 public class DefaultSecurityService implements SecurityService {
 
 
     private final SecurityManager securityManager;
+    private final SecurityCacheInvalidationListener cacheInvalidationListener;
+    private final PersistentBus eventBus;
 
     @Inject
-    public DefaultSecurityService(final SecurityManager securityManager) {
+    public DefaultSecurityService(final SecurityManager securityManager,
+                                  final SecurityCacheInvalidationListener cacheInvalidationListener,
+                                  final PersistentBus eventBus) {
         this.securityManager = securityManager;
+        this.cacheInvalidationListener = cacheInvalidationListener;
+        this.eventBus = eventBus;
     }
 
     @Override
@@ -48,10 +57,20 @@ public class DefaultSecurityService implements SecurityService {
     @LifecycleHandlerType(LifecycleHandlerType.LifecycleLevel.INIT_SERVICE)
     public void initialize() {
         SecurityUtils.setSecurityManager(securityManager);
+        try {
+            eventBus.register(cacheInvalidationListener);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to register bus handler", e);
+        }
     }
 
     @LifecycleHandlerType(LifecycleLevel.STOP_SERVICE)
     public void stop() {
+        try {
+            eventBus.unregister(cacheInvalidationListener);
+        } catch (final EventBusException e) {
+            throw new RuntimeException("Failed to unregister bus handler", e);
+        }
         SecurityUtils.setSecurityManager(null);
     }
 }
@@ -30,8 +30,11 @@ import org.apache.shiro.util.ByteSource;
 import org.joda.time.DateTime;
 import org.killbill.billing.ErrorCode;
 import org.killbill.billing.security.SecurityApiException;
+import org.killbill.billing.util.broadcast.dao.BroadcastModelDao;
+import org.killbill.billing.util.broadcast.dao.BroadcastSqlDao;
 import org.killbill.billing.util.config.definition.SecurityConfig;
 import org.killbill.billing.util.security.shiro.KillbillCredentialsMatcher;
+import org.killbill.billing.util.security.shiro.realm.SecurityCacheInvalidationListener;
 import org.killbill.clock.Clock;
 import org.skife.jdbi.v2.Handle;
 import org.skife.jdbi.v2.IDBI;
@@ -141,6 +144,9 @@ public class DefaultUserDao implements UserDao {
             for (final String permission : toBeAdded) {
                 rolesPermissionsSqlDao.create(new RolesPermissionsModelDao(role, permission, createdDate, createdBy));
             }
+
+            // Permissions of all users with that role are impacted
+            broadcastUserCacheInvalidation(handle, null, createdDate, createdBy);
             return null;
         });
     }
@@ -172,6 +178,7 @@ public class DefaultUserDao implements UserDao {
             final UsersSqlDao usersSqlDao = handle.attach(UsersSqlDao.class);
             validateUser(username, usersSqlDao);
             usersSqlDao.updatePassword(username, hashedPasswordBase64, salt.toBase64(), updatedDate.toDate(), updatedBy);
+            broadcastUserCacheInvalidation(handle, username, updatedDate, updatedBy);
             return null;
         });
     }
@@ -199,6 +206,7 @@ public class DefaultUserDao implements UserDao {
                     userRolesSqlDao.create(new UserRolesModelDao(username, curNewRole, updatedDate, updatedBy));
                 }
             }
+            broadcastUserCacheInvalidation(handle, username, updatedDate, updatedBy);
             return null;
         });
     }
@@ -210,10 +218,21 @@ public class DefaultUserDao implements UserDao {
             final UsersSqlDao usersSqlDao = handle.attach(UsersSqlDao.class);
             validateUser(username, usersSqlDao);
             usersSqlDao.invalidate(username, updatedDate.toDate(), updatedBy);
+            broadcastUserCacheInvalidation(handle, username, updatedDate, updatedBy);
             return null;
         });
     }
 
+    // Written in the same transaction so that all nodes (including this one) eventually invalidate their KillBillJdbcRealm caches
+    private void broadcastUserCacheInvalidation(final Handle handle, final String username, final DateTime createdDate, final String createdBy) {
+        final BroadcastSqlDao broadcastSqlDao = handle.attach(BroadcastSqlDao.class);
+        broadcastSqlDao.create(new BroadcastModelDao(SecurityCacheInvalidationListener.SERVICE_NAME,
+                                                     SecurityCacheInvalidationListener.INVALIDATE_USER_CACHE_TYPE,
+                                                     SecurityCacheInvalidationListener.toJsonEvent(username),
+                                                     createdDate,
+                                                     createdBy));
+    }
+
     private <T> T inTransactionWithExceptionHandling(final TransactionCallback<T> callback) throws SecurityApiException {
         // Similar to EntitySqlDaoTransactionalJdbiWrapper#execute
         try {
@@ -21,8 +21,18 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.sql.DataSource;
 
+import org.apache.shiro.authc.AuthenticationException;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.SaltedAuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authz.AuthorizationInfo;
+import org.apache.shiro.cache.Cache;
 import org.apache.shiro.realm.jdbc.JdbcRealm;
 import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.util.ByteSource;
 import org.killbill.billing.platform.glue.KillBillPlatformModuleBase;
 import org.killbill.billing.util.config.definition.SecurityConfig;
 import org.killbill.billing.util.security.shiro.KillbillCredentialsMatcher;
@@ -35,6 +45,7 @@ public class KillBillJdbcRealm extends JdbcRealm {
 
     private final DataSource dataSource;
     private final SecurityConfig securityConfig;
+    private final VerifiedCredentialsCache verifiedCredentialsCache;
 
     @Inject
     public KillBillJdbcRealm(@Named(KillBillPlatformModuleBase.SHIRO_DATA_SOURCE_ID) final DataSource dataSource, final SecurityConfig securityConfig) {
@@ -42,9 +53,10 @@ public class KillBillJdbcRealm extends JdbcRealm {
         this.dataSource = dataSource;
         this.securityConfig = securityConfig;
 
-        // TODO Enable when we add support for cache invalidation
-        // See JavaDoc warning: https://shiro.apache.org/static/1.2.3/apidocs/org/apache/shiro/realm/AuthenticatingRealm.html
-        //setAuthenticationCachingEnabled(true);
+        // Shiro's authentication caching would only save the users query: the salted hash would still be computed for each request.
+        // Instead, we cache successful verifications (see VerifiedCredentialsCache), invalidated through the broadcast service.
+        this.verifiedCredentialsCache = new VerifiedCredentialsCache(securityConfig.getVerifiedCredentialsCacheMaxSize(),
+                                                                     securityConfig.getVerifiedCredentialsCacheTTL().getMillis());
 
         // See https://issues.apache.org/jira/browse/SHIRO-552 and https://github.com/apache/shiro/pull/138
         setSaltIsBase64Encoded(false);
@@ -59,9 +71,91 @@ public class KillBillJdbcRealm extends JdbcRealm {
         configureDataSource();
     }
 
+    @Override
+    protected AuthenticationInfo doGetAuthenticationInfo(final AuthenticationToken token) throws AuthenticationException {
+        if (!verifiedCredentialsCache.isEnabled() || !(token instanceof UsernamePasswordToken)) {
+            return super.doGetAuthenticationInfo(token);
+        }
+
+        final UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+        if (verifiedCredentialsCache.isVerified(upToken.getUsername(), upToken.getPassword())) {
+            return new KillBillAuthenticationInfo(new SimplePrincipalCollection(upToken.getUsername(), getName()), null, null, true, verifiedCredentialsCache.getGeneration());
+        }
+
+        // Capture the generation before reading the credentials, in case they get updated concurrently
+        final long generation = verifiedCredentialsCache.getGeneration();
+        final AuthenticationInfo authenticationInfo = super.doGetAuthenticationInfo(token);
+        if (authenticationInfo == null) {
+            return null;
+        }
+        final SaltedAuthenticationInfo saltedAuthenticationInfo = (SaltedAuthenticationInfo) authenticationInfo;
+        return new KillBillAuthenticationInfo(saltedAuthenticationInfo.getPrincipals(),
+                                              saltedAuthenticationInfo.getCredentials(),
+                                              saltedAuthenticationInfo.getCredentialsSalt(),
+                                              false,
+                                              generation);
+    }
+
+    @Override
+    protected void assertCredentialsMatch(final AuthenticationToken token, final AuthenticationInfo info) throws AuthenticationException {
+        if (!(info instanceof KillBillAuthenticationInfo)) {
+            super.assertCredentialsMatch(token, info);
+            return;
+        }
+
+        final KillBillAuthenticationInfo killBillAuthenticationInfo = (KillBillAuthenticationInfo) info;
+        if (killBillAuthenticationInfo.isAlreadyVerified()) {
+            return;
+        }
+
+        // Throws if the credentials don't match
+        super.assertCredentialsMatch(token, info);
+
+        final UsernamePasswordToken upToken = (UsernamePasswordToken) token;
+        verifiedCredentialsCache.putVerified(upToken.getUsername(), upToken.getPassword(), killBillAuthenticationInfo.getCacheGeneration());
+    }
+
+    @Override
+    protected AuthorizationInfo doGetAuthorizationInfo(final PrincipalCollection principals) {
+        if (!verifiedCredentialsCache.isEnabled() || principals == null) {
+            return super.doGetAuthorizationInfo(principals);
+        }
+
+        final String username = (String) getAvailablePrincipal(principals);
+        final AuthorizationInfo cachedAuthorizationInfo = verifiedCredentialsCache.getAuthorizationInfo(username);
+        if (cachedAuthorizationInfo != null) {
+            return cachedAuthorizationInfo;
+        }
+
+        final long generation = verifiedCredentialsCache.getGeneration();
+        final AuthorizationInfo authorizationInfo = super.doGetAuthorizationInfo(principals);
+        verifiedCredentialsCache.putAuthorizationInfo(username, authorizationInfo, generation);
+        return authorizationInfo;
+    }
+
     @Override
     public void clearCachedAuthorizationInfo(PrincipalCollection principals) {
         super.clearCachedAuthorizationInfo(principals);
+        if (principals != null) {
+            verifiedCredentialsCache.invalidate((String) getAvailablePrincipal(principals));
+        }
+    }
+
+    /**
+     * Invalidate the cached credentials, roles and permissions of a user
+     *
+     * @param username the user name, or null to invalidate all users
+     */
+    public void invalidateCachedUser(final String username) {
+        if (username == null) {
+            verifiedCredentialsCache.invalidateAll();
+            final Cache<Object, AuthorizationInfo> authorizationCache = getAuthorizationCache();
+            if (authorizationCache != null) {
+                authorizationCache.clear();
+            }
+        } else {
+            clearCachedAuthorizationInfo(new SimplePrincipalCollection(username, getName()));
+        }
     }
 
     private void configureSecurity() {
@@ -72,4 +166,28 @@ public class KillBillJdbcRealm extends JdbcRealm {
     private void configureDataSource() {
         setDataSource(dataSource);
     }
+
+    private static final class KillBillAuthenticationInfo extends SimpleAuthenticationInfo {
+
+        private final boolean alreadyVerified;
+        private final long cacheGeneration;
+
+        private KillBillAuthenticationInfo(final PrincipalCollection principals,
+                                           final Object hashedCredentials,
+                                           final ByteSource credentialsSalt,
+                                           final boolean alreadyVerified,
+                                           final long cacheGeneration) {
+            super(principals, hashedCredentials, credentialsSalt);
+            this.alreadyVerified = alreadyVerified;
+            this.cacheGeneration = cacheGeneration;
+        }
+
+        private boolean isAlreadyVerified() {
+            return alreadyVerified;
+        }
+
+        private long getCacheGeneration() {
+            return cacheGeneration;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security.shiro.realm;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.apache.shiro.mgt.RealmSecurityManager;
+import org.apache.shiro.mgt.SecurityManager;
+import org.apache.shiro.realm.Realm;
+import org.killbill.billing.events.BroadcastInternalEvent;
+import org.killbill.billing.platform.api.KillbillService.KILLBILL_SERVICES;
+import org.killbill.commons.eventbus.AllowConcurrentEvents;
+import org.killbill.commons.eventbus.Subscribe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Invalidates the {@link KillBillJdbcRealm} caches on all nodes when users are modified (the modifications
+ * are recorded in the service_broadcasts table by the UserDao, see DefaultBroadcastService).
+ */
+public class SecurityCacheInvalidationListener {
+
+    public static final String SERVICE_NAME = KILLBILL_SERVICES.SECURITY_SERVICE.getServiceName();
+    public static final String INVALIDATE_USER_CACHE_TYPE = "INVALIDATE_USER_CACHE";
+
+    private static final String USERNAME = "username";
+
+    private static final Logger logger = LoggerFactory.getLogger(SecurityCacheInvalidationListener.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SecurityManager securityManager;
+
+    @Inject
+    public SecurityCacheInvalidationListener(final SecurityManager securityManager) {
+        this.securityManager = securityManager;
+    }
+
+    @AllowConcurrentEvents
+    @Subscribe
+    public void handleBroadcastEvent(final BroadcastInternalEvent event) {
+        if (!SERVICE_NAME.equals(event.getServiceName()) || !INVALIDATE_USER_CACHE_TYPE.equals(event.getType())) {
+            return;
+        }
+
+        final String username;
+        try {
+            username = fromJsonEvent(event.getJsonEvent());
+        } catch (final IOException e) {
+            logger.warn("Unable to deserialize broadcast event {}, invalidating all cached users", event, e);
+            invalidateCachedUser(null);
+            return;
+        }
+        invalidateCachedUser(username);
+    }
+
+    private void invalidateCachedUser(final String username) {
+        if (!(securityManager instanceof RealmSecurityManager)) {
+            return;
+        }
+
+        final Collection<Realm> realms = ((RealmSecurityManager) securityManager).getRealms();
+        if (realms == null) {
+            return;
+        }
+
+        for (final Realm realm : realms) {
+            if (realm instanceof KillBillJdbcRealm) {
+                ((KillBillJdbcRealm) realm).invalidateCachedUser(username);
+            }
+        }
+    }
+
+    /**
+     * @param username the user name, or null for all users
+     * @return the event to broadcast
+     */
+    public static String toJsonEvent(final String username) {
+        try {
+            return objectMapper.writeValueAsString(username == null ? Map.of() : Map.of(USERNAME, username));
+        } catch (final JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String fromJsonEvent(final String jsonEvent) throws IOException {
+        return objectMapper.readTree(jsonEvent).path(USERNAME).textValue();
+    }
+}
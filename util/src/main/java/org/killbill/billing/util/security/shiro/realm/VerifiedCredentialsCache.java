@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.security.shiro.realm;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.shiro.authz.AuthorizationInfo;
+
+/**
+ * Bounded, time-limited cache of successful credentials verifications and of the roles and permissions
+ * looked-up for a user.
+ * <p>
+ * Credentials are never stored: we only keep an HMAC of them, keyed with a secret generated at startup,
+ * which lets us skip the (deliberately expensive) salted hash comparison for credentials we have already
+ * verified. Failed attempts are never cached.
+ * <p>
+ * Entries must be invalidated when the user's password, roles or status change. To avoid re-populating the
+ * cache with data read before an invalidation, callers must capture {@link #getGeneration()} before going
+ * to the database and pass it back when populating the cache.
+ */
+public class VerifiedCredentialsCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final SecretKeySpec secretKey;
+
+    private final Map<String, CachedEntry<byte[]>> verifiedCredentials;
+    private final Map<String, CachedEntry<AuthorizationInfo>> authorizationInfos;
+
+    private long generation;
+
+    public VerifiedCredentialsCache(final int maxSize, final long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+
+        this.verifiedCredentials = newLruMap();
+        this.authorizationInfos = newLruMap();
+        this.generation = 0L;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public boolean isVerified(final String username, final char[] credentials) {
+        if (!isEnabled() || username == null || credentials == null) {
+            return false;
+        }
+
+        final byte[] cachedDigest = get(verifiedCredentials, username);
+        return cachedDigest != null && MessageDigest.isEqual(cachedDigest, digest(credentials));
+    }
+
+    public void putVerified(final String username, final char[] credentials, final long expectedGeneration) {
+        if (!isEnabled() || username == null || credentials == null) {
+            return;
+        }
+
+        put(verifiedCredentials, username, digest(credentials), expectedGeneration);
+    }
+
+    public AuthorizationInfo getAuthorizationInfo(final String username) {
+        if (!isEnabled() || username == null) {
+            return null;
+        }
+
+        return get(authorizationInfos, username);
+    }
+
+    public void putAuthorizationInfo(final String username, final AuthorizationInfo authorizationInfo, final long expectedGeneration) {
+        if (!isEnabled() || username == null || authorizationInfo == null) {
+            return;
+        }
+
+        put(authorizationInfos, username, authorizationInfo, expectedGeneration);
+    }
+
+    public synchronized void invalidate(final String username) {
+        generation++;
+        verifiedCredentials.remove(username);
+        authorizationInfos.remove(username);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        verifiedCredentials.clear();
+        authorizationInfos.clear();
+    }
+
+    private synchronized <T> T get(final Map<String, CachedEntry<T>> cache, final String username) {
+        final CachedEntry<T> entry = cache.get(username);
+        if (entry == null) {
+            return null;
+        } else if (entry.expirationMillis < System.currentTimeMillis()) {
+            cache.remove(username);
+            return null;
+        } else {
+            return entry.value;
+        }
+    }
+
+    private synchronized <T> void put(final Map<String, CachedEntry<T>> cache, final String username, final T value, final long expectedGeneration) {
+        // The data was read before an invalidation, it may be stale
+        if (expectedGeneration != generation) {
+            return;
+        }
+        cache.put(username, new CachedEntry<T>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private byte[] digest(final char[] credentials) {
+        final ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(credentials));
+        final byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        try {
+            // Mac instances aren't thread-safe
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return mac.doFinal(bytes);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+    }
+
+    private <T> Map<String, CachedEntry<T>> newLruMap() {
+        return new LinkedHashMap<String, CachedEntry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedEntry<T>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private static final class CachedEntry<T> {
+
+        private final T value;
+        private final long expirationMillis;
+
+        private CachedEntry(final T value, final long expirationMillis) {
+            this.value = value;
+            this.expirationMillis = expirationMillis;
+        }
+    }
+}
@@ -45,7 +45,7 @@ import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.dao.TableName;
 import org.killbill.billing.util.entity.Pagination;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
-import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.EntityDaoBase;
 import org.killbill.billing.util.entity.dao.EntitySqlDao;
 import org.killbill.billing.util.entity.dao.EntitySqlDaoTransactionWrapper;
@@ -249,7 +249,7 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
     @Override
     public Pagination<TagModelDao> searchTags(final String searchKey, final Long offset, final Long limit, final InternalTenantContext context) {
         return paginationHelper.getPagination(TagSqlDao.class,
-                                              new PaginationIteratorBuilder<TagModelDao, Tag, TagSqlDao>() {
+                                              new KeysetPaginationIteratorBuilder<TagModelDao, Tag, TagSqlDao>() {
                                                   @Override
                                                   public Long getCount(final TagSqlDao tagSqlDao, final InternalTenantContext context) {
                                                       return tagSqlDao.getSearchCount(searchKey, String.format("%%%s%%", searchKey), context);
@@ -259,6 +259,11 @@ public class DefaultTagDao extends EntityDaoBase<TagModelDao, Tag, TagApiExcepti
                                                   public Iterator<TagModelDao> build(final TagSqlDao tagSqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
                                                       return tagSqlDao.search(searchKey, String.format("%%%s%%", searchKey), offset, limit, ordering.toString(), context);
                                                   }
+
+                                                  @Override
+                                                  public Iterator<TagModelDao> buildAfterRecordId(final TagSqlDao tagSqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                                                      return tagSqlDao.searchBetweenRecordIds(searchKey, String.format("%%%s%%", searchKey), getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+                                                  }
                                               },
                                               offset,
                                               limit,
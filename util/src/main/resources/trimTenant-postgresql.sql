@@ -45,6 +45,7 @@ BEGIN
     DELETE FROM invoice_tracking_id_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_tracking_ids WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_billing_events WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM invoice_account_balances WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM invoice_payment_control_plugin_auto_pay_off
         WHERE account_id in (SELECT id from accounts where tenant_record_id = v_tenant_record_id);
     DELETE FROM notifications WHERE search_key2 = v_tenant_record_id;
@@ -58,6 +59,8 @@ BEGIN
     DELETE FROM payment_transactions WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM payments WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM rolled_up_usage WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM rolled_up_usage_daily WHERE tenant_record_id = v_tenant_record_id;
+    DELETE FROM rolled_up_usage_daily_tracking_ids WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_event_history WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_events WHERE tenant_record_id = v_tenant_record_id;
     DELETE FROM subscription_history WHERE tenant_record_id = v_tenant_record_id;
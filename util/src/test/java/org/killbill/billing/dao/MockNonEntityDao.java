@@ -105,4 +105,9 @@ public class MockNonEntityDao implements NonEntityDao {
     public Long retrieveHistoryTargetRecordId(final Long recordId, final TableName tableName) {
         return null;
     }
+
+    @Override
+    public Long retrieveAccountEventsVersion(final InternalTenantContext context) {
+        return null;
+    }
 }
@@ -20,8 +20,10 @@ package org.killbill.billing.mock.glue;
 
 import org.killbill.billing.dao.MockNonEntityDao;
 import org.killbill.billing.platform.api.KillbillConfigSource;
+import org.killbill.billing.util.config.definition.DaoConfig;
 import org.killbill.billing.util.dao.NonEntityDao;
 import org.killbill.billing.util.glue.KillBillModule;
+import org.skife.config.ConfigurationObjectFactory;
 
 public class MockNonEntityDaoModule extends KillBillModule {
 
@@ -33,5 +35,8 @@ public class MockNonEntityDaoModule extends KillBillModule {
     protected void configure() {
         bind(NonEntityDao.class).to(MockNonEntityDao.class).asEagerSingleton();
         bind(MockNonEntityDao.class).asEagerSingleton();
+
+        final DaoConfig daoConfig = new ConfigurationObjectFactory(skifeConfigSource).build(DaoConfig.class);
+        bind(DaoConfig.class).toInstance(daoConfig);
     }
 }
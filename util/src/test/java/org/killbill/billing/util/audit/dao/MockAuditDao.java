@@ -17,8 +17,10 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -83,6 +85,11 @@ public class MockAuditDao implements AuditDao {
         }
     }
 
+    @Override
+    public Iterator<AuditLog> getAuditLogsForIds(final Map<TableName, ? extends Collection<UUID>> objectIdsPerTableName, final AuditLevel auditLevel, final InternalTenantContext context) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public List<AuditLogWithHistory> getAuditLogsWithHistoryForId(final HistorySqlDao sqlDao, final TableName tableName, final UUID objectId, final AuditLevel auditLevel, final InternalTenantContext context) {
         throw new UnsupportedOperationException();
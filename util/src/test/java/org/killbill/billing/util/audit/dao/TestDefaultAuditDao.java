@@ -17,6 +17,7 @@
 package org.killbill.billing.util.audit.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.skife.jdbi.v2.Handle;
@@ -24,6 +25,7 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.killbill.billing.ObjectType;
+import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.api.TestApiListener.NextEvent;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.api.AuditLevel;
@@ -38,6 +40,7 @@ import org.killbill.billing.util.tag.DescriptiveTag;
 import org.killbill.billing.util.tag.Tag;
 import org.killbill.billing.util.tag.dao.TagDefinitionModelDao;
 import org.killbill.billing.util.tag.dao.TagModelDao;
+import org.killbill.commons.utils.collect.Iterators;
 
 public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
 
@@ -74,6 +77,35 @@ public class TestDefaultAuditDao extends UtilTestSuiteWithEmbeddedDB {
         }
     }
 
+    @Test(groups = "slow")
+    public void testRetrieveAuditsForIds() throws Exception {
+        addTag();
+
+        final Handle handle = dbi.open();
+        final String tagHistoryString = (String) handle.select("select id from tag_history limit 1").get(0).get("id");
+        handle.close();
+
+        for (final AuditLevel level : AuditLevel.values()) {
+            // Via history
+            final List<AuditLog> auditLogs = Iterators.toUnmodifiableList(auditDao.getAuditLogsForIds(Map.of(TableName.TAG, List.of(tag.getId(), UUID.randomUUID())), level, internalCallContext));
+            verifyAuditLogsForTag(auditLogs, level);
+            for (final AuditLog auditLog : auditLogs) {
+                Assert.assertEquals(auditLog.getAuditedEntityId(), tag.getId());
+                Assert.assertEquals(auditLog.getAuditedObjectType(), ObjectType.TAG);
+            }
+
+            // Directly
+            verifyAuditLogsForTag(Iterators.toUnmodifiableList(auditDao.getAuditLogsForIds(Map.of(TableName.TAG_HISTORY, List.of(UUID.fromString(tagHistoryString))), level, internalCallContext)), level);
+        }
+
+        Assert.assertFalse(auditDao.getAuditLogsForIds(Map.of(TableName.TAG, List.of(UUID.randomUUID())), AuditLevel.FULL, internalCallContext).hasNext());
+
+        // Objects of another tenant aren't visible
+        final InternalTenantContext otherTenantContext = new InternalTenantContext(internalCallContext.getTenantRecordId() + 1);
+        Assert.assertFalse(auditDao.getAuditLogsForIds(Map.of(TableName.TAG, List.of(tag.getId())), AuditLevel.FULL, otherTenantContext).hasNext());
+        Assert.assertFalse(auditDao.getAuditLogsForIds(Map.of(TableName.TAG_HISTORY, List.of(UUID.fromString(tagHistoryString))), AuditLevel.FULL, otherTenantContext).hasNext());
+    }
+
     @Test(groups = "slow")
     public void testVerifyAuditCachesAreCleared() throws Exception {
         addTag();
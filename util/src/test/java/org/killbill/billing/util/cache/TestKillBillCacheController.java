@@ -17,11 +17,28 @@
 
 package org.killbill.billing.util.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.cache.Cache;
 import javax.cache.CacheException;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
 
 import org.killbill.billing.util.UtilTestSuiteNoDB;
 import org.killbill.billing.util.cache.Cachable.CacheType;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -64,4 +81,247 @@ public class TestKillBillCacheController extends UtilTestSuiteNoDB {
         // This will go back to the cache loader
         Assert.assertEquals(killBillCacheController.get("12", null), new Long(12));
     }
+
+    @Test(groups = "fast")
+    public void testSingleFlightLoading() throws Exception {
+        final ConcurrentHashMap<String, Long> backingMap = new ConcurrentHashMap<String, Long>();
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.get(Mockito.any())).thenAnswer(invocation -> backingMap.get((String) invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> backingMap.put((String) invocation.getArguments()[0], (Long) invocation.getArguments()[1]))
+               .when(cache).put(Mockito.any(), Mockito.any());
+
+        final CountDownLatch loaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLoader = new CountDownLatch(1);
+        final AtomicInteger nbComputations = new AtomicInteger();
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                nbComputations.incrementAndGet();
+                if ("12".equals(key)) {
+                    loaderStarted.countDown();
+                    try {
+                        releaseLoader.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return Long.valueOf(key);
+            }
+        };
+
+        final CacheLoaderStatistics statistics = new CacheLoaderStatistics();
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(cache, baseCacheLoader, statistics);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Long> first = executor.submit(() -> killBillCacheController.get("12", null));
+            Assert.assertTrue(loaderStarted.await(10, TimeUnit.SECONDS));
+            final Future<Long> second = executor.submit(() -> killBillCacheController.get("12", null));
+
+            // A miss on an unrelated key isn't blocked by the slow load
+            Assert.assertEquals(killBillCacheController.get("13", null), Long.valueOf(13));
+
+            releaseLoader.countDown();
+            Assert.assertEquals(first.get(10, TimeUnit.SECONDS), Long.valueOf(12));
+            Assert.assertEquals(second.get(10, TimeUnit.SECONDS), Long.valueOf(12));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The second lookup for key 12 either waited on the in-flight load or found the cached value
+        Assert.assertEquals(nbComputations.get(), 2);
+        Assert.assertEquals(statistics.getLoads(), 2);
+        Assert.assertEquals(statistics.getCurrentWaiters(), 0);
+        Assert.assertEquals(statistics.getInFlightLoads(), 0);
+    }
+
+    @Test(groups = "fast")
+    public void testSingleFlightLoadingWithError() throws Exception {
+        final Cache cache = Mockito.mock(Cache.class);
+
+        final CountDownLatch loaderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLoader = new CountDownLatch(1);
+        final AtomicInteger nbComputations = new AtomicInteger();
+        final BaseCacheLoader<String, Long> baseCacheLoader = new BaseCacheLoader<String, Long>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.RECORD_ID;
+            }
+
+            @Override
+            public Long compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                if (nbComputations.incrementAndGet() == 1) {
+                    loaderStarted.countDown();
+                    try {
+                        releaseLoader.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new StackOverflowError("Error for testing");
+                }
+                return Long.valueOf(key);
+            }
+        };
+
+        final CacheLoaderStatistics statistics = new CacheLoaderStatistics();
+        final KillBillCacheController<String, Long> killBillCacheController = new KillBillCacheController<String, Long>(cache, baseCacheLoader, statistics);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Long> first = executor.submit(() -> killBillCacheController.get("12", null));
+            Assert.assertTrue(loaderStarted.await(10, TimeUnit.SECONDS));
+            final Future<Long> second = executor.submit(() -> killBillCacheController.get("12", null));
+            // Make sure the second lookup is waiting on the in-flight load
+            while (statistics.getCurrentWaiters() == 0 && !second.isDone()) {
+                Thread.sleep(10);
+            }
+
+            releaseLoader.countDown();
+            for (final Future<Long> future : List.of(first, second)) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (final ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The failed load isn't registered anymore
+        Assert.assertEquals(statistics.getInFlightLoads(), 0);
+        Assert.assertEquals(killBillCacheController.get("12", null), Long.valueOf(12));
+    }
+
+    @Test(groups = "fast")
+    public void testRemoveByTenantRecordId() {
+        final ConcurrentHashMap<String, String> backingMap = new ConcurrentHashMap<String, String>();
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.get(Mockito.any())).thenAnswer(invocation -> backingMap.get((String) invocation.getArguments()[0]));
+        Mockito.when(cache.containsKey(Mockito.any())).thenAnswer(invocation -> backingMap.containsKey((String) invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> backingMap.put((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]))
+               .when(cache).put(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            backingMap.keySet().removeAll((Set<?>) invocation.getArguments()[0]);
+            return null;
+        }).when(cache).removeAll(Mockito.anySet());
+        Mockito.when(cache.remove(Mockito.any())).thenAnswer(invocation -> backingMap.remove((String) invocation.getArguments()[0]) != null);
+        // The index must not require a full scan
+        Mockito.when(cache.iterator()).thenThrow(new IllegalStateException("Full scan not expected"));
+
+        final BaseCacheLoader<String, String> baseCacheLoader = new BaseCacheLoader<String, String>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.TENANT_KV;
+            }
+
+            @Override
+            public String compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                return key.toUpperCase();
+            }
+        };
+
+        final KillBillCacheController<String, String> killBillCacheController = new KillBillCacheController<String, String>(cache, baseCacheLoader);
+        killBillCacheController.get("PER_TENANT_CONFIG::1", null);
+        killBillCacheController.get("CATALOG_::1", null);
+        killBillCacheController.get("PER_TENANT_CONFIG::11", null);
+        Assert.assertEquals(backingMap.size(), 3);
+
+        killBillCacheController.removeByTenantRecordId(1L);
+        Assert.assertEquals(backingMap.size(), 1);
+        Assert.assertTrue(backingMap.containsKey("PER_TENANT_CONFIG::11"));
+
+        Assert.assertTrue(killBillCacheController.remove("PER_TENANT_CONFIG::11"));
+        Assert.assertTrue(backingMap.isEmpty());
+        // No-op, the key was unindexed
+        killBillCacheController.removeByTenantRecordId(11L);
+    }
+
+    @Test(groups = "fast")
+    public void testRemoveByTenantRecordIdWithSharedCache() {
+        final ConcurrentHashMap<String, String> backingMap = new ConcurrentHashMap<String, String>();
+        // Populated by another node
+        backingMap.put("PER_TENANT_CONFIG::1", "OTHER_NODE");
+        backingMap.put("PER_TENANT_CONFIG::11", "OTHER_NODE");
+        final Cache cache = mockCache(backingMap);
+
+        final KillBillCacheController<String, String> killBillCacheController = new KillBillCacheController<String, String>(cache, tenantKVCacheLoader(), new CacheLoaderStatistics(), true);
+        killBillCacheController.get("CATALOG_::1", null);
+        Assert.assertEquals(backingMap.size(), 3);
+        // No index for shared caches
+        Mockito.verify(cache, Mockito.never()).registerCacheEntryListener(Mockito.any());
+
+        killBillCacheController.removeByTenantRecordId(1L);
+        Assert.assertEquals(backingMap.size(), 1);
+        Assert.assertTrue(backingMap.containsKey("PER_TENANT_CONFIG::11"));
+    }
+
+    @Test(groups = "fast")
+    public void testTenantKeysIndexPrunedOnExpiry() throws Exception {
+        final ConcurrentHashMap<String, String> backingMap = new ConcurrentHashMap<String, String>();
+        final Cache cache = mockCache(backingMap);
+
+        final KillBillCacheController<String, String> killBillCacheController = new KillBillCacheController<String, String>(cache, tenantKVCacheLoader());
+        final ArgumentCaptor<CacheEntryListenerConfiguration> listenerConfiguration = ArgumentCaptor.forClass(CacheEntryListenerConfiguration.class);
+        Mockito.verify(cache).registerCacheEntryListener(listenerConfiguration.capture());
+        final CacheEntryExpiredListener<String, String> listener = (CacheEntryExpiredListener<String, String>) listenerConfiguration.getValue().getCacheEntryListenerFactory().create();
+
+        killBillCacheController.get("PER_TENANT_CONFIG::1", null);
+        killBillCacheController.get("CATALOG_::1", null);
+
+        // The entry expires
+        backingMap.remove("CATALOG_::1");
+        final CacheEntryEvent<String, String> event = Mockito.mock(CacheEntryEvent.class);
+        Mockito.when(event.getKey()).thenReturn("CATALOG_::1");
+        listener.onExpired(List.of(event));
+
+        killBillCacheController.removeByTenantRecordId(1L);
+        Mockito.verify(cache).removeAll(Set.of("PER_TENANT_CONFIG::1"));
+        Assert.assertTrue(backingMap.isEmpty());
+    }
+
+    private Cache mockCache(final ConcurrentHashMap<String, String> backingMap) {
+        final Cache cache = Mockito.mock(Cache.class);
+        Mockito.when(cache.get(Mockito.any())).thenAnswer(invocation -> backingMap.get((String) invocation.getArguments()[0]));
+        Mockito.when(cache.containsKey(Mockito.any())).thenAnswer(invocation -> backingMap.containsKey((String) invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> backingMap.put((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]))
+               .when(cache).put(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            backingMap.keySet().removeAll((Set<?>) invocation.getArguments()[0]);
+            return null;
+        }).when(cache).removeAll(Mockito.anySet());
+        Mockito.when(cache.iterator()).thenAnswer(invocation -> toCacheEntries(backingMap).iterator());
+        Mockito.when(cache.spliterator()).thenAnswer(invocation -> toCacheEntries(backingMap).spliterator());
+        return cache;
+    }
+
+    private List<Cache.Entry<String, String>> toCacheEntries(final Map<String, String> backingMap) {
+        final List<Cache.Entry<String, String>> entries = new ArrayList<Cache.Entry<String, String>>();
+        for (final String key : backingMap.keySet()) {
+            final Cache.Entry<String, String> entry = Mockito.mock(Cache.Entry.class);
+            Mockito.when(entry.getKey()).thenReturn(key);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private BaseCacheLoader<String, String> tenantKVCacheLoader() {
+        return new BaseCacheLoader<String, String>() {
+            @Override
+            public CacheType getCacheType() {
+                return CacheType.TENANT_KV;
+            }
+
+            @Override
+            public String compute(final String key, final CacheLoaderArgument cacheLoaderArgument) {
+                return key.toUpperCase();
+            }
+        };
+    }
 }
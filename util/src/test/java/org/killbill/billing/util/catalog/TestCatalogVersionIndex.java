@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.catalog;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.killbill.billing.catalog.api.Plan;
+import org.killbill.billing.catalog.api.StaticCatalog;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCatalogVersionIndex {
+
+    @Test(groups = "fast")
+    public void testVersionForDate() {
+        final List<StaticCatalog> versions = List.of(version(1000L), version(2000L), version(3000L));
+        final CatalogVersionIndex index = new CatalogVersionIndex(versions);
+
+        // Prior all versions, we return the first one
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(0L)), 0);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(1000L)), 0);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(1999L)), 0);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(2000L)), 1);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(2500L)), 1);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(3000L)), 2);
+        Assert.assertEquals(index.indexOfVersionForDate(new Date(Long.MAX_VALUE)), 2);
+        Assert.assertSame(index.versionForDate(new Date(2500L)), versions.get(1));
+
+        Assert.assertEquals(index.indexOfVersion(new Date(2000L)), 1);
+        Assert.assertEquals(index.indexOfVersion(new Date(2500L)), -1);
+        Assert.assertEquals(index.indexOfVersion(new Date(0L)), -1);
+
+        // Same results as a linear scan (from the most recent version)
+        for (long time = 0L; time <= 4000L; time += 250L) {
+            int expected = 0;
+            for (int i = versions.size() - 1; i >= 0; i--) {
+                if (versions.get(i).getEffectiveDate().getTime() <= time) {
+                    expected = i;
+                    break;
+                }
+            }
+            Assert.assertEquals(index.indexOfVersionForDate(new Date(time)), expected);
+        }
+    }
+
+    @Test(groups = "fast")
+    public void testFindPlan() {
+        final Plan planAV1 = plan("plan-a");
+        final Plan planAV2 = plan("plan-a");
+        final Plan planBV2 = plan("plan-b");
+        final Plan planBV3 = plan("plan-b");
+        final CatalogVersionIndex index = new CatalogVersionIndex(List.of(version(1000L, planAV1),
+                                                                          version(2000L, planAV2, planBV2),
+                                                                          version(3000L, planBV3)));
+
+        Assert.assertTrue(index.isIndexedPlan("plan-a"));
+        Assert.assertTrue(index.isIndexedPlan("plan-b"));
+        Assert.assertFalse(index.isIndexedPlan("plan-c"));
+
+        Assert.assertSame(index.findPlan("plan-a", 0), planAV1);
+        Assert.assertSame(index.findPlan("plan-a", 1), planAV2);
+        // Retired plan
+        Assert.assertNull(index.findPlan("plan-a", 2));
+        Assert.assertNull(index.findPlan("plan-b", 0));
+        Assert.assertSame(index.findPlan("plan-b", 1), planBV2);
+        Assert.assertSame(index.findPlan("plan-b", 2), planBV3);
+        Assert.assertNull(index.findPlan("plan-c", 1));
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalStateException.class)
+    public void testNoVersion() {
+        new CatalogVersionIndex(Collections.emptyList()).indexOfVersionForDate(new Date());
+    }
+
+    @Test(groups = "fast", expectedExceptions = IllegalArgumentException.class)
+    public void testUnsortedVersions() {
+        new CatalogVersionIndex(List.of(version(2000L), version(1000L)));
+    }
+
+    private static StaticCatalog version(final long effectiveDate, final Plan... plans) {
+        final StaticCatalog version = Mockito.mock(StaticCatalog.class);
+        Mockito.when(version.getEffectiveDate()).thenReturn(new Date(effectiveDate));
+        Mockito.when(version.getPlans()).thenReturn(List.of(plans));
+        return version;
+    }
+
+    private static Plan plan(final String name) {
+        final Plan plan = Mockito.mock(Plan.class);
+        Mockito.when(plan.getName()).thenReturn(name);
+        return plan;
+    }
+}
@@ -19,18 +19,24 @@ package org.killbill.billing.util.entity.dao;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.killbill.billing.callcontext.InternalTenantContext;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
 import org.killbill.billing.util.dao.DefaultKombuchaModelDao;
 import org.killbill.billing.util.dao.Kombucha;
 import org.killbill.billing.util.dao.KombuchaModelDao;
 import org.killbill.billing.util.dao.KombuchaSqlDao;
+import org.killbill.billing.util.entity.DefaultPagination;
 import org.killbill.billing.util.entity.Pagination;
+import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.KeysetPaginationIteratorBuilder;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.Ordering;
 import org.killbill.billing.util.entity.dao.DefaultPaginationSqlDaoHelper.PaginationIteratorBuilder;
+import org.killbill.commons.utils.collect.Iterators;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -145,6 +151,85 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
         listAndValidateKombuchas(0L, 2L, 1L, 8L, null, 0L, 2L, false);
     }
 
+    @Test(groups = "slow")
+    public void testListKombuchasWithKeysetPagination() {
+        insertKombuchas(null);
+        insertKombuchas(2347L); //dummy accountRecordId
+
+        final DefaultPaginationSqlDaoHelper paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, 100L);
+        // Listing and search (the seek query of the latter filters on a record_id range)
+        for (final PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> keysetBuilder : List.of(getKeysetListKombuchasBuilder(), getKeysetSearchKombuchasBuilder())) {
+            for (final long limit : new long[]{3L, -3L}) {
+                final List<Long> expectedRecordIds = new ArrayList<>();
+                final List<Long> recordIds = new ArrayList<>();
+                String cursor = null;
+                for (long offset = 0; offset < 8; offset += Math.abs(limit)) {
+                    final Pagination<KombuchaModelDao> expected = paginationHelper.getPagination(KombuchaSqlDao.class, getListKombuchasBuilder(), offset, limit, internalCallContext);
+                    expected.iterator().forEachRemaining(kombucha -> expectedRecordIds.add(kombucha.getRecordId()));
+                    closePagination(expected);
+
+                    // The first page is served with the offset query, the following ones from the cursor returned by the previous page
+                    final Pagination<KombuchaModelDao> pagination = paginationHelper.getPagination(KombuchaSqlDao.class, keysetBuilder, offset, limit, withPaginationCursor(cursor));
+                    Assert.assertEquals(pagination.getCurrentOffset(), (Long) offset);
+                    if (offset == 0) {
+                        Assert.assertEquals(pagination.getTotalNbRecords(), (Long) 8L);
+                        Assert.assertEquals(pagination.getMaxNbRecords(), (Long) 8L);
+                    } else {
+                        // Counts are skipped for cursor pages
+                        Assert.assertNull(pagination.getTotalNbRecords());
+                        Assert.assertNull(pagination.getMaxNbRecords());
+                    }
+                    final List<Long> pageRecordIds = new ArrayList<>();
+                    pagination.iterator().forEachRemaining(kombucha -> pageRecordIds.add(kombucha.getRecordId()));
+                    closePagination(pagination);
+                    recordIds.addAll(pageRecordIds);
+
+                    cursor = ((DefaultPagination<KombuchaModelDao>) pagination).getNextCursor();
+                    if (pageRecordIds.size() == Math.abs(limit)) {
+                        Assert.assertEquals(PaginationCursor.decode(cursor).getLastRecordId(), pageRecordIds.get(pageRecordIds.size() - 1));
+                    } else {
+                        // Last page
+                        Assert.assertNull(cursor);
+                    }
+                }
+
+                Assert.assertEquals(recordIds.size(), 8);
+                Assert.assertEquals(recordIds, expectedRecordIds);
+            }
+        }
+    }
+
+    @Test(groups = "slow")
+    public void testKeysetPaginationWithInvalidCursor() {
+        insertKombuchas(null);
+
+        final DefaultPaginationSqlDaoHelper paginationHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, 100L);
+
+        // Cursors built for another listing are ignored
+        final Pagination<KombuchaModelDao> pagination = paginationHelper.getPagination(KombuchaSqlDao.class, getKeysetListKombuchasBuilder(), 0L, 10L, withPaginationCursor(new PaginationCursor("InvoiceSqlDao", Ordering.ASC, 2L).encode()));
+        Assert.assertEquals(pagination.getTotalNbRecords(), (Long) 4L);
+        Assert.assertEquals(Iterators.toUnmodifiableList(pagination.iterator()).size(), 4);
+        Assert.assertNull(((DefaultPagination<KombuchaModelDao>) pagination).getNextCursor());
+        closePagination(pagination);
+
+        try {
+            paginationHelper.getPagination(KombuchaSqlDao.class, getKeysetListKombuchasBuilder(), 0L, 10L, withPaginationCursor(new PaginationCursor("KombuchaSqlDao", Ordering.DESC, 2L).encode()));
+            Assert.fail("Cursor was built for DESC ordering");
+        } catch (final IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("DESC"));
+        }
+
+        try {
+            paginationHelper.getPagination(KombuchaSqlDao.class, getKeysetListKombuchasBuilder(), 0L, 10L, withPaginationCursor("not-a-cursor"));
+            Assert.fail("Cursor is malformed");
+        } catch (final IllegalArgumentException ignored) {
+        }
+    }
+
+    private InternalTenantContext withPaginationCursor(@Nullable final String cursor) {
+        return new InternalTenantContext(internalCallContext.getTenantRecordId(), null, null, null, null, cursor);
+    }
+
     private void listAndValidateKombuchas(final Long offset,
     									  final Long limit,
     									  final Long simplePaginationThreshold, 
@@ -229,7 +314,16 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
 
     //method that queries the tables without the accountRecordId
     private Pagination<KombuchaModelDao> listKombuchas(final Long offset, final Long limit, final Long simplePaginationThreshold) {
-        final PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> paginationIteratorBuilder = new PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>>() {
+        final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, simplePaginationThreshold);
+        return defaultPaginationSqlDaoHelper.getPagination(KombuchaSqlDao.class,
+                                                           getListKombuchasBuilder(),
+                                                           offset,
+                                                           limit,
+                                                           internalCallContext);
+    }
+
+    private PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> getListKombuchasBuilder() {
+        return new PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>>() {
             @Override
             public Long getCount(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final InternalTenantContext context) {
                 return sqlDao.getCount(context);
@@ -241,13 +335,45 @@ public class TestDefaultPaginationSqlDaoHelper extends UtilTestSuiteWithEmbedded
             }
 
         };
+    }
 
-        final DefaultPaginationSqlDaoHelper defaultPaginationSqlDaoHelper = new DefaultPaginationSqlDaoHelper(transactionalSqlDao, simplePaginationThreshold);
-        return defaultPaginationSqlDaoHelper.getPagination(KombuchaSqlDao.class,
-                                                           paginationIteratorBuilder,
-                                                           offset,
-                                                           limit,
-                                                           internalCallContext);
+    private PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> getKeysetListKombuchasBuilder() {
+        return new KeysetPaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>>() {
+            @Override
+            public Long getCount(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final InternalTenantContext context) {
+                return null;
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> build(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return sqlDao.get(offset, limit, "record_id", ordering.toString(), context);
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> buildAfterRecordId(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return ordering == Ordering.ASC ? sqlDao.getAfterRecordId(lastRecordId, limit, context) : sqlDao.getBeforeRecordId(lastRecordId, limit, context);
+            }
+        };
+    }
+
+    // Kombuchas don't define a search query (everything matches)
+    private PaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>> getKeysetSearchKombuchasBuilder() {
+        return new KeysetPaginationIteratorBuilder<KombuchaModelDao, Kombucha, EntitySqlDao<KombuchaModelDao, Kombucha>>() {
+            @Override
+            public Long getCount(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final InternalTenantContext context) {
+                return sqlDao.getSearchCount("", "%%", context);
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> build(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long offset, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return sqlDao.search("", "%%", offset, limit, ordering.toString(), context);
+            }
+
+            @Override
+            public Iterator<KombuchaModelDao> buildAfterRecordId(final EntitySqlDao<KombuchaModelDao, Kombucha> sqlDao, final Long lastRecordId, final Long limit, final Ordering ordering, final InternalTenantContext context) {
+                return sqlDao.searchBetweenRecordIds("", "%%", getMinRecordId(lastRecordId, ordering), getMaxRecordId(lastRecordId, ordering), limit, ordering.toString(), context);
+            }
+        };
     }
 
     private void insertKombuchas(final int nb) {
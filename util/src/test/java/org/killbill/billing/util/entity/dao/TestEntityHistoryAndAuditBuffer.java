@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.entity.dao;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.UUID;
+
+import org.killbill.billing.ObjectType;
+import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.api.AuditLevel;
+import org.killbill.billing.util.audit.AuditLog;
+import org.killbill.billing.util.audit.ChangeType;
+import org.killbill.billing.util.customfield.CustomField;
+import org.killbill.billing.util.customfield.dao.CustomFieldModelDao;
+import org.killbill.billing.util.customfield.dao.CustomFieldSqlDao;
+import org.killbill.billing.util.dao.TableName;
+import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.sqlobject.SqlObjectBuilder;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestEntityHistoryAndAuditBuffer extends UtilTestSuiteWithEmbeddedDB {
+
+    @Test(groups = "slow")
+    public void testHistoryAndAuditsAreInsertedOnFlush() throws Exception {
+        final UUID objectId = UUID.randomUUID();
+        final CustomFieldModelDao customField1 = new CustomFieldModelDao(clock.getUTCNow(), "field1", "value1", objectId, ObjectType.ACCOUNT);
+        final CustomFieldModelDao customField2 = new CustomFieldModelDao(clock.getUTCNow(), "field2", "value2", objectId, ObjectType.ACCOUNT);
+
+        final Handle handle = dbi.open();
+        try {
+            handle.begin();
+
+            final EntityHistoryAndAuditBuffer historyAndAuditBuffer = new EntityHistoryAndAuditBuffer();
+            final CustomFieldSqlDao customFieldSqlDao = createSqlDao(handle, historyAndAuditBuffer);
+
+            // The inserted model is returned, with its record ids
+            final Object created = customFieldSqlDao.create(customField1, internalCallContext);
+            Assert.assertSame(created, customField1);
+            Assert.assertNotNull(customField1.getRecordId());
+            Assert.assertEquals(customField1.getAccountRecordId(), internalCallContext.getAccountRecordId());
+            Assert.assertEquals(customField1.getTenantRecordId(), internalCallContext.getTenantRecordId());
+
+            customFieldSqlDao.create(List.of(customField2), internalCallContext);
+            customFieldSqlDao.updateValue(customField1.getId().toString(), "value1-updated", internalCallContext);
+            // Modifying the model doesn't impact the pending history row
+            customField1.setFieldValue("value1-modified");
+
+            Assert.assertFalse(historyAndAuditBuffer.isEmpty());
+            Assert.assertEquals(count(handle, "select count(*) count from custom_field_history"), 0L);
+            Assert.assertEquals(count(handle, "select count(*) count from audit_log where table_name = 'CUSTOM_FIELD_HISTORY'"), 0L);
+
+            historyAndAuditBuffer.flush();
+            Assert.assertTrue(historyAndAuditBuffer.isEmpty());
+
+            handle.commit();
+
+            Assert.assertEquals(count(handle, "select count(*) count from custom_field_history"), 3L);
+            final List<String> historyValues = handle.createQuery("select field_value from custom_field_history where target_record_id = :targetRecordId order by record_id")
+                                                     .bind("targetRecordId", customField1.getRecordId())
+                                                     .map((index, r, ctx) -> r.getString("field_value"))
+                                                     .list();
+            Assert.assertEquals(historyValues, List.of("value1", "value1-updated"));
+        } finally {
+            handle.close();
+        }
+
+        final List<AuditLog> auditLogs = auditDao.getAuditLogsForId(TableName.CUSTOM_FIELD, customField1.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs.size(), 2);
+        Assert.assertEquals(auditLogs.get(0).getChangeType(), ChangeType.INSERT);
+        Assert.assertEquals(auditLogs.get(1).getChangeType(), ChangeType.UPDATE);
+        Assert.assertEquals(auditLogs.get(0).getUserName(), internalCallContext.getCreatedBy());
+
+        final List<AuditLog> auditLogs2 = auditDao.getAuditLogsForId(TableName.CUSTOM_FIELD, customField2.getId(), AuditLevel.FULL, internalCallContext);
+        Assert.assertEquals(auditLogs2.size(), 1);
+        Assert.assertEquals(auditLogs2.get(0).getChangeType(), ChangeType.INSERT);
+    }
+
+    private CustomFieldSqlDao createSqlDao(final Handle handle, final EntityHistoryAndAuditBuffer historyAndAuditBuffer) {
+        final CustomFieldSqlDao sqlDao = SqlObjectBuilder.attach(handle, CustomFieldSqlDao.class);
+        final EntitySqlDaoWrapperInvocationHandler<CustomFieldSqlDao, CustomFieldModelDao, CustomField> invocationHandler =
+                new EntitySqlDaoWrapperInvocationHandler<CustomFieldSqlDao, CustomFieldModelDao, CustomField>(CustomFieldSqlDao.class,
+                                                                                                              sqlDao,
+                                                                                                              handle,
+                                                                                                              cacheControllerDispatcher,
+                                                                                                              internalCallContextFactory,
+                                                                                                              historyAndAuditBuffer);
+        return (CustomFieldSqlDao) Proxy.newProxyInstance(sqlDao.getClass().getClassLoader(), new Class[]{CustomFieldSqlDao.class}, invocationHandler);
+    }
+
+    private static long count(final Handle handle, final String query) {
+        return ((Number) handle.select(query).get(0).get("count")).longValue();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020-2023 Equinix, Inc
+ * Copyright 2014-2023 The Billing Project, LLC
+ *
+ * The Billing Project licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.killbill.billing.util.metrics;
+
+import org.killbill.billing.util.UtilTestSuiteNoDB;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestLatencyHistogram extends UtilTestSuiteNoDB {
+
+    @Test(groups = "fast")
+    public void testBuckets() {
+        long previousUpperBound = -1;
+        for (long value = 0; value < 1000000; value++) {
+            final int index = LatencyHistogram.getBucketIndex(value);
+            final long upperBound = LatencyHistogram.getBucketUpperBound(index);
+            Assert.assertTrue(upperBound >= value);
+            // Relative error bounded by 1/8
+            Assert.assertTrue(upperBound - value <= value / 8);
+            if (upperBound != previousUpperBound) {
+                Assert.assertTrue(upperBound > previousUpperBound);
+                previousUpperBound = upperBound;
+            }
+        }
+        Assert.assertEquals(LatencyHistogram.getBucketIndex(Long.MAX_VALUE), LatencyHistogram.getBucketIndex(Long.MAX_VALUE / 2));
+    }
+
+    @Test(groups = "fast")
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getMax(), 1000);
+        Assert.assertEquals(histogram.getMean(), 500.5);
+        assertWithinError(histogram.getValueAtPercentile(50), 500);
+        assertWithinError(histogram.getValueAtPercentile(90), 900);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 1000);
+    }
+
+    @Test(groups = "fast")
+    public void testMerge() {
+        final LatencyHistogram histogram1 = new LatencyHistogram();
+        final LatencyHistogram histogram2 = new LatencyHistogram();
+        for (int i = 1; i <= 500; i++) {
+            histogram1.record(i);
+            histogram2.record(500 + i);
+        }
+
+        histogram1.merge(histogram2);
+        Assert.assertEquals(histogram1.getCount(), 1000);
+        Assert.assertEquals(histogram1.getMax(), 1000);
+        Assert.assertEquals(histogram1.getMean(), 500.5);
+        assertWithinError(histogram1.getValueAtPercentile(50), 500);
+        assertWithinError(histogram1.getValueAtPercentile(90), 900);
+    }
+
+    private void assertWithinError(final long actual, final long expected) {
+        Assert.assertTrue(actual >= expected && actual <= expected + expected / 8, actual + " not within bucket error of " + expected);
+    }
+}
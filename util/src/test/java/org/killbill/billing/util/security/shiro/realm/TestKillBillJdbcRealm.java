@@ -22,6 +22,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.authc.AuthenticationException;
 import org.apache.shiro.authc.AuthenticationToken;
@@ -36,6 +38,9 @@ import org.killbill.billing.ErrorCode;
 import org.killbill.billing.security.Permission;
 import org.killbill.billing.security.SecurityApiException;
 import org.killbill.billing.util.UtilTestSuiteWithEmbeddedDB;
+import org.killbill.billing.util.broadcast.DefaultBroadcastInternalEvent;
+import org.killbill.billing.util.broadcast.dao.BroadcastModelDao;
+import org.killbill.billing.util.security.shiro.dao.UserDao;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -43,6 +48,9 @@ import org.testng.annotations.Test;
 
 public class TestKillBillJdbcRealm extends UtilTestSuiteWithEmbeddedDB {
 
+    @Inject
+    private UserDao userDao;
+
     private SecurityManager securityManager;
 
     @Override
@@ -118,6 +126,41 @@ public class TestKillBillJdbcRealm extends UtilTestSuiteWithEmbeddedDB {
 
     }
 
+    @Test(groups = "slow")
+    public void testVerifiedCredentialsCacheInvalidation() throws Exception {
+        final String username = "cached";
+        final String password = "c4ch3d";
+
+        securityApi.addRoleDefinition("cached_role", List.of("account:*"), callContext);
+        securityApi.addUserRoles(username, password, List.of("cached_role"), callContext);
+
+        final AuthenticationToken goodToken = new UsernamePasswordToken(username, password);
+        securityManager.logout(securityManager.login(null, goodToken));
+
+        // Simulate a password update on another node: the local cache isn't invalidated yet
+        final String newPassword = "n3wc4ch3d";
+        userDao.updateUserPassword(username, newPassword, "tester");
+        securityManager.logout(securityManager.login(null, goodToken));
+
+        final BroadcastModelDao broadcast = broadcastDao.getLatestEntry();
+        Assert.assertEquals(broadcast.getServiceName(), SecurityCacheInvalidationListener.SERVICE_NAME);
+        Assert.assertEquals(broadcast.getType(), SecurityCacheInvalidationListener.INVALIDATE_USER_CACHE_TYPE);
+        Assert.assertEquals(SecurityCacheInvalidationListener.fromJsonEvent(broadcast.getEvent()), username);
+
+        // Broadcast received by this node
+        final SecurityCacheInvalidationListener listener = new SecurityCacheInvalidationListener(securityManager);
+        listener.handleBroadcastEvent(new DefaultBroadcastInternalEvent(broadcast.getServiceName(), broadcast.getType(), broadcast.getEvent()));
+
+        try {
+            securityManager.login(null, goodToken);
+            Assert.fail("Should not succeed to login with an incorrect password");
+        } catch (final AuthenticationException e) {
+        }
+        final Subject subject = securityManager.login(null, new UsernamePasswordToken(username, newPassword));
+        subject.checkPermission(Permission.ACCOUNT_CAN_CHARGE.toString());
+        securityManager.logout(subject);
+    }
+
     @Test(groups = "slow")
     public void testEmptyPermissions() throws SecurityApiException {
         securityApi.addRoleDefinition("sanity1", null, callContext);
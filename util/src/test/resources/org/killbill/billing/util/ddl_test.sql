@@ -26,6 +26,7 @@ CREATE TABLE accounts (
     phone varchar(25) DEFAULT NULL,
     notes varchar(4096) DEFAULT NULL,
     migrated boolean default false,
+    events_version bigint NOT NULL DEFAULT 0,
     created_date datetime NOT NULL,
     created_by varchar(50) NOT NULL,
     updated_date datetime DEFAULT NULL,